@@ -0,0 +1,45 @@
+package binhnvh.apigateway.cache;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * The bytes of a response body as it streams past, given up once they exceed the limit.
+ */
+final class BodyCopy {
+
+    private final long limit;
+    private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    BodyCopy(long limit) {
+        this.limit = limit;
+    }
+
+    void append(DataBuffer buffer) {
+        if (bytes == null) {
+            return;
+        }
+        int readable = buffer.readableByteCount();
+        if (bytes.size() + (long) readable > limit) {
+            bytes = null;
+            return;
+        }
+        byte[] chunk = new byte[readable];
+        int position = buffer.readPosition();
+        buffer.read(chunk);
+        buffer.readPosition(position);
+        bytes.write(chunk, 0, readable);
+    }
+
+    boolean isAbandoned() {
+        return bytes == null;
+    }
+
+    /**
+     * @return the body, or null if it was too large
+     */
+    byte[] toByteArray() {
+        return bytes == null ? null : bytes.toByteArray();
+    }
+}
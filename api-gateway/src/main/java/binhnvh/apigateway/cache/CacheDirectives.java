@@ -0,0 +1,65 @@
+package binhnvh.apigateway.cache;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The Cache-Control directives the response cache acts on. Ages are in seconds, -1 when absent.
+ */
+record CacheDirectives(boolean noStore, boolean noCache, boolean isPrivate, boolean isPublic,
+                       boolean mustRevalidate, long maxAge, long sMaxAge) {
+
+    static final CacheDirectives NONE = new CacheDirectives(false, false, false, false, false, -1, -1);
+
+    static CacheDirectives parse(List<String> headerValues) {
+        if (headerValues == null || headerValues.isEmpty()) {
+            return NONE;
+        }
+        boolean noStore = false;
+        boolean noCache = false;
+        boolean isPrivate = false;
+        boolean isPublic = false;
+        boolean mustRevalidate = false;
+        long maxAge = -1;
+        long sMaxAge = -1;
+        for (String headerValue : headerValues) {
+            for (String directive : headerValue.split(",")) {
+                String name = directive.trim().toLowerCase(Locale.ROOT);
+                String argument = null;
+                int equals = name.indexOf('=');
+                if (equals >= 0) {
+                    argument = name.substring(equals + 1).trim();
+                    name = name.substring(0, equals).trim();
+                }
+                switch (name) {
+                    case "no-store" -> noStore = true;
+                    // A field-name argument restricts no-cache to some headers; treat it as applying to all
+                    case "no-cache" -> noCache = true;
+                    case "private" -> isPrivate = true;
+                    case "public" -> isPublic = true;
+                    case "must-revalidate", "proxy-revalidate" -> mustRevalidate = true;
+                    case "max-age" -> maxAge = seconds(argument);
+                    case "s-maxage" -> sMaxAge = seconds(argument);
+                    default -> {
+                    }
+                }
+            }
+        }
+        return new CacheDirectives(noStore, noCache, isPrivate, isPublic, mustRevalidate, maxAge, sMaxAge);
+    }
+
+    // An unparseable age makes the response stale, as RFC 9111 asks
+    private static long seconds(String argument) {
+        if (argument == null) {
+            return 0;
+        }
+        String digits = argument.startsWith("\"") && argument.endsWith("\"") && argument.length() > 1
+                ? argument.substring(1, argument.length() - 1)
+                : argument;
+        try {
+            return Math.max(0, Long.parseLong(digits));
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package binhnvh.apigateway.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ORIGINAL_REQUEST_URL_ATTR;
+
+/**
+ * Identifies the response to a GET: the route, the request path and query as the client sent them, and whose
+ * credentials it was served to ({@link #SHARED} when every caller may see it).
+ */
+record CacheKey(String routeId, String uri, String scope) {
+
+    static final String SHARED = "*";
+
+    private static final String ANONYMOUS = "-";
+
+    static CacheKey of(ServerWebExchange exchange, String routeId, boolean shared) {
+        URI uri = requestUri(exchange);
+        String pathAndQuery = uri.getRawQuery() == null ? uri.getRawPath() : uri.getRawPath() + "?" + uri.getRawQuery();
+        String scope = shared ? SHARED : scope(exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+        return new CacheKey(routeId, pathAndQuery, scope);
+    }
+
+    /**
+     * The URI the client asked for, not one a RewritePath earlier in the chain produced.
+     */
+    static URI requestUri(ServerWebExchange exchange) {
+        Set<URI> originalUrls = exchange.getAttribute(GATEWAY_ORIGINAL_REQUEST_URL_ATTR);
+        return originalUrls == null || originalUrls.isEmpty()
+                ? exchange.getRequest().getURI()
+                : originalUrls.iterator().next();
+    }
+
+    /**
+     * This key narrowed to requests with the same content, such as the body of a POST, which is hashed into it.
+     */
+    CacheKey withContent(byte[] content) {
+        return new CacheKey(routeId, uri + "#" + hash(content), scope);
+    }
+
+    // Credentials are hashed so that keys never hold them
+    private static String scope(String authorization) {
+        return authorization == null ? ANONYMOUS : hash(authorization.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package binhnvh.apigateway.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A buffered upstream response: its status, the headers the upstream sent, the body, and the request header
+ * values it varied on. Times are on the cache's nano clock. A stored response is fresh until {@code freshUntil},
+ * then kept until {@code retainUntil} only if it has an ETag to revalidate with.
+ */
+final class CachedResponse {
+
+    private static final long NANOS_PER_SECOND = Duration.ofSeconds(1).toNanos();
+
+    private final HttpStatusCode status;
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final Map<String, List<String>> varyValues;
+    private final long storedAt;
+    private final long freshUntil;
+    private final long retainUntil;
+
+    /**
+     * A response handed to other requests as it arrives, never stored.
+     */
+    CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body, Map<String, List<String>> varyValues) {
+        this(status, headers, body, varyValues, 0, 0, 0);
+    }
+
+    CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body, Map<String, List<String>> varyValues,
+                   long storedAt, long freshUntil, long retainUntil) {
+        this.status = status;
+        this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+        this.body = body;
+        this.varyValues = varyValues;
+        this.storedAt = storedAt;
+        this.freshUntil = freshUntil;
+        this.retainUntil = retainUntil;
+    }
+
+    /**
+     * The same response with another body, such as the one read back from where a large entry was spilled.
+     */
+    CachedResponse withBody(byte[] body) {
+        return new CachedResponse(status, headers, body, varyValues, storedAt, freshUntil, retainUntil);
+    }
+
+    HttpStatusCode getStatus() {
+        return status;
+    }
+
+    HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    byte[] getBody() {
+        return body;
+    }
+
+    Map<String, List<String>> getVaryValues() {
+        return varyValues;
+    }
+
+    String getETag() {
+        return headers.getETag();
+    }
+
+    long getRetainUntil() {
+        return retainUntil;
+    }
+
+    boolean isFresh(long now) {
+        return now < freshUntil;
+    }
+
+    long ageSeconds(long now) {
+        return Math.max(0, (now - storedAt) / NANOS_PER_SECOND);
+    }
+
+    /**
+     * Whether a request carries the same values, for every header the response varied on, as the one that
+     * stored it.
+     */
+    boolean matchesVary(HttpHeaders requestHeaders) {
+        for (Map.Entry<String, List<String>> vary : varyValues.entrySet()) {
+            if (!Objects.equals(vary.getValue(), requestHeaders.get(vary.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether an If-None-Match list names this response's ETag, using the weak comparison RFC 9110 asks for.
+     */
+    boolean matchesAny(List<String> ifNoneMatch) {
+        String etag = getETag();
+        if (etag == null || ifNoneMatch.isEmpty()) {
+            return false;
+        }
+        String opaque = opaque(etag);
+        for (String candidate : ifNoneMatch) {
+            if ("*".equals(candidate) || opaque.equals(opaque(candidate))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Approximate memory held, for the cache's size bound.
+     */
+    int weight(CacheKey key) {
+        int weight = body.length + key.uri().length() + key.scope().length();
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            weight += header.getKey().length();
+            for (String value : header.getValue()) {
+                weight += value.length();
+            }
+        }
+        return weight;
+    }
+
+    int getSize() {
+        return body.length;
+    }
+
+    private static String opaque(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
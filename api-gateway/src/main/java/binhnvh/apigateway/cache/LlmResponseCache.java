@@ -0,0 +1,255 @@
+package binhnvh.apigateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Response store of the LlmResponseCache filter, apart from the GET {@link ResponseCache} so that a few large
+ * completions cannot push out the registry routes' entries.
+ *
+ * Entries are bounded by their total size in memory and expire when they stop being fresh. With spilling
+ * enabled, bodies larger than the spill threshold are written to files in a directory of their own instead,
+ * bounded by their own total size; the files are deleted as their entries are evicted, and all of them when
+ * the cache is closed.
+ *
+ * Lookups are counted per route as {@code gateway.llm.cache.requests} by result, and the entries and bytes
+ * held as {@code gateway.llm.cache.entries} and {@code gateway.llm.cache.bytes} by tier (memory or disk).
+ */
+public class LlmResponseCache implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmResponseCache.class);
+
+    enum Outcome {
+        HIT("hit"),
+        MISS("miss"),
+        BYPASS("bypass");
+
+        private final String label;
+
+        Outcome(String label) {
+            this.label = label;
+        }
+    }
+
+    private final Cache<CacheKey, CachedResponse> memory;
+    private final Cache<CacheKey, SpilledResponse> disk;
+    private final Path spillDirectory;
+    private final long maxEntrySize;
+    private final long spillThreshold;
+    private final LongSupplier nanoClock;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, Map<Outcome, Counter>> counters = new ConcurrentHashMap<>();
+
+    /**
+     * @param spillDirectory where to create the directory for large bodies, or null to keep every entry in memory
+     */
+    public LlmResponseCache(DataSize maxSize, DataSize maxEntrySize, Path spillDirectory, DataSize spillThreshold,
+                            DataSize maxSpillSize, MeterRegistry meterRegistry) {
+        this(maxSize, maxEntrySize, spillDirectory, spillThreshold, maxSpillSize, meterRegistry, System::nanoTime);
+    }
+
+    LlmResponseCache(DataSize maxSize, DataSize maxEntrySize, Path spillDirectory, DataSize spillThreshold,
+                     DataSize maxSpillSize, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        long largestHeld = spillDirectory == null ? maxSize.toBytes() : maxSpillSize.toBytes();
+        if (maxEntrySize.toBytes() > Math.min(largestHeld, Integer.MAX_VALUE)) {
+            throw new IllegalArgumentException("Max entry size " + maxEntrySize + " exceeds the size it is stored in");
+        }
+        this.maxEntrySize = maxEntrySize.toBytes();
+        this.spillThreshold = spillDirectory == null ? Long.MAX_VALUE : spillThreshold.toBytes();
+        this.nanoClock = nanoClock;
+        this.meterRegistry = meterRegistry;
+        this.memory = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((CacheKey key, CachedResponse response) -> response.weight(key))
+                .expireAfter(new RetentionExpiry<>(CachedResponse::getRetainUntil))
+                .ticker(nanoClock::getAsLong)
+                .build();
+        if (spillDirectory == null) {
+            this.spillDirectory = null;
+            this.disk = null;
+        } else {
+            try {
+                Files.createDirectories(spillDirectory);
+                this.spillDirectory = Files.createTempDirectory(spillDirectory, "llm-cache-");
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Cannot create the LLM cache spill directory in " + spillDirectory, ex);
+            }
+            this.disk = Caffeine.newBuilder()
+                    .maximumWeight(maxSpillSize.toBytes())
+                    .weigher((CacheKey key, SpilledResponse spilled) -> spilled.head().weight(key) + spilled.size())
+                    .expireAfter(new RetentionExpiry<>((SpilledResponse spilled) -> spilled.head().getRetainUntil()))
+                    .ticker(nanoClock::getAsLong)
+                    .removalListener((CacheKey key, SpilledResponse spilled, RemovalCause cause) -> delete(spilled))
+                    .build();
+        }
+        gauges("memory", memory);
+        if (disk != null) {
+            gauges("disk", disk);
+        }
+    }
+
+    /**
+     * The fresh response stored under the key, read back from disk if it was spilled there.
+     */
+    Mono<CachedResponse> get(CacheKey key) {
+        CachedResponse inMemory = memory.getIfPresent(key);
+        if (inMemory != null || disk == null) {
+            return Mono.justOrEmpty(inMemory);
+        }
+        SpilledResponse spilled = disk.getIfPresent(key);
+        if (spilled == null) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> spilled.head().withBody(Files.readAllBytes(spilled.file())))
+                .subscribeOn(Schedulers.boundedElastic())
+                // Evicted, and its file deleted, between the lookup and the read
+                .onErrorResume(IOException.class, ex -> Mono.empty());
+    }
+
+    void put(CacheKey key, CachedResponse response) {
+        if (response.getSize() <= spillThreshold) {
+            memory.put(key, response);
+            if (disk != null) {
+                disk.invalidate(key);
+            }
+            return;
+        }
+        Mono.fromRunnable(() -> spill(key, response))
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe(null, ex -> logger.warn("Could not spill an LLM response to {}: {}", spillDirectory, ex.toString()));
+    }
+
+    long now() {
+        return nanoClock.getAsLong();
+    }
+
+    long getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    void record(String routeId, Outcome outcome) {
+        counters.computeIfAbsent(routeId, id -> {
+            Map<Outcome, Counter> byOutcome = new EnumMap<>(Outcome.class);
+            for (Outcome o : Outcome.values()) {
+                byOutcome.put(o, meterRegistry.counter("gateway.llm.cache.requests", "route", id, "result", o.label));
+            }
+            return byOutcome;
+        }).get(outcome).increment();
+    }
+
+    public long size() {
+        return memory.estimatedSize() + (disk == null ? 0 : disk.estimatedSize());
+    }
+
+    void cleanUp() {
+        memory.cleanUp();
+        if (disk != null) {
+            disk.cleanUp();
+        }
+    }
+
+    /**
+     * Drops every entry and deletes the spill directory.
+     */
+    @Override
+    public void close() {
+        memory.invalidateAll();
+        if (disk == null) {
+            return;
+        }
+        disk.invalidateAll();
+        disk.cleanUp();
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            files.forEach(LlmResponseCache::deleteQuietly);
+        } catch (IOException ex) {
+            logger.warn("Could not list the LLM cache spill directory {}: {}", spillDirectory, ex.toString());
+        }
+        deleteQuietly(spillDirectory);
+    }
+
+    private void spill(CacheKey key, CachedResponse response) {
+        Path file = spillDirectory.resolve(UUID.randomUUID().toString());
+        try {
+            Files.write(file, response.getBody());
+        } catch (IOException ex) {
+            deleteQuietly(file);
+            throw new UncheckedIOException(ex);
+        }
+        disk.put(key, new SpilledResponse(response.withBody(new byte[0]), file, response.getSize()));
+        // A smaller response stored under the same key earlier is superseded
+        memory.invalidate(key);
+    }
+
+    private static void delete(SpilledResponse spilled) {
+        if (spilled != null) {
+            deleteQuietly(spilled.file());
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            logger.warn("Could not delete {}: {}", file, ex.toString());
+        }
+    }
+
+    private void gauges(String tier, Cache<CacheKey, ?> cache) {
+        Tags tags = Tags.of("tier", tier);
+        meterRegistry.gauge("gateway.llm.cache.entries", tags, cache, Cache::estimatedSize);
+        meterRegistry.gauge("gateway.llm.cache.bytes", tags, cache,
+                c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L));
+    }
+
+    /**
+     * A response whose body was written to a file; the head holds its status, headers and times.
+     */
+    record SpilledResponse(CachedResponse head, Path file, int size) {
+    }
+
+    private static final class RetentionExpiry<V> implements Expiry<CacheKey, V> {
+
+        private final ToLongFunction<V> retainUntil;
+
+        RetentionExpiry(ToLongFunction<V> retainUntil) {
+            this.retainUntil = retainUntil;
+        }
+
+        @Override
+        public long expireAfterCreate(CacheKey key, V value, long currentTime) {
+            return Math.max(0, retainUntil.applyAsLong(value) - currentTime);
+        }
+
+        @Override
+        public long expireAfterUpdate(CacheKey key, V value, long currentTime, long currentDuration) {
+            return Math.max(0, retainUntil.applyAsLong(value) - currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(CacheKey key, V value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package binhnvh.apigateway.cache;
+
+import binhnvh.apigateway.cache.LlmResponseCache.Outcome;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CACHED_REQUEST_BODY_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Answers exact repeats of LLM requests, such as a classification prompt sent with temperature 0, from the
+ * gateway's {@link LlmResponseCache}.
+ *
+ * <pre>
+ * - name: LlmResponseCache
+ *   args:
+ *     mode: header               # header: only requests sending X-LLM-Cache: use; route: every request
+ *     ttl: 1h                    # longest a response is served, whatever the backend allows
+ *     key-headers: Accept        # request headers that are part of the key, besides Authorization
+ *     ignored-fields: user       # top-level JSON body fields left out of the key
+ *     max-request-size: 64KB     # larger requests are forwarded without a lookup
+ *     shared: false              # true: one copy for all callers, not one per Authorization header
+ * </pre>
+ *
+ * Requests are identical when they have the same route, method, path and query, Authorization header, key
+ * header values and body. A JSON body is compared after normalization, so that the order of its fields and
+ * its whitespace make no difference. A request sending {@value #LLM_CACHE_HEADER}: {@value #BYPASS}, or
+ * Cache-Control no-cache or no-store, is forwarded without a lookup and its response not stored.
+ *
+ * The backend decides what is cached: only 200 responses with a Cache-Control max-age or s-maxage are stored,
+ * for no longer than that and {@code ttl}, and never when marked no-store, when they set cookies, are streamed
+ * as server-sent events or exceed the cache's entry size. Responses carry {@value ResponseCacheGatewayFilterFactory#CACHE_HEADER}
+ * (HIT or MISS) and, from the cache, an Age header. Place this before LlmTokenQuota, so that answers from the
+ * cache are not charged against token budgets.
+ */
+public class LlmResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<LlmResponseCacheGatewayFilterFactory.Config> {
+
+    public static final String LLM_CACHE_HEADER = "X-LLM-Cache";
+
+    public static final String USE = "use";
+
+    public static final String BYPASS = "bypass";
+
+    public enum Mode {
+        HEADER,
+        ROUTE
+    }
+
+    private static final Set<HttpMethod> CACHED_METHODS = Set.of(HttpMethod.GET, HttpMethod.POST);
+
+    // Sorted fields and no whitespace, so that equal JSON documents serialize to equal bytes
+    private static final ObjectMapper CANONICAL_JSON = JsonMapper.builder()
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build();
+
+    private final LlmResponseCache cache;
+
+    public LlmResponseCacheGatewayFilterFactory(LlmResponseCache cache) {
+        super(Config.class);
+        this.cache = cache;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        if (config.getTtl() == null || config.getTtl().isNegative() || config.getTtl().isZero()) {
+            throw new IllegalArgumentException("LLM response cache TTL must be positive, got " + config.getTtl());
+        }
+        if (config.getMode() == null) {
+            throw new IllegalArgumentException("LLM response cache mode must be set");
+        }
+        long ttlNanos = config.getTtl().toNanos();
+        long maxRequestSize = config.getMaxRequestSize().toBytes();
+
+        return (exchange, chain) -> {
+            HttpHeaders requestHeaders = exchange.getRequest().getHeaders();
+            String optIn = requestHeaders.getFirst(LLM_CACHE_HEADER);
+            if (config.getMode() == Mode.HEADER && !USE.equalsIgnoreCase(optIn) && !BYPASS.equalsIgnoreCase(optIn)) {
+                return chain.filter(exchange);
+            }
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            CacheDirectives requestDirectives = CacheDirectives.parse(requestHeaders.get(HttpHeaders.CACHE_CONTROL));
+            long contentLength = requestHeaders.getContentLength();
+            boolean hasBody = contentLength > 0 || requestHeaders.containsKey(HttpHeaders.TRANSFER_ENCODING);
+            if (BYPASS.equalsIgnoreCase(optIn) || requestDirectives.noStore() || requestDirectives.noCache()
+                    || !CACHED_METHODS.contains(exchange.getRequest().getMethod())
+                    || (hasBody && (contentLength < 0 || contentLength > maxRequestSize))) {
+                cache.record(route.getId(), Outcome.BYPASS);
+                return chain.filter(exchange);
+            }
+
+            return ServerWebExchangeUtils.cacheRequestBody(exchange, request -> {
+                DataBuffer body = exchange.getAttribute(CACHED_REQUEST_BODY_ATTR);
+                CacheKey key = CacheKey.of(exchange, route.getId(), config.isShared())
+                        .withContent(content(request, body, config));
+                ServerWebExchange forwarded = exchange.mutate().request(request).build();
+                return cache.get(key)
+                        .filter(cached -> cached.isFresh(cache.now()) && cached.matchesVary(requestHeaders))
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .flatMap(cached -> {
+                            if (cached.isPresent()) {
+                                cache.record(route.getId(), Outcome.HIT);
+                                return write(exchange.getResponse(), cached.get());
+                            }
+                            cache.record(route.getId(), Outcome.MISS);
+                            CachingResponse response = new CachingResponse(forwarded, key, ttlNanos);
+                            return chain.filter(forwarded.mutate().response(response).build());
+                        });
+            });
+        };
+    }
+
+    /**
+     * What identifies a request besides its route, path and credentials: the method, key header values and
+     * normalized body.
+     */
+    private static byte[] content(ServerHttpRequest request, DataBuffer body, Config config) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.writeBytes((request.getMethod().name() + "\n").getBytes(StandardCharsets.UTF_8));
+        for (String name : config.getKeyHeaders()) {
+            List<String> values = request.getHeaders().get(name);
+            content.writeBytes((name.toLowerCase(Locale.ROOT) + ":" + values + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        if (body != null) {
+            byte[] bytes = new byte[body.readableByteCount()];
+            int position = body.readPosition();
+            body.read(bytes);
+            body.readPosition(position);
+            content.writeBytes(normalize(bytes, request.getHeaders().getContentType(), config.getIgnoredFields()));
+        }
+        return content.toByteArray();
+    }
+
+    private static byte[] normalize(byte[] body, MediaType contentType, List<String> ignoredFields) {
+        if (body.length == 0 || contentType == null || !MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            return body;
+        }
+        try {
+            Object document = CANONICAL_JSON.readValue(body, Object.class);
+            if (document instanceof Map<?, ?> fields) {
+                ignoredFields.forEach(fields::remove);
+            }
+            return CANONICAL_JSON.writeValueAsBytes(document);
+        } catch (IOException ex) {
+            // Not valid JSON after all: only byte-for-byte repeats match
+            return body;
+        }
+    }
+
+    private Mono<Void> write(ServerHttpResponse response, CachedResponse cached) {
+        response.setStatusCode(cached.getStatus());
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(cached.getHeaders());
+        headers.remove(HttpHeaders.TRANSFER_ENCODING);
+        headers.setContentLength(cached.getSize());
+        headers.set(HttpHeaders.AGE, String.valueOf(cached.ageSeconds(cache.now())));
+        headers.set(ResponseCacheGatewayFilterFactory.CACHE_HEADER, "HIT");
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cached.getBody())));
+    }
+
+    /**
+     * Copies a response the backend marked cacheable into the cache as it streams to the client.
+     */
+    private final class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final CacheKey key;
+        private final long ttlNanos;
+        // Set by filters before this one, such as rate limit headers; the cache keeps only the backend's
+        private final Set<String> gatewayHeaders;
+
+        CachingResponse(ServerWebExchange exchange, CacheKey key, long ttlNanos) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.key = key;
+            this.ttlNanos = ttlNanos;
+            this.gatewayHeaders = ResponseHeaders.names(exchange.getResponse().getHeaders().keySet());
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            BodyCopy copy = copy();
+            if (copy == null) {
+                return super.writeWith(body);
+            }
+            return super.writeWith(Flux.from(body)
+                    .doOnNext(copy::append)
+                    .doOnComplete(store(copy)));
+        }
+
+        // Chunks flushed one by one, as by the Streaming filter, are copied the same way
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            BodyCopy copy = copy();
+            if (copy == null) {
+                return super.writeAndFlushWith(body);
+            }
+            return super.writeAndFlushWith(Flux.from(body)
+                    .map(chunk -> Flux.from(chunk).doOnNext(copy::append))
+                    .doOnComplete(store(copy)));
+        }
+
+        private BodyCopy copy() {
+            getHeaders().set(ResponseCacheGatewayFilterFactory.CACHE_HEADER, "MISS");
+            return freshness(getStatusCode(), getHeaders()) < 0 ? null : new BodyCopy(cache.getMaxEntrySize());
+        }
+
+        private Runnable store(BodyCopy copy) {
+            HttpHeaders headers = ResponseHeaders.upstreamOnly(getHeaders(), gatewayHeaders);
+            Map<String, List<String>> varyValues = ResponseHeaders.varyValues(headers, exchange.getRequest().getHeaders());
+            long freshness = freshness(getStatusCode(), headers);
+            long storedAt = cache.now();
+            return () -> {
+                byte[] bytes = copy.toByteArray();
+                if (bytes != null) {
+                    cache.put(key, new CachedResponse(HttpStatus.OK, headers, bytes, varyValues,
+                            storedAt, storedAt + freshness, storedAt + freshness));
+                }
+            };
+        }
+
+        /**
+         * How long the backend lets the response be served, capped by the TTL, or -1 when it must not be stored.
+         */
+        private long freshness(HttpStatusCode status, HttpHeaders headers) {
+            if (status == null || status.value() != HttpStatus.OK.value() || headers.containsKey(HttpHeaders.SET_COOKIE)
+                    || headers.getVary().contains("*") || headers.getContentLength() > cache.getMaxEntrySize()) {
+                return -1;
+            }
+            MediaType contentType = headers.getContentType();
+            if (contentType != null && MediaType.TEXT_EVENT_STREAM.isCompatibleWith(contentType)) {
+                return -1;
+            }
+            CacheDirectives directives = CacheDirectives.parse(headers.get(HttpHeaders.CACHE_CONTROL));
+            long maxAge = directives.sMaxAge() >= 0 ? directives.sMaxAge() : directives.maxAge();
+            if (directives.noStore() || directives.noCache() || maxAge <= 0) {
+                return -1;
+            }
+            return Math.min(TimeUnit.SECONDS.toNanos(maxAge), ttlNanos);
+        }
+    }
+
+    public static class Config {
+
+        private Mode mode = Mode.HEADER;
+
+        private Duration ttl = Duration.ofHours(1);
+
+        private List<String> keyHeaders = List.of(HttpHeaders.ACCEPT);
+
+        private List<String> ignoredFields = List.of();
+
+        private DataSize maxRequestSize = DataSize.ofKilobytes(64);
+
+        private boolean shared;
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        public Config setMode(Mode mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public Config setTtl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        public List<String> getKeyHeaders() {
+            return keyHeaders;
+        }
+
+        public Config setKeyHeaders(List<String> keyHeaders) {
+            this.keyHeaders = keyHeaders;
+            return this;
+        }
+
+        public List<String> getIgnoredFields() {
+            return ignoredFields;
+        }
+
+        public Config setIgnoredFields(List<String> ignoredFields) {
+            this.ignoredFields = ignoredFields;
+            return this;
+        }
+
+        public DataSize getMaxRequestSize() {
+            return maxRequestSize;
+        }
+
+        public Config setMaxRequestSize(DataSize maxRequestSize) {
+            this.maxRequestSize = maxRequestSize;
+            return this;
+        }
+
+        public boolean isShared() {
+            return shared;
+        }
+
+        public Config setShared(boolean shared) {
+            this.shared = shared;
+            return this;
+        }
+    }
+}
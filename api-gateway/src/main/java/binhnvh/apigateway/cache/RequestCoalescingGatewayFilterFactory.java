@@ -0,0 +1,288 @@
+package binhnvh.apigateway.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Collapses identical GETs that arrive while one is already on its way upstream into that one exchange.
+ *
+ * <pre>
+ * - name: RequestCoalescing
+ *   args:
+ *     max-wait: 2s                # a waiting request gives up and goes upstream itself after this
+ *     max-response-size: 256KB    # larger responses are not handed to waiting requests
+ *     shared: false               # true: coalesce across callers, not only per Authorization header
+ * </pre>
+ *
+ * Requests are identical when they have the same route, path, query and Authorization header. The first one
+ * goes upstream; the others wait for its response, which is buffered and written to each of them, unless it
+ * varies on a request header they differ in. Only a 2xx or 304 response is shared, so that one upstream error
+ * is not copied to every waiting request. For any other status, or a response that sets cookies, is streamed,
+ * fails or is larger than {@code max-response-size}, the waiting requests are forwarded on their own, as they
+ * are when {@code max-wait} runs out. Conditional and range requests are never coalesced.
+ *
+ * Requests are counted as {@code gateway.coalescing.requests} per route, by whether they went upstream first
+ * (leader), were answered with another's response (follower) or waited in vain (fallback). Place this after
+ * ResponseCache, so that only cache misses are coalesced.
+ */
+public class RequestCoalescingGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<RequestCoalescingGatewayFilterFactory.Config> {
+
+    enum Role {
+        LEADER("leader"),
+        FOLLOWER("follower"),
+        FALLBACK("fallback");
+
+        private final String label;
+
+        Role(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final Set<String> UNCOALESCED_REQUEST_HEADERS = ResponseHeaders.names(Set.of(
+            HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE, HttpHeaders.IF_MATCH,
+            HttpHeaders.IF_UNMODIFIED_SINCE, HttpHeaders.RANGE));
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<CacheKey, Flight> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Map<Role, Counter>> counters = new ConcurrentHashMap<>();
+
+    public RequestCoalescingGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("gateway.coalescing.in.flight", inFlight, Map::size);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        if (config.getMaxWait() == null || config.getMaxWait().isNegative() || config.getMaxWait().isZero()) {
+            throw new IllegalArgumentException("Coalescing max wait must be positive, got " + config.getMaxWait());
+        }
+        long maxResponseSize = config.getMaxResponseSize().toBytes();
+
+        return (exchange, chain) -> {
+            if (exchange.getRequest().getMethod() != HttpMethod.GET
+                    || exchange.getRequest().getHeaders().keySet().stream().anyMatch(UNCOALESCED_REQUEST_HEADERS::contains)) {
+                return chain.filter(exchange);
+            }
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            CacheKey key = CacheKey.of(exchange, route.getId(), config.isShared());
+            Flight flight = new Flight(key);
+            Flight leader = inFlight.putIfAbsent(key, flight);
+
+            if (leader == null) {
+                record(route.getId(), Role.LEADER);
+                LeaderResponse response = new LeaderResponse(exchange, flight, maxResponseSize);
+                return chain.filter(exchange.mutate().response(response).build())
+                        .doFinally(signal -> flight.abandon());
+            }
+
+            return leader.response()
+                    .timeout(config.getMaxWait(), Mono.empty())
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMap(shared -> {
+                        if (shared.isPresent() && shared.get().matchesVary(exchange.getRequest().getHeaders())) {
+                            record(route.getId(), Role.FOLLOWER);
+                            return write(exchange.getResponse(), shared.get());
+                        }
+                        record(route.getId(), Role.FALLBACK);
+                        return chain.filter(exchange);
+                    });
+        };
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, CachedResponse shared) {
+        response.setStatusCode(shared.getStatus());
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(shared.getHeaders());
+        headers.remove(HttpHeaders.TRANSFER_ENCODING);
+        if (shared.getSize() == 0) {
+            return response.setComplete();
+        }
+        headers.setContentLength(shared.getSize());
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(shared.getBody())));
+    }
+
+    private void record(String routeId, Role role) {
+        counters.computeIfAbsent(routeId, id -> {
+            Map<Role, Counter> byRole = new EnumMap<>(Role.class);
+            for (Role r : Role.values()) {
+                byRole.put(r, meterRegistry.counter("gateway.coalescing.requests", "route", id, "result", r.label));
+            }
+            return byRole;
+        }).get(role).increment();
+    }
+
+    /**
+     * One upstream exchange that identical requests wait on. It leaves the in-flight map as soon as its
+     * outcome is known, so that later requests start a new one rather than reuse a finished response.
+     */
+    private final class Flight {
+
+        private final CacheKey key;
+        private final Sinks.One<CachedResponse> sink = Sinks.one();
+
+        Flight(CacheKey key) {
+            this.key = key;
+        }
+
+        Mono<CachedResponse> response() {
+            return sink.asMono();
+        }
+
+        void complete(CachedResponse response) {
+            inFlight.remove(key, this);
+            sink.tryEmitValue(response);
+        }
+
+        void abandon() {
+            inFlight.remove(key, this);
+            sink.tryEmitEmpty();
+        }
+    }
+
+    /**
+     * Buffers the leader's response as it streams to the leader, and hands it to the flight when complete.
+     */
+    private static final class LeaderResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final Flight flight;
+        private final long maxResponseSize;
+        // Set by filters before this one, such as rate limit headers, which belong to the leader alone
+        private final Set<String> gatewayHeaders;
+
+        LeaderResponse(ServerWebExchange exchange, Flight flight, long maxResponseSize) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.flight = flight;
+            this.maxResponseSize = maxResponseSize;
+            this.gatewayHeaders = ResponseHeaders.names(exchange.getResponse().getHeaders().keySet());
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (!isShareable()) {
+                flight.abandon();
+                return super.writeWith(body);
+            }
+            HttpStatusCode status = getStatusCode();
+            HttpHeaders headers = ResponseHeaders.upstreamOnly(getHeaders(), gatewayHeaders);
+            BodyCopy copy = new BodyCopy(maxResponseSize);
+            return super.writeWith(Flux.from(body)
+                    .doOnNext(buffer -> {
+                        copy.append(buffer);
+                        if (copy.isAbandoned()) {
+                            flight.abandon();
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        byte[] bytes = copy.toByteArray();
+                        if (bytes != null) {
+                            flight.complete(new CachedResponse(status, headers, bytes,
+                                    ResponseHeaders.varyValues(headers, exchange.getRequest().getHeaders())));
+                        }
+                    }));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            flight.abandon();
+            return super.writeAndFlushWith(body);
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            if (isShareable()) {
+                HttpHeaders headers = ResponseHeaders.upstreamOnly(getHeaders(), gatewayHeaders);
+                flight.complete(new CachedResponse(getStatusCode(), headers, new byte[0],
+                        ResponseHeaders.varyValues(headers, exchange.getRequest().getHeaders())));
+            } else {
+                flight.abandon();
+            }
+            return super.setComplete();
+        }
+
+        private boolean isShareable() {
+            HttpStatusCode status = getStatusCode();
+            if (status == null || !(status.is2xxSuccessful() || status.value() == HttpStatus.NOT_MODIFIED.value())) {
+                return false;
+            }
+            HttpHeaders headers = getHeaders();
+            if (headers.containsKey(HttpHeaders.SET_COOKIE) || headers.getVary().contains("*")
+                    || headers.getContentLength() > maxResponseSize) {
+                return false;
+            }
+            MediaType contentType = headers.getContentType();
+            return contentType == null || !MediaType.TEXT_EVENT_STREAM.isCompatibleWith(contentType);
+        }
+    }
+
+    public static class Config {
+
+        private Duration maxWait = Duration.ofSeconds(2);
+
+        private DataSize maxResponseSize = DataSize.ofKilobytes(256);
+
+        private boolean shared;
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public Config setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        public DataSize getMaxResponseSize() {
+            return maxResponseSize;
+        }
+
+        public Config setMaxResponseSize(DataSize maxResponseSize) {
+            this.maxResponseSize = maxResponseSize;
+            return this;
+        }
+
+        public boolean isShared() {
+            return shared;
+        }
+
+        public Config setShared(boolean shared) {
+            this.shared = shared;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package binhnvh.apigateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Response store shared by every route using the ResponseCache filter.
+ *
+ * Entries are bounded by their total size in bytes and evicted by Caffeine's frequency and recency policy,
+ * and each expires on its own schedule: when it stops being fresh, or, if it has an ETag, {@code staleRetention}
+ * later so it can still be revalidated with a conditional request.
+ *
+ * Lookups are counted per route as {@code gateway.response.cache.requests} by result, and the body bytes the
+ * upstream did not have to send as {@code gateway.response.cache.bytes.saved}.
+ */
+public class ResponseCache {
+
+    enum Outcome {
+        HIT("hit"),
+        NOT_MODIFIED("not_modified"),
+        REVALIDATED("revalidated"),
+        MISS("miss"),
+        BYPASS("bypass");
+
+        private final String label;
+
+        Outcome(String label) {
+            this.label = label;
+        }
+
+        boolean isHit() {
+            return this == HIT || this == NOT_MODIFIED || this == REVALIDATED;
+        }
+    }
+
+    private final Cache<CacheKey, CachedResponse> cache;
+    private final long maxEntrySize;
+    private final long staleRetentionNanos;
+    private final LongSupplier nanoClock;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, RouteMeters> routeMeters = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+
+    public ResponseCache(DataSize maxSize, DataSize maxEntrySize, Duration staleRetention, MeterRegistry meterRegistry) {
+        this(maxSize, maxEntrySize, staleRetention, meterRegistry, System::nanoTime);
+    }
+
+    ResponseCache(DataSize maxSize, DataSize maxEntrySize, Duration staleRetention, MeterRegistry meterRegistry,
+                  LongSupplier nanoClock) {
+        if (maxEntrySize.toBytes() > Math.min(maxSize.toBytes(), Integer.MAX_VALUE)) {
+            throw new IllegalArgumentException("Max entry size " + maxEntrySize + " exceeds the cache size " + maxSize);
+        }
+        this.maxEntrySize = maxEntrySize.toBytes();
+        this.staleRetentionNanos = staleRetention.toNanos();
+        this.nanoClock = nanoClock;
+        this.meterRegistry = meterRegistry;
+        Counter evictedCounter = meterRegistry.counter("gateway.response.cache.evictions");
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((CacheKey key, CachedResponse response) -> response.weight(key))
+                .expireAfter(new RetentionExpiry())
+                .ticker(nanoClock::getAsLong)
+                .removalListener((CacheKey key, CachedResponse response, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        evictedCounter.increment();
+                    }
+                })
+                .build();
+        meterRegistry.gauge("gateway.response.cache.entries", this, ResponseCache::size);
+        meterRegistry.gauge("gateway.response.cache.bytes", this, ResponseCache::weightedSize);
+        meterRegistry.gauge("gateway.response.cache.hit.ratio", this, ResponseCache::hitRatio);
+    }
+
+    CachedResponse get(CacheKey key) {
+        return cache.getIfPresent(key);
+    }
+
+    void put(CacheKey key, CachedResponse response) {
+        cache.put(key, response);
+    }
+
+    void invalidate(CacheKey key) {
+        cache.invalidate(key);
+    }
+
+    long now() {
+        return nanoClock.getAsLong();
+    }
+
+    long getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    long getStaleRetentionNanos() {
+        return staleRetentionNanos;
+    }
+
+    void record(String routeId, Outcome outcome, long bytesSaved) {
+        RouteMeters meters = routeMeters.computeIfAbsent(routeId, RouteMeters::new);
+        meters.requests.get(outcome).increment();
+        if (bytesSaved > 0) {
+            meters.bytesSaved.increment(bytesSaved);
+        }
+        if (outcome != Outcome.BYPASS) {
+            lookups.increment();
+            if (outcome.isHit()) {
+                hits.increment();
+            }
+        }
+    }
+
+    /**
+     * Share of cacheable requests answered without the upstream sending a body, since startup.
+     */
+    public double hitRatio() {
+        long total = lookups.sum();
+        return total == 0 ? 0 : (double) hits.sum() / total;
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public long weightedSize() {
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    /**
+     * Drops every entry.
+     *
+     * @return the number of entries dropped
+     */
+    public long purge() {
+        long size = cache.estimatedSize();
+        cache.invalidateAll();
+        return size;
+    }
+
+    /**
+     * Drops the entries of one route, optionally only those whose path starts with {@code pathPrefix}.
+     *
+     * @return the number of entries dropped
+     */
+    public long purge(String routeId, String pathPrefix) {
+        long[] purged = new long[1];
+        cache.asMap().keySet().removeIf(key -> {
+            boolean match = key.routeId().equals(routeId) && (pathPrefix == null || key.uri().startsWith(pathPrefix));
+            if (match) {
+                purged[0]++;
+            }
+            return match;
+        });
+        return purged[0];
+    }
+
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    private static final class RetentionExpiry implements Expiry<CacheKey, CachedResponse> {
+
+        @Override
+        public long expireAfterCreate(CacheKey key, CachedResponse response, long currentTime) {
+            return Math.max(0, response.getRetainUntil() - currentTime);
+        }
+
+        @Override
+        public long expireAfterUpdate(CacheKey key, CachedResponse response, long currentTime, long currentDuration) {
+            return Math.max(0, response.getRetainUntil() - currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(CacheKey key, CachedResponse response, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private final class RouteMeters {
+
+        private final Map<Outcome, Counter> requests = new EnumMap<>(Outcome.class);
+        private final Counter bytesSaved;
+
+        RouteMeters(String routeId) {
+            for (Outcome outcome : Outcome.values()) {
+                requests.put(outcome, meterRegistry.counter("gateway.response.cache.requests",
+                        "route", routeId, "result", outcome.label));
+            }
+            this.bytesSaved = meterRegistry.counter("gateway.response.cache.bytes.saved", "route", routeId);
+        }
+    }
+}
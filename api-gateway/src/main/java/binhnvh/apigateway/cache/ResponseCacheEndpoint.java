@@ -0,0 +1,52 @@
+package binhnvh.apigateway.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint to inspect and purge the {@link ResponseCache}.
+ *
+ * {@code GET /actuator/responsecache} reports its size and hit ratio, {@code DELETE /actuator/responsecache}
+ * drops everything, and {@code DELETE /actuator/responsecache/{routeId}?path=/api/tools/} drops one route's
+ * entries, optionally only under a path as the client requested it.
+ */
+@Endpoint(id = "responsecache")
+public class ResponseCacheEndpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCacheEndpoint.class);
+
+    private final ResponseCache cache;
+
+    public ResponseCacheEndpoint(ResponseCache cache) {
+        this.cache = cache;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        return Map.of(
+                "entries", cache.size(),
+                "bytes", cache.weightedSize(),
+                "hitRatio", cache.hitRatio());
+    }
+
+    @DeleteOperation
+    public Map<String, Object> purgeAll() {
+        long purged = cache.purge();
+        logger.info("Purged {} cached responses", purged);
+        return Map.of("purged", purged);
+    }
+
+    @DeleteOperation
+    public Map<String, Object> purgeRoute(@Selector String routeId, @Nullable String path) {
+        long purged = cache.purge(routeId, path);
+        logger.info("Purged {} cached responses of route {}{}", purged, routeId, path == null ? "" : " under " + path);
+        return Map.of("route", routeId, "purged", purged);
+    }
+}
@@ -0,0 +1,373 @@
+package binhnvh.apigateway.cache;
+
+import binhnvh.apigateway.cache.ResponseCache.Outcome;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Answers repeated GETs from the gateway's {@link ResponseCache} instead of forwarding them.
+ *
+ * <pre>
+ * - name: ResponseCache
+ *   args:
+ *     ttl: 5m          # longest a response is served without asking the upstream
+ *     shared: false    # true: one copy for all callers, only of responses marked public
+ * </pre>
+ *
+ * Only 200 responses are stored, for no longer than {@code ttl} or what their Cache-Control or Expires allow,
+ * and never when marked no-store or private, when they set cookies, or when they exceed the cache's entry size.
+ * Entries are kept per Authorization header unless the route is shared, and per value of every request header
+ * the response lists in Vary, one variant per path. A client's If-None-Match matching the stored ETag gets a
+ * 304. Once stale, an entry with an ETag is revalidated with a conditional request, and a 304 from the upstream
+ * is answered from the cache without the body crossing the network again.
+ *
+ * A request with an unsafe method, such as PUT, POST or DELETE, that succeeds (2xx or 3xx) drops the entries of
+ * every path starting with its own, for all callers, as RFC 9111 section 4.4 asks. The same happens for the
+ * Location and Content-Location of the response when they point at the same origin.
+ *
+ * Responses carry {@value #CACHE_HEADER} (HIT, REVALIDATED or MISS) and, from the cache, an Age header.
+ */
+public class ResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    public static final String CACHE_HEADER = "X-Cache";
+
+    private static final Set<HttpMethod> SAFE_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS,
+            HttpMethod.TRACE);
+
+    // Response headers naming other URIs an unsafe request changed
+    private static final List<String> INVALIDATED_LOCATIONS = List.of(HttpHeaders.LOCATION, HttpHeaders.CONTENT_LOCATION);
+
+    // What a 304 repeats of the full response, per RFC 9110
+    private static final List<String> NOT_MODIFIED_HEADERS = List.of(HttpHeaders.CACHE_CONTROL,
+            HttpHeaders.CONTENT_LOCATION, HttpHeaders.DATE, HttpHeaders.ETAG, HttpHeaders.EXPIRES, HttpHeaders.VARY);
+
+    private final ResponseCache cache;
+
+    public ResponseCacheGatewayFilterFactory(ResponseCache cache) {
+        super(Config.class);
+        this.cache = cache;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        if (config.getTtl() == null || config.getTtl().isNegative() || config.getTtl().isZero()) {
+            throw new IllegalArgumentException("Response cache TTL must be positive, got " + config.getTtl());
+        }
+        long ttlNanos = config.getTtl().toNanos();
+
+        return (exchange, chain) -> {
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            ServerHttpRequest request = exchange.getRequest();
+            CacheDirectives requestDirectives = CacheDirectives.parse(request.getHeaders().get(HttpHeaders.CACHE_CONTROL));
+            if (request.getMethod() != HttpMethod.GET || requestDirectives.noStore()) {
+                cache.record(route.getId(), Outcome.BYPASS, 0);
+                if (!SAFE_METHODS.contains(request.getMethod())) {
+                    exchange.getResponse().beforeCommit(() -> Mono.fromRunnable(() -> invalidate(exchange, route.getId())));
+                }
+                return chain.filter(exchange);
+            }
+
+            CacheKey key = CacheKey.of(exchange, route.getId(), config.isShared());
+            long now = cache.now();
+            CachedResponse cached = cache.get(key);
+            if (cached != null && !cached.matchesVary(request.getHeaders())) {
+                cached = null;
+            }
+            if (cached != null && cached.isFresh(now) && !requestDirectives.noCache()) {
+                return write(exchange.getResponse(), request, cached, now, route.getId(), Outcome.HIT);
+            }
+
+            ServerWebExchange forwarded = exchange;
+            if (cached != null && cached.getETag() != null) {
+                String etag = cached.getETag();
+                forwarded = exchange.mutate().request(builder -> builder.headers(headers -> {
+                    headers.set(HttpHeaders.IF_NONE_MATCH, etag);
+                    headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+                })).build();
+            } else {
+                cached = null;
+            }
+            CachingResponse response = new CachingResponse(exchange, key, config, ttlNanos, cached);
+            return chain.filter(forwarded.mutate().response(response).build());
+        };
+    }
+
+    private Mono<Void> write(ServerHttpResponse response, ServerHttpRequest request, CachedResponse cached,
+                             long now, String routeId, Outcome outcome) {
+        HttpHeaders headers = response.getHeaders();
+        headers.remove(HttpHeaders.TRANSFER_ENCODING);
+        if (cached.matchesAny(ifNoneMatch(request.getHeaders()))) {
+            cache.record(routeId, outcome == Outcome.HIT ? Outcome.NOT_MODIFIED : outcome, cached.getSize());
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            for (String name : NOT_MODIFIED_HEADERS) {
+                List<String> values = cached.getHeaders().get(name);
+                if (values != null) {
+                    headers.put(name, values);
+                }
+            }
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            setCacheHeaders(headers, cached, now, outcome);
+            return response.setComplete();
+        }
+
+        cache.record(routeId, outcome, cached.getSize());
+        response.setStatusCode(HttpStatus.OK);
+        headers.putAll(cached.getHeaders());
+        headers.setContentLength(cached.getSize());
+        setCacheHeaders(headers, cached, now, outcome);
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cached.getBody())));
+    }
+
+    /**
+     * Drops what a successful unsafe request may have changed.
+     */
+    private void invalidate(ServerWebExchange exchange, String routeId) {
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        if (status != null && !status.is2xxSuccessful() && !status.is3xxRedirection()) {
+            return;
+        }
+        URI requestUri = CacheKey.requestUri(exchange);
+        cache.purge(routeId, requestUri.getRawPath());
+        for (String name : INVALIDATED_LOCATIONS) {
+            String location = exchange.getResponse().getHeaders().getFirst(name);
+            if (location == null) {
+                continue;
+            }
+            try {
+                URI target = requestUri.resolve(location);
+                // Another origin's entries are not this request's to drop
+                if (Objects.equals(target.getRawAuthority(), requestUri.getRawAuthority()) && target.getRawPath() != null) {
+                    cache.purge(routeId, target.getRawPath());
+                }
+            } catch (IllegalArgumentException ex) {
+                // An unparseable header names nothing to drop
+            }
+        }
+    }
+
+    private static void setCacheHeaders(HttpHeaders headers, CachedResponse cached, long now, Outcome outcome) {
+        headers.set(HttpHeaders.AGE, String.valueOf(cached.ageSeconds(now)));
+        headers.set(CACHE_HEADER, outcome == Outcome.REVALIDATED ? "REVALIDATED" : "HIT");
+    }
+
+    /**
+     * How long a response may be served without revalidation, or -1 when it must not be stored.
+     */
+    private long freshness(HttpStatusCode status, HttpHeaders headers, Config config, long ttlNanos) {
+        if (status == null || status.value() != HttpStatus.OK.value() || headers.containsKey(HttpHeaders.SET_COOKIE)
+                || headers.getVary().contains("*")) {
+            return -1;
+        }
+        CacheDirectives directives = CacheDirectives.parse(headers.get(HttpHeaders.CACHE_CONTROL));
+        if (directives.noStore() || directives.isPrivate()) {
+            return -1;
+        }
+        // A shared copy may only be kept of what the upstream allows shared caches to keep for authorized requests
+        if (config.isShared() && !directives.isPublic() && directives.sMaxAge() < 0 && !directives.mustRevalidate()) {
+            return -1;
+        }
+        if (headers.getContentLength() > cache.getMaxEntrySize()) {
+            return -1;
+        }
+        MediaType contentType = headers.getContentType();
+        if (contentType != null && MediaType.TEXT_EVENT_STREAM.isCompatibleWith(contentType)) {
+            return -1;
+        }
+
+        long freshness;
+        if (directives.noCache()) {
+            freshness = 0;
+        } else if (directives.sMaxAge() >= 0) {
+            freshness = TimeUnit.SECONDS.toNanos(directives.sMaxAge());
+        } else if (directives.maxAge() >= 0) {
+            freshness = TimeUnit.SECONDS.toNanos(directives.maxAge());
+        } else if (headers.containsKey(HttpHeaders.EXPIRES)) {
+            // An unparseable Expires, such as "0", means already expired
+            long expires = headers.getExpires();
+            long date = date(headers);
+            long base = date >= 0 ? date : System.currentTimeMillis();
+            freshness = expires < 0 ? 0 : TimeUnit.MILLISECONDS.toNanos(Math.max(0, expires - base));
+        } else {
+            freshness = ttlNanos;
+        }
+        freshness = Math.min(freshness, ttlNanos);
+        // Nothing to serve fresh and nothing to revalidate with
+        return freshness == 0 && headers.getETag() == null ? -1 : freshness;
+    }
+
+    private CachedResponse entry(HttpHeaders headers, byte[] body, Map<String, List<String>> varyValues,
+                                 long storedAt, long freshness) {
+        long freshUntil = storedAt + freshness;
+        long retainUntil = headers.getETag() != null ? freshUntil + cache.getStaleRetentionNanos() : freshUntil;
+        return new CachedResponse(HttpStatus.OK, headers, body, varyValues, storedAt, freshUntil, retainUntil);
+    }
+
+    private static long date(HttpHeaders headers) {
+        try {
+            return headers.getDate();
+        } catch (IllegalArgumentException ex) {
+            return -1;
+        }
+    }
+
+    private static List<String> ifNoneMatch(HttpHeaders headers) {
+        try {
+            return headers.getIfNoneMatch();
+        } catch (IllegalArgumentException ex) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Copies a cacheable response into the cache as it streams to the client, and turns the upstream's 304 to a
+     * revalidation back into the stored response.
+     */
+    private final class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final CacheKey key;
+        private final Config config;
+        private final long ttlNanos;
+        private final CachedResponse stale;
+        // Set by filters before this one, such as rate limit headers; the cache keeps only the upstream's
+        private final Set<String> gatewayHeaders;
+        private boolean missRecorded;
+
+        CachingResponse(ServerWebExchange exchange, CacheKey key, Config config, long ttlNanos, CachedResponse stale) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.key = key;
+            this.config = config;
+            this.ttlNanos = ttlNanos;
+            this.stale = stale;
+            this.gatewayHeaders = ResponseHeaders.names(exchange.getResponse().getHeaders().keySet());
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (isRevalidated()) {
+                return Flux.from(body).doOnNext(DataBufferUtils::release).then(Mono.defer(this::writeRevalidated));
+            }
+            recordMiss();
+            long freshness = freshness(getStatusCode(), getHeaders(), config, ttlNanos);
+            if (freshness < 0) {
+                return super.writeWith(body);
+            }
+            HttpHeaders headers = ResponseHeaders.upstreamOnly(getHeaders(), gatewayHeaders);
+            Map<String, List<String>> varyValues = ResponseHeaders.varyValues(headers, exchange.getRequest().getHeaders());
+            long storedAt = cache.now();
+            BodyCopy copy = new BodyCopy(cache.getMaxEntrySize());
+            return super.writeWith(Flux.from(body)
+                    .doOnNext(copy::append)
+                    .doOnComplete(() -> {
+                        byte[] bytes = copy.toByteArray();
+                        if (bytes != null) {
+                            cache.put(key, entry(headers, bytes, varyValues, storedAt, freshness));
+                        }
+                    }));
+        }
+
+        // Streamed responses are passed through, never stored
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            if (isRevalidated()) {
+                return Flux.from(body).flatMap(Flux::from).doOnNext(DataBufferUtils::release)
+                        .then(Mono.defer(this::writeRevalidated));
+            }
+            recordMiss();
+            return super.writeAndFlushWith(body);
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            if (isRevalidated()) {
+                return writeRevalidated();
+            }
+            recordMiss();
+            return super.setComplete();
+        }
+
+        private boolean isRevalidated() {
+            HttpStatusCode status = getStatusCode();
+            return stale != null && status != null && status.value() == HttpStatus.NOT_MODIFIED.value();
+        }
+
+        private Mono<Void> writeRevalidated() {
+            // The 304's validators and freshness replace the stored ones
+            HttpHeaders merged = new HttpHeaders();
+            merged.putAll(stale.getHeaders());
+            HttpHeaders updates = ResponseHeaders.upstreamOnly(getHeaders(), gatewayHeaders);
+            updates.remove(HttpHeaders.CONTENT_LENGTH);
+            merged.putAll(updates);
+
+            long now = cache.now();
+            long freshness = freshness(HttpStatus.OK, merged, config, ttlNanos);
+            CachedResponse refreshed = entry(merged, stale.getBody(), stale.getVaryValues(), now, Math.max(0, freshness));
+            if (freshness >= 0) {
+                cache.put(key, refreshed);
+            } else {
+                cache.invalidate(key);
+            }
+            return write(getDelegate(), exchange.getRequest(), refreshed, now, key.routeId(), Outcome.REVALIDATED);
+        }
+
+        private void recordMiss() {
+            if (!missRecorded) {
+                missRecorded = true;
+                cache.record(key.routeId(), Outcome.MISS, 0);
+                getHeaders().set(CACHE_HEADER, "MISS");
+            }
+        }
+    }
+
+    public static class Config {
+
+        private Duration ttl = Duration.ofMinutes(1);
+
+        private boolean shared;
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public Config setTtl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        public boolean isShared() {
+            return shared;
+        }
+
+        public Config setShared(boolean shared) {
+            this.shared = shared;
+            return this;
+        }
+    }
+}
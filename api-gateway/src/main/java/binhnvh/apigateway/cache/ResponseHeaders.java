@@ -0,0 +1,55 @@
+package binhnvh.apigateway.cache;
+
+import org.springframework.http.HttpHeaders;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Separates the headers of an upstream response from those the gateway's own filters set on it, so that a
+ * response can be kept or handed to other requests without the first request's rate limit headers.
+ */
+final class ResponseHeaders {
+
+    // Specific to one connection or one response, so never kept or shared
+    private static final Set<String> PER_RESPONSE = names(List.of(HttpHeaders.CONNECTION, "Keep-Alive",
+            HttpHeaders.TRANSFER_ENCODING, HttpHeaders.SET_COOKIE, HttpHeaders.AGE,
+            ResponseCacheGatewayFilterFactory.CACHE_HEADER));
+
+    private ResponseHeaders() {
+    }
+
+    /**
+     * The header names already on a response, taken before it is forwarded.
+     */
+    static Set<String> names(Iterable<String> headerNames) {
+        Set<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        headerNames.forEach(names::add);
+        return names;
+    }
+
+    static HttpHeaders upstreamOnly(HttpHeaders responseHeaders, Set<String> gatewayHeaders) {
+        HttpHeaders headers = new HttpHeaders();
+        responseHeaders.forEach((name, values) -> {
+            if (!gatewayHeaders.contains(name) && !PER_RESPONSE.contains(name)) {
+                headers.put(name, List.copyOf(values));
+            }
+        });
+        return headers;
+    }
+
+    /**
+     * The request's values of every header the response lists in Vary.
+     */
+    static Map<String, List<String>> varyValues(HttpHeaders responseHeaders, HttpHeaders requestHeaders) {
+        Map<String, List<String>> values = new LinkedHashMap<>();
+        for (String name : responseHeaders.getVary()) {
+            List<String> value = requestHeaders.get(name);
+            values.put(name, value == null ? null : List.copyOf(value));
+        }
+        return values;
+    }
+}
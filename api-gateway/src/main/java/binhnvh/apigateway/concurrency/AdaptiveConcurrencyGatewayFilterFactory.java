@@ -0,0 +1,285 @@
+package binhnvh.apigateway.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.setResponseStatus;
+
+/**
+ * Sheds requests beyond what a route's backend is observed to handle, with limits that adapt to its latency.
+ *
+ * <pre>
+ * - name: AdaptiveConcurrency
+ *   args:
+ *     initial-limit: 20    # calls in flight allowed before any latency is known
+ *     min-limit: 4
+ *     max-limit: 200
+ *     tolerance: 2.0       # latency may rise to this multiple of its long-term average before the limit shrinks
+ *     smoothing: 0.2       # share of each adjustment applied
+ *     long-window: 600     # calls the long-term latency average spans
+ *     per-instance: true   # also limit each instance the load balancer picks, not only the route as a whole
+ *     retry-after: 1s
+ * </pre>
+ *
+ * Each route, and each of its instances, has a {@link GradientLimit} of calls in flight. A request over either
+ * is answered 503 with Retry-After, without reaching the backend. Calls are timed from admission to the end of
+ * the response; errors and 429, 503 or 504 answers count as signs of overload. This runs right after the load
+ * balancer has picked an instance, wherever it is listed among the route's filters, and so after response
+ * caches and rate limiters.
+ *
+ * The limits and calls in flight are gauged as {@code gateway.concurrency.limit} and
+ * {@code gateway.concurrency.in.flight}, and shed requests counted as {@code gateway.concurrency.shed}, per
+ * route and instance ({@value #ALL_INSTANCES} for the route as a whole).
+ */
+public class AdaptiveConcurrencyGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<AdaptiveConcurrencyGatewayFilterFactory.Config> {
+
+    public static final int ORDER = ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+
+    static final String ALL_INSTANCES = "all";
+
+    private static final Set<Integer> OVERLOAD_STATUSES = Set.of(HttpStatus.TOO_MANY_REQUESTS.value(),
+            HttpStatus.SERVICE_UNAVAILABLE.value(), HttpStatus.GATEWAY_TIMEOUT.value());
+
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier nanoClock;
+    private final ConcurrentHashMap<LimitKey, GradientLimit> limits = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<LimitKey, Counter> shedCounters = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyGatewayFilterFactory(MeterRegistry meterRegistry) {
+        this(meterRegistry, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyGatewayFilterFactory(MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // Fails fast on bad settings rather than on the first request
+        config.newLimit();
+        if (config.getRetryAfter() == null || config.getRetryAfter().isNegative()) {
+            throw new IllegalArgumentException("Retry-After must not be negative, got " + config.getRetryAfter());
+        }
+
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            LimitKey routeKey = new LimitKey(route.getId(), ALL_INSTANCES);
+            GradientLimit routeLimit = limit(routeKey, config);
+            if (!routeLimit.tryAcquire()) {
+                return shed(exchange, routeKey, config);
+            }
+            Call call = new Call(routeLimit, nanoClock.getAsLong());
+
+            String instance = config.isPerInstance() ? instance(exchange) : null;
+            if (instance != null) {
+                LimitKey instanceKey = new LimitKey(route.getId(), instance);
+                GradientLimit instanceLimit = limit(instanceKey, config);
+                if (!instanceLimit.tryAcquire()) {
+                    routeLimit.release();
+                    return shed(exchange, instanceKey, config);
+                }
+                call.instanceLimit = instanceLimit;
+                call.instanceInFlight = instanceLimit.getInFlight();
+            }
+
+            return chain.filter(exchange)
+                    .doOnSuccess(done -> call.complete(isOverload(exchange.getResponse().getStatusCode())))
+                    .doOnError(error -> call.complete(true))
+                    .doOnCancel(call::cancel);
+        }, ORDER);
+    }
+
+    GradientLimit limit(String routeId, String instance) {
+        return limits.get(new LimitKey(routeId, instance));
+    }
+
+    private GradientLimit limit(LimitKey key, Config config) {
+        GradientLimit limit = limits.get(key);
+        if (limit != null) {
+            return limit;
+        }
+        return limits.computeIfAbsent(key, k -> {
+            GradientLimit created = config.newLimit();
+            Tags tags = Tags.of("route", k.routeId(), "instance", k.instance());
+            meterRegistry.gauge("gateway.concurrency.limit", tags, created, GradientLimit::getLimit);
+            meterRegistry.gauge("gateway.concurrency.in.flight", tags, created, GradientLimit::getInFlight);
+            return created;
+        });
+    }
+
+    private Mono<Void> shed(ServerWebExchange exchange, LimitKey key, Config config) {
+        shedCounters.computeIfAbsent(key, k -> meterRegistry.counter("gateway.concurrency.shed",
+                "route", k.routeId(), "instance", k.instance())).increment();
+        setResponseStatus(exchange, HttpStatus.SERVICE_UNAVAILABLE);
+        exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER,
+                String.valueOf(Math.max(1, (config.getRetryAfter().toMillis() + 999) / 1000)));
+        return exchange.getResponse().setComplete();
+    }
+
+    // The instance the load balancer picked, or the fixed host of a route without one
+    private static String instance(ServerWebExchange exchange) {
+        URI url = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+        if (url == null || url.getHost() == null) {
+            return null;
+        }
+        return url.getPort() < 0 ? url.getHost() : url.getHost() + ":" + url.getPort();
+    }
+
+    private static boolean isOverload(HttpStatusCode status) {
+        return status != null && OVERLOAD_STATUSES.contains(status.value());
+    }
+
+    private record LimitKey(String routeId, String instance) {
+    }
+
+    /**
+     * One admitted call, holding a slot of the route's limit and possibly one of its instance's.
+     */
+    private final class Call {
+
+        private final GradientLimit routeLimit;
+        private final int routeInFlight;
+        private final long startedAt;
+        private GradientLimit instanceLimit;
+        private int instanceInFlight;
+
+        Call(GradientLimit routeLimit, long startedAt) {
+            this.routeLimit = routeLimit;
+            this.routeInFlight = routeLimit.getInFlight();
+            this.startedAt = startedAt;
+        }
+
+        void complete(boolean dropped) {
+            long rtt = nanoClock.getAsLong() - startedAt;
+            routeLimit.release(rtt, routeInFlight, dropped);
+            if (instanceLimit != null) {
+                instanceLimit.release(rtt, instanceInFlight, dropped);
+            }
+        }
+
+        // The client went away, which says nothing about the backend
+        void cancel() {
+            routeLimit.release();
+            if (instanceLimit != null) {
+                instanceLimit.release();
+            }
+        }
+    }
+
+    public static class Config {
+
+        private int initialLimit = 20;
+
+        private int minLimit = 4;
+
+        private int maxLimit = 200;
+
+        private double tolerance = 2.0;
+
+        private double smoothing = 0.2;
+
+        private int longWindow = 600;
+
+        private boolean perInstance = true;
+
+        private Duration retryAfter = Duration.ofSeconds(1);
+
+        GradientLimit newLimit() {
+            return new GradientLimit(initialLimit, minLimit, maxLimit, smoothing, tolerance, longWindow);
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public Config setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public Config setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public Config setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        public double getTolerance() {
+            return tolerance;
+        }
+
+        public Config setTolerance(double tolerance) {
+            this.tolerance = tolerance;
+            return this;
+        }
+
+        public double getSmoothing() {
+            return smoothing;
+        }
+
+        public Config setSmoothing(double smoothing) {
+            this.smoothing = smoothing;
+            return this;
+        }
+
+        public int getLongWindow() {
+            return longWindow;
+        }
+
+        public Config setLongWindow(int longWindow) {
+            this.longWindow = longWindow;
+            return this;
+        }
+
+        public boolean isPerInstance() {
+            return perInstance;
+        }
+
+        public Config setPerInstance(boolean perInstance) {
+            this.perInstance = perInstance;
+            return this;
+        }
+
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+
+        public Config setRetryAfter(Duration retryAfter) {
+            this.retryAfter = retryAfter;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package binhnvh.apigateway.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A concurrency limit that follows the latency of the calls it admits, after the gradient algorithm of
+ * Netflix's concurrency-limits.
+ *
+ * Every completed call is a sample. A long-term average of their round trip times stands for the latency of a
+ * healthy backend; while the latest sample stays within {@code tolerance} times of it, the limit grows by a
+ * queue allowance of about its square root, and as latency rises above that it shrinks in proportion, down to
+ * half per sample. A call that failed or timed out counts as the steepest rise. Changes are smoothed, the limit
+ * is kept between its bounds, and it does not grow while less than half of it is in use, since the samples then
+ * say nothing about what more load would do.
+ */
+public final class GradientLimit {
+
+    // Samples averaged plainly before the long-term average becomes exponential
+    private static final int WARMUP_SAMPLES = 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double tolerance;
+    private final double longRttFactor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private double longRtt;
+    private int samples;
+
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit, double smoothing, double tolerance, int longWindow) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= initial <= max, got "
+                    + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        if (smoothing <= 0 || smoothing > 1 || tolerance < 1 || longWindow < 1) {
+            throw new IllegalArgumentException("Concurrency limit smoothing must be in (0, 1], tolerance at least 1"
+                    + " and the long window positive");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.tolerance = tolerance;
+        this.longRttFactor = 2.0 / (longWindow + 1);
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Takes a slot if fewer calls than the limit are in flight.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives a slot back without a sample, for calls that ended before their latency meant anything.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Gives a slot back and adjusts the limit to the call's round trip time.
+     *
+     * @param inFlightAtStart calls in flight, this one included, when it was admitted
+     * @param dropped whether the call failed or timed out, which counts as overload
+     */
+    public void release(long rttNanos, int inFlightAtStart, boolean dropped) {
+        inFlight.decrementAndGet();
+        if (rttNanos <= 0) {
+            return;
+        }
+        synchronized (this) {
+            double rtt = rttNanos;
+            samples++;
+            if (samples <= WARMUP_SAMPLES) {
+                longRtt += (rtt - longRtt) / samples;
+            } else {
+                longRtt += (rtt - longRtt) * longRttFactor;
+            }
+            // Let the baseline come back down after a long spell of slow calls has passed
+            if (longRtt / rtt > 2) {
+                longRtt *= 0.95;
+            }
+            if (!dropped && inFlightAtStart < limit / 2) {
+                return;
+            }
+            double gradient = dropped ? 0.5 : Math.max(0.5, Math.min(1.0, tolerance * longRtt / rtt));
+            double target = limit * gradient + Math.sqrt(limit);
+            double smoothed = limit * (1 - smoothing) + target * smoothing;
+            limit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
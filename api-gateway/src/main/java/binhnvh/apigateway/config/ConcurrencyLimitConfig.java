@@ -0,0 +1,21 @@
+package binhnvh.apigateway.config;
+
+import binhnvh.apigateway.concurrency.AdaptiveConcurrencyGatewayFilterFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Adaptive concurrency limit wiring.
+ *
+ * Routes opt in with the AdaptiveConcurrency filter, which sheds load beyond what their backends' latency says
+ * they can take, per route and per instance, before the circuit breaker has to trip.
+ */
+@Configuration
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public AdaptiveConcurrencyGatewayFilterFactory adaptiveConcurrencyGatewayFilterFactory(MeterRegistry meterRegistry) {
+        return new AdaptiveConcurrencyGatewayFilterFactory(meterRegistry);
+    }
+}
@@ -0,0 +1,29 @@
+package binhnvh.apigateway.config;
+
+import binhnvh.apigateway.hedging.HedgeBudget;
+import binhnvh.apigateway.hedging.HedgingGatewayFilterFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Request hedging wiring.
+ *
+ * Routes opt in with the Hedging filter, which sends slow or failed requests of idempotent routes again to
+ * another instance. The extra calls of all routes together come out of one budget, so they stay a bounded share
+ * of the traffic even when every backend is slow.
+ */
+@Configuration
+public class HedgingConfig {
+
+    @Bean
+    public HedgeBudget hedgeBudget(HedgingProperties properties, MeterRegistry meterRegistry) {
+        return new HedgeBudget(properties.getBudgetPercent(), properties.getMinPerSecond(),
+                properties.getMaxBalance(), meterRegistry);
+    }
+
+    @Bean
+    public HedgingGatewayFilterFactory hedgingGatewayFilterFactory(HedgeBudget hedgeBudget, MeterRegistry meterRegistry) {
+        return new HedgingGatewayFilterFactory(hedgeBudget, meterRegistry);
+    }
+}
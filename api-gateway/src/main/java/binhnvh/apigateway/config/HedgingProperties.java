@@ -0,0 +1,45 @@
+package binhnvh.apigateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Settings for the {@link binhnvh.apigateway.hedging.HedgeBudget} shared by routes using the Hedging filter.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "application.hedging")
+public class HedgingProperties {
+
+    // Extra calls allowed, as a percentage of the requests that could be hedged
+    private double budgetPercent = 10;
+
+    // Extra calls allowed per second whatever the traffic, so quiet routes can hedge too
+    private double minPerSecond = 1;
+
+    // Unspent extra calls saved up for a burst at most
+    private int maxBalance = 20;
+
+    public double getBudgetPercent() {
+        return budgetPercent;
+    }
+
+    public void setBudgetPercent(double budgetPercent) {
+        this.budgetPercent = budgetPercent;
+    }
+
+    public double getMinPerSecond() {
+        return minPerSecond;
+    }
+
+    public void setMinPerSecond(double minPerSecond) {
+        this.minPerSecond = minPerSecond;
+    }
+
+    public int getMaxBalance() {
+        return maxBalance;
+    }
+
+    public void setMaxBalance(int maxBalance) {
+        this.maxBalance = maxBalance;
+    }
+}
@@ -0,0 +1,33 @@
+package binhnvh.apigateway.config;
+
+import binhnvh.apigateway.upstream.Http2RoutingFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.List;
+
+/**
+ * HTTP/2 upstream wiring.
+ *
+ * Routes opt in with {@code upstream-protocol: h2c} (or {@code h2}) metadata, and are then proxied over a few
+ * multiplexed connections per backend instance instead of the shared HTTP/1.1 pool. The backend has to accept
+ * HTTP/2 without an upgrade, as Tomcat and Reactor Netty do with {@code server.http2.enabled: true}.
+ */
+@Configuration
+public class Http2UpstreamConfig {
+
+    @Bean
+    public Http2RoutingFilter http2RoutingFilter(HttpClient httpClient,
+                                                 ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                                                 HttpClientProperties httpClientProperties,
+                                                 ObjectProvider<HttpClientCustomizer> customizers,
+                                                 Http2UpstreamProperties properties) {
+        return new Http2RoutingFilter(httpClient, headersFilters, httpClientProperties,
+                customizers.orderedStream().toList(), properties.toSettings());
+    }
+}
@@ -0,0 +1,85 @@
+package binhnvh.apigateway.config;
+
+import binhnvh.apigateway.upstream.Http2PoolSettings;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Default pool sizing of routes proxied over HTTP/2 by the {@link binhnvh.apigateway.upstream.Http2RoutingFilter}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "application.http2-upstream")
+public class Http2UpstreamProperties {
+
+    // Connections per backend instance; a route's upstream-max-connections metadata overrides it
+    private int maxConnections = 4;
+
+    // Connections per backend instance kept open while idle
+    private int minConnections = 1;
+
+    // Concurrent streams per connection, or fewer if the backend says so; upstream-max-streams overrides it
+    private int maxStreams = 100;
+
+    // How long a request waits for a free stream once every connection is full
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+
+    // Requests waiting for a free stream per instance, beyond which they fail right away
+    private int maxPendingAcquires = 1000;
+
+    private Duration maxIdleTime = Duration.ofMinutes(5);
+
+    public Http2PoolSettings toSettings() {
+        return new Http2PoolSettings(maxConnections, minConnections, maxStreams, pendingAcquireTimeout,
+                maxPendingAcquires, maxIdleTime);
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMinConnections() {
+        return minConnections;
+    }
+
+    public void setMinConnections(int minConnections) {
+        this.minConnections = minConnections;
+    }
+
+    public int getMaxStreams() {
+        return maxStreams;
+    }
+
+    public void setMaxStreams(int maxStreams) {
+        this.maxStreams = maxStreams;
+    }
+
+    public Duration getPendingAcquireTimeout() {
+        return pendingAcquireTimeout;
+    }
+
+    public void setPendingAcquireTimeout(Duration pendingAcquireTimeout) {
+        this.pendingAcquireTimeout = pendingAcquireTimeout;
+    }
+
+    public int getMaxPendingAcquires() {
+        return maxPendingAcquires;
+    }
+
+    public void setMaxPendingAcquires(int maxPendingAcquires) {
+        this.maxPendingAcquires = maxPendingAcquires;
+    }
+
+    public Duration getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    public void setMaxIdleTime(Duration maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+}
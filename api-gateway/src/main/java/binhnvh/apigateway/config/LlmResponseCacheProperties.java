@@ -0,0 +1,92 @@
+package binhnvh.apigateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+/**
+ * Settings for the {@link binhnvh.apigateway.cache.LlmResponseCache} behind the LlmResponseCache route filter.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "application.llm-cache")
+public class LlmResponseCacheProperties {
+
+    // Total size of the responses held in memory, shared by all routes
+    private DataSize maxSize = DataSize.ofMegabytes(32);
+
+    // Larger responses are passed through without being stored
+    private DataSize maxEntrySize = DataSize.ofMegabytes(4);
+
+    private final Spill spill = new Spill();
+
+    public DataSize getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public DataSize getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    public void setMaxEntrySize(DataSize maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    public Spill getSpill() {
+        return spill;
+    }
+
+    /**
+     * Keeping large responses in files on local disk instead of in memory.
+     */
+    public static class Spill {
+
+        private boolean enabled;
+
+        // A directory of its own is created in here, and deleted on shutdown
+        private Path directory = Path.of(System.getProperty("java.io.tmpdir"));
+
+        // Responses larger than this go to disk
+        private DataSize threshold = DataSize.ofKilobytes(64);
+
+        // Total size of the files
+        private DataSize maxSize = DataSize.ofGigabytes(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Path getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(Path directory) {
+            this.directory = directory;
+        }
+
+        public DataSize getThreshold() {
+            return threshold;
+        }
+
+        public void setThreshold(DataSize threshold) {
+            this.threshold = threshold;
+        }
+
+        public DataSize getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package binhnvh.apigateway.config;
+
+import binhnvh.apigateway.loadbalancer.InstanceLoadGlobalFilter;
+import binhnvh.apigateway.loadbalancer.InstanceLoadTracker;
+import binhnvh.apigateway.loadbalancer.PeakEwmaLoadBalancerConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Load balancer wiring.
+ *
+ * Every {@code lb://} service gets the peak-EWMA load balancer instead of round robin, so a slow or paused
+ * instance stops getting its full share of requests; instances publishing load reports in their Eureka metadata
+ * are weighed by those as well. Turn it off with
+ * {@code application.load-balancer.enabled: false}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.load-balancer", name = "enabled", havingValue = "true", matchIfMissing = true)
+@LoadBalancerClients(defaultConfiguration = PeakEwmaLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+
+    @Bean
+    public InstanceLoadTracker instanceLoadTracker(LoadBalancingProperties properties, MeterRegistry meterRegistry) {
+        return new InstanceLoadTracker(properties.getDecayTime(), properties.getSlowStart(),
+                properties.getErrorPenalty(), properties.getIdleTimeout(), properties.getLoadReport().getFreshFor(),
+                properties.getLoadReport().getMaxAge(), meterRegistry);
+    }
+
+    @Bean
+    public InstanceLoadGlobalFilter instanceLoadGlobalFilter(InstanceLoadTracker instanceLoadTracker) {
+        return new InstanceLoadGlobalFilter(instanceLoadTracker);
+    }
+}
@@ -0,0 +1,104 @@
+package binhnvh.apigateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Settings for the {@link binhnvh.apigateway.loadbalancer.PeakEwmaLoadBalancer} of {@code lb://} routes.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "application.load-balancer")
+public class LoadBalancingProperties {
+
+    // Off falls back to Spring Cloud LoadBalancer's round robin
+    private boolean enabled = true;
+
+    // How fast the latency average forgets a slow spell
+    private Duration decayTime = Duration.ofSeconds(10);
+
+    // Newly seen instances ramp up to their full share over this long
+    private Duration slowStart = Duration.ofSeconds(30);
+
+    // Latency charged for a failed request or server error at least
+    private Duration errorPenalty = Duration.ofSeconds(1);
+
+    // Instances not picked for this long are forgotten
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    private final LoadReport loadReport = new LoadReport();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getDecayTime() {
+        return decayTime;
+    }
+
+    public void setDecayTime(Duration decayTime) {
+        this.decayTime = decayTime;
+    }
+
+    public Duration getSlowStart() {
+        return slowStart;
+    }
+
+    public void setSlowStart(Duration slowStart) {
+        this.slowStart = slowStart;
+    }
+
+    public Duration getErrorPenalty() {
+        return errorPenalty;
+    }
+
+    public void setErrorPenalty(Duration errorPenalty) {
+        this.errorPenalty = errorPenalty;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public LoadReport getLoadReport() {
+        return loadReport;
+    }
+
+    /**
+     * Trust in the load instances report in their Eureka metadata, by the age of the report.
+     */
+    public static class LoadReport {
+
+        // Fully trusted this long; covers the services' metadata replication interval plus registry fetch and
+        // load balancer cache delays
+        private Duration freshFor = Duration.ofSeconds(60);
+
+        // Trusted less and less until ignored at this age
+        private Duration maxAge = Duration.ofMinutes(3);
+
+        public Duration getFreshFor() {
+            return freshFor;
+        }
+
+        public void setFreshFor(Duration freshFor) {
+            this.freshFor = freshFor;
+        }
+
+        public Duration getMaxAge() {
+            return maxAge;
+        }
+
+        public void setMaxAge(Duration maxAge) {
+            this.maxAge = maxAge;
+        }
+    }
+}
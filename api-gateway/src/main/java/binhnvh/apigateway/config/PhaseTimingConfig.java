@@ -0,0 +1,87 @@
+package binhnvh.apigateway.config;
+
+import binhnvh.apigateway.cache.LlmResponseCacheGatewayFilterFactory;
+import binhnvh.apigateway.cache.RequestCoalescingGatewayFilterFactory;
+import binhnvh.apigateway.cache.ResponseCacheGatewayFilterFactory;
+import binhnvh.apigateway.concurrency.AdaptiveConcurrencyGatewayFilterFactory;
+import binhnvh.apigateway.ratelimit.HierarchicalRateLimiterGatewayFilterFactory;
+import binhnvh.apigateway.ratelimit.LlmTokenQuotaGatewayFilterFactory;
+import binhnvh.apigateway.scheduling.RequestSchedulingGatewayFilterFactory;
+import binhnvh.apigateway.streaming.StreamingGatewayFilterFactory;
+import binhnvh.apigateway.timing.Phase;
+import binhnvh.apigateway.timing.PhaseMarkWebFilter;
+import binhnvh.apigateway.timing.PhaseMetrics;
+import binhnvh.apigateway.timing.PhaseTimingFilteringWebHandler;
+import binhnvh.apigateway.timing.PhaseTimingHttpClientCustomizer;
+import binhnvh.apigateway.timing.PhaseTimingWebFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.SpringCloudCircuitBreakerFilterFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-phase request timing wiring.
+ *
+ * Each request's time is split into phases (security, route lookup, cache, rate limiting, admission, circuit
+ * breaker, load balancing, upstream connect and time to first byte, response) and recorded as the
+ * {@code gateway.phase} timers, tagged by route and phase. The phases are marked by a web filter ahead of all
+ * others, one right after Spring Security's, the gateway filters listed below and hooks on the upstream clients.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.phase-timing", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class PhaseTimingConfig {
+
+    // Order of Spring Security's WebFilterChainProxy in WebFlux applications
+    private static final int SECURITY_WEB_FILTER_ORDER = -100;
+
+    @Bean
+    public PhaseMetrics phaseMetrics(PhaseTimingProperties properties, MeterRegistry meterRegistry) {
+        return new PhaseMetrics(meterRegistry, properties.getMaxRoutes(), properties.isHistogram(),
+                properties.getMaxExpected());
+    }
+
+    @Bean
+    public PhaseTimingWebFilter phaseTimingWebFilter(PhaseMetrics phaseMetrics, PhaseTimingProperties properties) {
+        return new PhaseTimingWebFilter(phaseMetrics, properties.isServerTiming());
+    }
+
+    @Bean
+    public PhaseMarkWebFilter securityDoneWebFilter() {
+        return new PhaseMarkWebFilter(Phase.ROUTE, SECURITY_WEB_FILTER_ORDER + 1);
+    }
+
+    @Bean
+    public PhaseTimingFilteringWebHandler filteringWebHandler(List<GlobalFilter> globalFilters,
+                                                              GatewayProperties gatewayProperties) {
+        Map<Class<?>, Phase> phases = new LinkedHashMap<>();
+        phases.put(ResponseCacheGatewayFilterFactory.class, Phase.CACHE);
+        phases.put(LlmResponseCacheGatewayFilterFactory.class, Phase.CACHE);
+        phases.put(RequestCoalescingGatewayFilterFactory.class, Phase.CACHE);
+        phases.put(RequestRateLimiterGatewayFilterFactory.class, Phase.RATE_LIMIT);
+        phases.put(HierarchicalRateLimiterGatewayFilterFactory.class, Phase.RATE_LIMIT);
+        phases.put(LlmTokenQuotaGatewayFilterFactory.class, Phase.RATE_LIMIT);
+        phases.put(RequestSchedulingGatewayFilterFactory.class, Phase.ADMISSION);
+        phases.put(AdaptiveConcurrencyGatewayFilterFactory.class, Phase.ADMISSION);
+        phases.put(SpringCloudCircuitBreakerFilterFactory.class, Phase.CIRCUIT_BREAKER);
+        phases.put(StreamingGatewayFilterFactory.class, Phase.CIRCUIT_BREAKER);
+        phases.put(ReactiveLoadBalancerClientFilter.class, Phase.LOAD_BALANCER);
+        // Includes the HTTP/2 routing filter
+        phases.put(NettyRoutingFilter.class, Phase.CONNECT);
+        return new PhaseTimingFilteringWebHandler(globalFilters, gatewayProperties.isRouteFilterCacheEnabled(), phases);
+    }
+
+    @Bean
+    public PhaseTimingHttpClientCustomizer phaseTimingHttpClientCustomizer() {
+        return new PhaseTimingHttpClientCustomizer();
+    }
+}
@@ -0,0 +1,69 @@
+package binhnvh.apigateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Settings for the per-phase request timings of {@link binhnvh.apigateway.timing.PhaseMetrics}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "application.phase-timing")
+public class PhaseTimingProperties {
+
+    // Off leaves the gateway's filter chain and web filters as Spring Cloud Gateway sets them up
+    private boolean enabled = true;
+
+    // Add a Server-Timing header with the phases up to the response headers to every response
+    private boolean serverTiming = false;
+
+    // Routes tagged by id; the time of further routes is recorded under route=other
+    private int maxRoutes = 100;
+
+    // Publish histogram buckets for percentiles aggregated across instances, as Prometheus needs
+    private boolean histogram = true;
+
+    // Largest time the histogram buckets cover
+    private Duration maxExpected = Duration.ofSeconds(60);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isServerTiming() {
+        return serverTiming;
+    }
+
+    public void setServerTiming(boolean serverTiming) {
+        this.serverTiming = serverTiming;
+    }
+
+    public int getMaxRoutes() {
+        return maxRoutes;
+    }
+
+    public void setMaxRoutes(int maxRoutes) {
+        this.maxRoutes = maxRoutes;
+    }
+
+    public boolean isHistogram() {
+        return histogram;
+    }
+
+    public void setHistogram(boolean histogram) {
+        this.histogram = histogram;
+    }
+
+    public Duration getMaxExpected() {
+        return maxExpected;
+    }
+
+    public void setMaxExpected(Duration maxExpected) {
+        this.maxExpected = maxExpected;
+    }
+}
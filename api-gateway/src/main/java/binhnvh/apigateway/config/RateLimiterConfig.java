@@ -0,0 +1,124 @@
+package binhnvh.apigateway.config;
+
+import binhnvh.apigateway.ratelimit.CompositeKeyResolver;
+import binhnvh.apigateway.ratelimit.HierarchicalRateLimiterGatewayFilterFactory;
+import binhnvh.apigateway.ratelimit.KeyPart;
+import binhnvh.apigateway.ratelimit.LeasingRateLimiter;
+import binhnvh.apigateway.ratelimit.LlmTokenQuotaGatewayFilterFactory;
+import binhnvh.apigateway.ratelimit.LocalRateLimiter;
+import binhnvh.apigateway.ratelimit.LocalTokenBudgetStore;
+import binhnvh.apigateway.ratelimit.RedisBucketReconciler;
+import binhnvh.apigateway.ratelimit.RedisTokenBudgetStore;
+import binhnvh.apigateway.ratelimit.RequestIdentityResolver;
+import binhnvh.apigateway.ratelimit.TokenBudgetStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+/**
+ * Rate limiter wiring.
+ *
+ * The in-memory limiter is the default for every RequestRateLimiter filter. A route can still opt into the
+ * Redis limiter with {@code rate-limiter: "#{@redisRateLimiter}"} and {@code redis-rate-limiter.*} args, or,
+ * with leasing enabled, into {@code rate-limiter: "#{@leasingRateLimiter}"} and {@code leasing-rate-limiter.*}.
+ *
+ * Keys default to {@code #{@clientKeyResolver}}: the principal, or the client address for anonymous requests.
+ * Routes that need nested quotas use the HierarchicalRateLimiter filter instead of RequestRateLimiter, and LLM
+ * routes can budget tokens rather than requests with the LlmTokenQuota filter.
+ */
+@Configuration
+public class RateLimiterConfig {
+
+    private final RateLimiterProperties rateLimiterProperties;
+
+    public RateLimiterConfig(RateLimiterProperties rateLimiterProperties) {
+        this.rateLimiterProperties = rateLimiterProperties;
+    }
+
+    @Bean
+    @Primary
+    public LocalRateLimiter localRateLimiter(ConfigurationService configurationService, MeterRegistry meterRegistry) {
+        return new LocalRateLimiter(configurationService, defaultConfig(), rateLimiterProperties.getShards(),
+                rateLimiterProperties.getIdleTimeout(), meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.rate-limiter.leasing", name = "enabled", havingValue = "true")
+    public LeasingRateLimiter leasingRateLimiter(ConfigurationService configurationService,
+                                                 ReactiveStringRedisTemplate redisTemplate,
+                                                 MeterRegistry meterRegistry) {
+        RateLimiterProperties.Leasing leasing = rateLimiterProperties.getLeasing();
+        return new LeasingRateLimiter(configurationService, redisTemplate, defaultConfig(),
+                leasing.getLeaseFraction(), leasing.getLeaseTtl(), meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.rate-limiter.reconciliation", name = "enabled", havingValue = "true")
+    public RedisBucketReconciler redisBucketReconciler(LocalRateLimiter localRateLimiter,
+                                                       ReactiveStringRedisTemplate redisTemplate,
+                                                       MeterRegistry meterRegistry) {
+        return new RedisBucketReconciler(localRateLimiter, redisTemplate,
+                rateLimiterProperties.getReconciliation().getCounterTtl(), meterRegistry);
+    }
+
+    @Bean
+    public RequestIdentityResolver requestIdentityResolver() {
+        RateLimiterProperties.Keys keys = rateLimiterProperties.getKeys();
+        return new RequestIdentityResolver(keys.getTrustedProxies(), keys.getApiKeyHeader(), keys.getTenantClaim());
+    }
+
+    /**
+     * Key resolver for rate limiting per authenticated principal, falling back to the client address.
+     */
+    @Bean
+    @Primary
+    public KeyResolver clientKeyResolver(RequestIdentityResolver requestIdentityResolver) {
+        return new CompositeKeyResolver(requestIdentityResolver, KeyPart.CLIENT);
+    }
+
+    /**
+     * Key resolver for rate limiting per client address, read through the trusted proxies.
+     */
+    @Bean
+    public KeyResolver ipKeyResolver(RequestIdentityResolver requestIdentityResolver) {
+        return new CompositeKeyResolver(requestIdentityResolver, KeyPart.CLIENT_IP);
+    }
+
+    @Bean
+    public HierarchicalRateLimiterGatewayFilterFactory hierarchicalRateLimiterGatewayFilterFactory(
+            LocalRateLimiter localRateLimiter, RequestIdentityResolver requestIdentityResolver) {
+        return new HierarchicalRateLimiterGatewayFilterFactory(localRateLimiter, requestIdentityResolver);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.rate-limiter.token-quota", name = "store", havingValue = "local",
+            matchIfMissing = true)
+    public TokenBudgetStore localTokenBudgetStore(LocalRateLimiter localRateLimiter) {
+        return new LocalTokenBudgetStore(localRateLimiter);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.rate-limiter.token-quota", name = "store", havingValue = "redis")
+    public TokenBudgetStore redisTokenBudgetStore(ReactiveStringRedisTemplate redisTemplate) {
+        return new RedisTokenBudgetStore(redisTemplate);
+    }
+
+    @Bean
+    public LlmTokenQuotaGatewayFilterFactory llmTokenQuotaGatewayFilterFactory(
+            TokenBudgetStore tokenBudgetStore, RequestIdentityResolver requestIdentityResolver) {
+        return new LlmTokenQuotaGatewayFilterFactory(tokenBudgetStore, requestIdentityResolver);
+    }
+
+    private RedisRateLimiter.Config defaultConfig() {
+        return new RedisRateLimiter.Config()
+                .setReplenishRate(rateLimiterProperties.getReplenishRate())
+                .setBurstCapacity(rateLimiterProperties.getBurstCapacity())
+                .setRequestedTokens(rateLimiterProperties.getRequestedTokens());
+    }
+}
@@ -0,0 +1,248 @@
+package binhnvh.apigateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings for the in-memory {@link binhnvh.apigateway.ratelimit.LocalRateLimiter}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "application.rate-limiter")
+public class RateLimiterProperties {
+
+    // Used by routes that set no local-rate-limiter.* args, directly or through default-filters
+    private int replenishRate = 10;
+
+    private int burstCapacity = 20;
+
+    private int requestedTokens = 1;
+
+    // Must be a power of two
+    private int shards = 16;
+
+    // A bucket that has been full this long is dropped; a full bucket and a missing one behave the same
+    private Duration idleTimeout = Duration.ofMinutes(1);
+
+    private Duration evictionInterval = Duration.ofSeconds(10);
+
+    private final Reconciliation reconciliation = new Reconciliation();
+
+    private final Leasing leasing = new Leasing();
+
+    private final Keys keys = new Keys();
+
+    private final TokenQuota tokenQuota = new TokenQuota();
+
+    public int getReplenishRate() {
+        return replenishRate;
+    }
+
+    public void setReplenishRate(int replenishRate) {
+        this.replenishRate = replenishRate;
+    }
+
+    public int getBurstCapacity() {
+        return burstCapacity;
+    }
+
+    public void setBurstCapacity(int burstCapacity) {
+        this.burstCapacity = burstCapacity;
+    }
+
+    public int getRequestedTokens() {
+        return requestedTokens;
+    }
+
+    public void setRequestedTokens(int requestedTokens) {
+        this.requestedTokens = requestedTokens;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Duration getEvictionInterval() {
+        return evictionInterval;
+    }
+
+    public void setEvictionInterval(Duration evictionInterval) {
+        this.evictionInterval = evictionInterval;
+    }
+
+    public Reconciliation getReconciliation() {
+        return reconciliation;
+    }
+
+    public Leasing getLeasing() {
+        return leasing;
+    }
+
+    public Keys getKeys() {
+        return keys;
+    }
+
+    public TokenQuota getTokenQuota() {
+        return tokenQuota;
+    }
+
+    /**
+     * Periodic sharing of bucket consumption between gateway instances through Redis.
+     */
+    public static class Reconciliation {
+
+        private boolean enabled = false;
+
+        // How far the cluster can run ahead of a limit: about this long of the other instances' traffic
+        private Duration interval = Duration.ofSeconds(1);
+
+        // Shared counters outlive the last instance reporting on a key by this long
+        private Duration counterTtl = Duration.ofMinutes(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public Duration getCounterTtl() {
+            return counterTtl;
+        }
+
+        public void setCounterTtl(Duration counterTtl) {
+            this.counterTtl = counterTtl;
+        }
+    }
+
+    /**
+     * Redis-enforced limits taken in leases, for routes that opt in with the leasingRateLimiter bean.
+     */
+    public static class Leasing {
+
+        private boolean enabled = false;
+
+        // Share of the burst capacity taken per Redis call; smaller tracks the Redis limiter more closely
+        private double leaseFraction = 0.1;
+
+        // Unspent tokens go back to the shared bucket after this long
+        private Duration leaseTtl = Duration.ofSeconds(1);
+
+        private Duration returnInterval = Duration.ofSeconds(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getLeaseFraction() {
+            return leaseFraction;
+        }
+
+        public void setLeaseFraction(double leaseFraction) {
+            this.leaseFraction = leaseFraction;
+        }
+
+        public Duration getLeaseTtl() {
+            return leaseTtl;
+        }
+
+        public void setLeaseTtl(Duration leaseTtl) {
+            this.leaseTtl = leaseTtl;
+        }
+
+        public Duration getReturnInterval() {
+            return returnInterval;
+        }
+
+        public void setReturnInterval(Duration returnInterval) {
+            this.returnInterval = returnInterval;
+        }
+    }
+
+    /**
+     * Where rate limit keys come from, see {@link binhnvh.apigateway.ratelimit.RequestIdentityResolver}.
+     */
+    public static class Keys {
+
+        // Addresses or CIDR ranges of load balancers whose X-Forwarded-For entries are believed
+        private List<String> trustedProxies = new ArrayList<>();
+
+        private String apiKeyHeader = "X-Api-Key";
+
+        // Bearer token claim naming the caller's tenant
+        private String tenantClaim = "tenant";
+
+        public List<String> getTrustedProxies() {
+            return trustedProxies;
+        }
+
+        public void setTrustedProxies(List<String> trustedProxies) {
+            this.trustedProxies = trustedProxies;
+        }
+
+        public String getApiKeyHeader() {
+            return apiKeyHeader;
+        }
+
+        public void setApiKeyHeader(String apiKeyHeader) {
+            this.apiKeyHeader = apiKeyHeader;
+        }
+
+        public String getTenantClaim() {
+            return tenantClaim;
+        }
+
+        public void setTenantClaim(String tenantClaim) {
+            this.tenantClaim = tenantClaim;
+        }
+    }
+
+    /**
+     * Where the LlmTokenQuota filter keeps its budgets.
+     */
+    public static class TokenQuota {
+
+        // local: per gateway instance, no Redis; redis: one budget shared by all instances
+        private Store store = Store.LOCAL;
+
+        public Store getStore() {
+            return store;
+        }
+
+        public void setStore(Store store) {
+            this.store = store;
+        }
+
+        public enum Store {
+            LOCAL, REDIS
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package binhnvh.apigateway.config;
+
+import binhnvh.apigateway.ratelimit.RequestIdentityResolver;
+import binhnvh.apigateway.scheduling.RequestScheduler;
+import binhnvh.apigateway.scheduling.RequestSchedulingGatewayFilterFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Request scheduler wiring.
+ *
+ * Routes opt in with the RequestScheduling filter, which queues their requests by priority class once the
+ * shared capacity is taken, and sheds the lowest classes first when the queues fill up.
+ */
+@Configuration
+public class RequestSchedulerConfig {
+
+    @Bean
+    public RequestScheduler requestScheduler(RequestSchedulerProperties properties, MeterRegistry meterRegistry) {
+        return new RequestScheduler(properties.getCapacity(), properties.getMaxQueued(), properties.priorityClasses(),
+                properties.getTenantWeights(), meterRegistry);
+    }
+
+    @Bean
+    public RequestSchedulingGatewayFilterFactory requestSchedulingGatewayFilterFactory(RequestScheduler requestScheduler,
+                                                                                       RequestIdentityResolver requestIdentityResolver) {
+        return new RequestSchedulingGatewayFilterFactory(requestScheduler, requestIdentityResolver);
+    }
+}
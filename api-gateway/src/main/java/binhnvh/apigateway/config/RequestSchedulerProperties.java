@@ -0,0 +1,161 @@
+package binhnvh.apigateway.config;
+
+import binhnvh.apigateway.scheduling.PriorityClass;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Settings for the {@link binhnvh.apigateway.scheduling.RequestScheduler} behind the RequestScheduling route
+ * filter.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "application.request-scheduler")
+public class RequestSchedulerProperties {
+
+    // Requests admitted upstream at once, shared by all routes using the filter
+    private int capacity = 256;
+
+    // Requests waiting in all classes together
+    private int maxQueued = 1024;
+
+    // Share of each tenant within a class, relative to the default of 1
+    private Map<String, Double> tenantWeights = new LinkedHashMap<>();
+
+    // Highest priority first; the last class also takes requests matching no class
+    private List<ClassSpec> classes = new ArrayList<>(List.of(new ClassSpec("default")));
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public void setMaxQueued(int maxQueued) {
+        this.maxQueued = maxQueued;
+    }
+
+    public Map<String, Double> getTenantWeights() {
+        return tenantWeights;
+    }
+
+    public void setTenantWeights(Map<String, Double> tenantWeights) {
+        this.tenantWeights = tenantWeights;
+    }
+
+    public List<ClassSpec> getClasses() {
+        return classes;
+    }
+
+    public void setClasses(List<ClassSpec> classes) {
+        this.classes = classes;
+    }
+
+    public List<PriorityClass> priorityClasses() {
+        return classes.stream().map(ClassSpec::toPriorityClass).toList();
+    }
+
+    /**
+     * One priority class. Requests belong to it when their route, method and principal are all among those
+     * listed; an empty list matches any.
+     */
+    public static class ClassSpec {
+
+        private String name;
+
+        private Set<String> routes = new LinkedHashSet<>();
+
+        private Set<String> methods = new LinkedHashSet<>();
+
+        private Set<String> principals = new LinkedHashSet<>();
+
+        private int maxQueue = 256;
+
+        // Queued requests are shed after this long
+        private Duration maxWait = Duration.ofSeconds(2);
+
+        // Slots the class may hold at once; 0 leaves it bounded by the shared capacity only
+        private int maxInFlight;
+
+        public ClassSpec() {
+        }
+
+        ClassSpec(String name) {
+            this.name = name;
+        }
+
+        PriorityClass toPriorityClass() {
+            return new PriorityClass(name, routes, methods, principals, maxQueue, maxWait,
+                    maxInFlight == 0 ? Integer.MAX_VALUE : maxInFlight);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Set<String> getRoutes() {
+            return routes;
+        }
+
+        public void setRoutes(Set<String> routes) {
+            this.routes = routes;
+        }
+
+        public Set<String> getMethods() {
+            return methods;
+        }
+
+        public void setMethods(Set<String> methods) {
+            this.methods = methods;
+        }
+
+        public Set<String> getPrincipals() {
+            return principals;
+        }
+
+        public void setPrincipals(Set<String> principals) {
+            this.principals = principals;
+        }
+
+        public int getMaxQueue() {
+            return maxQueue;
+        }
+
+        public void setMaxQueue(int maxQueue) {
+            this.maxQueue = maxQueue;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public void setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+    }
+}
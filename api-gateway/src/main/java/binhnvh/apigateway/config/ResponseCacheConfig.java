@@ -0,0 +1,55 @@
+package binhnvh.apigateway.config;
+
+import binhnvh.apigateway.cache.LlmResponseCache;
+import binhnvh.apigateway.cache.LlmResponseCacheGatewayFilterFactory;
+import binhnvh.apigateway.cache.ResponseCache;
+import binhnvh.apigateway.cache.RequestCoalescingGatewayFilterFactory;
+import binhnvh.apigateway.cache.ResponseCacheEndpoint;
+import binhnvh.apigateway.cache.ResponseCacheGatewayFilterFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Response cache wiring.
+ *
+ * Routes opt in with the ResponseCache filter, and with RequestCoalescing to send identical concurrent misses
+ * upstream once. Cached responses can be dropped through the admin-only {@code /actuator/responsecache}
+ * endpoint, for all routes or one. LLM routes use LlmResponseCache, with a store of its own.
+ */
+@Configuration
+public class ResponseCacheConfig {
+
+    @Bean
+    public ResponseCache responseCache(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        return new ResponseCache(properties.getMaxSize(), properties.getMaxEntrySize(),
+                properties.getStaleRetention(), meterRegistry);
+    }
+
+    @Bean
+    public ResponseCacheGatewayFilterFactory responseCacheGatewayFilterFactory(ResponseCache responseCache) {
+        return new ResponseCacheGatewayFilterFactory(responseCache);
+    }
+
+    @Bean
+    public RequestCoalescingGatewayFilterFactory requestCoalescingGatewayFilterFactory(MeterRegistry meterRegistry) {
+        return new RequestCoalescingGatewayFilterFactory(meterRegistry);
+    }
+
+    @Bean
+    public LlmResponseCache llmResponseCache(LlmResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        LlmResponseCacheProperties.Spill spill = properties.getSpill();
+        return new LlmResponseCache(properties.getMaxSize(), properties.getMaxEntrySize(),
+                spill.isEnabled() ? spill.getDirectory() : null, spill.getThreshold(), spill.getMaxSize(), meterRegistry);
+    }
+
+    @Bean
+    public LlmResponseCacheGatewayFilterFactory llmResponseCacheGatewayFilterFactory(LlmResponseCache llmResponseCache) {
+        return new LlmResponseCacheGatewayFilterFactory(llmResponseCache);
+    }
+
+    @Bean
+    public ResponseCacheEndpoint responseCacheEndpoint(ResponseCache responseCache) {
+        return new ResponseCacheEndpoint(responseCache);
+    }
+}
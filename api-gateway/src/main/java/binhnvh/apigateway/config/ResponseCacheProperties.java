@@ -0,0 +1,48 @@
+package binhnvh.apigateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings for the {@link binhnvh.apigateway.cache.ResponseCache} behind the ResponseCache route filter.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "application.response-cache")
+public class ResponseCacheProperties {
+
+    // Total size of the cached responses, shared by all routes
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+
+    // Larger responses are passed through without being stored
+    private DataSize maxEntrySize = DataSize.ofMegabytes(1);
+
+    // How long an expired response with an ETag is kept to be revalidated instead of fetched again
+    private Duration staleRetention = Duration.ofMinutes(10);
+
+    public DataSize getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public DataSize getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    public void setMaxEntrySize(DataSize maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    public Duration getStaleRetention() {
+        return staleRetention;
+    }
+
+    public void setStaleRetention(Duration staleRetention) {
+        this.staleRetention = staleRetention;
+    }
+}
@@ -0,0 +1,46 @@
+package binhnvh.apigateway.config;
+
+import binhnvh.apigateway.routing.IndexedRoutePredicateHandlerMapping;
+import binhnvh.apigateway.routing.RouteConfigPoller;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.context.refresh.ContextRefresher;
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Route lookup and reload wiring.
+ *
+ * Routes are defined in the gateway's configuration in the config repository only. Each request is matched
+ * against the routes its path prefix can reach rather than against all of them, through a table rebuilt whenever
+ * the routes are refreshed. The config server is polled for changed routes, which are then applied without a
+ * restart; {@code /actuator/refresh} applies them at once.
+ */
+@Configuration
+public class RoutingConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.routing", name = "indexed", havingValue = "true", matchIfMissing = true)
+    public IndexedRoutePredicateHandlerMapping routePredicateHandlerMapping(FilteringWebHandler webHandler,
+                                                                           RouteLocator routeLocator,
+                                                                           RouteDefinitionLocator routeDefinitionLocator,
+                                                                           GlobalCorsProperties globalCorsProperties,
+                                                                           Environment environment,
+                                                                           MeterRegistry meterRegistry) {
+        return new IndexedRoutePredicateHandlerMapping(webHandler, routeLocator, routeDefinitionLocator,
+                globalCorsProperties, environment, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.routing.config-poll", name = "enabled", havingValue = "true",
+            matchIfMissing = true)
+    public RouteConfigPoller routeConfigPoller(ContextRefresher contextRefresher, ApplicationEventPublisher publisher) {
+        return new RouteConfigPoller(contextRefresher, publisher);
+    }
+}
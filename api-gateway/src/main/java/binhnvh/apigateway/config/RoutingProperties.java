@@ -0,0 +1,58 @@
+package binhnvh.apigateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Settings for the route lookup of {@link binhnvh.apigateway.routing.IndexedRoutePredicateHandlerMapping} and the
+ * {@link binhnvh.apigateway.routing.RouteConfigPoller}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "application.routing")
+public class RoutingProperties {
+
+    // Off tests every route in turn for each request, as Spring Cloud Gateway does by default
+    private boolean indexed = true;
+
+    private final ConfigPoll configPoll = new ConfigPoll();
+
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    public void setIndexed(boolean indexed) {
+        this.indexed = indexed;
+    }
+
+    public ConfigPoll getConfigPoll() {
+        return configPoll;
+    }
+
+    /**
+     * How often the config server is asked for changed routes.
+     */
+    public static class ConfigPoll {
+
+        private boolean enabled = true;
+
+        private Duration interval = Duration.ofSeconds(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package binhnvh.apigateway.config;
+
+import binhnvh.apigateway.streaming.StreamingGatewayFilterFactory;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.DispatcherHandler;
+
+/**
+ * Streaming passthrough wiring.
+ *
+ * Routes serving long-running responses use the Streaming filter in place of CircuitBreaker; it settles calls
+ * on the circuit breakers configured under {@code resilience4j.circuitbreaker.instances}.
+ */
+@Configuration
+public class StreamingConfig {
+
+    @Bean
+    public StreamingGatewayFilterFactory streamingGatewayFilterFactory(CircuitBreakerRegistry circuitBreakerRegistry,
+                                                                       ObjectProvider<DispatcherHandler> dispatcherHandler,
+                                                                       MeterRegistry meterRegistry) {
+        return new StreamingGatewayFilterFactory(circuitBreakerRegistry, dispatcherHandler, meterRegistry);
+    }
+}
@@ -0,0 +1,21 @@
+package binhnvh.apigateway.config;
+
+import binhnvh.tracing.TracingSupportConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Tracing wiring.
+ *
+ * Spring Boot traces requests through the gateway and Spring Cloud Gateway passes the W3C {@code traceparent}
+ * on to the services. The gateway is where most traces start, so its sampler makes the head-based decision the
+ * services follow, at the {@code management.tracing.sampling.probability} of the config server: the route
+ * config poll rebinds it, changing the ratio without a restart. Spans are kept in memory for
+ * {@code /actuator/traces} rather than sent to a collector.
+ */
+@Configuration
+@Import(TracingSupportConfig.class)
+@ConditionalOnProperty(prefix = "application.tracing", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class TracingConfig {
+}
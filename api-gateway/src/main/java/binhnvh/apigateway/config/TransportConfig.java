@@ -0,0 +1,24 @@
+package binhnvh.apigateway.config;
+
+import binhnvh.apigateway.transport.NettyTransportCustomizer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Netty transport wiring.
+ *
+ * The gateway's server and upstream clients run on io_uring where the kernel allows it, epoll otherwise on Linux,
+ * and NIO elsewhere, or on the transport {@code application.transport.type} names. Turn it off with
+ * {@code application.transport.enabled: false} to leave the choice to Reactor Netty.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.transport", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class TransportConfig {
+
+    @Bean
+    public NettyTransportCustomizer nettyTransportCustomizer(TransportProperties properties) {
+        return new NettyTransportCustomizer(properties.getType(), properties.resolveWorkerThreads(),
+                properties.getSocket().toOptions());
+    }
+}
@@ -0,0 +1,122 @@
+package binhnvh.apigateway.config;
+
+import binhnvh.apigateway.transport.NettyTransport;
+import binhnvh.apigateway.transport.SocketOptions;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Settings for the {@link binhnvh.apigateway.transport.NettyTransportCustomizer}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "application.transport")
+public class TransportProperties {
+
+    // Off leaves the transport and threads to Reactor Netty's defaults
+    private boolean enabled = true;
+
+    // auto, io-uring, epoll or nio; one not available on the host falls back to the next in that order
+    private NettyTransport type = NettyTransport.AUTO;
+
+    // Event loop threads shared by the server and upstream clients, Reactor Netty's default when 0
+    private int workerThreads = 0;
+
+    private final Socket socket = new Socket();
+
+    public int resolveWorkerThreads() {
+        return workerThreads > 0 ? workerThreads : Math.max(Runtime.getRuntime().availableProcessors(), 4);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public NettyTransport getType() {
+        return type;
+    }
+
+    public void setType(NettyTransport type) {
+        this.type = type;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public Socket getSocket() {
+        return socket;
+    }
+
+    /**
+     * Socket options of client and upstream connections; buffer sizes left unset keep the OS defaults.
+     */
+    public static class Socket {
+
+        private int backlog = 1024;
+
+        private boolean tcpNoDelay = true;
+
+        private boolean keepAlive = true;
+
+        private DataSize receiveBuffer;
+
+        private DataSize sendBuffer;
+
+        public SocketOptions toOptions() {
+            return new SocketOptions(backlog, tcpNoDelay, keepAlive, bytes(receiveBuffer), bytes(sendBuffer));
+        }
+
+        private static Integer bytes(DataSize size) {
+            return size == null ? null : Math.toIntExact(size.toBytes());
+        }
+
+        public int getBacklog() {
+            return backlog;
+        }
+
+        public void setBacklog(int backlog) {
+            this.backlog = backlog;
+        }
+
+        public boolean isTcpNoDelay() {
+            return tcpNoDelay;
+        }
+
+        public void setTcpNoDelay(boolean tcpNoDelay) {
+            this.tcpNoDelay = tcpNoDelay;
+        }
+
+        public boolean isKeepAlive() {
+            return keepAlive;
+        }
+
+        public void setKeepAlive(boolean keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+
+        public DataSize getReceiveBuffer() {
+            return receiveBuffer;
+        }
+
+        public void setReceiveBuffer(DataSize receiveBuffer) {
+            this.receiveBuffer = receiveBuffer;
+        }
+
+        public DataSize getSendBuffer() {
+            return sendBuffer;
+        }
+
+        public void setSendBuffer(DataSize sendBuffer) {
+            this.sendBuffer = sendBuffer;
+        }
+    }
+}
@@ -103,10 +103,11 @@ public class FallbackController {
 
     /**
      * Specific fallback for the LLM Processor service.
+     * Mapped for every method, since completions are requested with POST.
      *
      * @return A response specific to the LLM Processor service
      */
-    @GetMapping(value = "/llm-processor", produces = MediaType.APPLICATION_JSON_VALUE)
+    @RequestMapping(value = "/llm-processor", produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<ResponseEntity<Map<String, Object>>> llmProcessorFallback() {
         logger.warn("Fallback triggered for LLM Processor service");
 
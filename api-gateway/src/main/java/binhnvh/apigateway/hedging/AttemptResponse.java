@@ -0,0 +1,133 @@
+package binhnvh.apigateway.hedging;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseCookie;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * The response of one attempt of a {@link HedgedCall}, kept apart from the client's until the attempt is picked
+ * to answer. Status, headers, cookies and commit actions set by the attempt's filters stay here, and are handed
+ * to the client's response only if the attempt is picked. An attempt whose filters write a response themselves
+ * is decided on right then: picked, it writes through to the client's response, otherwise its body is released
+ * unread.
+ */
+final class AttemptResponse extends ServerHttpResponseDecorator {
+
+    private final Predicate<AttemptResponse> picker;
+    private final HttpHeaders headers = new HttpHeaders();
+    private final MultiValueMap<String, ResponseCookie> cookies = new LinkedMultiValueMap<>();
+    private final List<Supplier<? extends Mono<Void>>> commitActions = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean committed = new AtomicBoolean();
+    private volatile HttpStatusCode status;
+
+    AttemptResponse(ServerHttpResponse delegate, Predicate<AttemptResponse> picker) {
+        super(delegate);
+        this.picker = picker;
+    }
+
+    @Override
+    public boolean setStatusCode(HttpStatusCode status) {
+        if (committed.get()) {
+            return false;
+        }
+        this.status = status;
+        return true;
+    }
+
+    @Override
+    public HttpStatusCode getStatusCode() {
+        return status;
+    }
+
+    @Override
+    public boolean setRawStatusCode(Integer value) {
+        return setStatusCode(value == null ? null : HttpStatusCode.valueOf(value));
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public MultiValueMap<String, ResponseCookie> getCookies() {
+        return cookies;
+    }
+
+    @Override
+    public void addCookie(ResponseCookie cookie) {
+        cookies.add(cookie.getName(), cookie);
+    }
+
+    @Override
+    public void beforeCommit(Supplier<? extends Mono<Void>> action) {
+        commitActions.add(action);
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return committed.get();
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+        return decide().flatMap(picked -> picked ? getDelegate().writeWith(body) : discard(Flux.from(body)));
+    }
+
+    @Override
+    public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        return decide().flatMap(picked -> picked
+                ? getDelegate().writeAndFlushWith(body)
+                : discard(Flux.from(body).concatMap(Flux::from)));
+    }
+
+    @Override
+    public Mono<Void> setComplete() {
+        return decide().flatMap(picked -> picked ? getDelegate().setComplete() : Mono.empty());
+    }
+
+    /**
+     * Stops the attempt's filters from changing the response any further.
+     *
+     * @return false if it had already been committed
+     */
+    boolean commit() {
+        return committed.compareAndSet(false, true);
+    }
+
+    /**
+     * Hands status, headers, cookies and commit actions over to the client's response.
+     */
+    void forward() {
+        ServerHttpResponse target = getDelegate();
+        if (status != null) {
+            target.setStatusCode(status);
+        }
+        target.getHeaders().addAll(headers);
+        cookies.values().forEach(values -> values.forEach(target::addCookie));
+        commitActions.forEach(target::beforeCommit);
+    }
+
+    private Mono<Boolean> decide() {
+        return commit() ? Mono.fromCallable(() -> picker.test(this)) : Mono.just(false);
+    }
+
+    private static Mono<Void> discard(Flux<? extends DataBuffer> body) {
+        return body.doOnNext(DataBufferUtils::release).then();
+    }
+}
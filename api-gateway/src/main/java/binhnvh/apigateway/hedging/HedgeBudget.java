@@ -0,0 +1,82 @@
+package binhnvh.apigateway.hedging;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Extra upstream calls the gateway may make, hedges and retries alike, shared by every route using the Hedging
+ * filter. Each request through the filter earns a fraction of a call, so the extra load stays within that
+ * share of the traffic however slow or failing the backends get; a trickle earned per second lets quiet routes
+ * hedge now and then too. Unspent calls are saved up to a cap, which bounds the burst after a quiet spell.
+ *
+ * The calls available are gauged as {@code gateway.hedge.budget}.
+ */
+public class HedgeBudget {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final double perRequest;
+    private final double perSecond;
+    private final double maxBalance;
+    private final LongSupplier nanoClock;
+    private double balance;
+    private long refilledAt;
+
+    public HedgeBudget(double percent, double minPerSecond, int maxBalance, MeterRegistry meterRegistry) {
+        this(percent, minPerSecond, maxBalance, meterRegistry, System::nanoTime);
+    }
+
+    HedgeBudget(double percent, double minPerSecond, int maxBalance, MeterRegistry meterRegistry,
+                LongSupplier nanoClock) {
+        if (percent < 0 || percent > 100 || minPerSecond < 0 || maxBalance < 1) {
+            throw new IllegalArgumentException("Hedge budget needs a percent within 0-100, a non-negative minimum per"
+                    + " second and a max balance of at least 1, got " + percent + ", " + minPerSecond + " and "
+                    + maxBalance);
+        }
+        this.perRequest = percent / 100;
+        this.perSecond = minPerSecond;
+        this.maxBalance = maxBalance;
+        this.nanoClock = nanoClock;
+        this.refilledAt = nanoClock.getAsLong();
+        Gauge.builder("gateway.hedge.budget", this, HedgeBudget::available)
+                .description("Extra calls hedges and retries may still make")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Credits the budget for one request that could be hedged or retried.
+     */
+    public synchronized void deposit() {
+        refill();
+        balance = Math.min(maxBalance, balance + perRequest);
+    }
+
+    /**
+     * Takes one extra call from the budget.
+     *
+     * @return false when the budget is spent
+     */
+    public synchronized boolean tryWithdraw() {
+        refill();
+        if (balance < 1) {
+            return false;
+        }
+        balance -= 1;
+        return true;
+    }
+
+    synchronized double available() {
+        refill();
+        return balance;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        if (perSecond > 0 && now > refilledAt) {
+            balance = Math.min(maxBalance, balance + (now - refilledAt) / NANOS_PER_SECOND * perSecond);
+        }
+        refilledAt = now;
+    }
+}
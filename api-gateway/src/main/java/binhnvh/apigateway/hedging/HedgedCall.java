@@ -0,0 +1,338 @@
+package binhnvh.apigateway.hedging;
+
+import binhnvh.apigateway.loadbalancer.PeakEwmaLoadBalancer;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.netty.Connection;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ORIGINAL_REQUEST_URL_ATTR;
+
+/**
+ * One request of the Hedging filter, sent on through the rest of the filter chain possibly more than once.
+ *
+ * Each attempt runs the rest of the chain on its own copy of the exchange attributes and its own
+ * {@link AttemptResponse}, so the load balancer picks an instance for each. An attempt answers once the chain
+ * is through with it, which for a proxied call is as soon as its response headers are in. The first answer
+ * that is not a retryable status is picked: its response headers and attributes, the upstream connection
+ * included, go to the client's exchange, so the body is written from it as for any other request, and the
+ * other attempts are cancelled, or have their bodies drained if they already got theirs.
+ *
+ * If no answer has come within the route's hedge delay, a hedge is sent to another instance. An attempt
+ * failing, or answering with a retryable status, while no other is still waiting is retried on another
+ * instance. Both take a call from the {@link HedgeBudget}, and there are never more than the route's max
+ * attempts in all; once none are left the last failure is what the client gets.
+ */
+final class HedgedCall {
+
+    private enum Kind {
+        PRIMARY, HEDGE, RETRY
+    }
+
+    private final ServerWebExchange exchange;
+    private final GatewayFilterChain chain;
+    private final HedgedRoute route;
+    private final HedgeBudget budget;
+    private final LongSupplier nanoClock;
+    private final Scheduler timer;
+    private final Sinks.Empty<Void> done = Sinks.empty();
+    private final List<Attempt> attempts = new ArrayList<>();
+    private ContextView context = Context.empty();
+    private Attempt picked;
+    private boolean finished;
+    private Disposable hedgeTimer;
+
+    HedgedCall(ServerWebExchange exchange, GatewayFilterChain chain, HedgedRoute route, HedgeBudget budget,
+               LongSupplier nanoClock, Scheduler timer) {
+        this.exchange = exchange;
+        this.chain = chain;
+        this.route = route;
+        this.budget = budget;
+        this.nanoClock = nanoClock;
+        this.timer = timer;
+    }
+
+    Mono<Void> run() {
+        return Mono.deferContextual(contextView -> {
+            context = contextView;
+            launch(Kind.PRIMARY);
+            scheduleHedge();
+            return done.asMono();
+        }).doOnCancel(this::cancel);
+    }
+
+    private void launch(Kind kind) {
+        Attempt attempt;
+        synchronized (this) {
+            if (finished || picked != null) {
+                return;
+            }
+            attempt = new Attempt(kind, usedInstances());
+            attempts.add(attempt);
+        }
+        attempt.subscription.update(chain.filter(attempt.exchange)
+                .contextWrite(context)
+                .subscribe(null, error -> failed(attempt, error), () -> completed(attempt)));
+    }
+
+    private void scheduleHedge() {
+        if (route.getMaxAttempts() < 2) {
+            return;
+        }
+        Disposable scheduled = Mono.delay(route.delay(), timer).subscribe(tick -> hedge());
+        synchronized (this) {
+            if (finished || picked != null) {
+                scheduled.dispose();
+            } else {
+                hedgeTimer = scheduled;
+            }
+        }
+    }
+
+    private void hedge() {
+        synchronized (this) {
+            if (finished || picked != null || attempts.size() >= route.getMaxAttempts() || !anyWaiting()) {
+                return;
+            }
+            if (!budget.tryWithdraw()) {
+                route.getDenied().increment();
+                return;
+            }
+        }
+        route.getHedges().increment();
+        launch(Kind.HEDGE);
+    }
+
+    /**
+     * Decides on an attempt that has its response: picks it to answer the client, or drops it.
+     */
+    private boolean answer(Attempt attempt) {
+        boolean retry = false;
+        List<Attempt> losers = new ArrayList<>();
+        Disposable scheduled;
+        synchronized (this) {
+            attempt.answered = true;
+            route.recordLatency(nanoClock.getAsLong() - attempt.startedAt);
+            if (finished || picked != null) {
+                return false;
+            }
+            if (route.isRetryable(attempt.response.getStatusCode())) {
+                if (anyWaiting()) {
+                    return false;
+                }
+                retry = canRetry();
+            }
+            if (!retry) {
+                picked = attempt;
+                attempts.stream().filter(other -> other != attempt).forEach(losers::add);
+            }
+            scheduled = hedgeTimer;
+        }
+        if (retry) {
+            route.getRetries().increment();
+            launch(Kind.RETRY);
+            return false;
+        }
+        if (scheduled != null) {
+            scheduled.dispose();
+        }
+        losers.forEach(loser -> {
+            loser.subscription.dispose();
+            release(loser);
+        });
+        if (attempt.kind != Kind.PRIMARY) {
+            route.getWins().increment();
+        }
+        attempt.response.forward();
+        exchange.getAttributes().putAll(attempt.exchange.getAttributes());
+        return true;
+    }
+
+    private void completed(Attempt attempt) {
+        // Proxied calls end here with the response headers in, leaving the body to be written
+        if (attempt.response.commit() && !answer(attempt)) {
+            release(attempt);
+        }
+        synchronized (this) {
+            attempt.ended = true;
+            if (picked != attempt || finished) {
+                return;
+            }
+            finished = true;
+        }
+        done.tryEmitEmpty();
+    }
+
+    private void failed(Attempt attempt, Throwable error) {
+        boolean retry = false;
+        Disposable scheduled;
+        synchronized (this) {
+            attempt.ended = true;
+            if (finished || (picked != null && picked != attempt)) {
+                return;
+            }
+            if (picked == null) {
+                if (anyWaiting()) {
+                    return;
+                }
+                retry = canRetry();
+            }
+            finished = !retry;
+            scheduled = hedgeTimer;
+        }
+        if (retry) {
+            route.getRetries().increment();
+            launch(Kind.RETRY);
+            return;
+        }
+        if (scheduled != null) {
+            scheduled.dispose();
+        }
+        done.tryEmitError(error);
+    }
+
+    private void cancel() {
+        List<Attempt> all;
+        Disposable scheduled;
+        synchronized (this) {
+            finished = true;
+            all = new ArrayList<>(attempts);
+            scheduled = hedgeTimer;
+        }
+        if (scheduled != null) {
+            scheduled.dispose();
+        }
+        all.forEach(attempt -> {
+            attempt.subscription.dispose();
+            if (attempt != picked) {
+                release(attempt);
+            }
+        });
+    }
+
+    // Called holding the lock
+    private boolean canRetry() {
+        if (attempts.size() >= route.getMaxAttempts()) {
+            return false;
+        }
+        if (!budget.tryWithdraw()) {
+            route.getDenied().increment();
+            return false;
+        }
+        return true;
+    }
+
+    // Called holding the lock
+    private boolean anyWaiting() {
+        return attempts.stream().anyMatch(attempt -> !attempt.answered && !attempt.ended);
+    }
+
+    // Called holding the lock
+    private Set<String> usedInstances() {
+        Set<String> used = new LinkedHashSet<>();
+        for (Attempt attempt : attempts) {
+            Response<ServiceInstance> lbResponse = attempt.exchange.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+            if (lbResponse != null && lbResponse.hasServer()) {
+                used.add(PeakEwmaLoadBalancer.address(lbResponse.getServer()));
+            }
+        }
+        return used;
+    }
+
+    // Reads and drops the body of an attempt that got its response headers but will not be answering. Closing
+    // the connection instead is not safe: once the response is fully received it may be back in the pool
+    // serving another request.
+    private static void release(Attempt attempt) {
+        Connection connection = attempt.exchange.getAttributes().remove(CLIENT_RESPONSE_CONN_ATTR) instanceof Connection c
+                ? c : null;
+        if (connection != null) {
+            connection.inbound().receive().subscribe(null, error -> {
+            });
+        }
+    }
+
+    private final class Attempt {
+
+        private final Kind kind;
+        private final long startedAt = nanoClock.getAsLong();
+        private final AttemptResponse response;
+        private final ServerWebExchange exchange;
+        private final Disposable.Swap subscription = Disposables.swap();
+        private boolean answered;
+        private boolean ended;
+
+        Attempt(Kind kind, Set<String> excludedInstances) {
+            this.kind = kind;
+            this.response = new AttemptResponse(HedgedCall.this.exchange.getResponse(), ignored -> answer(this));
+            Map<String, Object> attributes = new ConcurrentHashMap<>(HedgedCall.this.exchange.getAttributes());
+            // Added to by the load balancer filter
+            attributes.computeIfPresent(GATEWAY_ORIGINAL_REQUEST_URL_ATTR, (name, urls) -> new LinkedHashSet<>((Set<?>) urls));
+            if (!excludedInstances.isEmpty()) {
+                attributes.put(PeakEwmaLoadBalancer.EXCLUDED_INSTANCES_ATTR, excludedInstances);
+            }
+            this.exchange = new AttemptExchange(HedgedCall.this.exchange, response, attributes);
+        }
+    }
+
+    /**
+     * The exchange one attempt sees. Requests with a body are never hedged, and the client's request body can
+     * only be read once, so none is sent.
+     */
+    private static final class AttemptExchange extends ServerWebExchangeDecorator {
+
+        private final ServerHttpRequest request;
+        private final ServerHttpResponse response;
+        private final Map<String, Object> attributes;
+
+        AttemptExchange(ServerWebExchange delegate, ServerHttpResponse response, Map<String, Object> attributes) {
+            super(delegate);
+            this.request = new ServerHttpRequestDecorator(delegate.getRequest()) {
+                @Override
+                public Flux<DataBuffer> getBody() {
+                    return Flux.empty();
+                }
+            };
+            this.response = response;
+            this.attributes = attributes;
+        }
+
+        @Override
+        public ServerHttpRequest getRequest() {
+            return request;
+        }
+
+        @Override
+        public ServerHttpResponse getResponse() {
+            return response;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+    }
+}
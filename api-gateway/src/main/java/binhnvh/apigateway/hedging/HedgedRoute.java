@@ -0,0 +1,124 @@
+package binhnvh.apigateway.hedging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.http.HttpStatusCode;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Hedging state of one route: its recent latency, the hedge delay derived from it, and its meters.
+ *
+ * The delay is the configured percentile of the time attempts took to get response headers over the last
+ * {@value #WINDOW_SECONDS} seconds, within the route's min and max delay. It is worked out again at most once a
+ * second, and is the max delay until the route has some samples.
+ */
+final class HedgedRoute {
+
+    static final int WINDOW_SECONDS = 30;
+
+    private static final int MIN_SAMPLES = 20;
+    private static final long REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int maxAttempts;
+    private final Set<Integer> retryStatuses;
+    private final Duration minDelay;
+    private final Duration maxDelay;
+    private final LongSupplier nanoClock;
+    private final Timer latency;
+    private final AtomicLong samples = new AtomicLong();
+    private final Counter hedges;
+    private final Counter retries;
+    private final Counter denied;
+    private final Counter wins;
+    private volatile Duration delay;
+    private volatile long refreshedAt;
+
+    HedgedRoute(String routeId, HedgingGatewayFilterFactory.Config config, MeterRegistry meterRegistry,
+                LongSupplier nanoClock) {
+        this.maxAttempts = config.getMaxAttempts();
+        this.retryStatuses = Set.copyOf(config.getRetryStatuses());
+        this.minDelay = config.getMinDelay();
+        this.maxDelay = config.getMaxDelay();
+        this.nanoClock = nanoClock;
+        this.delay = maxDelay;
+        this.refreshedAt = nanoClock.getAsLong();
+        this.latency = Timer.builder("gateway.hedge.latency")
+                .description("Time attempts took to get response headers")
+                .tag("route", routeId)
+                .publishPercentiles(config.getPercentile())
+                .distributionStatisticExpiry(Duration.ofSeconds(WINDOW_SECONDS))
+                .distributionStatisticBufferLength(3)
+                .register(meterRegistry);
+        Gauge.builder("gateway.hedge.delay", this, route -> route.delay().toNanos() / 1e9)
+                .description("Wait for a response before hedging")
+                .tag("route", routeId)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.hedges = meterRegistry.counter("gateway.hedge.attempts", "route", routeId, "kind", "hedge");
+        this.retries = meterRegistry.counter("gateway.hedge.attempts", "route", routeId, "kind", "retry");
+        this.denied = meterRegistry.counter("gateway.hedge.denied", "route", routeId);
+        this.wins = meterRegistry.counter("gateway.hedge.wins", "route", routeId);
+    }
+
+    Duration delay() {
+        long now = nanoClock.getAsLong();
+        if (now - refreshedAt >= REFRESH_NANOS) {
+            refreshedAt = now;
+            delay = percentileDelay();
+        }
+        return delay;
+    }
+
+    void recordLatency(long nanos) {
+        latency.record(nanos, TimeUnit.NANOSECONDS);
+        samples.incrementAndGet();
+    }
+
+    private Duration percentileDelay() {
+        if (samples.get() < MIN_SAMPLES) {
+            return maxDelay;
+        }
+        for (ValueAtPercentile percentile : latency.takeSnapshot().percentileValues()) {
+            long nanos = (long) percentile.value(TimeUnit.NANOSECONDS);
+            if (nanos <= 0) {
+                // Nothing recorded within the window
+                return maxDelay;
+            }
+            Duration observed = Duration.ofNanos(nanos);
+            return observed.compareTo(minDelay) < 0 ? minDelay : observed.compareTo(maxDelay) > 0 ? maxDelay : observed;
+        }
+        return maxDelay;
+    }
+
+    boolean isRetryable(HttpStatusCode status) {
+        return status != null && retryStatuses.contains(status.value());
+    }
+
+    int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    Counter getHedges() {
+        return hedges;
+    }
+
+    Counter getRetries() {
+        return retries;
+    }
+
+    Counter getDenied() {
+        return denied;
+    }
+
+    Counter getWins() {
+        return wins;
+    }
+}
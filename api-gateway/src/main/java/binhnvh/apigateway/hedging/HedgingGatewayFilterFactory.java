@@ -0,0 +1,194 @@
+package binhnvh.apigateway.hedging;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Hedges and retries requests of idempotent routes on other instances, within the shared {@link HedgeBudget}.
+ *
+ * <pre>
+ * - name: Hedging
+ *   args:
+ *     percentile: 0.95          # hedge once a request has waited this percentile of the route's recent latency
+ *     min-delay: 10ms
+ *     max-delay: 1s             # also the delay until the route has latency samples
+ *     max-attempts: 2           # first attempt included, shared by hedges and retries
+ *     retry-statuses: 502,503,504
+ *     methods: GET,HEAD
+ * </pre>
+ *
+ * A request waiting longer than the hedge delay for its response is sent again, to an instance other than the
+ * first, and whichever answers first is used while the other is cancelled. Failed attempts and retryable
+ * statuses are retried on another instance. See {@link HedgedCall} for the details.
+ *
+ * Only requests without a body, using one of the configured methods, are hedged. List the filter last, after
+ * the circuit breaker, so the breaker and its time limit see the hedged call as one; the load balancer needs to
+ * be the peak-EWMA one for hedges and retries to avoid the instances tried already.
+ *
+ * Per route, the time attempts took to get response headers is timed as {@code gateway.hedge.latency} and the
+ * hedge delay gauged as {@code gateway.hedge.delay}. Hedges and retries sent are counted as
+ * {@code gateway.hedge.attempts} by kind, those the budget refused as {@code gateway.hedge.denied}, and
+ * requests answered by a hedge or retry as {@code gateway.hedge.wins}.
+ */
+public class HedgingGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgingGatewayFilterFactory.Config> {
+
+    // Safe to send twice, per RFC 9110
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE", "PUT", "DELETE");
+
+    private final HedgeBudget budget;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier nanoClock;
+    private final Scheduler timer;
+    private final ConcurrentHashMap<String, HedgedRoute> routes = new ConcurrentHashMap<>();
+
+    public HedgingGatewayFilterFactory(HedgeBudget budget, MeterRegistry meterRegistry) {
+        this(budget, meterRegistry, System::nanoTime, Schedulers.parallel());
+    }
+
+    HedgingGatewayFilterFactory(HedgeBudget budget, MeterRegistry meterRegistry, LongSupplier nanoClock,
+                                Scheduler timer) {
+        super(Config.class);
+        this.budget = budget;
+        this.meterRegistry = meterRegistry;
+        this.nanoClock = nanoClock;
+        this.timer = timer;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        Set<String> methods = config.validate();
+
+        return (exchange, chain) -> {
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            ServerHttpRequest request = exchange.getRequest();
+            if (route == null || !methods.contains(request.getMethod().name()) || hasBody(request)) {
+                return chain.filter(exchange);
+            }
+            budget.deposit();
+            return new HedgedCall(exchange, chain, route(route.getId(), config), budget, nanoClock, timer).run();
+        };
+    }
+
+    HedgedRoute route(String routeId) {
+        return routes.get(routeId);
+    }
+
+    private HedgedRoute route(String routeId, Config config) {
+        HedgedRoute route = routes.get(routeId);
+        if (route != null) {
+            return route;
+        }
+        return routes.computeIfAbsent(routeId, id -> new HedgedRoute(id, config, meterRegistry, nanoClock));
+    }
+
+    private static boolean hasBody(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        return headers.getContentLength() > 0 || headers.containsKey(HttpHeaders.TRANSFER_ENCODING);
+    }
+
+    public static class Config {
+
+        private double percentile = 0.95;
+
+        private Duration minDelay = Duration.ofMillis(10);
+
+        private Duration maxDelay = Duration.ofSeconds(1);
+
+        private int maxAttempts = 2;
+
+        private Set<Integer> retryStatuses = new LinkedHashSet<>(List.of(502, 503, 504));
+
+        private Set<String> methods = new LinkedHashSet<>(List.of("GET", "HEAD"));
+
+        Set<String> validate() {
+            if (!(percentile > 0 && percentile < 1)) {
+                throw new IllegalArgumentException("Hedge percentile must be between 0 and 1, got " + percentile);
+            }
+            if (minDelay == null || maxDelay == null || minDelay.isNegative() || maxDelay.compareTo(minDelay) < 0) {
+                throw new IllegalArgumentException("Hedge delays must satisfy 0 <= min-delay <= max-delay, got "
+                        + minDelay + " and " + maxDelay);
+            }
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("Max attempts must be at least 1, got " + maxAttempts);
+            }
+            Set<String> normalized = methods.stream()
+                    .map(method -> method.toUpperCase(Locale.ROOT))
+                    .collect(Collectors.toUnmodifiableSet());
+            if (!IDEMPOTENT_METHODS.containsAll(normalized)) {
+                throw new IllegalArgumentException("Only idempotent methods can be hedged, got " + methods);
+            }
+            return normalized;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public Config setPercentile(double percentile) {
+            this.percentile = percentile;
+            return this;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public Config setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+            return this;
+        }
+
+        public Duration getMaxDelay() {
+            return maxDelay;
+        }
+
+        public Config setMaxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public Config setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public Set<Integer> getRetryStatuses() {
+            return retryStatuses;
+        }
+
+        public Config setRetryStatuses(Set<Integer> retryStatuses) {
+            this.retryStatuses = retryStatuses;
+            return this;
+        }
+
+        public Set<String> getMethods() {
+            return methods;
+        }
+
+        public Config setMethods(Set<String> methods) {
+            this.methods = methods;
+            return this;
+        }
+    }
+}
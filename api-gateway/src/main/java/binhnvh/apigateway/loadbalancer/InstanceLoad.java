@@ -0,0 +1,77 @@
+package binhnvh.apigateway.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load of one service instance as seen from this gateway: requests outstanding on it, and a peak-sensitive
+ * moving average of its latency.
+ *
+ * The average follows a rise in latency at once and decays back exponentially over the decay time, also while
+ * no samples arrive, so an instance that turned slow is avoided immediately and tried again once it has been
+ * left alone for a while.
+ */
+public final class InstanceLoad {
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final double decayNanos;
+    private final long firstSeen;
+
+    private volatile long lastUsed;
+    private volatile LoadReport report;
+    private double cost;
+    private long stamp;
+    private boolean sampled;
+
+    InstanceLoad(double decayNanos, long now) {
+        this.decayNanos = decayNanos;
+        this.firstSeen = now;
+        this.lastUsed = now;
+    }
+
+    void start(long now) {
+        outstanding.incrementAndGet();
+        lastUsed = now;
+    }
+
+    void end() {
+        outstanding.decrementAndGet();
+    }
+
+    synchronized void observe(long rttNanos, long now) {
+        double weight = decay(now);
+        cost = rttNanos > cost ? rttNanos : cost * weight + rttNanos * (1 - weight);
+        stamp = now;
+        sampled = true;
+    }
+
+    /**
+     * The latency average as of now, or NaN before the first sample.
+     */
+    synchronized double cost(long now) {
+        return sampled ? cost * decay(now) : Double.NaN;
+    }
+
+    int getOutstanding() {
+        return outstanding.get();
+    }
+
+    LoadReport getReport() {
+        return report;
+    }
+
+    void setReport(LoadReport report) {
+        this.report = report;
+    }
+
+    long getFirstSeen() {
+        return firstSeen;
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    private double decay(long now) {
+        return Math.exp(-Math.max(0, now - stamp) / decayNanos);
+    }
+}
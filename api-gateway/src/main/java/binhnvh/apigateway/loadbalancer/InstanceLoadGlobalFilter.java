@@ -0,0 +1,72 @@
+package binhnvh.apigateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+/**
+ * Reports every request sent to a load-balanced instance to the {@link InstanceLoadTracker}: outstanding from
+ * right after the pick until the response is done, streamed bodies included, with the time to response headers
+ * as its latency sample. Server errors and failed exchanges are charged the tracker's error penalty; requests
+ * cancelled before their headers give no sample.
+ */
+public class InstanceLoadGlobalFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+
+    private final InstanceLoadTracker tracker;
+
+    public InstanceLoadGlobalFilter(InstanceLoadTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Response<ServiceInstance> picked = exchange.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (picked == null || !picked.hasServer()) {
+            return chain.filter(exchange);
+        }
+        InstanceLoad load = tracker.get(picked.getServer());
+        long startedAt = tracker.start(load);
+        AtomicBoolean observed = new AtomicBoolean();
+        exchange.getResponse().beforeCommit(() -> {
+            if (observed.compareAndSet(false, true)) {
+                tracker.observe(load, startedAt, isServerError(exchange.getResponse().getStatusCode()));
+            }
+            return Mono.empty();
+        });
+        return chain.filter(exchange)
+                .doOnSuccess(result -> {
+                    if (observed.compareAndSet(false, true)) {
+                        tracker.observe(load, startedAt, isServerError(exchange.getResponse().getStatusCode()));
+                    }
+                    tracker.end(load);
+                })
+                .doOnError(error -> {
+                    if (observed.compareAndSet(false, true)) {
+                        tracker.observe(load, startedAt, true);
+                    }
+                    tracker.end(load);
+                })
+                .doOnCancel(() -> tracker.end(load));
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private static boolean isServerError(HttpStatusCode status) {
+        return status != null && status.is5xxServerError();
+    }
+}
@@ -0,0 +1,206 @@
+package binhnvh.apigateway.loadbalancer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the {@link InstanceLoad} of every instance the {@link PeakEwmaLoadBalancer} has been offered, and scores
+ * instances for it.
+ *
+ * An instance's score is its latency average times its outstanding requests plus one, so lower is better. An
+ * instance without latency samples yet is scored with the latency of the instance it is compared to. For the
+ * slow-start period after an instance is first seen, its score is raised in inverse proportion to the time
+ * it has been around, from ten-fold down to none, so it gets its full share of requests gradually.
+ *
+ * Instances publishing a {@link LoadReport} are also scored by it, in proportion to how fresh it is: requests
+ * in flight from all its clients count if more than this gateway's own outstanding ones, the score is
+ * multiplied by 1 / (1 - pool use), up to twenty-fold, and the reported p99 stands in for the latency until
+ * samples arrive.
+ *
+ * Per instance, scores are gauged as {@code gateway.lb.score}, latency averages in seconds as
+ * {@code gateway.lb.latency} and outstanding requests as {@code gateway.lb.outstanding}, tagged by service
+ * and instance. Instances unused for the idle timeout are dropped, meters included.
+ */
+public class InstanceLoadTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(InstanceLoadTracker.class);
+
+    private static final double MIN_SLOW_START_FACTOR = 0.1;
+
+    // Pool use counted at most, so a saturated instance still gets the odd request to find out it recovered
+    private static final double MAX_POOL_UTILIZATION = 0.95;
+
+    private final double decayNanos;
+    private final long slowStartNanos;
+    private final long errorPenaltyNanos;
+    private final long idleTimeoutNanos;
+    private final long reportFreshForMillis;
+    private final long reportMaxAgeMillis;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier nanoClock;
+    private final Clock clock;
+    private final ConcurrentHashMap<InstanceKey, Tracked> loads = new ConcurrentHashMap<>();
+
+    public InstanceLoadTracker(Duration decayTime, Duration slowStart, Duration errorPenalty, Duration idleTimeout,
+                               Duration reportFreshFor, Duration reportMaxAge, MeterRegistry meterRegistry) {
+        this(decayTime, slowStart, errorPenalty, idleTimeout, reportFreshFor, reportMaxAge, meterRegistry,
+                System::nanoTime, Clock.systemUTC());
+    }
+
+    InstanceLoadTracker(Duration decayTime, Duration slowStart, Duration errorPenalty, Duration idleTimeout,
+                        Duration reportFreshFor, Duration reportMaxAge, MeterRegistry meterRegistry,
+                        LongSupplier nanoClock, Clock clock) {
+        if (decayTime.isNegative() || decayTime.isZero() || slowStart.isNegative() || errorPenalty.isNegative()
+                || idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Load balancer decay time and idle timeout must be positive, slow start"
+                    + " and error penalty not negative");
+        }
+        if (reportFreshFor.isNegative() || reportMaxAge.compareTo(reportFreshFor) <= 0) {
+            throw new IllegalArgumentException("Load report max age must be above its fresh period, got "
+                    + reportMaxAge + " and " + reportFreshFor);
+        }
+        this.decayNanos = decayTime.toNanos();
+        this.slowStartNanos = slowStart.toNanos();
+        this.errorPenaltyNanos = errorPenalty.toNanos();
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.reportFreshForMillis = reportFreshFor.toMillis();
+        this.reportMaxAgeMillis = reportMaxAge.toMillis();
+        this.meterRegistry = meterRegistry;
+        this.nanoClock = nanoClock;
+        this.clock = clock;
+    }
+
+    public InstanceLoad get(ServiceInstance instance) {
+        InstanceKey key = InstanceKey.of(instance);
+        Tracked tracked = loads.get(key);
+        if (tracked == null) {
+            tracked = loads.computeIfAbsent(key, this::track);
+        }
+        InstanceLoad load = tracked.load;
+        LoadReport current = load.getReport();
+        Map<String, String> metadata = instance.getMetadata();
+        String stamp = metadata == null ? null : metadata.get(LoadReport.TIMESTAMP);
+        if (stamp == null ? current != null : current == null || !stamp.equals(current.getStamp())) {
+            load.setReport(LoadReport.from(metadata));
+        }
+        return load;
+    }
+
+    /**
+     * Lower is better; see the class comment.
+     *
+     * @param fallbackCost latency to assume if the instance has no samples yet, or NaN for none
+     */
+    public double score(InstanceLoad load, double fallbackCost) {
+        long now = nanoClock.getAsLong();
+        LoadReport report = load.getReport();
+        double trust = report == null ? 0 : report.weight(clock.millis(), reportFreshForMillis, reportMaxAgeMillis);
+        double cost = load.cost(now);
+        if (Double.isNaN(cost) && trust > 0 && report.getP99Millis() > 0) {
+            cost = report.getP99Millis() * 1e6;
+        }
+        if (Double.isNaN(cost)) {
+            cost = Double.isNaN(fallbackCost) ? 1 : fallbackCost;
+        }
+        double outstanding = load.getOutstanding();
+        double poolFactor = 1;
+        if (trust > 0) {
+            outstanding = Math.max(outstanding, trust * report.getInFlight());
+            poolFactor = Math.pow(1 / (1 - Math.min(report.getPoolUtilization(), MAX_POOL_UTILIZATION)), trust);
+        }
+        double score = Math.max(cost, 1) * (outstanding + 1) * poolFactor;
+        if (slowStartNanos > 0) {
+            double factor = (double) (now - load.getFirstSeen()) / slowStartNanos;
+            score /= Math.max(MIN_SLOW_START_FACTOR, Math.min(1, factor));
+        }
+        return score;
+    }
+
+    public double cost(InstanceLoad load) {
+        return load.cost(nanoClock.getAsLong());
+    }
+
+    /**
+     * Counts a request to the instance as outstanding until {@link #end}.
+     *
+     * @return when it started, to pass to {@link #observe}
+     */
+    public long start(InstanceLoad load) {
+        long now = nanoClock.getAsLong();
+        load.start(now);
+        return now;
+    }
+
+    /**
+     * Takes the time since the request started as a latency sample. A failed request counts as taking at least
+     * the error penalty, so an instance that fails fast does not draw more traffic.
+     */
+    public void observe(InstanceLoad load, long startedAt, boolean failed) {
+        long now = nanoClock.getAsLong();
+        long rtt = now - startedAt;
+        load.observe(failed ? Math.max(rtt, errorPenaltyNanos) : rtt, now);
+    }
+
+    public void end(InstanceLoad load) {
+        load.end();
+    }
+
+    /**
+     * Drops instances not picked for the idle timeout, such as those gone from the registry.
+     */
+    @Scheduled(fixedDelayString = "${application.load-balancer.eviction-interval:1m}")
+    public void evictIdle() {
+        long now = nanoClock.getAsLong();
+        int evicted = 0;
+        for (Map.Entry<InstanceKey, Tracked> entry : loads.entrySet()) {
+            InstanceLoad load = entry.getValue().load;
+            if (load.getOutstanding() == 0 && now - load.getLastUsed() > idleTimeoutNanos
+                    && loads.remove(entry.getKey(), entry.getValue())) {
+                entry.getValue().meters.forEach(meterRegistry::remove);
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            logger.debug("Dropped load of {} idle instances", evicted);
+        }
+    }
+
+    int size() {
+        return loads.size();
+    }
+
+    private Tracked track(InstanceKey key) {
+        InstanceLoad load = new InstanceLoad(decayNanos, nanoClock.getAsLong());
+        Tags tags = Tags.of("service", key.serviceId(), "instance", key.address());
+        List<Meter> meters = List.of(
+                Gauge.builder("gateway.lb.score", load, l -> score(l, Double.NaN)).tags(tags).register(meterRegistry),
+                Gauge.builder("gateway.lb.latency", load, l -> cost(l) / 1e9).tags(tags).baseUnit("seconds")
+                        .register(meterRegistry),
+                Gauge.builder("gateway.lb.outstanding", load, InstanceLoad::getOutstanding).tags(tags)
+                        .register(meterRegistry));
+        return new Tracked(load, meters);
+    }
+
+    private record Tracked(InstanceLoad load, List<Meter> meters) {
+    }
+
+    private record InstanceKey(String serviceId, String address) {
+
+        static InstanceKey of(ServiceInstance instance) {
+            return new InstanceKey(String.valueOf(instance.getServiceId()), instance.getHost() + ":" + instance.getPort());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package binhnvh.apigateway.loadbalancer;
+
+import java.util.Map;
+
+/**
+ * Load an instance reports about itself in its Eureka instance metadata: requests in flight, the use of its
+ * busiest connection pool (above 1 when callers queue for it), its recent p99 latency, and when it took the
+ * report. Reports reach the gateway late, by up to the service's metadata replication interval plus the
+ * registry fetch and load balancer cache intervals, so each is trusted less as it ages.
+ */
+public final class LoadReport {
+
+    static final String IN_FLIGHT = "load.in-flight";
+    static final String POOL = "load.pool";
+    static final String P99 = "load.p99";
+    static final String TIMESTAMP = "load.ts";
+
+    private final String stamp;
+    private final long reportedAt;
+    private final int inFlight;
+    private final double poolUtilization;
+    private final long p99Millis;
+
+    LoadReport(String stamp, long reportedAt, int inFlight, double poolUtilization, long p99Millis) {
+        this.stamp = stamp;
+        this.reportedAt = reportedAt;
+        this.inFlight = inFlight;
+        this.poolUtilization = poolUtilization;
+        this.p99Millis = p99Millis;
+    }
+
+    /**
+     * @return the report in the metadata, or null if there is none or it cannot be read
+     */
+    static LoadReport from(Map<String, String> metadata) {
+        String stamp = metadata == null ? null : metadata.get(TIMESTAMP);
+        if (stamp == null) {
+            return null;
+        }
+        try {
+            return new LoadReport(stamp, Long.parseLong(stamp),
+                    Math.max(0, Integer.parseInt(metadata.getOrDefault(IN_FLIGHT, "0"))),
+                    Math.max(0, Double.parseDouble(metadata.getOrDefault(POOL, "0"))),
+                    Math.max(0, Long.parseLong(metadata.getOrDefault(P99, "0"))));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * How far to trust the report: fully while it is fresh, then less and less until it is ignored at max age.
+     * A report from the future, through clock skew, counts as fresh.
+     */
+    double weight(long nowMillis, long freshForMillis, long maxAgeMillis) {
+        long age = Math.max(0, nowMillis - reportedAt);
+        if (age <= freshForMillis) {
+            return 1;
+        }
+        if (age >= maxAgeMillis) {
+            return 0;
+        }
+        return 1 - (double) (age - freshForMillis) / (maxAgeMillis - freshForMillis);
+    }
+
+    String getStamp() {
+        return stamp;
+    }
+
+    int getInFlight() {
+        return inFlight;
+    }
+
+    double getPoolUtilization() {
+        return poolUtilization;
+    }
+
+    long getP99Millis() {
+        return p99Millis;
+    }
+}
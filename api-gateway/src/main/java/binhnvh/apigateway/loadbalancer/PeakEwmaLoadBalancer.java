@@ -0,0 +1,108 @@
+package binhnvh.apigateway.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * Picks the less loaded of two instances drawn at random, by the scores of the {@link InstanceLoadTracker}:
+ * peak-EWMA latency times outstanding requests. Comparing two random instances rather than searching for the
+ * best keeps a burst of picks made on the same figures from all landing on one instance.
+ *
+ * Replaces the round-robin default for every {@code lb://} service; the {@link InstanceLoadGlobalFilter} feeds
+ * the tracker with what happens to each request. Instances whose host:port is among those in the request's
+ * {@value #EXCLUDED_INSTANCES_ATTR} attribute are left out, as long as others remain, so hedges and retries go
+ * elsewhere.
+ */
+public class PeakEwmaLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    public static final String EXCLUDED_INSTANCES_ATTR = "gateway.lb.excludedInstances";
+
+    private final String serviceId;
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+    private final InstanceLoadTracker tracker;
+    private final Supplier<RandomGenerator> random;
+
+    public PeakEwmaLoadBalancer(String serviceId, ObjectProvider<ServiceInstanceListSupplier> supplierProvider,
+                                InstanceLoadTracker tracker) {
+        this(serviceId, supplierProvider, tracker, ThreadLocalRandom::current);
+    }
+
+    PeakEwmaLoadBalancer(String serviceId, ObjectProvider<ServiceInstanceListSupplier> supplierProvider,
+                         InstanceLoadTracker tracker, Supplier<RandomGenerator> random) {
+        this.serviceId = serviceId;
+        this.supplierProvider = supplierProvider;
+        this.tracker = tracker;
+        this.random = random;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(instances -> {
+            Response<ServiceInstance> response = choose(available(instances, request));
+            if (supplier instanceof SelectedInstanceCallback callback && response.hasServer()) {
+                callback.selectedServiceInstance(response.getServer());
+            }
+            return response;
+        });
+    }
+
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        if (instances.size() == 1) {
+            return new DefaultResponse(instances.get(0));
+        }
+        RandomGenerator generator = random.get();
+        int first = generator.nextInt(instances.size());
+        int second = generator.nextInt(instances.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        InstanceLoad a = tracker.get(instances.get(first));
+        InstanceLoad b = tracker.get(instances.get(second));
+        double scoreA = tracker.score(a, tracker.cost(b));
+        double scoreB = tracker.score(b, tracker.cost(a));
+        return new DefaultResponse(instances.get(scoreB < scoreA ? second : first));
+    }
+
+    /**
+     * How an instance is named in the {@value #EXCLUDED_INSTANCES_ATTR} attribute.
+     */
+    public static String address(ServiceInstance instance) {
+        return instance.getHost() + ":" + instance.getPort();
+    }
+
+    private static List<ServiceInstance> available(List<ServiceInstance> instances, Request<?> request) {
+        if (!(request.getContext() instanceof RequestDataContext context) || context.getClientRequest() == null
+                || !(context.getClientRequest().getAttributes().get(EXCLUDED_INSTANCES_ATTR) instanceof Collection<?> excluded)
+                || excluded.isEmpty()) {
+            return instances;
+        }
+        List<ServiceInstance> rest = instances.stream()
+                .filter(instance -> !excluded.contains(address(instance)))
+                .toList();
+        return rest.isEmpty() ? instances : rest;
+    }
+
+    public String getServiceId() {
+        return serviceId;
+    }
+}
@@ -0,0 +1,28 @@
+package binhnvh.apigateway.ratelimit;
+
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Key resolver for the RequestRateLimiter filter that builds the key from parts of the request identity, e.g.
+ * the principal or the client address. Resolves to nothing when a part is unknown, which the filter turns into
+ * a denial unless {@code deny-empty-key} is off.
+ */
+public class CompositeKeyResolver implements KeyResolver {
+
+    private final RequestIdentityResolver identityResolver;
+    private final List<KeyPart> parts;
+
+    public CompositeKeyResolver(RequestIdentityResolver identityResolver, KeyPart... parts) {
+        this.identityResolver = identityResolver;
+        this.parts = List.of(parts);
+    }
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        return identityResolver.resolve(exchange).mapNotNull(identity -> identity.key(parts));
+    }
+}
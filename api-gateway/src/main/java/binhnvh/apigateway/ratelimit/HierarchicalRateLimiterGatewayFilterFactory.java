@@ -0,0 +1,213 @@
+package binhnvh.apigateway.ratelimit;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.setResponseStatus;
+
+/**
+ * Nested quotas for one route, e.g. per user within per tenant within a global limit, checked in one pass.
+ *
+ * <pre>
+ * - name: HierarchicalRateLimiter
+ *   args:
+ *     levels:
+ *       - name: user
+ *         key: client
+ *         replenish-rate: 10
+ *         burst-capacity: 20
+ *       - name: tenant
+ *         key: tenant
+ *         replenish-rate: 100
+ *         burst-capacity: 200
+ *       - name: global
+ *         replenish-rate: 500
+ *         burst-capacity: 1000
+ * </pre>
+ *
+ * A request takes a token from every level it has a key for and is only admitted if all of them have one;
+ * when a level denies, the tokens taken from the levels before it are given back, so a denied request costs no
+ * level anything. Levels are checked in the order given, so listing the most specific first keeps clients that
+ * are over their own quota off the shared buckets. A level without {@code key} applies to every request on the
+ * route; a level whose key has a part the request lacks, such as a tenant for an anonymous caller, is skipped.
+ *
+ * Buckets live in the {@link LocalRateLimiter}, keyed by route, level name and key, so they are reconciled
+ * between instances like any other local bucket. Responses carry the usual X-RateLimit headers for the level
+ * with the fewest tokens left, or the level that denied, named in {@value #LEVEL_HEADER}.
+ */
+public class HierarchicalRateLimiterGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<HierarchicalRateLimiterGatewayFilterFactory.Config> {
+
+    public static final String LEVEL_HEADER = "X-RateLimit-Level";
+
+    private final LocalRateLimiter rateLimiter;
+    private final RequestIdentityResolver identityResolver;
+
+    public HierarchicalRateLimiterGatewayFilterFactory(LocalRateLimiter rateLimiter,
+                                                       RequestIdentityResolver identityResolver) {
+        super(Config.class);
+        this.rateLimiter = rateLimiter;
+        this.identityResolver = identityResolver;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        List<Level> levels = List.copyOf(config.getLevels());
+        if (levels.isEmpty()) {
+            throw new IllegalArgumentException("HierarchicalRateLimiter needs at least one level");
+        }
+        Set<String> names = new HashSet<>();
+        List<RedisRateLimiter.Config> limits = new ArrayList<>(levels.size());
+        for (Level level : levels) {
+            if (level.getName() == null || !names.add(level.getName())) {
+                throw new IllegalArgumentException("Rate limit levels need distinct names, got " + level.getName());
+            }
+            if (level.getReplenishRate() <= 0 || level.getBurstCapacity() < level.getReplenishRate()) {
+                throw new IllegalArgumentException("Rate limit level " + level.getName()
+                        + " needs a positive replenish rate and a burst capacity of at least that rate");
+            }
+            limits.add(new RedisRateLimiter.Config()
+                    .setReplenishRate(level.getReplenishRate())
+                    .setBurstCapacity(level.getBurstCapacity())
+                    .setRequestedTokens(level.getRequestedTokens()));
+        }
+
+        return (exchange, chain) -> {
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            return identityResolver.resolve(exchange).flatMap(identity -> {
+                String[] ids = new String[levels.size()];
+                int tightest = -1;
+                long tightestRemaining = Long.MAX_VALUE;
+                for (int i = 0; i < levels.size(); i++) {
+                    String key = identity.key(levels.get(i).getKey());
+                    if (key == null) {
+                        continue;
+                    }
+                    ids[i] = levels.get(i).getName() + "/" + key;
+                    long result = rateLimiter.acquire(route.getId(), ids[i], limits.get(i));
+                    if (result < 0) {
+                        for (int j = 0; j < i; j++) {
+                            if (ids[j] != null) {
+                                rateLimiter.refund(route.getId(), ids[j], limits.get(j));
+                            }
+                        }
+                        setHeaders(exchange, levels.get(i), limits.get(i), ~result);
+                        setResponseStatus(exchange, config.getStatusCode());
+                        return exchange.getResponse().setComplete();
+                    }
+                    if (result < tightestRemaining) {
+                        tightest = i;
+                        tightestRemaining = result;
+                    }
+                }
+                if (tightest >= 0) {
+                    setHeaders(exchange, levels.get(tightest), limits.get(tightest), tightestRemaining);
+                }
+                return chain.filter(exchange);
+            });
+        };
+    }
+
+    private void setHeaders(ServerWebExchange exchange, Level level, RedisRateLimiter.Config limits, long remaining) {
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+        rateLimiter.getHeaders(limits, remaining).forEach(headers::add);
+        headers.add(LEVEL_HEADER, level.getName());
+    }
+
+    public static class Config {
+
+        private List<Level> levels = new ArrayList<>();
+
+        private HttpStatus statusCode = HttpStatus.TOO_MANY_REQUESTS;
+
+        public List<Level> getLevels() {
+            return levels;
+        }
+
+        public Config setLevels(List<Level> levels) {
+            this.levels = levels;
+            return this;
+        }
+
+        public HttpStatus getStatusCode() {
+            return statusCode;
+        }
+
+        public Config setStatusCode(HttpStatus statusCode) {
+            this.statusCode = statusCode;
+            return this;
+        }
+    }
+
+    /**
+     * One quota: a bucket per distinct key built from {@code key}, or a single bucket when it has no parts.
+     */
+    public static class Level {
+
+        private String name;
+
+        private List<KeyPart> key = new ArrayList<>();
+
+        private int replenishRate;
+
+        private int burstCapacity;
+
+        private int requestedTokens = 1;
+
+        public String getName() {
+            return name;
+        }
+
+        public Level setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public List<KeyPart> getKey() {
+            return key;
+        }
+
+        public Level setKey(List<KeyPart> key) {
+            this.key = key;
+            return this;
+        }
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public Level setReplenishRate(int replenishRate) {
+            this.replenishRate = replenishRate;
+            return this;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public Level setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+            return this;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public Level setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package binhnvh.apigateway.ratelimit;
+
+/**
+ * Something about a request that a rate limit key can be built from. Written in route args in lower case
+ * with dashes, e.g. {@code key: tenant,principal}.
+ */
+public enum KeyPart {
+
+    /** Name of the authenticated principal. */
+    PRINCIPAL("principal"),
+
+    /** Tenant claim of the bearer token, see {@code application.rate-limiter.keys.tenant-claim}. */
+    TENANT("tenant"),
+
+    /**
+     * Hash of the API key header. The gateway does not validate API keys, so only key on them where something
+     * in front of the route does; otherwise a client gets a fresh bucket per made-up key.
+     */
+    API_KEY("api-key"),
+
+    /** Client address, read through X-Forwarded-For only as far as the configured trusted proxies go. */
+    CLIENT_IP("client-ip"),
+
+    /** The principal when the request is authenticated, otherwise the client address. */
+    CLIENT("client");
+
+    private final String label;
+
+    KeyPart(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,209 @@
+package binhnvh.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.cloud.gateway.route.RouteDefinitionRouteLocator;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter that enforces one token bucket per key across all gateway instances, like
+ * {@link RedisRateLimiter}, but takes tokens from Redis in leases instead of one script call per request.
+ *
+ * A lease is up to {@code lease-fraction} of the burst capacity and is spent locally until it runs out or
+ * {@code lease-ttl} passes. Unused tokens go back to the bucket with the next lease call for the key, or from
+ * {@link #returnExpiredLeases()} when the key goes quiet. The bucket lives under the same Redis keys and units
+ * as the Redis limiter's. The cluster never admits more than the bucket allows; the cost of leasing is that
+ * tokens parked in one instance's lease are unavailable to the others until it is spent or returned, so
+ * smaller leases track the pure Redis limiter more closely at the price of more Redis calls.
+ *
+ * Once the bucket comes back empty, requests for that key are denied locally until it can have refilled the
+ * requested tokens, so a client over its limit does not cost a Redis call per request either.
+ *
+ * Like the Redis limiter, requests are allowed if Redis cannot be reached.
+ */
+public class LeasingRateLimiter extends AbstractRateLimiter<RedisRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "leasing-rate-limiter";
+
+    private static final Logger logger = LoggerFactory.getLogger(LeasingRateLimiter.class);
+    private static final int RENEWAL_ATTEMPTS = 2;
+    private static final int CONCURRENT_CALLS = 64;
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final RedisScript<List<Long>> script;
+    private final RedisRateLimiter.Config defaultConfig;
+    private final double leaseFraction;
+    private final long leaseTtlNanos;
+    private final LongSupplier nanoClock;
+    private final ConcurrentHashMap<String, TokenLease> leases = new ConcurrentHashMap<>();
+    private final Counter requestCounter;
+    private final Counter redisCallCounter;
+
+    public LeasingRateLimiter(ConfigurationService configurationService, ReactiveStringRedisTemplate redisTemplate,
+                              RedisRateLimiter.Config defaultConfig, double leaseFraction, Duration leaseTtl,
+                              MeterRegistry meterRegistry) {
+        this(configurationService, redisTemplate, defaultConfig, leaseFraction, leaseTtl, meterRegistry, System::nanoTime);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    LeasingRateLimiter(ConfigurationService configurationService, ReactiveStringRedisTemplate redisTemplate,
+                       RedisRateLimiter.Config defaultConfig, double leaseFraction, Duration leaseTtl,
+                       MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        super(RedisRateLimiter.Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        if (leaseFraction <= 0 || leaseFraction > 1) {
+            throw new IllegalArgumentException("Lease fraction must be in (0, 1], got " + leaseFraction);
+        }
+        this.redisTemplate = redisTemplate;
+        this.script = (RedisScript) RedisScript.of(new ClassPathResource("META-INF/scripts/leasing_rate_limiter.lua"), List.class);
+        this.defaultConfig = defaultConfig;
+        this.leaseFraction = leaseFraction;
+        this.leaseTtlNanos = leaseTtl.toNanos();
+        this.nanoClock = nanoClock;
+        this.requestCounter = meterRegistry.counter("gateway.ratelimit.requests", "limiter", "leasing");
+        this.redisCallCounter = meterRegistry.counter("gateway.ratelimit.redis.calls", "limiter", "leasing");
+        meterRegistry.gauge("gateway.ratelimit.redis.calls.per.request", Tags.of("limiter", "leasing"), this, LeasingRateLimiter::redisCallsPerRequest);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        RedisRateLimiter.Config config = loadConfiguration(routeId);
+        requestCounter.increment();
+        if (config.getReplenishRate() <= 0 || config.getBurstCapacity() <= 0) {
+            return Mono.just(new Response(false, getHeaders(config, 0L)));
+        }
+        String key = routeId + "." + id;
+        TokenLease lease = leases.get(key);
+        if (lease == null) {
+            lease = leases.computeIfAbsent(key, k -> new TokenLease(routeId, id, nanoClock.getAsLong()));
+        }
+        return acquire(lease, config, RENEWAL_ATTEMPTS);
+    }
+
+    private Mono<Response> acquire(TokenLease lease, RedisRateLimiter.Config config, int attempts) {
+        int requested = config.getRequestedTokens();
+        if (lease.tryTake(requested, nanoClock.getAsLong()) >= 0) {
+            return Mono.just(new Response(true, getHeaders(config, lease.remaining())));
+        }
+        if (attempts == 0 || lease.isBackingOff(nanoClock.getAsLong())) {
+            return Mono.just(new Response(false, getHeaders(config, lease.remaining())));
+        }
+        return Mono.defer(() -> lease.renew(() -> renew(lease, config)))
+                .then(Mono.defer(() -> lease.getLastGranted() < requested
+                        // The shared bucket could not cover the request
+                        ? Mono.just(new Response(false, getHeaders(config, lease.remaining())))
+                        : acquire(lease, config, attempts - 1)))
+                .onErrorResume(ex -> {
+                    logger.error("Error leasing rate limit tokens from redis", ex);
+                    return Mono.just(new Response(true, getHeaders(config, -1L)));
+                });
+    }
+
+    private Mono<Void> renew(TokenLease lease, RedisRateLimiter.Config config) {
+        int requested = config.getRequestedTokens();
+        long leaseSize = Math.max(requested, (long) Math.ceil(config.getBurstCapacity() * leaseFraction));
+        return call(lease, config, requested, leaseSize);
+    }
+
+    /**
+     * Gives the unused tokens of expired leases back to their buckets and forgets keys that have gone quiet.
+     */
+    @Scheduled(fixedDelayString = "${application.rate-limiter.leasing.return-interval:1s}")
+    public void returnExpiredLeases() {
+        long now = nanoClock.getAsLong();
+        Flux.fromIterable(leases.values())
+                .filter(lease -> lease.isExpired(now) && !lease.isRenewing())
+                .flatMap(lease -> {
+                    if (!lease.hasTokens()) {
+                        // Expired for a full lease period with nothing to give back
+                        if (now - lease.getExpiresAt() >= leaseTtlNanos) {
+                            leases.remove(lease.getRouteId() + "." + lease.getId(), lease);
+                        }
+                        return Mono.empty();
+                    }
+                    return Mono.defer(() -> lease.renew(() -> call(lease, loadConfiguration(lease.getRouteId()), 0, 0)))
+                            .onErrorResume(ex -> {
+                                logger.debug("Failed to return leased tokens for {}.{}", lease.getRouteId(), lease.getId(), ex);
+                                return Mono.empty();
+                            });
+                }, CONCURRENT_CALLS)
+                .blockLast();
+    }
+
+    // Returns whatever the lease still holds and asks for up to leaseSize tokens in the same script call;
+    // a leaseSize of 0 only returns
+    private Mono<Void> call(TokenLease lease, RedisRateLimiter.Config config, int requested, long leaseSize) {
+        long returned = lease.drain();
+        List<String> args = List.of(String.valueOf(config.getReplenishRate()), String.valueOf(config.getBurstCapacity()),
+                String.valueOf(requested), String.valueOf(leaseSize), String.valueOf(returned));
+        redisCallCounter.increment();
+        return redisTemplate.execute(script, keys(lease), args)
+                .next()
+                .doOnNext(result -> {
+                    long now = nanoClock.getAsLong();
+                    if (leaseSize > 0) {
+                        lease.grant(result.get(0), result.get(1), now + leaseTtlNanos);
+                        if (result.get(0) < requested) {
+                            // Denied requests wait for the refill instead of asking Redis each time
+                            lease.backOffUntil(now + (long) Math.ceil(requested * 1e9 / config.getReplenishRate()));
+                        }
+                    } else {
+                        lease.returned(result.get(1));
+                    }
+                })
+                .doOnError(ex -> lease.restore(returned))
+                .then();
+    }
+
+    public Map<String, String> getHeaders(RedisRateLimiter.Config config, Long tokensLeft) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put(RedisRateLimiter.REMAINING_HEADER, tokensLeft.toString());
+        headers.put(RedisRateLimiter.REPLENISH_RATE_HEADER, String.valueOf(config.getReplenishRate()));
+        headers.put(RedisRateLimiter.BURST_CAPACITY_HEADER, String.valueOf(config.getBurstCapacity()));
+        headers.put(RedisRateLimiter.REQUESTED_TOKENS_HEADER, String.valueOf(config.getRequestedTokens()));
+        return headers;
+    }
+
+    public double redisCallsPerRequest() {
+        double requests = requestCounter.count();
+        return requests == 0 ? 0 : redisCallCounter.count() / requests;
+    }
+
+    int size() {
+        return leases.size();
+    }
+
+    /**
+     * Route args win, then the default-filters args, then the configured defaults.
+     */
+    RedisRateLimiter.Config loadConfiguration(String routeId) {
+        RedisRateLimiter.Config routeConfig = getConfig().get(routeId);
+        if (routeConfig == null) {
+            routeConfig = getConfig().getOrDefault(RouteDefinitionRouteLocator.DEFAULT_FILTERS, defaultConfig);
+        }
+        return routeConfig;
+    }
+
+    // Same keys as RedisRateLimiter, so a route can move between the two limiters without resetting its bucket
+    private static List<String> keys(TokenLease lease) {
+        String prefix = "request_rate_limiter.{" + lease.getRouteId() + "." + lease.getId() + "}.";
+        return List.of(prefix + "tokens", prefix + "timestamp");
+    }
+}
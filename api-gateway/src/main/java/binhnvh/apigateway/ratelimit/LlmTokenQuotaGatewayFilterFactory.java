@@ -0,0 +1,269 @@
+package binhnvh.apigateway.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.setResponseStatus;
+
+/**
+ * Charges LLM requests against a per-caller budget of tokens instead of counting requests, since one prompt
+ * can cost a hundred times another.
+ *
+ * <pre>
+ * - name: LlmTokenQuota
+ *   args:
+ *     key: client
+ *     replenish-rate: 300        # tokens per second, about 18k a minute
+ *     burst-capacity: 20000
+ *     daily-limit: 500000
+ * </pre>
+ *
+ * Before forwarding, the request is charged an estimate: its body size divided by {@code bytes-per-token},
+ * plus {@code expected-output-tokens}, capped at the burst capacity. When the response starts, the charge is
+ * corrected to what the backend reports in {@code usage-header}; without that header the estimate stands,
+ * except for server errors, which are refunded. Usage reported only at the end of a streamed body is not seen.
+ * A correction can leave the budget in debt, which the caller waits out like an empty bucket.
+ *
+ * A body sent without {@code Content-Length}, such as a chunked one, cannot be sized up front, so the request
+ * reserves the burst capacity, the most one request may be charged. Its bytes are counted as they are
+ * forwarded and, without reported usage, the charge is corrected to the estimate for the bytes read.
+ *
+ * The budget lives in the configured {@link TokenBudgetStore}. Responses carry {@value #REMAINING_HEADER},
+ * {@value #DAILY_REMAINING_HEADER} when there is a daily cap, and {@value #CHARGED_HEADER}.
+ */
+public class LlmTokenQuotaGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<LlmTokenQuotaGatewayFilterFactory.Config> {
+
+    public static final String REMAINING_HEADER = "X-TokenLimit-Remaining";
+    public static final String DAILY_REMAINING_HEADER = "X-TokenLimit-Daily-Remaining";
+    public static final String CHARGED_HEADER = "X-TokenLimit-Charged";
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmTokenQuotaGatewayFilterFactory.class);
+
+    private final TokenBudgetStore store;
+    private final RequestIdentityResolver identityResolver;
+
+    public LlmTokenQuotaGatewayFilterFactory(TokenBudgetStore store, RequestIdentityResolver identityResolver) {
+        super(Config.class);
+        this.store = store;
+        this.identityResolver = identityResolver;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        TokenQuota quota = new TokenQuota(config.getReplenishRate(), config.getBurstCapacity(), config.getDailyLimit());
+        if (config.getBytesPerToken() <= 0) {
+            throw new IllegalArgumentException("Bytes per token must be positive, got " + config.getBytesPerToken());
+        }
+        List<KeyPart> keyParts = List.copyOf(config.getKey());
+
+        return (exchange, chain) -> {
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            return identityResolver.resolve(exchange).flatMap(identity -> {
+                String key = identity.key(keyParts);
+                if (key == null) {
+                    if (config.isDenyEmptyKey()) {
+                        setResponseStatus(exchange, HttpStatus.FORBIDDEN);
+                        return exchange.getResponse().setComplete();
+                    }
+                    return chain.filter(exchange);
+                }
+                long contentLength = exchange.getRequest().getHeaders().getContentLength();
+                CountingRequest unsized = contentLength < 0 ? new CountingRequest(exchange.getRequest()) : null;
+                long estimate = unsized != null ? config.getBurstCapacity() : estimate(contentLength, config);
+                return store.reserve(route.getId(), key, quota, estimate).flatMap(budget -> {
+                    ServerHttpResponse response = exchange.getResponse();
+                    if (!budget.allowed()) {
+                        setHeaders(response.getHeaders(), budget, 0);
+                        setResponseStatus(exchange, config.getStatusCode());
+                        return response.setComplete();
+                    }
+                    response.beforeCommit(() -> reconcile(exchange, config, quota, route.getId(), key, estimate,
+                            unsized, budget));
+                    return chain.filter(unsized != null ? exchange.mutate().request(unsized).build() : exchange);
+                });
+            });
+        };
+    }
+
+    long estimate(long bodyBytes, Config config) {
+        long inputTokens = bodyBytes > 0 ? (bodyBytes + config.getBytesPerToken() - 1) / config.getBytesPerToken() : 0;
+        return Math.min(inputTokens + config.getExpectedOutputTokens(), config.getBurstCapacity());
+    }
+
+    private Mono<Void> reconcile(ServerWebExchange exchange, Config config, TokenQuota quota, String routeId,
+                                 String key, long estimate, CountingRequest unsized, TokenBudget reserved) {
+        ServerHttpResponse response = exchange.getResponse();
+        long charged = unsized != null ? estimate(unsized.bytesRead(), config) : estimate;
+        String reported = response.getHeaders().getFirst(config.getUsageHeader());
+        if (reported != null) {
+            try {
+                charged = Math.max(0, Long.parseLong(reported.trim()));
+            } catch (NumberFormatException ex) {
+                logger.debug("Ignoring unparseable {} header: {}", config.getUsageHeader(), reported);
+            }
+        } else {
+            HttpStatusCode status = response.getStatusCode();
+            if (status != null && status.is5xxServerError()) {
+                charged = 0;
+            }
+        }
+        long finalCharge = charged;
+        Mono<TokenBudget> budget = charged == estimate
+                ? Mono.just(reserved)
+                : store.adjust(routeId, key, quota, charged - estimate);
+        return budget.doOnNext(adjusted -> setHeaders(response.getHeaders(), adjusted, finalCharge)).then();
+    }
+
+    private static void setHeaders(HttpHeaders headers, TokenBudget budget, long charged) {
+        headers.set(REMAINING_HEADER, String.valueOf(budget.remaining()));
+        if (budget.dailyRemaining() >= 0) {
+            headers.set(DAILY_REMAINING_HEADER, String.valueOf(budget.dailyRemaining()));
+        }
+        headers.set(CHARGED_HEADER, String.valueOf(charged));
+    }
+
+    /**
+     * Counts the body bytes of a request sent without {@code Content-Length} as they are forwarded.
+     */
+    private static final class CountingRequest extends ServerHttpRequestDecorator {
+
+        private final AtomicLong bytesRead = new AtomicLong();
+
+        CountingRequest(ServerHttpRequest delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Flux<DataBuffer> getBody() {
+            return super.getBody().doOnNext(buffer -> bytesRead.addAndGet(buffer.readableByteCount()));
+        }
+
+        long bytesRead() {
+            return bytesRead.get();
+        }
+    }
+
+    public static class Config {
+
+        private List<KeyPart> key = new ArrayList<>(List.of(KeyPart.CLIENT));
+
+        // Tokens per second
+        private int replenishRate;
+
+        private int burstCapacity;
+
+        // Tokens per UTC day, 0 for no cap
+        private long dailyLimit;
+
+        private int bytesPerToken = 4;
+
+        private int expectedOutputTokens = 256;
+
+        // Total tokens the request used, as reported by the backend
+        private String usageHeader = "X-LLM-Usage-Tokens";
+
+        private boolean denyEmptyKey = true;
+
+        private HttpStatus statusCode = HttpStatus.TOO_MANY_REQUESTS;
+
+        public List<KeyPart> getKey() {
+            return key;
+        }
+
+        public Config setKey(List<KeyPart> key) {
+            this.key = key;
+            return this;
+        }
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public Config setReplenishRate(int replenishRate) {
+            this.replenishRate = replenishRate;
+            return this;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public Config setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+            return this;
+        }
+
+        public long getDailyLimit() {
+            return dailyLimit;
+        }
+
+        public Config setDailyLimit(long dailyLimit) {
+            this.dailyLimit = dailyLimit;
+            return this;
+        }
+
+        public int getBytesPerToken() {
+            return bytesPerToken;
+        }
+
+        public Config setBytesPerToken(int bytesPerToken) {
+            this.bytesPerToken = bytesPerToken;
+            return this;
+        }
+
+        public int getExpectedOutputTokens() {
+            return expectedOutputTokens;
+        }
+
+        public Config setExpectedOutputTokens(int expectedOutputTokens) {
+            this.expectedOutputTokens = expectedOutputTokens;
+            return this;
+        }
+
+        public String getUsageHeader() {
+            return usageHeader;
+        }
+
+        public Config setUsageHeader(String usageHeader) {
+            this.usageHeader = usageHeader;
+            return this;
+        }
+
+        public boolean isDenyEmptyKey() {
+            return denyEmptyKey;
+        }
+
+        public Config setDenyEmptyKey(boolean denyEmptyKey) {
+            this.denyEmptyKey = denyEmptyKey;
+            return this;
+        }
+
+        public HttpStatus getStatusCode() {
+            return statusCode;
+        }
+
+        public Config setStatusCode(HttpStatus statusCode) {
+            this.statusCode = statusCode;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package binhnvh.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.cloud.gateway.route.RouteDefinitionRouteLocator;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.scheduling.annotation.Scheduled;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter that keeps its token buckets in gateway memory instead of running a Redis script per request.
+ *
+ * It takes the same replenishRate/burstCapacity/requestedTokens settings as {@link RedisRateLimiter}, under
+ * {@code local-rate-limiter.*} filter args, and sets the same response headers. Buckets are keyed by route and
+ * resolved key like the Redis limiter, spread over independent maps so resizes and eviction sweeps touch one
+ * shard at a time, and updated with a single CAS each (see {@link TokenBucket}).
+ *
+ * Limits are per gateway instance. Enable {@link RedisBucketReconciler} to charge each bucket with what the
+ * other instances spent on the same key.
+ */
+public class LocalRateLimiter extends AbstractRateLimiter<RedisRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalRateLimiter.class);
+    private static final long NANOS_PER_SECOND = Duration.ofSeconds(1).toNanos();
+
+    private final RedisRateLimiter.Config defaultConfig;
+    private final ConcurrentHashMap<String, TokenBucket>[] shards;
+    private final long idleTimeoutNanos;
+    private final LongSupplier nanoClock;
+    private final Counter evictedCounter;
+
+    private volatile boolean trackingSpent;
+
+    public LocalRateLimiter(ConfigurationService configurationService, RedisRateLimiter.Config defaultConfig,
+                            int shards, Duration idleTimeout, MeterRegistry meterRegistry) {
+        this(configurationService, defaultConfig, shards, idleTimeout, meterRegistry, System::nanoTime);
+    }
+
+    @SuppressWarnings("unchecked")
+    LocalRateLimiter(ConfigurationService configurationService, RedisRateLimiter.Config defaultConfig,
+                     int shards, Duration idleTimeout, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        super(RedisRateLimiter.Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        if (shards < 1 || Integer.bitCount(shards) != 1) {
+            throw new IllegalArgumentException("Shard count must be a power of two, got " + shards);
+        }
+        this.defaultConfig = defaultConfig;
+        this.shards = new ConcurrentHashMap[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new ConcurrentHashMap<>();
+        }
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.nanoClock = nanoClock;
+        this.evictedCounter = meterRegistry.counter("gateway.ratelimit.buckets.evicted");
+        meterRegistry.gauge("gateway.ratelimit.buckets", this, LocalRateLimiter::size);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        RedisRateLimiter.Config config = loadConfiguration(routeId);
+        long result = acquire(routeId, id, config);
+        boolean allowed = result >= 0;
+        Response response = new Response(allowed, getHeaders(config, allowed ? result : ~result));
+        if (logger.isDebugEnabled()) {
+            logger.debug("response: {}", response);
+        }
+        return Mono.just(response);
+    }
+
+    /**
+     * Takes the configured tokens from the bucket for the route and key.
+     *
+     * @return the tokens left when allowed, otherwise the bitwise complement of the tokens available
+     */
+    long acquire(String routeId, String id, RedisRateLimiter.Config config) {
+        return acquire(routeId, id, config, config.getRequestedTokens());
+    }
+
+    /**
+     * Takes {@code requestedTokens} instead of the configured request cost, for limits counted in something
+     * other than requests.
+     */
+    long acquire(String routeId, String id, RedisRateLimiter.Config config, int requestedTokens) {
+        // Nothing refills or nothing fits: deny, as an empty bucket would
+        if (config.getReplenishRate() <= 0 || config.getBurstCapacity() <= 0) {
+            return ~0L;
+        }
+
+        long now = nanoClock.getAsLong();
+        long emissionInterval = emissionInterval(config);
+        long burstTolerance = emissionInterval * config.getBurstCapacity();
+        String key = routeId + "." + id;
+        ConcurrentHashMap<String, TokenBucket> shard = shard(key);
+
+        long result;
+        do {
+            TokenBucket bucket = shard.get(key);
+            if (bucket == null) {
+                bucket = shard.computeIfAbsent(key, k -> new TokenBucket(routeId, id, now));
+            }
+            result = bucket.tryAcquire(now, emissionInterval, burstTolerance, requestedTokens);
+            if (result == TokenBucket.EVICTED) {
+                shard.remove(key, bucket);
+            } else if (result >= 0 && trackingSpent) {
+                bucket.recordSpent(requestedTokens);
+            }
+        } while (result == TokenBucket.EVICTED);
+        return result;
+    }
+
+    /**
+     * Gives back the tokens of an {@link #acquire} whose request was denied by another bucket.
+     */
+    void refund(String routeId, String id, RedisRateLimiter.Config config) {
+        adjust(routeId, id, -config.getRequestedTokens());
+    }
+
+    /**
+     * Takes more tokens from a bucket after the fact, possibly leaving it in debt, or gives some back when
+     * {@code tokens} is negative.
+     */
+    void adjust(String routeId, String id, long tokens) {
+        String key = routeId + "." + id;
+        TokenBucket bucket = shard(key).get(key);
+        if (bucket == null) {
+            return;
+        }
+        if (tokens < 0) {
+            bucket.refund(-tokens);
+        } else {
+            bucket.overdraw(nanoClock.getAsLong(), tokens);
+            if (trackingSpent) {
+                bucket.recordSpent(tokens);
+            }
+        }
+    }
+
+    /**
+     * @return the tokens a request could take from the bucket now, negative while it is in debt
+     */
+    long available(String routeId, String id, RedisRateLimiter.Config config) {
+        String key = routeId + "." + id;
+        TokenBucket bucket = shard(key).get(key);
+        if (bucket == null) {
+            return config.getBurstCapacity();
+        }
+        long emissionInterval = emissionInterval(config);
+        return bucket.available(nanoClock.getAsLong(), emissionInterval, emissionInterval * config.getBurstCapacity());
+    }
+
+    /**
+     * Drops buckets that have been full for the idle timeout.
+     */
+    @Scheduled(fixedDelayString = "${application.rate-limiter.eviction-interval:10s}")
+    public void evictIdleBuckets() {
+        long now = nanoClock.getAsLong();
+        int evicted = 0;
+        for (ConcurrentHashMap<String, TokenBucket> shard : shards) {
+            for (Map.Entry<String, TokenBucket> entry : shard.entrySet()) {
+                if (entry.getValue().evictIfIdle(now, idleTimeoutNanos) && shard.remove(entry.getKey(), entry.getValue())) {
+                    evicted++;
+                }
+            }
+        }
+        if (evicted > 0) {
+            evictedCounter.increment(evicted);
+            logger.debug("Evicted {} idle rate limit buckets", evicted);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, TokenBucket> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    public Map<String, String> getHeaders(RedisRateLimiter.Config config, Long tokensLeft) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put(RedisRateLimiter.REMAINING_HEADER, tokensLeft.toString());
+        headers.put(RedisRateLimiter.REPLENISH_RATE_HEADER, String.valueOf(config.getReplenishRate()));
+        headers.put(RedisRateLimiter.BURST_CAPACITY_HEADER, String.valueOf(config.getBurstCapacity()));
+        headers.put(RedisRateLimiter.REQUESTED_TOKENS_HEADER, String.valueOf(config.getRequestedTokens()));
+        return headers;
+    }
+
+    void trackSpent() {
+        trackingSpent = true;
+    }
+
+    List<TokenBucket> buckets() {
+        List<TokenBucket> buckets = new ArrayList<>(size());
+        for (ConcurrentHashMap<String, TokenBucket> shard : shards) {
+            buckets.addAll(shard.values());
+        }
+        return buckets;
+    }
+
+    void charge(TokenBucket bucket, long tokens) {
+        bucket.charge(nanoClock.getAsLong(), tokens);
+    }
+
+    /**
+     * Route args win, then the default-filters args, then the configured defaults. The Redis limiter never
+     * reaches default-filters args once it has defaults; here they apply to every route without its own.
+     */
+    RedisRateLimiter.Config loadConfiguration(String routeId) {
+        RedisRateLimiter.Config routeConfig = getConfig().get(routeId);
+        if (routeConfig == null) {
+            routeConfig = getConfig().getOrDefault(RouteDefinitionRouteLocator.DEFAULT_FILTERS, defaultConfig);
+        }
+        return routeConfig;
+    }
+
+    private ConcurrentHashMap<String, TokenBucket> shard(String key) {
+        int hash = key.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & (shards.length - 1)];
+    }
+
+    private static long emissionInterval(RedisRateLimiter.Config config) {
+        return NANOS_PER_SECOND / config.getReplenishRate();
+    }
+}
@@ -0,0 +1,120 @@
+package binhnvh.apigateway.ratelimit;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token quotas in gateway memory. The rolling limit is a {@link LocalRateLimiter} bucket counted in tokens, so
+ * it is evicted when idle and shared between instances by reconciliation like any other local bucket; the
+ * daily totals are plain counters per key and day. Limits are per gateway instance.
+ */
+public class LocalTokenBudgetStore implements TokenBudgetStore {
+
+    private static final String BUCKET_PREFIX = "tokens/";
+
+    private final LocalRateLimiter rateLimiter;
+    private final Clock clock;
+    private final ConcurrentHashMap<String, DailyUsage> dailyUsage = new ConcurrentHashMap<>();
+
+    public LocalTokenBudgetStore(LocalRateLimiter rateLimiter) {
+        this(rateLimiter, Clock.systemUTC());
+    }
+
+    LocalTokenBudgetStore(LocalRateLimiter rateLimiter, Clock clock) {
+        this.rateLimiter = rateLimiter;
+        this.clock = clock;
+    }
+
+    @Override
+    public Mono<TokenBudget> reserve(String routeId, String id, TokenQuota quota, long tokens) {
+        DailyUsage usage = quota.getDailyLimit() > 0 ? usage(routeId, id) : null;
+        if (usage != null && !usage.tryAdd(tokens, quota.getDailyLimit())) {
+            return Mono.just(new TokenBudget(false, available(routeId, id, quota), dailyRemaining(usage, quota)));
+        }
+        long result = rateLimiter.acquire(routeId, BUCKET_PREFIX + id, quota.bucketConfig(), (int) tokens);
+        if (result < 0) {
+            if (usage != null) {
+                usage.add(-tokens);
+            }
+            return Mono.just(new TokenBudget(false, ~result, dailyRemaining(usage, quota)));
+        }
+        return Mono.just(new TokenBudget(true, result, dailyRemaining(usage, quota)));
+    }
+
+    @Override
+    public Mono<TokenBudget> adjust(String routeId, String id, TokenQuota quota, long tokens) {
+        rateLimiter.adjust(routeId, BUCKET_PREFIX + id, tokens);
+        DailyUsage usage = quota.getDailyLimit() > 0 ? usage(routeId, id) : null;
+        if (usage != null) {
+            usage.add(tokens);
+        }
+        return Mono.just(new TokenBudget(true, available(routeId, id, quota), dailyRemaining(usage, quota)));
+    }
+
+    /**
+     * Drops the daily totals of days that are over.
+     */
+    @Scheduled(fixedDelayString = "${application.rate-limiter.eviction-interval:10s}")
+    public void evictPastDays() {
+        long today = today();
+        dailyUsage.values().removeIf(usage -> usage.day < today);
+    }
+
+    int size() {
+        return dailyUsage.size();
+    }
+
+    private DailyUsage usage(String routeId, String id) {
+        long today = today();
+        String key = routeId + "." + id;
+        DailyUsage usage = dailyUsage.get(key);
+        if (usage == null || usage.day != today) {
+            usage = dailyUsage.compute(key, (k, current) -> current == null || current.day != today ? new DailyUsage(today) : current);
+        }
+        return usage;
+    }
+
+    private long available(String routeId, String id, TokenQuota quota) {
+        return Math.max(0, rateLimiter.available(routeId, BUCKET_PREFIX + id, quota.bucketConfig()));
+    }
+
+    private static long dailyRemaining(DailyUsage usage, TokenQuota quota) {
+        return usage == null ? -1 : Math.max(0, quota.getDailyLimit() - usage.used.get());
+    }
+
+    private long today() {
+        return LocalDate.now(clock.withZone(ZoneOffset.UTC)).toEpochDay();
+    }
+
+    private static final class DailyUsage {
+
+        private final long day;
+        private final AtomicLong used = new AtomicLong();
+
+        DailyUsage(long day) {
+            this.day = day;
+        }
+
+        boolean tryAdd(long tokens, long limit) {
+            while (true) {
+                long current = used.get();
+                if (current + tokens > limit) {
+                    return false;
+                }
+                if (used.compareAndSet(current, current + tokens)) {
+                    return true;
+                }
+            }
+        }
+
+        void add(long tokens) {
+            used.getAndUpdate(current -> Math.max(0, current + tokens));
+        }
+    }
+}
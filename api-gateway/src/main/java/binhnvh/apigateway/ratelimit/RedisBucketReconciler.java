@@ -0,0 +1,82 @@
+package binhnvh.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Periodically shares {@link LocalRateLimiter} consumption between gateway instances through Redis.
+ *
+ * Each run adds the tokens every local bucket granted since the last run to a per-key counter in Redis and
+ * charges the bucket with whatever the other instances added in between. Requests never wait on Redis; the
+ * cost is that the cluster can overshoot a limit by up to one interval's worth of traffic from the other
+ * instances. If Redis is down the spent tokens are kept and reported on the next successful run.
+ */
+public class RedisBucketReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisBucketReconciler.class);
+    private static final int CONCURRENT_CALLS = 64;
+
+    private final LocalRateLimiter rateLimiter;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final RedisScript<Long> script;
+    private final String counterTtlMillis;
+    private final Counter failedCounter;
+
+    public RedisBucketReconciler(LocalRateLimiter rateLimiter, ReactiveStringRedisTemplate redisTemplate,
+                                 Duration counterTtl, MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.redisTemplate = redisTemplate;
+        this.script = RedisScript.of(new ClassPathResource("META-INF/scripts/local_rate_limiter_reconcile.lua"), Long.class);
+        this.counterTtlMillis = String.valueOf(counterTtl.toMillis());
+        this.failedCounter = meterRegistry.counter("gateway.ratelimit.reconcile.failed");
+        rateLimiter.trackSpent();
+    }
+
+    @Scheduled(fixedDelayString = "${application.rate-limiter.reconciliation.interval:1s}")
+    public void reconcile() {
+        // Calls share one multiplexed connection, so running them concurrently pipelines them
+        Integer failed = Flux.fromIterable(rateLimiter.buckets())
+                .flatMap(this::reconcile, CONCURRENT_CALLS)
+                .reduce(0, Integer::sum)
+                .block();
+        if (failed != null && failed > 0) {
+            failedCounter.increment(failed);
+            logger.warn("Failed to reconcile {} rate limit buckets with Redis, retrying on next run", failed);
+        }
+    }
+
+    // Emits 1 if the bucket could not be reconciled
+    private Mono<Integer> reconcile(TokenBucket bucket) {
+        long spent = bucket.drainSpent();
+        return redisTemplate.execute(script, List.of(key(bucket)), List.of(String.valueOf(spent), counterTtlMillis))
+                .next()
+                .doOnNext(total -> {
+                    long spentElsewhere = bucket.observeClusterTotal(total, spent);
+                    if (spentElsewhere > 0) {
+                        rateLimiter.charge(bucket, spentElsewhere);
+                    }
+                })
+                .thenReturn(0)
+                .onErrorResume(ex -> {
+                    bucket.restoreSpent(spent);
+                    logger.debug("Failed to reconcile rate limit bucket {}", key(bucket), ex);
+                    return Mono.just(1);
+                });
+    }
+
+    // Hash-tagged like the Redis limiter's keys so each counter stays on one cluster slot
+    static String key(TokenBucket bucket) {
+        return "request_rate_limiter.{" + bucket.getRouteId() + "." + bucket.getId() + "}.spent";
+    }
+}
@@ -0,0 +1,74 @@
+package binhnvh.apigateway.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Token quotas in Redis, enforced across all gateway instances with one script call per charge. Like the Redis
+ * rate limiter, reservations are allowed if Redis cannot be reached; adjustments are then lost.
+ */
+public class RedisTokenBudgetStore implements TokenBudgetStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisTokenBudgetStore.class);
+    // Daily totals outlive their day a little, so a request straddling midnight still finds its day
+    private static final Duration DAILY_GRACE = Duration.ofHours(1);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final RedisScript<List<Long>> script;
+    private final Clock clock;
+
+    public RedisTokenBudgetStore(ReactiveStringRedisTemplate redisTemplate) {
+        this(redisTemplate, Clock.systemUTC());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    RedisTokenBudgetStore(ReactiveStringRedisTemplate redisTemplate, Clock clock) {
+        this.redisTemplate = redisTemplate;
+        this.script = (RedisScript) RedisScript.of(new ClassPathResource("META-INF/scripts/token_quota.lua"), List.class);
+        this.clock = clock;
+    }
+
+    @Override
+    public Mono<TokenBudget> reserve(String routeId, String id, TokenQuota quota, long tokens) {
+        return call(routeId, id, quota, tokens, false)
+                .onErrorResume(ex -> {
+                    logger.error("Error reserving token quota in redis", ex);
+                    return Mono.just(TokenBudget.UNKNOWN);
+                });
+    }
+
+    @Override
+    public Mono<TokenBudget> adjust(String routeId, String id, TokenQuota quota, long tokens) {
+        return call(routeId, id, quota, tokens, true)
+                .onErrorResume(ex -> {
+                    logger.warn("Failed to adjust token quota for {}.{} by {}", routeId, id, tokens, ex);
+                    return Mono.just(TokenBudget.UNKNOWN);
+                });
+    }
+
+    private Mono<TokenBudget> call(String routeId, String id, TokenQuota quota, long tokens, boolean force) {
+        Instant now = clock.instant();
+        LocalDate today = LocalDate.ofInstant(now, ZoneOffset.UTC);
+        long dailyTtl = Duration.between(now, today.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant())
+                .plus(DAILY_GRACE).toSeconds();
+        String prefix = "token_quota.{" + routeId + "." + id + "}.";
+        List<String> keys = List.of(prefix + "tokens", prefix + "timestamp", prefix + "daily." + today.toEpochDay());
+        List<String> args = List.of(String.valueOf(quota.getReplenishRate()), String.valueOf(quota.getBurstCapacity()),
+                String.valueOf(tokens), String.valueOf(quota.getDailyLimit()), String.valueOf(dailyTtl),
+                force ? "1" : "0");
+        return redisTemplate.execute(script, keys, args)
+                .next()
+                .map(result -> new TokenBudget(result.get(0) == 1L, Math.max(0, result.get(1)), result.get(2)));
+    }
+}
@@ -0,0 +1,81 @@
+package binhnvh.apigateway.ratelimit;
+
+import java.util.List;
+
+/**
+ * Who a request comes from, resolved once per exchange by {@link RequestIdentityResolver}. Any part may be
+ * unknown, e.g. the tenant of an unauthenticated request.
+ */
+public final class RequestIdentity {
+
+    /** Key of a limit that applies to every request, such as a global per-route quota. */
+    public static final String ANY = "*";
+
+    private final String principal;
+    private final String tenant;
+    private final String apiKey;
+    private final String clientIp;
+
+    public RequestIdentity(String principal, String tenant, String apiKey, String clientIp) {
+        this.principal = principal;
+        this.tenant = tenant;
+        this.apiKey = apiKey;
+        this.clientIp = clientIp;
+    }
+
+    public String getPrincipal() {
+        return principal;
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    public String getClientIp() {
+        return clientIp;
+    }
+
+    /**
+     * Builds a key such as {@code tenant:acme/principal:alice} from the given parts.
+     *
+     * @return the key, {@link #ANY} for no parts, or null if any part is unknown for this request
+     */
+    public String key(List<KeyPart> parts) {
+        if (parts.isEmpty()) {
+            return ANY;
+        }
+        StringBuilder key = new StringBuilder();
+        for (KeyPart part : parts) {
+            if (part == KeyPart.CLIENT) {
+                part = principal != null ? KeyPart.PRINCIPAL : KeyPart.CLIENT_IP;
+            }
+            String value = value(part);
+            if (value == null) {
+                return null;
+            }
+            if (key.length() > 0) {
+                key.append('/');
+            }
+            key.append(part.getLabel()).append(':').append(value);
+        }
+        return key.toString();
+    }
+
+    private String value(KeyPart part) {
+        return switch (part) {
+            case PRINCIPAL -> principal;
+            case TENANT -> tenant;
+            case API_KEY -> apiKey;
+            case CLIENT_IP, CLIENT -> clientIp;
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "RequestIdentity{principal=" + principal + ", tenant=" + tenant + ", clientIp=" + clientIp + "}";
+    }
+}
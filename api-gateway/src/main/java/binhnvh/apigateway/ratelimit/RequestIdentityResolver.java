@@ -0,0 +1,189 @@
+package binhnvh.apigateway.ratelimit;
+
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.server.resource.authentication.AbstractOAuth2TokenAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Works out who a request comes from, for building rate limit keys.
+ *
+ * The client address is the remote address unless that is a trusted proxy, in which case X-Forwarded-For is
+ * read from the right and the first address not belonging to a trusted proxy wins. Anything further left was
+ * written by the client and is ignored, so a client cannot pick its own bucket. With no trusted proxies
+ * configured the header is never read.
+ *
+ * The identity is kept in an exchange attribute, so the key resolver and the hierarchical limiter share it.
+ */
+public class RequestIdentityResolver {
+
+    static final String IDENTITY_ATTRIBUTE = RequestIdentityResolver.class.getName() + ".identity";
+
+    private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+    private static final Pattern IPV4 = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+    private static final int API_KEY_HASH_LENGTH = 16;
+
+    private final List<AddressRange> trustedProxies;
+    private final String apiKeyHeader;
+    private final String tenantClaim;
+
+    public RequestIdentityResolver(List<String> trustedProxies, String apiKeyHeader, String tenantClaim) {
+        this.trustedProxies = trustedProxies.stream().map(AddressRange::parse).toList();
+        this.apiKeyHeader = apiKeyHeader;
+        this.tenantClaim = tenantClaim;
+    }
+
+    public Mono<RequestIdentity> resolve(ServerWebExchange exchange) {
+        RequestIdentity resolved = exchange.getAttribute(IDENTITY_ATTRIBUTE);
+        if (resolved != null) {
+            return Mono.just(resolved);
+        }
+        return exchange.getPrincipal()
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .map(principal -> {
+                    RequestIdentity identity = resolve(exchange.getRequest(), principal.orElse(null));
+                    exchange.getAttributes().put(IDENTITY_ATTRIBUTE, identity);
+                    return identity;
+                });
+    }
+
+    private RequestIdentity resolve(ServerHttpRequest request, Principal principal) {
+        String principalName = null;
+        String tenant = null;
+        if (principal != null && !(principal instanceof AnonymousAuthenticationToken)
+                && (!(principal instanceof Authentication authentication) || authentication.isAuthenticated())) {
+            principalName = principal.getName();
+            if (principal instanceof AbstractOAuth2TokenAuthenticationToken<?> token
+                    && token.getTokenAttributes().get(tenantClaim) != null) {
+                tenant = token.getTokenAttributes().get(tenantClaim).toString();
+            }
+        }
+        String apiKey = request.getHeaders().getFirst(apiKeyHeader);
+        return new RequestIdentity(principalName, tenant, apiKey == null || apiKey.isBlank() ? null : hash(apiKey),
+                clientIp(request));
+    }
+
+    String clientIp(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress == null || remoteAddress.getAddress() == null) {
+            return null;
+        }
+        String clientIp = remoteAddress.getAddress().getHostAddress();
+        if (!isTrustedProxy(clientIp)) {
+            return clientIp;
+        }
+        List<String> forwardedFor = request.getHeaders().get(X_FORWARDED_FOR);
+        if (forwardedFor == null) {
+            return clientIp;
+        }
+        // The header may be repeated as well as comma separated; the last hop is appended last
+        for (int i = forwardedFor.size() - 1; i >= 0; i--) {
+            String[] hops = forwardedFor.get(i).split(",");
+            for (int j = hops.length - 1; j >= 0; j--) {
+                String hop = hops[j].trim();
+                if (hop.isEmpty()) {
+                    continue;
+                }
+                clientIp = hop;
+                if (!isTrustedProxy(hop)) {
+                    return hop;
+                }
+            }
+        }
+        // Every hop is a trusted proxy: the leftmost one is as close to the client as we can get
+        return clientIp;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        if (trustedProxies.isEmpty()) {
+            return false;
+        }
+        InetAddress parsed = parseLiteral(address);
+        if (parsed == null) {
+            return false;
+        }
+        for (AddressRange proxy : trustedProxies) {
+            if (proxy.contains(parsed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Only IP literals are parsed, so nothing here ever triggers a DNS lookup
+    private static InetAddress parseLiteral(String address) {
+        if (!IPV4.matcher(address).matches() && address.indexOf(':') < 0) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(address);
+        } catch (UnknownHostException ex) {
+            return null;
+        }
+    }
+
+    // Keys end up in bucket maps, Redis keys and logs, so the API key itself is never part of one
+    private static String hash(String apiKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(apiKey.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, API_KEY_HASH_LENGTH / 2);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    /**
+     * An address or CIDR range such as {@code 10.0.0.0/8} or {@code fd00::/8}.
+     */
+    private record AddressRange(byte[] network, int prefixLength) {
+
+        static AddressRange parse(String range) {
+            int slash = range.indexOf('/');
+            String address = slash < 0 ? range.trim() : range.substring(0, slash).trim();
+            InetAddress network = parseLiteral(address);
+            if (network == null) {
+                throw new IllegalArgumentException("Trusted proxy must be an IP address or CIDR range, got " + range);
+            }
+            int bits = network.getAddress().length * 8;
+            int prefixLength = slash < 0 ? bits : Integer.parseInt(range.substring(slash + 1).trim());
+            if (prefixLength < 0 || prefixLength > bits) {
+                throw new IllegalArgumentException("Invalid prefix length in trusted proxy " + range);
+            }
+            return new AddressRange(network.getAddress(), prefixLength);
+        }
+
+        boolean contains(InetAddress address) {
+            byte[] bytes = address.getAddress();
+            if (bytes.length != network.length) {
+                return false;
+            }
+            int fullBytes = prefixLength / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (bytes[i] != network[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefixLength % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = 0xFF << (8 - remainingBits);
+            return (bytes[fullBytes] & mask) == (network[fullBytes] & mask);
+        }
+    }
+}
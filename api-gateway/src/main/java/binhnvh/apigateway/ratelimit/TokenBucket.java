@@ -0,0 +1,174 @@
+package binhnvh.apigateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket kept in GCRA form: the whole state is a single theoretical arrival time, so taking tokens is one
+ * CAS and a bucket whose arrival time has passed is indistinguishable from a new, full one.
+ *
+ * With an emission interval {@code T = 1s / replenishRate} and a burst tolerance {@code tau = T * burstCapacity},
+ * a request for {@code n} tokens is allowed when {@code max(tat, now) + n * T - now <= tau}, which admits the
+ * same traffic as a bucket of {@code burstCapacity} tokens refilled at {@code replenishRate} per second.
+ */
+final class TokenBucket {
+
+    /** Returned by {@link #tryAcquire} once the bucket has been evicted; the caller must look the key up again. */
+    static final long EVICTED = Long.MIN_VALUE;
+
+    private static final long EVICTED_MARK = Long.MIN_VALUE;
+
+    private final String routeId;
+    private final String id;
+    private final AtomicLong theoreticalArrival;
+
+    // Rate of the last acquire, so reconciliation can charge buckets whose limits do not come from the route
+    private volatile long emissionInterval;
+    private volatile long burstTolerance;
+
+    // Tokens granted since the last reconciliation, only counted while reconciliation is enabled
+    private final AtomicLong spent = new AtomicLong();
+
+    // Last cluster-wide total seen by the reconciler; only touched from the reconciliation thread
+    private long clusterTotal = -1;
+
+    TokenBucket(String routeId, String id, long now) {
+        this.routeId = routeId;
+        this.id = id;
+        this.theoreticalArrival = new AtomicLong(now);
+    }
+
+    String getRouteId() {
+        return routeId;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    /**
+     * Takes {@code tokens} if the bucket holds them.
+     *
+     * @return the tokens left after the grant when allowed; otherwise the bitwise complement ({@code ~available})
+     *         of the tokens available now, which is always negative; or {@link #EVICTED}
+     */
+    long tryAcquire(long now, long emissionInterval, long burstTolerance, int tokens) {
+        if (this.emissionInterval != emissionInterval || this.burstTolerance != burstTolerance) {
+            this.emissionInterval = emissionInterval;
+            this.burstTolerance = burstTolerance;
+        }
+        long increment = emissionInterval * tokens;
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            if (arrival == EVICTED_MARK) {
+                return EVICTED;
+            }
+            long base = Math.max(arrival, now);
+            long newArrival = base + increment;
+            if (newArrival - now > burstTolerance) {
+                return ~Math.max(0, (burstTolerance - (base - now)) / emissionInterval);
+            }
+            if (theoreticalArrival.compareAndSet(arrival, newArrival)) {
+                return (burstTolerance - (newArrival - now)) / emissionInterval;
+            }
+        }
+    }
+
+    /**
+     * Puts back {@code tokens} granted by {@link #tryAcquire}, e.g. for a request that was then denied elsewhere.
+     */
+    void refund(long tokens) {
+        // Already reconciled tokens stay reported; the other instances are charged one request too many at most
+        spent.getAndUpdate(spent -> Math.max(0, spent - tokens));
+        long increment = emissionInterval * tokens;
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            if (arrival == EVICTED_MARK || theoreticalArrival.compareAndSet(arrival, arrival - increment)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes {@code tokens} after the fact, e.g. once a request's real cost is known. Unlike {@link #charge} this
+     * may leave the bucket in debt, which later requests wait out.
+     */
+    void overdraw(long now, long tokens) {
+        long increment = emissionInterval * tokens;
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            if (arrival == EVICTED_MARK
+                    || theoreticalArrival.compareAndSet(arrival, Math.max(arrival, now) + increment)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the tokens a request could take now, or a negative number while the bucket is in debt
+     */
+    long available(long now, long emissionInterval, long burstTolerance) {
+        long arrival = theoreticalArrival.get();
+        long base = arrival == EVICTED_MARK ? now : Math.max(arrival, now);
+        return (burstTolerance - (base - now)) / emissionInterval;
+    }
+
+    /**
+     * Removes {@code tokens} spent elsewhere at the rate of the last acquire, never leaving the bucket more than
+     * empty.
+     */
+    void charge(long now, long tokens) {
+        long emissionInterval = this.emissionInterval;
+        long burstTolerance = this.burstTolerance;
+        if (emissionInterval == 0) {
+            return;
+        }
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            if (arrival == EVICTED_MARK) {
+                return;
+            }
+            long charged = Math.min(Math.max(arrival, now) + emissionInterval * tokens, now + burstTolerance);
+            if (charged <= arrival || theoreticalArrival.compareAndSet(arrival, charged)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Marks the bucket evicted if it has been full for at least {@code idleTimeout} nanoseconds and has nothing
+     * left to reconcile. Dropping such a bucket loses no state.
+     */
+    boolean evictIfIdle(long now, long idleTimeout) {
+        long arrival = theoreticalArrival.get();
+        return arrival != EVICTED_MARK
+                && now - arrival >= idleTimeout
+                && spent.get() == 0
+                && theoreticalArrival.compareAndSet(arrival, EVICTED_MARK);
+    }
+
+    void recordSpent(long tokens) {
+        spent.addAndGet(tokens);
+    }
+
+    long drainSpent() {
+        return spent.getAndSet(0);
+    }
+
+    void restoreSpent(long tokens) {
+        spent.addAndGet(tokens);
+    }
+
+    /**
+     * Records the cluster-wide total after adding {@code ownSpent} to it and returns what the other instances
+     * spent since the previous observation. The first observation, and one after the shared counter expired,
+     * only establishes the baseline.
+     */
+    long observeClusterTotal(long total, long ownSpent) {
+        long previous = clusterTotal;
+        clusterTotal = total;
+        if (previous < 0 || total < previous + ownSpent) {
+            return 0;
+        }
+        return total - previous - ownSpent;
+    }
+}
@@ -0,0 +1,13 @@
+package binhnvh.apigateway.ratelimit;
+
+/**
+ * Outcome of charging a {@link TokenQuota}.
+ *
+ * @param allowed        whether the charge fitted
+ * @param remaining      tokens left in the rolling bucket, -1 if unknown
+ * @param dailyRemaining tokens left today, -1 if there is no daily cap or it is unknown
+ */
+public record TokenBudget(boolean allowed, long remaining, long dailyRemaining) {
+
+    static final TokenBudget UNKNOWN = new TokenBudget(true, -1, -1);
+}
@@ -0,0 +1,21 @@
+package binhnvh.apigateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Where token quotas are kept: in gateway memory ({@link LocalTokenBudgetStore}) or in Redis, shared by all
+ * instances ({@link RedisTokenBudgetStore}).
+ */
+public interface TokenBudgetStore {
+
+    /**
+     * Takes {@code tokens} from the rolling bucket and the day's allowance if both hold them, otherwise nothing.
+     */
+    Mono<TokenBudget> reserve(String routeId, String id, TokenQuota quota, long tokens);
+
+    /**
+     * Corrects an earlier reservation once the real cost is known: takes {@code tokens} more, even into debt,
+     * or gives back a negative amount.
+     */
+    Mono<TokenBudget> adjust(String routeId, String id, TokenQuota quota, long tokens);
+}
@@ -0,0 +1,132 @@
+package binhnvh.apigateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Tokens one gateway instance has leased from the shared Redis bucket for a single route and key.
+ *
+ * Requests take from the lease with a CAS and only go to Redis when it runs dry or expires. Concurrent
+ * requests that find it dry share one Redis call.
+ */
+final class TokenLease {
+
+    private final String routeId;
+    private final String id;
+    private final AtomicLong tokens = new AtomicLong();
+    private final AtomicReference<Mono<Void>> renewal = new AtomicReference<>();
+
+    private volatile long expiresAt;
+    private volatile long lastGranted = -1;
+    private volatile long bucketRemaining;
+    private volatile long retryAt;
+
+    TokenLease(String routeId, String id, long now) {
+        this.routeId = routeId;
+        this.id = id;
+        this.expiresAt = now;
+        this.retryAt = now;
+    }
+
+    String getRouteId() {
+        return routeId;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    /**
+     * @return the tokens left in the lease after taking {@code requested}, or -1 if the lease is expired or
+     *         holds too few
+     */
+    long tryTake(int requested, long now) {
+        if (isExpired(now)) {
+            return -1;
+        }
+        while (true) {
+            long available = tokens.get();
+            if (available < requested) {
+                return -1;
+            }
+            if (tokens.compareAndSet(available, available - requested)) {
+                return available - requested;
+            }
+        }
+    }
+
+    /**
+     * Runs {@code call} unless a renewal is already in flight, in which case the caller waits on that one.
+     */
+    Mono<Void> renew(Supplier<Mono<Void>> call) {
+        while (true) {
+            Mono<Void> inFlight = renewal.get();
+            if (inFlight != null) {
+                return inFlight;
+            }
+            // Cleared before the result reaches waiters, so none of them can pick up a finished renewal
+            Mono<Void> created = Mono.defer(call).doOnTerminate(() -> renewal.set(null)).cache();
+            if (renewal.compareAndSet(null, created)) {
+                return created;
+            }
+        }
+    }
+
+    boolean isRenewing() {
+        return renewal.get() != null;
+    }
+
+    long drain() {
+        return tokens.getAndSet(0);
+    }
+
+    void restore(long returned) {
+        tokens.addAndGet(returned);
+    }
+
+    void grant(long granted, long bucketRemaining, long expiresAt) {
+        this.expiresAt = expiresAt;
+        this.lastGranted = granted;
+        this.bucketRemaining = bucketRemaining;
+        tokens.addAndGet(granted);
+    }
+
+    void returned(long bucketRemaining) {
+        this.bucketRemaining = bucketRemaining;
+    }
+
+    /**
+     * Keeps requests from asking Redis again before the bucket can have refilled what they need.
+     */
+    void backOffUntil(long retryAt) {
+        this.retryAt = retryAt;
+    }
+
+    boolean isBackingOff(long now) {
+        return now - retryAt < 0;
+    }
+
+    boolean isExpired(long now) {
+        return now - expiresAt >= 0;
+    }
+
+    boolean hasTokens() {
+        return tokens.get() > 0;
+    }
+
+    long getLastGranted() {
+        return lastGranted;
+    }
+
+    // Tokens this instance can still spend plus what the shared bucket reported at the last renewal
+    long remaining() {
+        return tokens.get() + bucketRemaining;
+    }
+
+    long getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,45 @@
+package binhnvh.apigateway.ratelimit;
+
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+
+/**
+ * Limits on what one key may spend, counted in LLM tokens rather than requests: a bucket of
+ * {@code burstCapacity} tokens refilled at {@code replenishRate} per second, and optionally a cap per UTC day.
+ */
+public final class TokenQuota {
+
+    private final int replenishRate;
+    private final int burstCapacity;
+    private final long dailyLimit;
+    private final RedisRateLimiter.Config bucketConfig;
+
+    public TokenQuota(int replenishRate, int burstCapacity, long dailyLimit) {
+        if (replenishRate <= 0 || burstCapacity < replenishRate) {
+            throw new IllegalArgumentException("Token quota needs a positive replenish rate and a burst capacity of at"
+                    + " least that rate, got " + replenishRate + "/" + burstCapacity);
+        }
+        this.replenishRate = replenishRate;
+        this.burstCapacity = burstCapacity;
+        this.dailyLimit = dailyLimit;
+        this.bucketConfig = new RedisRateLimiter.Config().setReplenishRate(replenishRate).setBurstCapacity(burstCapacity);
+    }
+
+    public int getReplenishRate() {
+        return replenishRate;
+    }
+
+    public int getBurstCapacity() {
+        return burstCapacity;
+    }
+
+    /**
+     * @return the tokens allowed per UTC day, 0 for no daily cap
+     */
+    public long getDailyLimit() {
+        return dailyLimit;
+    }
+
+    RedisRateLimiter.Config bucketConfig() {
+        return bucketConfig;
+    }
+}
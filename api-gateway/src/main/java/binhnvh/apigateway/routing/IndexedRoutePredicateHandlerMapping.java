@@ -0,0 +1,153 @@
+package binhnvh.apigateway.routing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_PATH_CONTAINER_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_ROUTE_ATTR;
+
+/**
+ * Spring Cloud Gateway's route lookup over a {@link RouteTable} instead of every route in turn. Each request is
+ * matched against the routes its path can reach, in route order, with the predicates evaluated as the gateway
+ * itself does, so it ends up on the same route.
+ *
+ * The table is rebuilt from the route locator once it has refreshed its routes, and swapped in whole: lookups
+ * already running finish on the table they started with, so requests are neither dropped nor matched against a
+ * half-built table. Until the first table is built lookups go through the routes one by one as before; a rebuild
+ * that fails leaves the table in use. Routes from definitions, whose predicates are all ANDed, are indexed by
+ * their paths; routes built in code may combine predicates otherwise and are tested for every request.
+ *
+ * Lookup time is published as the {@code gateway.route.match} timer, tagged with whether a route matched.
+ */
+public class IndexedRoutePredicateHandlerMapping extends RoutePredicateHandlerMapping
+        implements ApplicationListener<RefreshRoutesResultEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexedRoutePredicateHandlerMapping.class);
+
+    private final RouteLocator routeLocator;
+    private final RouteDefinitionLocator routeDefinitionLocator;
+    private final Timer matched;
+    private final Timer unmatched;
+    private final Counter rebuilds;
+    private final AtomicLong generation = new AtomicLong();
+    private volatile RouteTable table;
+    private long installed;
+
+    public IndexedRoutePredicateHandlerMapping(FilteringWebHandler webHandler, RouteLocator routeLocator,
+                                               RouteDefinitionLocator routeDefinitionLocator,
+                                               GlobalCorsProperties globalCorsProperties, Environment environment,
+                                               MeterRegistry meterRegistry) {
+        super(webHandler, routeLocator, globalCorsProperties, environment);
+        this.routeLocator = routeLocator;
+        this.routeDefinitionLocator = routeDefinitionLocator;
+        this.matched = matchTimer("matched", meterRegistry);
+        this.unmatched = matchTimer("unmatched", meterRegistry);
+        this.rebuilds = meterRegistry.counter("gateway.route.table.rebuilds");
+        Gauge.builder("gateway.route.table.routes", this, mapping -> mapping.table == null ? 0 : mapping.table.size())
+                .description("Routes in the route table")
+                .register(meterRegistry);
+        Gauge.builder("gateway.route.table.unindexed", this,
+                        mapping -> mapping.table == null ? 0 : mapping.table.unindexed())
+                .description("Routes tested for every request, lacking a literal path prefix")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onApplicationEvent(RefreshRoutesResultEvent event) {
+        if (event.isSuccess()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Builds a table of the route locator's current routes and swaps it in.
+     */
+    public void rebuild() {
+        long started = System.nanoTime();
+        long current = generation.incrementAndGet();
+        Mono.zip(routeLocator.getRoutes().collectList(),
+                        routeDefinitionLocator.getRouteDefinitions().map(RouteDefinition::getId).collect(Collectors.toSet()))
+                .map(routes -> RouteTable.build(routes.getT1(), route -> routes.getT2().contains(route.getId())))
+                .subscribe(built -> install(current, built, started),
+                        error -> log.warn("Could not rebuild the route table, keeping the current one", error));
+    }
+
+    RouteTable getTable() {
+        return table;
+    }
+
+    @Override
+    protected Mono<Route> lookupRoute(ServerWebExchange exchange) {
+        long started = System.nanoTime();
+        RouteTable current = table;
+        Mono<Route> route = current == null ? super.lookupRoute(exchange) : lookupRoute(current, exchange);
+        return route.doOnSuccess(matchedRoute -> (matchedRoute != null ? matched : unmatched)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS));
+    }
+
+    private Mono<Route> lookupRoute(RouteTable current, ServerWebExchange exchange) {
+        PathContainer path = (PathContainer) exchange.getAttributes().computeIfAbsent(
+                GATEWAY_PREDICATE_PATH_CONTAINER_ATTR,
+                key -> PathContainer.parsePath(exchange.getRequest().getURI().getRawPath()));
+        List<Route> candidates = current.candidates(path);
+        return Flux.fromIterable(candidates)
+                .filterWhen(route -> {
+                    exchange.getAttributes().put(GATEWAY_PREDICATE_ROUTE_ATTR, route.getId());
+                    try {
+                        return route.getPredicate().apply(exchange);
+                    } catch (Exception e) {
+                        log.error("Error applying predicate for route: {}", route.getId(), e);
+                    }
+                    return Mono.just(false);
+                })
+                .next()
+                .map(route -> {
+                    log.debug("Route matched: {}", route.getId());
+                    validateRoute(route, exchange);
+                    return route;
+                });
+    }
+
+    private synchronized void install(long built, RouteTable routeTable, long started) {
+        // A rebuild that finished after a later one would bring back routes that were since changed
+        if (built < installed) {
+            return;
+        }
+        installed = built;
+        table = routeTable;
+        rebuilds.increment();
+        log.info("Route table rebuilt in {} ms: {} routes, {} tested for every request",
+                (System.nanoTime() - started) / 1_000_000, routeTable.size(), routeTable.unindexed());
+    }
+
+    private static Timer matchTimer(String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("gateway.route.match")
+                .description("Time to find the route of a request")
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,46 @@
+package binhnvh.apigateway.routing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.context.refresh.ContextRefresher;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Set;
+
+/**
+ * Fetches the configuration from the config server every so often and refreshes the routes when gateway settings
+ * changed, so routes edited in the config repository take effect without a restart or a call to
+ * {@code /actuator/refresh}. Other changed settings are rebound as on a refresh; beans in refresh scope are only
+ * recreated by the endpoint.
+ */
+public class RouteConfigPoller {
+
+    private static final Logger log = LoggerFactory.getLogger(RouteConfigPoller.class);
+
+    private final ContextRefresher contextRefresher;
+    private final ApplicationEventPublisher publisher;
+
+    public RouteConfigPoller(ContextRefresher contextRefresher, ApplicationEventPublisher publisher) {
+        this.contextRefresher = contextRefresher;
+        this.publisher = publisher;
+    }
+
+    @Scheduled(initialDelayString = "${application.routing.config-poll.interval:30s}",
+            fixedDelayString = "${application.routing.config-poll.interval:30s}")
+    public void poll() {
+        Set<String> changed;
+        try {
+            changed = contextRefresher.refreshEnvironment();
+        } catch (RuntimeException e) {
+            log.warn("Could not fetch the configuration, keeping the current routes: {}", e.getMessage());
+            return;
+        }
+        if (changed.stream().anyMatch(key -> key.startsWith(GatewayProperties.PREFIX + "."))) {
+            log.info("Gateway configuration changed, refreshing routes");
+            publisher.publishEvent(new RefreshRoutesEvent(this));
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package binhnvh.apigateway.routing;
+
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.server.PathContainer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * Routes indexed by the literal leading segments of their Path patterns, so a request is only tested against the
+ * routes its path can match instead of against every route. {@code /api/tools/**} and {@code /api/users/{id}}
+ * sit under {@code api/tools} and {@code api/users} of a trie of path segments; a request walks the trie as far as
+ * its path goes and gets the routes of the node it stops at, of that node's ancestors, and the routes that could
+ * not be indexed. Each node holds that list ready-made, in route order, so the first of them whose predicates
+ * match is the route Spring Cloud Gateway's own lookup would have picked.
+ *
+ * Only routes whose predicates are all ANDed, as with routes from definitions, are indexed by their Path
+ * patterns; others and routes without a Path predicate are tested for every request. Immutable, built anew
+ * whenever the routes are refreshed.
+ */
+public final class RouteTable {
+
+    private final Node root;
+    private final int size;
+    private final int unindexed;
+
+    private RouteTable(Node root, int size, int unindexed) {
+        this.root = root;
+        this.size = size;
+        this.unindexed = unindexed;
+    }
+
+    /**
+     * Index of routes, in lookup order.
+     *
+     * @param routes All routes, ordered as the route locator returns them
+     * @param conjunctive Tells whether a route's predicate is only an AND of predicates, so any of its Path
+     *                    predicates restricts the paths it matches
+     */
+    public static RouteTable build(List<Route> routes, Predicate<Route> conjunctive) {
+        Builder root = new Builder();
+        int unindexed = 0;
+        for (int index = 0; index < routes.size(); index++) {
+            Route route = routes.get(index);
+            List<List<String>> prefixes = conjunctive.test(route) ? pathPrefixes(route) : List.of();
+            if (prefixes.isEmpty()) {
+                unindexed++;
+                root.routes.add(index);
+                continue;
+            }
+            for (List<String> prefix : prefixes) {
+                Builder node = root;
+                for (String segment : prefix) {
+                    node = node.children.computeIfAbsent(segment, s -> new Builder());
+                }
+                node.routes.add(index);
+            }
+        }
+        return new RouteTable(root.build(routes, new TreeSet<>()), routes.size(), unindexed);
+    }
+
+    /**
+     * Routes the path could match, in lookup order.
+     */
+    public List<Route> candidates(PathContainer path) {
+        Node node = root;
+        for (PathContainer.Element element : path.elements()) {
+            if (element instanceof PathContainer.PathSegment segment && !segment.valueToMatch().isEmpty()) {
+                Node child = node.children.get(segment.valueToMatch());
+                if (child == null) {
+                    break;
+                }
+                node = child;
+            }
+        }
+        return node.routes;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Routes tested for every request, having no Path pattern with a literal leading segment.
+     */
+    public int unindexed() {
+        return unindexed;
+    }
+
+    /**
+     * Literal leading segments of each pattern of the route, or none if any of its Path predicates has a pattern
+     * matching from the first segment on, which leaves the route to be tested for every request.
+     */
+    static List<List<String>> pathPrefixes(Route route) {
+        List<PathRoutePredicateFactory.Config> paths = new ArrayList<>();
+        route.getPredicate().accept(predicate -> {
+            if (predicate.getConfig() instanceof PathRoutePredicateFactory.Config config) {
+                paths.add(config);
+            }
+        });
+        // Of several Path predicates that all have to match, the first is as good as any
+        for (PathRoutePredicateFactory.Config config : paths) {
+            List<List<String>> prefixes = new ArrayList<>();
+            for (String pattern : config.getPatterns()) {
+                List<String> prefix = literalPrefix(pattern);
+                if (prefix.isEmpty()) {
+                    prefixes = null;
+                    break;
+                }
+                prefixes.add(prefix);
+            }
+            if (prefixes != null && !prefixes.isEmpty()) {
+                return prefixes;
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * Segments of the pattern before the first one with a variable or wildcard.
+     */
+    static List<String> literalPrefix(String pattern) {
+        List<String> prefix = new ArrayList<>();
+        if (!pattern.startsWith("/")) {
+            return prefix;
+        }
+        for (String segment : pattern.substring(1).split("/", -1)) {
+            if (segment.isEmpty() || segment.indexOf('{') >= 0 || segment.indexOf('*') >= 0
+                    || segment.indexOf('?') >= 0 || segment.indexOf('\\') >= 0) {
+                break;
+            }
+            prefix.add(segment);
+        }
+        return prefix;
+    }
+
+    private record Node(Map<String, Node> children, List<Route> routes) {
+    }
+
+    private static final class Builder {
+
+        private final Map<String, Builder> children = new HashMap<>();
+        private final List<Integer> routes = new ArrayList<>();
+
+        Node build(List<Route> all, Set<Integer> inherited) {
+            TreeSet<Integer> indexes = new TreeSet<>(inherited);
+            indexes.addAll(routes);
+            Map<String, Node> built = new HashMap<>(children.size() * 2);
+            children.forEach((segment, child) -> built.put(segment, child.build(all, indexes)));
+            return new Node(Map.copyOf(built), indexes.stream().map(all::get).toList());
+        }
+    }
+}
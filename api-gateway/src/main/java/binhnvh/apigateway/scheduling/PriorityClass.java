@@ -0,0 +1,73 @@
+package binhnvh.apigateway.scheduling;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A class of requests admitted by the {@link RequestScheduler}, with the queue its requests wait in when the
+ * gateway is at capacity. A request belongs to the first class, in priority order, whose criteria it meets;
+ * an empty criterion matches every request.
+ *
+ * {@code maxInFlight} bounds the slots the class holds at once, so long-running requests of a lower class (LLM
+ * streams hold theirs until the last chunk) cannot take every slot from the classes above it.
+ */
+public final class PriorityClass {
+
+    private final String name;
+    private final Set<String> routes;
+    private final Set<String> methods;
+    private final Set<String> principals;
+    private final int maxQueue;
+    private final Duration maxWait;
+    private final int maxInFlight;
+
+    public PriorityClass(String name, Set<String> routes, Set<String> methods, Set<String> principals,
+                         int maxQueue, Duration maxWait) {
+        this(name, routes, methods, principals, maxQueue, maxWait, Integer.MAX_VALUE);
+    }
+
+    public PriorityClass(String name, Set<String> routes, Set<String> methods, Set<String> principals,
+                         int maxQueue, Duration maxWait, int maxInFlight) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Priority class name must be set");
+        }
+        if (maxQueue < 0 || maxWait == null || maxWait.isNegative()) {
+            throw new IllegalArgumentException("Priority class " + name + " needs a non-negative max queue and max wait");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Priority class " + name + " needs a positive max in flight, got "
+                    + maxInFlight);
+        }
+        this.name = name;
+        this.routes = Set.copyOf(routes);
+        this.methods = methods.stream().map(method -> method.toUpperCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet());
+        this.principals = Set.copyOf(principals);
+        this.maxQueue = maxQueue;
+        this.maxWait = maxWait;
+        this.maxInFlight = maxInFlight;
+    }
+
+    boolean matches(String routeId, String method, String principal) {
+        return (routes.isEmpty() || routes.contains(routeId))
+                && (methods.isEmpty() || methods.contains(method))
+                && (principals.isEmpty() || (principal != null && principals.contains(principal)));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxQueue() {
+        return maxQueue;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+}
@@ -0,0 +1,413 @@
+package binhnvh.apigateway.scheduling;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Admits requests of all routes using the RequestScheduling filter up to a shared number in flight, and queues
+ * the rest by {@link PriorityClass}.
+ *
+ * When a slot frees up, it goes to the highest class with a request waiting that holds fewer than its
+ * {@code max-in-flight} slots; a class at that limit queues even while slots are free. Within a class, tenants
+ * take turns in proportion to their weights (start-time fair queuing): each request is tagged with a virtual
+ * finish time that advances by 1/weight per request of its tenant, and the smallest tag goes first, so a tenant
+ * sending a burst waits behind its own requests rather than in front of everyone else's.
+ *
+ * A request is shed when it has waited {@code max-wait}, or when there is no room to queue it. A full class
+ * queue makes room by dropping the waiting request with the latest tag, if it is later than the newcomer's;
+ * once {@code max-queued} requests wait in all, room is made by dropping one of the lowest class waiting,
+ * if that is lower than the newcomer's.
+ *
+ * Per class, queue time is recorded as {@code gateway.scheduler.queue.time}, requests are counted as
+ * {@code gateway.scheduler.requests} by result (admitted, queue_full, evicted or timeout), and waiting
+ * requests are gauged as {@code gateway.scheduler.queued}; slots in use as {@code gateway.scheduler.in.use}.
+ */
+public class RequestScheduler {
+
+    enum Result {
+        ADMITTED("admitted"),
+        QUEUE_FULL("queue_full"),
+        EVICTED("evicted"),
+        TIMEOUT("timeout");
+
+        private final String label;
+
+        Result(String label) {
+            this.label = label;
+        }
+    }
+
+    private enum State {
+        QUEUED,
+        GRANTED,
+        DONE
+    }
+
+    private final int capacity;
+    private final int maxQueued;
+    private final List<ClassQueue> queues = new ArrayList<>();
+    private final Map<String, ClassQueue> queuesByName = new LinkedHashMap<>();
+    private final Map<String, Double> tenantWeights;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier nanoClock;
+    private final Scheduler timer;
+
+    private int inUse;
+    private int queued;
+    private long sequence;
+
+    public RequestScheduler(int capacity, int maxQueued, List<PriorityClass> classes, Map<String, Double> tenantWeights,
+                            MeterRegistry meterRegistry) {
+        this(capacity, maxQueued, classes, tenantWeights, meterRegistry, System::nanoTime, Schedulers.parallel());
+    }
+
+    RequestScheduler(int capacity, int maxQueued, List<PriorityClass> classes, Map<String, Double> tenantWeights,
+                     MeterRegistry meterRegistry, LongSupplier nanoClock, Scheduler timer) {
+        if (capacity < 1 || maxQueued < 0 || classes.isEmpty()) {
+            throw new IllegalArgumentException("Request scheduler needs a positive capacity, a non-negative max queued"
+                    + " and at least one priority class");
+        }
+        tenantWeights.forEach((tenant, weight) -> {
+            if (weight == null || weight <= 0) {
+                throw new IllegalArgumentException("Weight of tenant " + tenant + " must be positive, got " + weight);
+            }
+        });
+        this.capacity = capacity;
+        this.maxQueued = maxQueued;
+        this.tenantWeights = Map.copyOf(tenantWeights);
+        this.meterRegistry = meterRegistry;
+        this.nanoClock = nanoClock;
+        this.timer = timer;
+        for (PriorityClass priorityClass : classes) {
+            ClassQueue queue = new ClassQueue(priorityClass, queues.size());
+            if (queuesByName.putIfAbsent(priorityClass.getName(), queue) != null) {
+                throw new IllegalArgumentException("Duplicate priority class " + priorityClass.getName());
+            }
+            queues.add(queue);
+        }
+        meterRegistry.gauge("gateway.scheduler.in.use", this, RequestScheduler::inUse);
+    }
+
+    /**
+     * The first class in priority order whose criteria the request meets, or the last class.
+     */
+    public PriorityClass classify(String routeId, String method, String principal) {
+        for (ClassQueue queue : queues) {
+            if (queue.priorityClass.matches(routeId, method, principal)) {
+                return queue.priorityClass;
+            }
+        }
+        return queues.get(queues.size() - 1).priorityClass;
+    }
+
+    public boolean hasClass(String name) {
+        return queuesByName.containsKey(name);
+    }
+
+    /**
+     * Waits for a slot, failing with {@link RejectedException} if the request is shed instead.
+     */
+    public Mono<Permit> acquire(String className, String tenant) {
+        ClassQueue queue = queuesByName.get(className);
+        if (queue == null) {
+            return Mono.error(new IllegalArgumentException("Unknown priority class " + className));
+        }
+        return Mono.defer(() -> {
+            Waiter waiter;
+            Waiter evicted = null;
+            synchronized (this) {
+                // With a slot free, anyone waiting is held back by its class limit; only this class's queue is ahead
+                if (inUse < capacity && queue.hasRoom() && queue.waiters.isEmpty()) {
+                    inUse++;
+                    queue.inFlight++;
+                    queue.record(Result.ADMITTED, 0);
+                    return Mono.just(new Permit(queue));
+                }
+                waiter = queue.tag(tenant, weight(tenant), nanoClock.getAsLong(), sequence++);
+                if (queue.waiters.size() >= queue.priorityClass.getMaxQueue()) {
+                    Waiter latest = queue.latest();
+                    if (latest == null || !queue.before(waiter, latest)) {
+                        queue.record(Result.QUEUE_FULL, 0);
+                        return Mono.error(new RejectedException(className));
+                    }
+                    evicted = dequeue(latest);
+                } else if (queued >= maxQueued) {
+                    ClassQueue lowest = lowestWaitingBelow(queue);
+                    if (lowest == null) {
+                        queue.record(Result.QUEUE_FULL, 0);
+                        return Mono.error(new RejectedException(className));
+                    }
+                    evicted = dequeue(lowest.latest());
+                }
+                queue.add(waiter);
+                queued++;
+            }
+            if (evicted != null) {
+                evicted.reject(Result.EVICTED);
+            }
+            waiter.expiry = timer.schedule(() -> expire(waiter),
+                    waiter.queue.priorityClass.getMaxWait().toNanos(), TimeUnit.NANOSECONDS);
+            return waiter.sink.asMono().doOnCancel(() -> cancel(waiter));
+        });
+    }
+
+    private void release(ClassQueue holder) {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            inUse--;
+            holder.inFlight--;
+            Waiter next;
+            while (inUse < capacity && (next = next()) != null) {
+                queued--;
+                inUse++;
+                next.queue.inFlight++;
+                next.state = State.GRANTED;
+                next.permit = new Permit(next.queue);
+                granted.add(next);
+            }
+        }
+        long now = nanoClock.getAsLong();
+        for (Waiter waiter : granted) {
+            waiter.cancelExpiry();
+            waiter.queue.record(Result.ADMITTED, now - waiter.enqueuedAt);
+            waiter.sink.tryEmitValue(waiter.permit);
+        }
+    }
+
+    private void expire(Waiter waiter) {
+        synchronized (this) {
+            if (waiter.state != State.QUEUED) {
+                return;
+            }
+            dequeue(waiter);
+        }
+        waiter.reject(Result.TIMEOUT);
+    }
+
+    // The caller went away while waiting, or before it could use the slot it was given
+    private void cancel(Waiter waiter) {
+        Permit unused;
+        synchronized (this) {
+            if (waiter.state == State.QUEUED) {
+                dequeue(waiter);
+                waiter.state = State.DONE;
+                waiter.cancelExpiry();
+                return;
+            }
+            unused = waiter.state == State.GRANTED ? waiter.permit : null;
+        }
+        if (unused != null) {
+            unused.release();
+        }
+    }
+
+    // Guarded by this
+    private Waiter dequeue(Waiter waiter) {
+        waiter.queue.remove(waiter);
+        queued--;
+        waiter.state = State.DONE;
+        return waiter;
+    }
+
+    // Guarded by this
+    private Waiter next() {
+        for (ClassQueue queue : queues) {
+            if (!queue.waiters.isEmpty() && queue.hasRoom()) {
+                return queue.poll();
+            }
+        }
+        return null;
+    }
+
+    // Guarded by this
+    private ClassQueue lowestWaitingBelow(ClassQueue queue) {
+        for (int i = queues.size() - 1; i > queue.priority; i--) {
+            if (!queues.get(i).waiters.isEmpty()) {
+                return queues.get(i);
+            }
+        }
+        return null;
+    }
+
+    private double weight(String tenant) {
+        return tenant == null ? 1.0 : tenantWeights.getOrDefault(tenant, 1.0);
+    }
+
+    synchronized int inUse() {
+        return inUse;
+    }
+
+    synchronized int queued() {
+        return queued;
+    }
+
+    synchronized int inFlight(String className) {
+        return queuesByName.get(className).inFlight;
+    }
+
+    /**
+     * A slot held by an admitted request, to be released exactly once when it is done; further calls do nothing.
+     */
+    public final class Permit {
+
+        private final ClassQueue holder;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(ClassQueue holder) {
+            this.holder = holder;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                RequestScheduler.this.release(holder);
+            }
+        }
+    }
+
+    /**
+     * A request shed instead of admitted.
+     */
+    public static final class RejectedException extends RuntimeException {
+
+        RejectedException(String className) {
+            super("Request of priority class " + className + " shed", null, false, false);
+        }
+    }
+
+    private final class Waiter {
+
+        private final ClassQueue queue;
+        private final String tenant;
+        private final double start;
+        private final double finish;
+        private final long sequence;
+        private final long enqueuedAt;
+        private final Sinks.One<Permit> sink = Sinks.one();
+        private volatile Disposable expiry;
+        private State state = State.QUEUED;
+        private Permit permit;
+
+        Waiter(ClassQueue queue, String tenant, double start, double finish, long sequence, long enqueuedAt) {
+            this.queue = queue;
+            this.tenant = tenant;
+            this.start = start;
+            this.finish = finish;
+            this.sequence = sequence;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        void reject(Result result) {
+            cancelExpiry();
+            queue.record(result, nanoClock.getAsLong() - enqueuedAt);
+            sink.tryEmitError(new RejectedException(queue.priorityClass.getName()));
+        }
+
+        void cancelExpiry() {
+            Disposable scheduled = expiry;
+            if (scheduled != null) {
+                scheduled.dispose();
+            }
+        }
+    }
+
+    /**
+     * The requests of one class waiting for a slot, in order of their virtual finish times.
+     */
+    private final class ClassQueue {
+
+        private final PriorityClass priorityClass;
+        private final int priority;
+        private final Comparator<Waiter> order = Comparator.<Waiter>comparingDouble(w -> w.finish)
+                .thenComparingLong(w -> w.sequence);
+        private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(order);
+        private final Map<String, Double> lastFinish = new HashMap<>();
+        private final Timer queueTime;
+        private final Map<Result, Counter> results = new EnumMap<>(Result.class);
+        private double virtualTime;
+        private volatile int size;
+        // Guarded by the scheduler
+        private int inFlight;
+
+        ClassQueue(PriorityClass priorityClass, int priority) {
+            this.priorityClass = priorityClass;
+            this.priority = priority;
+            Tags tags = Tags.of("class", priorityClass.getName());
+            this.queueTime = Timer.builder("gateway.scheduler.queue.time").tags(tags).register(meterRegistry);
+            for (Result result : Result.values()) {
+                results.put(result, meterRegistry.counter("gateway.scheduler.requests",
+                        tags.and("result", result.label)));
+            }
+            meterRegistry.gauge("gateway.scheduler.queued", tags, this, queue -> queue.size);
+        }
+
+        Waiter tag(String tenant, double weight, long now, long sequence) {
+            double start = Math.max(virtualTime, lastFinish.getOrDefault(tenant, 0.0));
+            return new Waiter(this, tenant, start, start + 1 / weight, sequence, now);
+        }
+
+        boolean hasRoom() {
+            return inFlight < priorityClass.getMaxInFlight();
+        }
+
+        boolean before(Waiter first, Waiter second) {
+            return order.compare(first, second) < 0;
+        }
+
+        void add(Waiter waiter) {
+            waiters.add(waiter);
+            lastFinish.merge(waiter.tenant, waiter.finish, Math::max);
+            size = waiters.size();
+        }
+
+        Waiter poll() {
+            Waiter waiter = waiters.poll();
+            virtualTime = waiter.start;
+            settle();
+            return waiter;
+        }
+
+        void remove(Waiter waiter) {
+            waiters.remove(waiter);
+            settle();
+        }
+
+        Waiter latest() {
+            return waiters.stream().max(order).orElse(null);
+        }
+
+        void record(Result result, long queuedNanos) {
+            results.get(result).increment();
+            if (result == Result.ADMITTED) {
+                queueTime.record(queuedNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        // An idle queue starts everyone afresh
+        private void settle() {
+            size = waiters.size();
+            if (waiters.isEmpty()) {
+                lastFinish.clear();
+                virtualTime = 0;
+            }
+        }
+    }
+}
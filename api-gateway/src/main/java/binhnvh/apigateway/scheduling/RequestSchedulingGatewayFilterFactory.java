@@ -0,0 +1,110 @@
+package binhnvh.apigateway.scheduling;
+
+import binhnvh.apigateway.ratelimit.KeyPart;
+import binhnvh.apigateway.ratelimit.RequestIdentity;
+import binhnvh.apigateway.ratelimit.RequestIdentityResolver;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.setResponseStatus;
+
+/**
+ * Makes requests wait for a slot of the shared {@link RequestScheduler} before going upstream.
+ *
+ * <pre>
+ * - name: RequestScheduling
+ *   args:
+ *     priority-class: background   # optional, otherwise classified by route, method and principal
+ *     retry-after: 1s
+ * </pre>
+ *
+ * Requests are shared out fairly between tenants, or between principals or client addresses for requests
+ * without a tenant, weighted by {@code application.request-scheduler.tenant-weights}. A request shed by the
+ * scheduler is answered 503 with Retry-After. The slot is held until the response has been written.
+ */
+public class RequestSchedulingGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<RequestSchedulingGatewayFilterFactory.Config> {
+
+    private static final List<KeyPart> FALLBACK_KEY = List.of(KeyPart.CLIENT);
+
+    private final RequestScheduler scheduler;
+    private final RequestIdentityResolver identityResolver;
+
+    public RequestSchedulingGatewayFilterFactory(RequestScheduler scheduler, RequestIdentityResolver identityResolver) {
+        super(Config.class);
+        this.scheduler = scheduler;
+        this.identityResolver = identityResolver;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String fixedClass = config.getPriorityClass();
+        if (fixedClass != null && !scheduler.hasClass(fixedClass)) {
+            throw new IllegalArgumentException("Unknown priority class " + fixedClass);
+        }
+        if (config.getRetryAfter() == null || config.getRetryAfter().isNegative()) {
+            throw new IllegalArgumentException("Retry-After must not be negative, got " + config.getRetryAfter());
+        }
+
+        return (exchange, chain) -> identityResolver.resolve(exchange).flatMap(identity -> {
+            String className = fixedClass != null ? fixedClass : classify(exchange, identity);
+            return scheduler.acquire(className, fairnessKey(identity))
+                    .flatMap(permit -> chain.filter(exchange)
+                            .doOnSuccess(done -> permit.release())
+                            .doOnError(error -> permit.release())
+                            .doOnCancel(permit::release))
+                    .onErrorResume(RequestScheduler.RejectedException.class, rejected -> shed(exchange, config));
+        });
+    }
+
+    private String classify(ServerWebExchange exchange, RequestIdentity identity) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        return scheduler.classify(route == null ? null : route.getId(),
+                exchange.getRequest().getMethod().name(), identity.getPrincipal()).getName();
+    }
+
+    private static String fairnessKey(RequestIdentity identity) {
+        return identity.getTenant() != null ? identity.getTenant() : identity.key(FALLBACK_KEY);
+    }
+
+    private static Mono<Void> shed(ServerWebExchange exchange, Config config) {
+        setResponseStatus(exchange, HttpStatus.SERVICE_UNAVAILABLE);
+        exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER,
+                String.valueOf(Math.max(1, (config.getRetryAfter().toMillis() + 999) / 1000)));
+        return exchange.getResponse().setComplete();
+    }
+
+    public static class Config {
+
+        private String priorityClass;
+
+        private Duration retryAfter = Duration.ofSeconds(1);
+
+        public String getPriorityClass() {
+            return priorityClass;
+        }
+
+        public Config setPriorityClass(String priorityClass) {
+            this.priorityClass = priorityClass;
+            return this;
+        }
+
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+
+        public Config setRetryAfter(Duration retryAfter) {
+            this.retryAfter = retryAfter;
+            return this;
+        }
+    }
+}
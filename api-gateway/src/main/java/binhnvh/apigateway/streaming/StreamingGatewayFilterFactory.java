@@ -0,0 +1,304 @@
+package binhnvh.apigateway.streaming;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.reactive.DispatcherHandler;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Passes long-running responses, such as LLM completions sent as server-sent events or chunked JSON, through
+ * to the client as they are produced.
+ *
+ * <pre>
+ * metadata:
+ *   response-timeout: 60000                 # bounds the wait for response headers only
+ * filters:
+ *   - name: Streaming
+ *     args:
+ *       idle-timeout: 30s                   # longest silence allowed between two chunks
+ *       name: llmProcessingCircuitBreaker   # optional Resilience4j circuit breaker
+ *       fallback-uri: forward:/fallback/llm-processor
+ * </pre>
+ *
+ * Every chunk is flushed as soon as it arrives, and the next one is only read from upstream once the client
+ * connection has taken the last, so a slow client slows the upstream down instead of filling gateway memory.
+ * There is no limit on how long a whole response may take; it is cut off only when upstream sends nothing
+ * for {@code idle-timeout}. The wait for response headers is bounded by the route's {@code response-timeout}
+ * metadata, or the global {@code spring.cloud.gateway.httpclient.response-timeout}.
+ *
+ * The circuit breaker takes the place of the CircuitBreaker filter, whose time limiter would cut streams off:
+ * a call is settled when response headers arrive, as a success with the time taken to get them, or as a
+ * failure when the exchange failed before then, which is answered from the fallback URI. Failures later in
+ * the stream no longer concern the circuit, since the client has already been answered.
+ *
+ * Time to first byte is recorded as {@code gateway.stream.first.byte} and the time until the response ended
+ * as {@code gateway.stream.duration}, per route and by outcome: completed, idle_timeout, cancelled or error.
+ */
+public class StreamingGatewayFilterFactory extends AbstractGatewayFilterFactory<StreamingGatewayFilterFactory.Config> {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingGatewayFilterFactory.class);
+
+    enum Outcome {
+        COMPLETED("completed"),
+        IDLE_TIMEOUT("idle_timeout"),
+        CANCELLED("cancelled"),
+        ERROR("error");
+
+        private final String label;
+
+        Outcome(String label) {
+            this.label = label;
+        }
+    }
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final ObjectProvider<DispatcherHandler> dispatcherHandler;
+    private final MeterRegistry meterRegistry;
+
+    public StreamingGatewayFilterFactory(CircuitBreakerRegistry circuitBreakerRegistry,
+                                         ObjectProvider<DispatcherHandler> dispatcherHandler,
+                                         MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.dispatcherHandler = dispatcherHandler;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        Duration idleTimeout = config.getIdleTimeout();
+        if (idleTimeout == null || idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Streaming idle timeout must be positive, got " + idleTimeout);
+        }
+        if (config.getFallbackUri() != null && !"forward".equals(config.getFallbackUri().getScheme())) {
+            throw new IllegalArgumentException("Streaming fallback URI must be a forward: URI, got " + config.getFallbackUri());
+        }
+        CircuitBreaker circuitBreaker = config.getName() == null
+                ? null
+                : circuitBreakerRegistry.circuitBreaker(config.getName());
+
+        return (exchange, chain) -> {
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            String routeId = route == null ? "unknown" : route.getId();
+            if (circuitBreaker != null && !circuitBreaker.tryAcquirePermission()) {
+                return fallback(exchange, config, CallNotPermittedException.createCallNotPermittedException(circuitBreaker));
+            }
+
+            Stream stream = new Stream(routeId, circuitBreaker, System.nanoTime());
+            StreamingResponse response = new StreamingResponse(exchange, stream, idleTimeout);
+            return chain.filter(exchange.mutate().response(response).build())
+                    .onErrorResume(error -> {
+                        stream.failed(error);
+                        if (stream.settle(error) && !exchange.getResponse().isCommitted()) {
+                            return fallback(exchange, config, error);
+                        }
+                        return Mono.error(error);
+                    })
+                    .doOnSuccess(done -> stream.ended(SignalType.ON_COMPLETE))
+                    .doOnError(error -> stream.ended(SignalType.ON_ERROR))
+                    .doOnCancel(() -> stream.ended(SignalType.CANCEL));
+        };
+    }
+
+    private Mono<Void> fallback(ServerWebExchange exchange, Config config, Throwable error) {
+        if (config.getFallbackUri() == null) {
+            return Mono.error(error);
+        }
+        logger.debug("Answering {} from {}: {}", exchange.getRequest().getPath(), config.getFallbackUri(), error.toString());
+        exchange.getAttributes().put(CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR, error);
+        ServerWebExchangeUtils.reset(exchange);
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .path(config.getFallbackUri().getSchemeSpecificPart())
+                .build();
+        return dispatcherHandler.getObject().handle(exchange.mutate().request(request).build());
+    }
+
+    /**
+     * One response on its way through: settles the circuit breaker call once and records its timings.
+     */
+    private final class Stream {
+
+        private final String routeId;
+        private final CircuitBreaker circuitBreaker;
+        private final long startedAt;
+        private final AtomicBoolean settled = new AtomicBoolean();
+        private final AtomicBoolean firstByte = new AtomicBoolean();
+        private volatile Throwable error;
+
+        Stream(String routeId, CircuitBreaker circuitBreaker, long startedAt) {
+            this.routeId = routeId;
+            this.circuitBreaker = circuitBreaker;
+            this.startedAt = startedAt;
+        }
+
+        void headersReceived() {
+            if (settled.compareAndSet(false, true) && circuitBreaker != null) {
+                circuitBreaker.onSuccess(elapsed(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        /**
+         * Counts an error as a failed call unless headers had already arrived. Returns whether it did.
+         */
+        boolean settle(Throwable error) {
+            if (!settled.compareAndSet(false, true)) {
+                return false;
+            }
+            if (circuitBreaker != null) {
+                circuitBreaker.onError(elapsed(), TimeUnit.NANOSECONDS, error);
+            }
+            return true;
+        }
+
+        void chunkReceived() {
+            if (firstByte.compareAndSet(false, true)) {
+                timer("gateway.stream.first.byte").record(elapsed(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        void failed(Throwable error) {
+            this.error = error;
+        }
+
+        void ended(SignalType signal) {
+            // A cancelled call never reached a verdict, so give its permission back unrecorded
+            if (signal == SignalType.CANCEL && settled.compareAndSet(false, true) && circuitBreaker != null) {
+                circuitBreaker.releasePermission();
+            }
+            timer("gateway.stream.duration", "outcome", outcome(signal).label).record(elapsed(), TimeUnit.NANOSECONDS);
+        }
+
+        private Outcome outcome(SignalType signal) {
+            if (signal == SignalType.CANCEL) {
+                return Outcome.CANCELLED;
+            }
+            if (error instanceof IdleTimeoutException) {
+                return Outcome.IDLE_TIMEOUT;
+            }
+            return error == null ? Outcome.COMPLETED : Outcome.ERROR;
+        }
+
+        private Timer timer(String name, String... tags) {
+            return Timer.builder(name).tag("route", routeId).tags(tags).register(meterRegistry);
+        }
+
+        private long elapsed() {
+            return System.nanoTime() - startedAt;
+        }
+    }
+
+    /**
+     * Writes each chunk with a flush of its own and times out when upstream falls silent.
+     */
+    private static final class StreamingResponse extends ServerHttpResponseDecorator {
+
+        private final Stream stream;
+        private final Duration idleTimeout;
+
+        StreamingResponse(ServerWebExchange exchange, Stream stream, Duration idleTimeout) {
+            super(exchange.getResponse());
+            this.stream = stream;
+            this.idleTimeout = idleTimeout;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            stream.headersReceived();
+            return super.writeAndFlushWith(chunks(Flux.from(body)).map(Mono::just));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            stream.headersReceived();
+            return super.writeAndFlushWith(chunks(Flux.from(body).concatMap(Flux::from)).map(Mono::just));
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            stream.headersReceived();
+            return super.setComplete();
+        }
+
+        private Flux<? extends DataBuffer> chunks(Flux<? extends DataBuffer> body) {
+            return body
+                    .timeout(idleTimeout, Mono.error(() -> new IdleTimeoutException(idleTimeout)))
+                    .doOnNext(buffer -> stream.chunkReceived());
+        }
+    }
+
+    /**
+     * Upstream sent no data for longer than the idle timeout.
+     */
+    static final class IdleTimeoutException extends TimeoutException {
+
+        IdleTimeoutException(Duration idleTimeout) {
+            super("No data received from upstream for " + idleTimeout);
+        }
+    }
+
+    public static class Config {
+
+        private Duration idleTimeout = Duration.ofSeconds(30);
+
+        private String name;
+
+        private URI fallbackUri;
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public Config setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Config setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public URI getFallbackUri() {
+            return fallbackUri;
+        }
+
+        public Config setFallbackUri(URI fallbackUri) {
+            this.fallbackUri = fallbackUri;
+            return this;
+        }
+
+        public Config setFallbackUri(String fallbackUri) {
+            return setFallbackUri(URI.create(fallbackUri));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package binhnvh.apigateway.timing;
+
+/**
+ * Stage of a request's way through the gateway that its time is accounted to. A request is in one phase at a
+ * time, from the moment it reaches the gateway to the moment its response is written, so the phases a request
+ * went through add up to its whole time.
+ */
+public enum Phase {
+
+    /** Web filters up to and including Spring Security's. */
+    SECURITY("security"),
+    /** Remaining web filters and finding the route. */
+    ROUTE("route"),
+    /** Route and global filters not accounted to one of the phases below. */
+    FILTERS("filters"),
+    /** Response caches and request coalescing, up to a hit or to passing the request on. */
+    CACHE("cache"),
+    /** Rate limiters and token quotas, including their Redis round trips. */
+    RATE_LIMIT("rate-limit"),
+    /** Waiting for a slot of the request scheduler or the adaptive concurrency limit. */
+    ADMISSION("admission"),
+    /** Circuit breaker bookkeeping before the call, and the fallback if it is open. */
+    CIRCUIT_BREAKER("circuit-breaker"),
+    /** Choosing an instance of an {@code lb://} route. */
+    LOAD_BALANCER("load-balancer"),
+    /** Acquiring a pooled connection to the backend, connecting and the TLS handshake if needed. */
+    CONNECT("connect"),
+    /** From sending the request to the backend to receiving its response headers. */
+    UPSTREAM("upstream"),
+    /** Streaming the response back to the client, and filters working on the response. */
+    RESPONSE("response");
+
+    private final String value;
+
+    Phase(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Name of the phase in metric tags and the Server-Timing header.
+     */
+    public String getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,36 @@
+package binhnvh.apigateway.timing;
+
+import org.springframework.core.Ordered;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Web filter moving a request to the next {@link Phase} once it gets this far, such as from
+ * {@link Phase#SECURITY} to {@link Phase#ROUTE} right after Spring Security's filter.
+ */
+public class PhaseMarkWebFilter implements WebFilter, Ordered {
+
+    private final Phase phase;
+    private final int order;
+
+    public PhaseMarkWebFilter(Phase phase, int order) {
+        this.phase = phase;
+        this.order = order;
+    }
+
+    @Override
+    public int getOrder() {
+        return order;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        PhaseTimings timings = PhaseTimings.of(exchange);
+        if (timings != null) {
+            timings.enter(phase);
+        }
+        return chain.filter(exchange);
+    }
+}
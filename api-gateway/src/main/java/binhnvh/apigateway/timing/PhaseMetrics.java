@@ -0,0 +1,86 @@
+package binhnvh.apigateway.timing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code gateway.phase} timers, one per route and phase, with histograms for percentiles across instances.
+ * Route tags are bounded: requests without a route, as those turned away by Spring Security, are tagged
+ * {@value #NO_ROUTE}, and routes beyond the first {@code maxRoutes} seen are tagged {@value #OTHER_ROUTES}
+ * together.
+ */
+public class PhaseMetrics {
+
+    static final String NO_ROUTE = "none";
+    static final String OTHER_ROUTES = "other";
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final MeterRegistry meterRegistry;
+    private final int maxRoutes;
+    private final boolean histogram;
+    private final Duration maxExpected;
+    private final ConcurrentHashMap<String, RouteTimers> timers = new ConcurrentHashMap<>();
+
+    public PhaseMetrics(MeterRegistry meterRegistry, int maxRoutes, boolean histogram, Duration maxExpected) {
+        if (maxRoutes < 1) {
+            throw new IllegalArgumentException("Phase timing needs at least one route tag, got " + maxRoutes);
+        }
+        this.meterRegistry = meterRegistry;
+        this.maxRoutes = maxRoutes;
+        this.histogram = histogram;
+        this.maxExpected = maxExpected;
+    }
+
+    /**
+     * Records the time of each phase the request went through.
+     */
+    public void record(String routeId, PhaseTimings timings) {
+        RouteTimers routeTimers = timersOf(routeId == null ? NO_ROUTE : routeId);
+        for (Phase phase : PHASES) {
+            if (timings.wasEntered(phase)) {
+                routeTimers.timer(phase).record(timings.nanos(phase), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private RouteTimers timersOf(String route) {
+        RouteTimers routeTimers = timers.get(route);
+        if (routeTimers != null) {
+            return routeTimers;
+        }
+        // Approximate under races, which only lets a few more routes in
+        String tag = route.equals(NO_ROUTE) || timers.size() < maxRoutes ? route : OTHER_ROUTES;
+        return timers.computeIfAbsent(tag, RouteTimers::new);
+    }
+
+    private final class RouteTimers {
+
+        private final String route;
+        private final Timer[] byPhase = new Timer[PHASES.length];
+
+        RouteTimers(String route) {
+            this.route = route;
+        }
+
+        Timer timer(Phase phase) {
+            Timer timer = byPhase[phase.ordinal()];
+            if (timer == null) {
+                // Registering twice under a race returns the same timer
+                timer = Timer.builder("gateway.phase")
+                        .description("Time requests spent in each phase of their way through the gateway")
+                        .tag("route", route)
+                        .tag("phase", phase.getValue())
+                        .publishPercentileHistogram(histogram)
+                        .maximumExpectedValue(maxExpected)
+                        .register(meterRegistry);
+                byPhase[phase.ordinal()] = timer;
+            }
+            return timer;
+        }
+    }
+}
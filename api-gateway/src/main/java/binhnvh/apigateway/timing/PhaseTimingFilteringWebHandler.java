@@ -0,0 +1,105 @@
+package binhnvh.apigateway.timing;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.DecoratingProxy;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spring Cloud Gateway's filter chain with the time of each filter accounted to a {@link Phase}. Filters are
+ * mapped to phases by the class of the filter factory or global filter they come from, subclasses included
+ * (a factory's filters are traced back to it as the top-level class of their lambda or inner class):
+ * a filter of a rate limiter factory mapped to {@link Phase#RATE_LIMIT} enters that phase when it is called and
+ * leaves it for {@link Phase#FILTERS} when it passes the request on. Filters of other classes run in whatever
+ * phase the request is in.
+ *
+ * A filter mapped to {@link Phase#CONNECT} routes the request upstream; it passes its {@link PhaseTimings} in the
+ * Reactor context for the {@link PhaseTimingHttpClientCustomizer} to take the request through
+ * {@link Phase#UPSTREAM} to {@link Phase#RESPONSE}.
+ */
+public class PhaseTimingFilteringWebHandler extends FilteringWebHandler {
+
+    private final Map<Class<?>, Phase> phases;
+
+    /**
+     * @param phases Phase of the filters of each filter factory or global filter class, checked in order
+     */
+    public PhaseTimingFilteringWebHandler(List<GlobalFilter> globalFilters, boolean routeFilterCacheEnabled,
+                                          Map<Class<?>, Phase> phases) {
+        super(globalFilters, routeFilterCacheEnabled);
+        this.phases = phases;
+    }
+
+    @Override
+    public Mono<Void> handle(ServerWebExchange exchange) {
+        PhaseTimings timings = PhaseTimings.of(exchange);
+        if (timings != null) {
+            timings.enter(Phase.FILTERS);
+        }
+        return super.handle(exchange);
+    }
+
+    @Override
+    protected List<GatewayFilter> getAllFilters(Route route) {
+        return super.getAllFilters(route).stream()
+                .map(filter -> {
+                    Phase phase = phaseOf(filter);
+                    return phase == null ? filter : new TimedFilter(filter, phase);
+                })
+                .toList();
+    }
+
+    Phase phaseOf(GatewayFilter filter) {
+        Class<?> source = sourceClass(filter);
+        for (Map.Entry<Class<?>, Phase> entry : phases.entrySet()) {
+            if (entry.getKey().isAssignableFrom(source)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    // Global filter, or the factory whose lambda or inner class the filter is
+    private static Class<?> sourceClass(GatewayFilter filter) {
+        GatewayFilter current = filter;
+        while (current instanceof OrderedGatewayFilter ordered) {
+            current = ordered.getDelegate();
+        }
+        if (current instanceof DecoratingProxy proxy) {
+            return proxy.getDecoratedClass();
+        }
+        return current.getClass().getNestHost();
+    }
+
+    private record TimedFilter(GatewayFilter delegate, Phase phase) implements GatewayFilter {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            PhaseTimings timings = PhaseTimings.of(exchange);
+            if (timings == null) {
+                return delegate.filter(exchange, chain);
+            }
+            timings.enter(phase);
+            if (phase == Phase.CONNECT) {
+                return delegate.filter(exchange, chain).contextWrite(context -> context.put(PhaseTimings.class, timings));
+            }
+            return delegate.filter(exchange, next -> Mono.defer(() -> {
+                timings.enter(Phase.FILTERS);
+                return chain.filter(next);
+            }));
+        }
+
+        @Override
+        public String toString() {
+            return "Timed[" + phase.getValue() + "]{" + delegate + "}";
+        }
+    }
+}
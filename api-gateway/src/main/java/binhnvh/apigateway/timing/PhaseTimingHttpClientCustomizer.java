@@ -0,0 +1,27 @@
+package binhnvh.apigateway.timing;
+
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import reactor.netty.http.client.HttpClient;
+
+/**
+ * Moves requests routed upstream from {@link Phase#CONNECT} to {@link Phase#UPSTREAM} once a connection is ready
+ * and the request is being sent, and on to {@link Phase#RESPONSE} when the backend's response headers arrive.
+ * Applied to the gateway's shared client and the HTTP/2 route clients alike.
+ */
+public class PhaseTimingHttpClientCustomizer implements HttpClientCustomizer {
+
+    @Override
+    public HttpClient customize(HttpClient httpClient) {
+        return httpClient
+                .doOnRequest((request, connection) -> enter(PhaseTimings.of(request.currentContextView()),
+                        Phase.UPSTREAM))
+                .doOnResponse((response, connection) -> enter(PhaseTimings.of(response.currentContextView()),
+                        Phase.RESPONSE));
+    }
+
+    private static void enter(PhaseTimings timings, Phase phase) {
+        if (timings != null) {
+            timings.enter(phase);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package binhnvh.apigateway.timing;
+
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.function.LongSupplier;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * First web filter of every request: starts its {@link PhaseTimings} in the {@link Phase#SECURITY} phase and,
+ * once the response is written, records the phases it went through in {@link PhaseMetrics}. With
+ * {@code serverTiming} on, responses carry the phases up to their headers in a Server-Timing header, for browser
+ * developer tools and curl.
+ */
+public class PhaseTimingWebFilter implements WebFilter, Ordered {
+
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    private final PhaseMetrics metrics;
+    private final boolean serverTiming;
+    private final LongSupplier nanoClock;
+
+    public PhaseTimingWebFilter(PhaseMetrics metrics, boolean serverTiming) {
+        this(metrics, serverTiming, System::nanoTime);
+    }
+
+    PhaseTimingWebFilter(PhaseMetrics metrics, boolean serverTiming, LongSupplier nanoClock) {
+        this.metrics = metrics;
+        this.serverTiming = serverTiming;
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        PhaseTimings timings = new PhaseTimings(Phase.SECURITY, nanoClock);
+        exchange.getAttributes().put(PhaseTimings.ATTRIBUTE, timings);
+        if (serverTiming) {
+            exchange.getResponse().beforeCommit(() -> Mono.fromRunnable(() ->
+                    exchange.getResponse().getHeaders().add(SERVER_TIMING, timings.serverTiming())));
+        }
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    timings.finish();
+                    metrics.record(routeId(exchange), timings);
+                });
+    }
+
+    private static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        return route == null ? null : route.getId();
+    }
+}
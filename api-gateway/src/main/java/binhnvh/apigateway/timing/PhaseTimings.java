@@ -0,0 +1,102 @@
+package binhnvh.apigateway.timing;
+
+import org.springframework.web.server.ServerWebExchange;
+import reactor.util.context.ContextView;
+
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * Time a request spent in each {@link Phase}, kept as an exchange attribute and, for the upstream call, in the
+ * Reactor context. Entering a phase ends the one the request was in; phases entered more than once, as with
+ * retried calls, add up.
+ */
+public final class PhaseTimings {
+
+    public static final String ATTRIBUTE = PhaseTimings.class.getName();
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final LongSupplier nanoClock;
+    private final long startedAt;
+    private final long[] nanos = new long[PHASES.length];
+    private int entered;
+    private Phase current;
+    private long since;
+    private long finishedAt = -1;
+
+    PhaseTimings(Phase first, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.startedAt = nanoClock.getAsLong();
+        this.current = first;
+        this.since = startedAt;
+        this.entered = 1 << first.ordinal();
+    }
+
+    public static PhaseTimings of(ServerWebExchange exchange) {
+        return exchange.getAttribute(ATTRIBUTE);
+    }
+
+    public static PhaseTimings of(ContextView context) {
+        return context.getOrDefault(PhaseTimings.class, null);
+    }
+
+    /**
+     * Ends the current phase and starts the given one; does nothing once the request is finished.
+     */
+    public synchronized void enter(Phase phase) {
+        if (finishedAt >= 0 || phase == current) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        nanos[current.ordinal()] += now - since;
+        entered |= 1 << phase.ordinal();
+        current = phase;
+        since = now;
+    }
+
+    synchronized void finish() {
+        if (finishedAt < 0) {
+            finishedAt = nanoClock.getAsLong();
+            nanos[current.ordinal()] += finishedAt - since;
+        }
+    }
+
+    public synchronized boolean wasEntered(Phase phase) {
+        return (entered & 1 << phase.ordinal()) != 0;
+    }
+
+    /**
+     * Time spent in the phase so far, including the current stay if the request is in it.
+     */
+    public synchronized long nanos(Phase phase) {
+        long spent = nanos[phase.ordinal()];
+        return finishedAt < 0 && phase == current ? spent + nanoClock.getAsLong() - since : spent;
+    }
+
+    public synchronized long totalNanos() {
+        return (finishedAt < 0 ? nanoClock.getAsLong() : finishedAt) - startedAt;
+    }
+
+    /**
+     * Value of a Server-Timing header, in milliseconds: {@code security;dur=0.412, route;dur=0.051, ...,
+     * total;dur=12.503}.
+     */
+    public synchronized String serverTiming() {
+        StringBuilder header = new StringBuilder();
+        for (Phase phase : PHASES) {
+            if (wasEntered(phase)) {
+                appendMetric(header, phase.getValue(), nanos(phase));
+            }
+        }
+        appendMetric(header, "total", totalNanos());
+        return header.toString();
+    }
+
+    private static void appendMetric(StringBuilder header, String name, long nanos) {
+        if (!header.isEmpty()) {
+            header.append(", ");
+        }
+        header.append(name).append(";dur=").append(String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0));
+    }
+}
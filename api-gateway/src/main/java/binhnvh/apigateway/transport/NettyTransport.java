@@ -0,0 +1,122 @@
+package binhnvh.apigateway.transport;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringDatagramChannel;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import io.netty.incubator.channel.uring.IOUringSocketChannel;
+
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Netty transport the gateway's server and upstream client run on, selected by {@code application.transport.type}.
+ */
+public enum NettyTransport {
+
+    /** The fastest one available: io_uring, then epoll, then NIO. */
+    AUTO,
+    /** Linux io_uring, kernel 5.9 or later, and not blocked by seccomp. */
+    IO_URING,
+    /** Linux epoll. */
+    EPOLL,
+    /** Java NIO, available everywhere. */
+    NIO;
+
+    private static final List<NettyTransport> PREFERENCE = List.of(IO_URING, EPOLL, NIO);
+
+    public boolean isAvailable() {
+        try {
+            return switch (this) {
+                case AUTO, NIO -> true;
+                case IO_URING -> IOUring.isAvailable();
+                case EPOLL -> Epoll.isAvailable();
+            };
+        } catch (LinkageError e) {
+            // Native library jar not on the classpath for this platform
+            return false;
+        }
+    }
+
+    /**
+     * The transport to run on: this one if available, otherwise the next available in order of preference.
+     */
+    public NettyTransport resolve() {
+        int from = this == AUTO ? 0 : PREFERENCE.indexOf(this);
+        return PREFERENCE.subList(from, PREFERENCE.size()).stream()
+                .filter(NettyTransport::isAvailable)
+                .findFirst()
+                .orElse(NIO);
+    }
+
+    /**
+     * Why this transport cannot be used, for logging a fallback.
+     */
+    public String unavailabilityCause() {
+        try {
+            return switch (this) {
+                case AUTO, NIO -> "available";
+                case IO_URING -> String.valueOf(IOUring.unavailabilityCause());
+                case EPOLL -> String.valueOf(Epoll.unavailabilityCause());
+            };
+        } catch (LinkageError e) {
+            return e.toString();
+        }
+    }
+
+    EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+        return switch (this) {
+            case IO_URING -> new IOUringEventLoopGroup(threads, threadFactory);
+            case EPOLL -> new EpollEventLoopGroup(threads, threadFactory);
+            case NIO -> new NioEventLoopGroup(threads, threadFactory);
+            case AUTO -> resolve().newEventLoopGroup(threads, threadFactory);
+        };
+    }
+
+    /**
+     * This transport's implementation of a socket, server socket or datagram (DNS) channel.
+     */
+    @SuppressWarnings("unchecked")
+    <C extends Channel> Class<? extends C> channelClass(Class<C> type) {
+        if (this == AUTO) {
+            return resolve().channelClass(type);
+        }
+        Class<? extends Channel> channelClass;
+        if (ServerSocketChannel.class.isAssignableFrom(type)) {
+            channelClass = switch (this) {
+                case IO_URING -> IOUringServerSocketChannel.class;
+                case EPOLL -> EpollServerSocketChannel.class;
+                default -> NioServerSocketChannel.class;
+            };
+        } else if (SocketChannel.class.isAssignableFrom(type)) {
+            channelClass = switch (this) {
+                case IO_URING -> IOUringSocketChannel.class;
+                case EPOLL -> EpollSocketChannel.class;
+                default -> NioSocketChannel.class;
+            };
+        } else if (DatagramChannel.class.isAssignableFrom(type)) {
+            channelClass = switch (this) {
+                case IO_URING -> IOUringDatagramChannel.class;
+                case EPOLL -> EpollDatagramChannel.class;
+                default -> NioDatagramChannel.class;
+            };
+        } else {
+            throw new IllegalArgumentException("No " + this + " channel of type " + type.getName());
+        }
+        return (Class<? extends C>) channelClass;
+    }
+}
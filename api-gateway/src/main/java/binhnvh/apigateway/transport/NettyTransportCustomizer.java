@@ -0,0 +1,129 @@
+package binhnvh.apigateway.transport;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the gateway's HTTP server and its upstream HTTP clients on one event loop group of the configured
+ * {@link NettyTransport}, falling back to the next available transport when it cannot be used, and applies the
+ * configured {@link SocketOptions} to both. Sharing the loops keeps a proxied request and its upstream call on
+ * the same thread, as Reactor Netty's own default does.
+ */
+public class NettyTransportCustomizer implements NettyServerCustomizer, HttpClientCustomizer, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(NettyTransportCustomizer.class);
+
+    private static final Duration SHUTDOWN_QUIET_PERIOD = Duration.ofMillis(100);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+
+    private final NettyTransport transport;
+    private final SocketOptions socketOptions;
+    private final EventLoopGroup eventLoopGroup;
+    private final LoopResources loopResources;
+
+    public NettyTransportCustomizer(NettyTransport requested, int workerThreads, SocketOptions socketOptions) {
+        if (workerThreads < 1) {
+            throw new IllegalArgumentException("Worker threads must be at least 1, got " + workerThreads);
+        }
+        this.transport = requested.resolve();
+        this.socketOptions = socketOptions;
+        if (requested != NettyTransport.AUTO && transport != requested) {
+            log.warn("Transport {} is not available ({}), falling back to {}", requested,
+                    requested.unavailabilityCause(), transport);
+        }
+        String prefix = "gateway-" + transport.name().toLowerCase(Locale.ROOT).replace('_', '-');
+        this.eventLoopGroup = transport.newEventLoopGroup(workerThreads, new DefaultThreadFactory(prefix, true));
+        this.loopResources = new TransportLoopResources();
+        log.info("Gateway server and upstream clients run on {} with {} event loop threads", transport, workerThreads);
+    }
+
+    public NettyTransport getTransport() {
+        return transport;
+    }
+
+    @Override
+    public HttpServer apply(HttpServer server) {
+        HttpServer customized = server.runOn(loopResources)
+                .option(ChannelOption.SO_BACKLOG, socketOptions.backlog())
+                .childOption(ChannelOption.TCP_NODELAY, socketOptions.tcpNoDelay())
+                .childOption(ChannelOption.SO_KEEPALIVE, socketOptions.keepAlive());
+        if (socketOptions.receiveBuffer() != null) {
+            customized = customized.childOption(ChannelOption.SO_RCVBUF, socketOptions.receiveBuffer());
+        }
+        if (socketOptions.sendBuffer() != null) {
+            customized = customized.childOption(ChannelOption.SO_SNDBUF, socketOptions.sendBuffer());
+        }
+        return customized;
+    }
+
+    @Override
+    public HttpClient customize(HttpClient client) {
+        HttpClient customized = client.runOn(loopResources)
+                .option(ChannelOption.TCP_NODELAY, socketOptions.tcpNoDelay())
+                .option(ChannelOption.SO_KEEPALIVE, socketOptions.keepAlive());
+        if (socketOptions.receiveBuffer() != null) {
+            customized = customized.option(ChannelOption.SO_RCVBUF, socketOptions.receiveBuffer());
+        }
+        if (socketOptions.sendBuffer() != null) {
+            customized = customized.option(ChannelOption.SO_SNDBUF, socketOptions.sendBuffer());
+        }
+        return customized;
+    }
+
+    @Override
+    public void close() {
+        eventLoopGroup.shutdownGracefully(SHUTDOWN_QUIET_PERIOD.toMillis(), SHUTDOWN_TIMEOUT.toMillis(),
+                TimeUnit.MILLISECONDS).awaitUninterruptibly(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Hands out the one event loop group with channels of its transport. Reactor Netty's own resources only know
+     * the native transport it detects first, so an epoll group would get NIO channels while io_uring is available.
+     * The group is shut down by {@link #close()}, not by Reactor Netty.
+     */
+    private final class TransportLoopResources implements LoopResources {
+
+        @Override
+        public EventLoopGroup onServer(boolean useNative) {
+            return eventLoopGroup;
+        }
+
+        @Override
+        public EventLoopGroup onClient(boolean useNative) {
+            return eventLoopGroup;
+        }
+
+        @Override
+        public <C extends Channel> C onChannel(Class<C> channelType, EventLoopGroup group) {
+            try {
+                return onChannelClass(channelType, group).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot create a " + transport + " " + channelType.getSimpleName(), e);
+            }
+        }
+
+        @Override
+        public <C extends Channel> Class<? extends C> onChannelClass(Class<C> channelType, EventLoopGroup group) {
+            return transport.channelClass(channelType);
+        }
+
+        @Override
+        public Mono<Void> disposeLater(Duration quietPeriod, Duration timeout) {
+            return Mono.empty();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package binhnvh.apigateway.transport;
+
+/**
+ * Socket options of the gateway's connections. Buffer sizes left null keep the operating system's defaults and
+ * auto-tuning.
+ *
+ * @param backlog        pending connections the listening socket queues before refusing more
+ * @param tcpNoDelay     send small writes right away rather than coalescing them (Nagle off)
+ * @param keepAlive      TCP keep-alive probes on idle connections
+ * @param receiveBuffer  SO_RCVBUF in bytes, or null
+ * @param sendBuffer     SO_SNDBUF in bytes, or null
+ */
+public record SocketOptions(int backlog, boolean tcpNoDelay, boolean keepAlive, Integer receiveBuffer,
+                            Integer sendBuffer) {
+
+    public SocketOptions {
+        if (backlog < 1 || (receiveBuffer != null && receiveBuffer < 1) || (sendBuffer != null && sendBuffer < 1)) {
+            throw new IllegalArgumentException("Socket backlog and buffer sizes must be positive, got " + backlog
+                    + ", " + receiveBuffer + " and " + sendBuffer);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package binhnvh.apigateway.upstream;
+
+import org.springframework.cloud.gateway.route.Route;
+
+import java.time.Duration;
+
+/**
+ * Sizing of the connection pool of an HTTP/2 route, per backend instance. Requests are multiplexed over up to
+ * {@code maxConnections} connections with at most {@code maxStreams} each, fewer if the backend says so; the
+ * rest wait for a stream, up to {@code maxPendingAcquires} of them for at most {@code pendingAcquireTimeout}.
+ *
+ * Routes override the connection and stream limits with {@code upstream-max-connections} and
+ * {@code upstream-max-streams} metadata.
+ */
+public record Http2PoolSettings(int maxConnections, int minConnections, int maxStreams,
+                                Duration pendingAcquireTimeout, int maxPendingAcquires, Duration maxIdleTime) {
+
+    public static final String MAX_CONNECTIONS_KEY = "upstream-max-connections";
+    public static final String MAX_STREAMS_KEY = "upstream-max-streams";
+
+    public Http2PoolSettings {
+        if (maxConnections < 1 || minConnections < 0 || minConnections > maxConnections || maxStreams < 1) {
+            throw new IllegalArgumentException("HTTP/2 pools need 0 <= min-connections <= max-connections, at least"
+                    + " one connection and one stream, got " + minConnections + ", " + maxConnections + " and "
+                    + maxStreams);
+        }
+        if (pendingAcquireTimeout == null || pendingAcquireTimeout.isNegative() || maxPendingAcquires < 1
+                || maxIdleTime == null || maxIdleTime.isNegative() || maxIdleTime.isZero()) {
+            throw new IllegalArgumentException("HTTP/2 pools need a pending acquire timeout, a positive max pending"
+                    + " acquires and max idle time, got " + pendingAcquireTimeout + ", " + maxPendingAcquires
+                    + " and " + maxIdleTime);
+        }
+    }
+
+    /**
+     * These settings with the route's own limits applied.
+     */
+    public Http2PoolSettings forRoute(Route route) {
+        int connections = intMetadata(route, MAX_CONNECTIONS_KEY, maxConnections);
+        return new Http2PoolSettings(connections, Math.min(minConnections, connections),
+                intMetadata(route, MAX_STREAMS_KEY, maxStreams), pendingAcquireTimeout, maxPendingAcquires,
+                maxIdleTime);
+    }
+
+    private static int intMetadata(Route route, String key, int defaultValue) {
+        Object value = route.getMetadata().get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return value instanceof Number number ? number.intValue() : Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Route " + route.getId() + " has a non-numeric " + key + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package binhnvh.apigateway.upstream;
+
+import io.netty.channel.ChannelOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.tcp.SslProvider;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.CONNECT_TIMEOUT_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Proxies the requests of routes with {@code upstream-protocol: h2c} or {@code h2} metadata over HTTP/2,
+ * multiplexing them over a few long-lived connections per backend instance instead of opening one connection per
+ * concurrent request. Runs just before Spring Cloud Gateway's own routing filter, which then skips these requests
+ * as already routed and keeps serving every other route over HTTP/1.1.
+ *
+ * Each HTTP/2 route has a pool of its own, named {@code upstream-<route id>} and sized by {@link Http2PoolSettings}.
+ * Pool metrics are published under {@code reactor.netty.connection.provider}, tagged with the pool name and the
+ * instance address, including the active and pending streams.
+ *
+ * Connect and response timeouts, compression, wiretap and {@link HttpClientCustomizer}s are applied as for the
+ * gateway's shared client; its proxy and TLS trust settings are not, so {@code h2} backends need certificates
+ * the JVM trusts.
+ */
+public class Http2RoutingFilter extends NettyRoutingFilter implements AutoCloseable {
+
+    public static final int ORDER = NettyRoutingFilter.ORDER - 1;
+
+    private static final Logger log = LoggerFactory.getLogger(Http2RoutingFilter.class);
+
+    private final HttpClientProperties properties;
+    private final List<HttpClientCustomizer> customizers;
+    private final Http2PoolSettings defaults;
+    private final ConcurrentHashMap<String, RouteClient> clients = new ConcurrentHashMap<>();
+
+    public Http2RoutingFilter(HttpClient httpClient, ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                              HttpClientProperties properties, List<HttpClientCustomizer> customizers,
+                              Http2PoolSettings defaults) {
+        super(httpClient, headersFilters, properties);
+        this.properties = properties;
+        this.customizers = customizers;
+        this.defaults = defaults;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (route == null || UpstreamProtocol.of(route) == UpstreamProtocol.HTTP11) {
+            return chain.filter(exchange);
+        }
+        return super.filter(exchange, chain);
+    }
+
+    @Override
+    protected HttpClient getHttpClient(Route route, ServerWebExchange exchange) {
+        HttpClient client = client(route);
+        Object connectTimeout = route.getMetadata().get(CONNECT_TIMEOUT_ATTR);
+        if (connectTimeout != null) {
+            return client.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Integer.parseInt(connectTimeout.toString()));
+        }
+        return client;
+    }
+
+    @Override
+    public void close() {
+        clients.values().forEach(client -> client.provider().dispose());
+        clients.clear();
+    }
+
+    private HttpClient client(Route route) {
+        UpstreamProtocol protocol = UpstreamProtocol.of(route);
+        Http2PoolSettings settings = defaults.forRoute(route);
+        RouteClient current = clients.get(route.getId());
+        if (current != null && current.protocol() == protocol && current.settings().equals(settings)) {
+            return current.client();
+        }
+        RouteClient updated = clients.compute(route.getId(), (id, existing) -> {
+            if (existing != null && existing.protocol() == protocol && existing.settings().equals(settings)) {
+                return existing;
+            }
+            if (existing != null) {
+                // The route was redefined; requests still on the old pool finish before it closes
+                existing.provider().disposeLater().subscribe();
+            }
+            return create(id, protocol, settings);
+        });
+        return updated.client();
+    }
+
+    private RouteClient create(String routeId, UpstreamProtocol protocol, Http2PoolSettings settings) {
+        ConnectionProvider provider = ConnectionProvider.builder("upstream-" + routeId)
+                .allocationStrategy(Http2AllocationStrategy.builder()
+                        .maxConnections(settings.maxConnections())
+                        .minConnections(settings.minConnections())
+                        .maxConcurrentStreams(settings.maxStreams())
+                        .build())
+                .pendingAcquireTimeout(settings.pendingAcquireTimeout())
+                .pendingAcquireMaxCount(settings.maxPendingAcquires())
+                .maxIdleTime(settings.maxIdleTime())
+                .metrics(true)
+                .build();
+        HttpClient client = HttpClient.create(provider);
+        if (protocol == UpstreamProtocol.H2) {
+            // Typed as the generic spec; the ProtocolSslContextSpec overload of sslContext is deprecated
+            SslProvider.GenericSslContextSpec<?> tls = Http2SslContextSpec.forClient();
+            client = client.protocol(HttpProtocol.H2).secure(spec -> spec.sslContext(tls));
+        } else {
+            client = client.protocol(HttpProtocol.H2C);
+        }
+        if (properties.getConnectTimeout() != null) {
+            client = client.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, properties.getConnectTimeout());
+        }
+        if (properties.isWiretap()) {
+            client = client.wiretap(true);
+        }
+        if (properties.isCompression()) {
+            client = client.compress(true);
+        }
+        for (HttpClientCustomizer customizer : customizers) {
+            client = customizer.customize(client);
+        }
+        log.info("Route {} proxied over {} with up to {} connections of {} streams per instance", routeId,
+                protocol.getValue(), settings.maxConnections(), settings.maxStreams());
+        return new RouteClient(protocol, settings, provider, client);
+    }
+
+    private record RouteClient(UpstreamProtocol protocol, Http2PoolSettings settings, ConnectionProvider provider,
+                               HttpClient client) {
+    }
+}
@@ -0,0 +1,45 @@
+package binhnvh.apigateway.upstream;
+
+import org.springframework.cloud.gateway.route.Route;
+
+import java.util.Locale;
+
+/**
+ * HTTP version a route talks to its backend with, set by the route's {@code upstream-protocol} metadata.
+ */
+public enum UpstreamProtocol {
+
+    /** HTTP/1.1 through the gateway's shared connection pool, the default. */
+    HTTP11("http1.1"),
+    /** HTTP/2 over cleartext with prior knowledge, for backends accepting h2c. */
+    H2C("h2c"),
+    /** HTTP/2 over TLS, negotiated by ALPN. */
+    H2("h2");
+
+    public static final String METADATA_KEY = "upstream-protocol";
+
+    private final String value;
+
+    UpstreamProtocol(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public static UpstreamProtocol of(Route route) {
+        Object value = route.getMetadata().get(METADATA_KEY);
+        if (value == null) {
+            return HTTP11;
+        }
+        String name = value.toString().trim().toLowerCase(Locale.ROOT);
+        for (UpstreamProtocol protocol : values()) {
+            if (protocol.value.equals(name)) {
+                return protocol;
+            }
+        }
+        throw new IllegalArgumentException("Unknown " + METADATA_KEY + " '" + value + "' on route " + route.getId()
+                + ", expected http1.1, h2c or h2");
+    }
+}
@@ -0,0 +1,43 @@
+-- Token bucket shared by all gateway instances, handed out in leases instead of one token per request.
+-- Uses the same keys and units as the gateway's request_rate_limiter.lua, so both limiters can share a bucket.
+-- Returns the unused tokens of the caller's previous lease and grants up to a new lease in one call.
+redis.replicate_commands()
+
+local tokens_key = KEYS[1]
+local timestamp_key = KEYS[2]
+
+local rate = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+local lease = tonumber(ARGV[4])
+local returned = tonumber(ARGV[5])
+
+local fill_time = capacity / rate
+local ttl = math.max(1, math.ceil(fill_time * 2))
+
+local time = redis.call("time")
+local now = tonumber(time[1]) + tonumber(time[2]) / 1000000
+
+local last_tokens = tonumber(redis.call("get", tokens_key))
+if last_tokens == nil then
+  last_tokens = capacity
+end
+
+local last_refreshed = tonumber(redis.call("get", timestamp_key))
+if last_refreshed == nil then
+  last_refreshed = 0
+end
+
+local delta = math.max(0, now - last_refreshed)
+local filled_tokens = math.min(capacity, last_tokens + (delta * rate) + returned)
+
+local granted = math.min(lease, math.floor(filled_tokens))
+if granted < requested then
+  granted = 0
+end
+local new_tokens = filled_tokens - granted
+
+redis.call("setex", tokens_key, ttl, new_tokens)
+redis.call("setex", timestamp_key, ttl, now)
+
+return { granted, math.floor(new_tokens) }
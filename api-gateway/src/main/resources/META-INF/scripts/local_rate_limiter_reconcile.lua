@@ -0,0 +1,11 @@
+-- Adds the tokens one gateway instance spent on a key to the cluster-wide counter and returns the new total.
+-- The counter lives as long as some instance keeps reporting on the key.
+local spent_key = KEYS[1]
+
+local spent = tonumber(ARGV[1])
+local ttl_millis = tonumber(ARGV[2])
+
+local total = redis.call("incrby", spent_key, spent)
+redis.call("pexpire", spent_key, ttl_millis)
+
+return total
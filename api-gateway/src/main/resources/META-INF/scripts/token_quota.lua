@@ -0,0 +1,51 @@
+-- Token quota shared by all gateway instances: a bucket counted in LLM tokens plus a total for the day.
+-- A reservation takes the tokens only if both hold them. An adjustment (force) always applies, so a request
+-- that cost more than reserved can leave the bucket in debt, and a negative amount gives tokens back.
+redis.replicate_commands()
+
+local tokens_key = KEYS[1]
+local timestamp_key = KEYS[2]
+local daily_key = KEYS[3]
+
+local rate = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+local daily_limit = tonumber(ARGV[4])
+local daily_ttl = tonumber(ARGV[5])
+local force = ARGV[6] == "1"
+
+local time = redis.call("time")
+local now = tonumber(time[1]) + tonumber(time[2]) / 1000000
+
+local last_tokens = tonumber(redis.call("get", tokens_key))
+if last_tokens == nil then
+  last_tokens = capacity
+end
+
+local last_refreshed = tonumber(redis.call("get", timestamp_key))
+if last_refreshed == nil then
+  last_refreshed = now
+end
+
+local tokens = math.min(capacity, last_tokens + math.max(0, now - last_refreshed) * rate)
+local used = tonumber(redis.call("get", daily_key)) or 0
+
+local allowed = force or (tokens >= requested and (daily_limit <= 0 or used + requested <= daily_limit))
+if allowed then
+  tokens = math.min(capacity, tokens - requested)
+  if daily_limit > 0 then
+    used = math.max(0, used + requested)
+    redis.call("set", daily_key, used, "EX", daily_ttl)
+  end
+  -- Kept until the bucket would be full again, debt included
+  local ttl = math.max(1, math.ceil((capacity - tokens) / rate * 2))
+  redis.call("setex", tokens_key, ttl, tokens)
+  redis.call("setex", timestamp_key, ttl, now)
+end
+
+local daily_remaining = -1
+if daily_limit > 0 then
+  daily_remaining = math.max(0, daily_limit - used)
+end
+
+return { allowed and 1 or 0, math.floor(tokens), daily_remaining }
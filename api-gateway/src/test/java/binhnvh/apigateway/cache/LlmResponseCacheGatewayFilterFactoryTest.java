@@ -0,0 +1,185 @@
+package binhnvh.apigateway.cache;
+
+import binhnvh.apigateway.cache.LlmResponseCacheGatewayFilterFactory.Config;
+import binhnvh.apigateway.cache.LlmResponseCacheGatewayFilterFactory.Mode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static binhnvh.apigateway.cache.LlmResponseCacheGatewayFilterFactory.LLM_CACHE_HEADER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class LlmResponseCacheGatewayFilterFactoryTest {
+
+    private static final String ROUTE = "llm-processing-service";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Upstream upstream = new Upstream();
+    private LlmResponseCacheGatewayFilterFactory factory;
+
+    @BeforeEach
+    void setUp() {
+        LlmResponseCache cache = new LlmResponseCache(DataSize.ofMegabytes(1), DataSize.ofKilobytes(64), null,
+                DataSize.ofKilobytes(16), DataSize.ofMegabytes(1), meterRegistry);
+        factory = new LlmResponseCacheGatewayFilterFactory(cache);
+    }
+
+    @Test
+    @DisplayName("Should answer a repeat of a request from the cache, whatever the order of its JSON fields")
+    void filter_shouldServeHit_forNormalizedRepeat() {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config());
+        ServerWebExchange first = exchange("{\"prompt\": \"classify: refund\", \"temperature\": 0}", LlmResponseCacheGatewayFilterFactory.USE);
+        ServerWebExchange repeat = exchange("{\"temperature\":0,\"prompt\":\"classify: refund\"}", LlmResponseCacheGatewayFilterFactory.USE);
+
+        // Act
+        filter.filter(first, upstream).block(Duration.ofSeconds(5));
+        filter.filter(repeat, upstream).block(Duration.ofSeconds(5));
+
+        // Assert
+        assertThat(upstream.bodies).containsExactly("{\"prompt\": \"classify: refund\", \"temperature\": 0}");
+        assertThat(first.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_HEADER)).isEqualTo("MISS");
+        assertThat(repeat.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_HEADER)).isEqualTo("HIT");
+        assertThat(body(repeat)).isEqualTo("answer-1");
+        assertThat(meterRegistry.get("gateway.llm.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should forward requests that do not opt in when the route caches on request only")
+    void filter_shouldForward_whenNotOptedIn() {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config().setMode(Mode.HEADER));
+
+        // Act
+        filter.filter(exchange("{\"prompt\":\"hi\"}", null), upstream).block(Duration.ofSeconds(5));
+        ServerWebExchange repeat = exchange("{\"prompt\":\"hi\"}", null);
+        filter.filter(repeat, upstream).block(Duration.ofSeconds(5));
+
+        // Assert
+        assertThat(upstream.bodies).hasSize(2);
+        assertThat(repeat.getResponse().getHeaders().containsKey(ResponseCacheGatewayFilterFactory.CACHE_HEADER)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should forward a request sending the bypass header even when its response is cached")
+    void filter_shouldForward_whenBypassed() {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config().setMode(Mode.ROUTE));
+        filter.filter(exchange("{\"prompt\":\"hi\"}", null), upstream).block(Duration.ofSeconds(5));
+
+        // Act
+        ServerWebExchange bypassed = exchange("{\"prompt\":\"hi\"}", LlmResponseCacheGatewayFilterFactory.BYPASS);
+        filter.filter(bypassed, upstream).block(Duration.ofSeconds(5));
+
+        // Assert
+        assertThat(upstream.bodies).hasSize(2);
+        assertThat(body(bypassed)).isEqualTo("answer-2");
+    }
+
+    @Test
+    @DisplayName("Should not store a response the backend did not mark cacheable")
+    void filter_shouldNotStore_withoutMaxAge() {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config().setMode(Mode.ROUTE));
+        upstream.cacheControl = null;
+
+        // Act
+        filter.filter(exchange("{\"prompt\":\"hi\"}", null), upstream).block(Duration.ofSeconds(5));
+        filter.filter(exchange("{\"prompt\":\"hi\"}", null), upstream).block(Duration.ofSeconds(5));
+
+        // Assert
+        assertThat(upstream.bodies).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Should keep requests with different bodies or credentials apart")
+    void filter_shouldMiss_whenBodyOrAuthorizationDiffers() {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config().setMode(Mode.ROUTE));
+        filter.filter(exchange("{\"prompt\":\"hi\"}", null), upstream).block(Duration.ofSeconds(5));
+
+        // Act
+        filter.filter(exchange("{\"prompt\":\"hello\"}", null), upstream).block(Duration.ofSeconds(5));
+        ServerWebExchange otherUser = MockServerWebExchange.from(MockServerHttpRequest.post("/api/llm/completions")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer b")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body("{\"prompt\":\"hi\"}"));
+        otherUser.getAttributes().put(GATEWAY_ROUTE_ATTR, route());
+        filter.filter(otherUser, upstream).block(Duration.ofSeconds(5));
+
+        // Assert
+        assertThat(upstream.bodies).hasSize(3);
+    }
+
+    private static ServerWebExchange exchange(String body, String cacheHeader) {
+        MockServerHttpRequest.BodyBuilder request = MockServerHttpRequest.post("/api/llm/completions")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer a")
+                .contentType(MediaType.APPLICATION_JSON);
+        if (cacheHeader != null) {
+            request.header(LLM_CACHE_HEADER, cacheHeader);
+        }
+        ServerWebExchange exchange = MockServerWebExchange.from(request.body(body));
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route());
+        return exchange;
+    }
+
+    private static Route route() {
+        return Route.async().id(ROUTE).uri("http://localhost").predicate(e -> true).build();
+    }
+
+    private static String body(ServerWebExchange exchange) {
+        return ((MockServerHttpResponse) exchange.getResponse()).getBodyAsString().defaultIfEmpty("").block();
+    }
+
+    /**
+     * Reads the forwarded body, as the routing filter would, and answers with a response naming the call.
+     */
+    private static final class Upstream implements GatewayFilterChain {
+
+        private final List<String> bodies = new ArrayList<>();
+        private String cacheControl = "max-age=600";
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            return DataBufferUtils.join(exchange.getRequest().getBody())
+                    .map(buffer -> {
+                        String body = buffer.toString(StandardCharsets.UTF_8);
+                        DataBufferUtils.release(buffer);
+                        return body;
+                    })
+                    .flatMap(body -> {
+                        bodies.add(body);
+                        ServerHttpResponse response = exchange.getResponse();
+                        response.setStatusCode(HttpStatus.OK);
+                        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                        if (cacheControl != null) {
+                            response.getHeaders().setCacheControl(cacheControl);
+                        }
+                        byte[] bytes = ("answer-" + bodies.size()).getBytes(StandardCharsets.UTF_8);
+                        response.getHeaders().setContentLength(bytes.length);
+                        return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+                    });
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package binhnvh.apigateway.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class LlmResponseCacheTest {
+
+    private static final long MINUTE = Duration.ofMinutes(1).toNanos();
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    @TempDir
+    Path spillRoot;
+
+    @Test
+    @DisplayName("Should write large bodies to disk, read them back, and delete them once expired")
+    void put_shouldSpillLargeEntries_toDisk() throws Exception {
+        // Arrange
+        LlmResponseCache cache = new LlmResponseCache(DataSize.ofKilobytes(64), DataSize.ofKilobytes(32), spillRoot,
+                DataSize.ofKilobytes(1), DataSize.ofMegabytes(1), new SimpleMeterRegistry(), clock::get);
+        CacheKey small = new CacheKey("llm-processing-service", "/api/llm/completions#a", "-");
+        CacheKey large = new CacheKey("llm-processing-service", "/api/llm/completions#b", "-");
+
+        // Act
+        cache.put(small, entry(100));
+        cache.put(large, entry(20_000));
+
+        // Assert
+        await().atMost(Duration.ofSeconds(5)).until(() -> cache.get(large).block() != null);
+        assertThat(cache.get(large).block().getBody()).hasSize(20_000);
+        assertThat(cache.get(small).block().getBody()).hasSize(100);
+        assertThat(spilledFiles()).isEqualTo(1);
+
+        clock.addAndGet(2 * MINUTE);
+        assertThat(cache.get(large).block()).isNull();
+        cache.cleanUp();
+        await().atMost(Duration.ofSeconds(5)).until(() -> spilledFiles() == 0);
+        cache.close();
+        try (Stream<Path> left = Files.list(spillRoot)) {
+            assertThat(left).isEmpty();
+        }
+    }
+
+    private long spilledFiles() throws Exception {
+        try (Stream<Path> directories = Files.list(spillRoot)) {
+            Path directory = directories.findFirst().orElseThrow();
+            try (Stream<Path> files = Files.list(directory)) {
+                return files.count();
+            }
+        }
+    }
+
+    private CachedResponse entry(int size) {
+        long now = clock.get();
+        return new CachedResponse(HttpStatus.OK, new HttpHeaders(), new byte[size], Map.of(), now, now + MINUTE, now + MINUTE);
+    }
+}
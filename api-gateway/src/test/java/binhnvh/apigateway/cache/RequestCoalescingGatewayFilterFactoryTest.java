@@ -0,0 +1,224 @@
+package binhnvh.apigateway.cache;
+
+import binhnvh.apigateway.cache.RequestCoalescingGatewayFilterFactory.Config;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class RequestCoalescingGatewayFilterFactoryTest {
+
+    private static final String ROUTE = "flow-registry-service";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Upstream upstream = new Upstream();
+    private RequestCoalescingGatewayFilterFactory factory;
+
+    @BeforeEach
+    void setUp() {
+        factory = new RequestCoalescingGatewayFilterFactory(meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should send concurrent identical GETs upstream once and give every caller the response")
+    void filter_shouldShareLeaderResponse_withConcurrentFollowers() throws Exception {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config());
+        ServerWebExchange leader = exchange("Bearer a", null);
+        ServerWebExchange follower = exchange("Bearer a", null);
+        follower.getResponse().getHeaders().set("X-RateLimit-Remaining", "7");
+        ServerWebExchange otherFollower = exchange("Bearer a", null);
+
+        // Act
+        CompletableFuture<Void> all = CompletableFuture.allOf(
+                filter.filter(leader, upstream).toFuture(),
+                filter.filter(follower, upstream).toFuture(),
+                filter.filter(otherFollower, upstream).toFuture());
+        upstream.release();
+        all.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(upstream.calls).hasValue(1);
+        assertThat(body(leader)).isEqualTo("response-1");
+        assertThat(body(follower)).isEqualTo("response-1");
+        assertThat(body(otherFollower)).isEqualTo("response-1");
+        assertThat(follower.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(follower.getResponse().getHeaders().getFirst("X-Upstream")).isEqualTo("flow-registry");
+        assertThat(follower.getResponse().getHeaders().getFirst("X-RateLimit-Remaining")).isEqualTo("7");
+        assertThat(meterRegistry.get("gateway.coalescing.requests").tag("result", "follower").counter().count()).isEqualTo(2);
+        assertThat(factory.inFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should not coalesce requests made with different credentials")
+    void filter_shouldForwardEach_whenAuthorizationDiffers() throws Exception {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config());
+        ServerWebExchange alice = exchange("Bearer a", null);
+        ServerWebExchange bob = exchange("Bearer b", null);
+
+        // Act
+        CompletableFuture<Void> first = filter.filter(alice, upstream).toFuture();
+        filter.filter(bob, upstream).block(Duration.ofSeconds(5));
+        upstream.release();
+        first.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(upstream.calls).hasValue(2);
+        assertThat(body(bob)).isEqualTo("response-2");
+    }
+
+    @Test
+    @DisplayName("Should forward waiting requests on their own when the response is larger than may be shared")
+    void filter_shouldFallBack_whenResponseTooLarge() throws Exception {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config().setMaxResponseSize(DataSize.ofBytes(5)));
+        ServerWebExchange leader = exchange("Bearer a", null);
+        ServerWebExchange follower = exchange("Bearer a", null);
+
+        // Act
+        CompletableFuture<Void> all = CompletableFuture.allOf(
+                filter.filter(leader, upstream).toFuture(),
+                filter.filter(follower, upstream).toFuture());
+        upstream.release();
+        all.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(upstream.calls).hasValue(2);
+        assertThat(body(follower)).isEqualTo("response-2");
+        assertThat(meterRegistry.get("gateway.coalescing.requests").tag("result", "fallback").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should forward waiting requests on their own when the leader gets an error response")
+    void filter_shouldFallBack_whenLeaderResponseIsError() throws Exception {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config());
+        upstream.firstStatus = HttpStatus.SERVICE_UNAVAILABLE;
+        ServerWebExchange leader = exchange("Bearer a", null);
+        ServerWebExchange follower = exchange("Bearer a", null);
+
+        // Act
+        CompletableFuture<Void> all = CompletableFuture.allOf(
+                filter.filter(leader, upstream).toFuture(),
+                filter.filter(follower, upstream).toFuture());
+        upstream.release();
+        all.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(upstream.calls).hasValue(2);
+        assertThat(leader.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(follower.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(body(follower)).isEqualTo("response-2");
+        assertThat(meterRegistry.get("gateway.coalescing.requests").tag("result", "fallback").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should stop waiting after the max wait and forward the request itself")
+    void filter_shouldFallBack_whenMaxWaitElapses() throws Exception {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config().setMaxWait(Duration.ofMillis(50)));
+        ServerWebExchange leader = exchange("Bearer a", null);
+        ServerWebExchange follower = exchange("Bearer a", null);
+
+        // Act
+        CompletableFuture<Void> first = filter.filter(leader, upstream).toFuture();
+        filter.filter(follower, upstream).block(Duration.ofSeconds(5));
+        upstream.release();
+        first.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(body(follower)).isEqualTo("response-2");
+        assertThat(body(leader)).isEqualTo("response-1");
+    }
+
+    @Test
+    @DisplayName("Should not hand a response to a request differing in a header the response varies on")
+    void filter_shouldFallBack_whenVaryDiffers() throws Exception {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config());
+        upstream.headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_LANGUAGE);
+        ServerWebExchange english = exchange("Bearer a", "en");
+        ServerWebExchange french = exchange("Bearer a", "fr");
+
+        // Act
+        CompletableFuture<Void> all = CompletableFuture.allOf(
+                filter.filter(english, upstream).toFuture(),
+                filter.filter(french, upstream).toFuture());
+        upstream.release();
+        all.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(upstream.calls).hasValue(2);
+        assertThat(body(french)).isEqualTo("response-2");
+    }
+
+    private static ServerWebExchange exchange(String authorization, String language) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/flows/onboarding")
+                .header(HttpHeaders.AUTHORIZATION, authorization);
+        if (language != null) {
+            request.header(HttpHeaders.ACCEPT_LANGUAGE, language);
+        }
+        ServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR,
+                Route.async().id(ROUTE).uri("http://localhost").predicate(e -> true).build());
+        return exchange;
+    }
+
+    private static String body(ServerWebExchange exchange) {
+        return ((MockServerHttpResponse) exchange.getResponse()).getBodyAsString().defaultIfEmpty("").block();
+    }
+
+    /**
+     * Holds the first call until released, answering it with {@code firstStatus}; later calls answer 200 at once.
+     * Each response names the call it answers.
+     */
+    private static final class Upstream implements GatewayFilterChain {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Sinks.Empty<Void> released = Sinks.empty();
+        private final HttpHeaders headers = new HttpHeaders();
+        private HttpStatus firstStatus = HttpStatus.OK;
+
+        void release() {
+            released.tryEmitEmpty();
+        }
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            int call = calls.incrementAndGet();
+            Mono<Void> gate = call == 1 ? released.asMono() : Mono.empty();
+            return gate.then(Mono.defer(() -> {
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(call == 1 ? firstStatus : HttpStatus.OK);
+                response.getHeaders().addAll(headers);
+                response.getHeaders().set("X-Upstream", "flow-registry");
+                byte[] bytes = ("response-" + call).getBytes(StandardCharsets.UTF_8);
+                response.getHeaders().setContentLength(bytes.length);
+                return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+            }));
+        }
+    }
+}
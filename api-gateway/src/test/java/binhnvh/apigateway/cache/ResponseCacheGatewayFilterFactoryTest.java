@@ -0,0 +1,273 @@
+package binhnvh.apigateway.cache;
+
+import binhnvh.apigateway.cache.ResponseCacheGatewayFilterFactory.Config;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class ResponseCacheGatewayFilterFactoryTest {
+
+    private static final String ROUTE = "tool-registry-service";
+    private static final String BODY = "[{\"id\":\"search\"}]";
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Upstream upstream = new Upstream();
+    private ResponseCacheGatewayFilterFactory factory;
+
+    @BeforeEach
+    void setUp() {
+        ResponseCache cache = new ResponseCache(DataSize.ofKilobytes(64), DataSize.ofKilobytes(4), Duration.ofMinutes(10),
+                meterRegistry, clock::get);
+        factory = new ResponseCacheGatewayFilterFactory(cache);
+    }
+
+    @Test
+    @DisplayName("Should answer a repeated GET from the cache without the gateway's own headers from the first one")
+    void filter_shouldServeFromCache_whenFresh() {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config());
+        ServerWebExchange first = exchange(MockServerHttpRequest.get("/api/tools/").header(HttpHeaders.AUTHORIZATION, "Bearer a"));
+        first.getResponse().getHeaders().set("X-RateLimit-Remaining", "9");
+
+        // Act
+        filter.filter(first, upstream).block();
+        clock.addAndGet(Duration.ofSeconds(3).toNanos());
+        ServerWebExchange second = get(filter, MockServerHttpRequest.get("/api/tools/").header(HttpHeaders.AUTHORIZATION, "Bearer a"));
+
+        // Assert
+        assertThat(upstream.calls).isEqualTo(1);
+        assertThat(first.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_HEADER)).isEqualTo("MISS");
+        assertThat(second.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(body(second)).isEqualTo(BODY);
+        assertThat(second.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_HEADER)).isEqualTo("HIT");
+        assertThat(second.getResponse().getHeaders().getFirst(HttpHeaders.AGE)).isEqualTo("3");
+        assertThat(second.getResponse().getHeaders().containsKey("X-RateLimit-Remaining")).isFalse();
+        assertThat(meterRegistry.get("gateway.response.cache.bytes.saved").tag("route", ROUTE).counter().count())
+                .isEqualTo(BODY.length());
+        assertThat(meterRegistry.get("gateway.response.cache.hit.ratio").gauge().value()).isEqualTo(0.5);
+    }
+
+    @Test
+    @DisplayName("Should keep a copy per Authorization header and per value of the headers the response varies on")
+    void filter_shouldScopeEntries_byAuthorizationAndVary() {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config());
+        upstream.headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_LANGUAGE);
+
+        // Act
+        get(filter, MockServerHttpRequest.get("/api/tools/").header(HttpHeaders.AUTHORIZATION, "Bearer a")
+                .header(HttpHeaders.ACCEPT_LANGUAGE, "en"));
+        ServerWebExchange otherUser = get(filter, MockServerHttpRequest.get("/api/tools/")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer b").header(HttpHeaders.ACCEPT_LANGUAGE, "en"));
+        ServerWebExchange otherLanguage = get(filter, MockServerHttpRequest.get("/api/tools/")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer a").header(HttpHeaders.ACCEPT_LANGUAGE, "fr"));
+        ServerWebExchange sameAgain = get(filter, MockServerHttpRequest.get("/api/tools/")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer b").header(HttpHeaders.ACCEPT_LANGUAGE, "en"));
+
+        // Assert
+        assertThat(upstream.calls).isEqualTo(3);
+        assertThat(otherUser.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_HEADER)).isEqualTo("MISS");
+        assertThat(otherLanguage.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_HEADER)).isEqualTo("MISS");
+        assertThat(sameAgain.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_HEADER)).isEqualTo("HIT");
+    }
+
+    @Test
+    @DisplayName("Should answer 304 itself when the client already holds the cached version")
+    void filter_shouldReturnNotModified_whenClientETagMatches() {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config());
+        upstream.headers.setETag("\"v1\"");
+        get(filter, MockServerHttpRequest.get("/api/tools/"));
+
+        // Act
+        ServerWebExchange exchange = get(filter, MockServerHttpRequest.get("/api/tools/").ifNoneMatch("W/\"v1\""));
+
+        // Assert
+        assertThat(upstream.calls).isEqualTo(1);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(exchange.getResponse().getHeaders().getETag()).isEqualTo("\"v1\"");
+        assertThat(body(exchange)).isEmpty();
+        assertThat(meterRegistry.get("gateway.response.cache.requests").tag("result", "not_modified").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should revalidate a stale entry by its ETag and serve the stored body when the upstream answers 304")
+    void filter_shouldRevalidateWithETag_whenStale() {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config().setTtl(Duration.ofMinutes(5)));
+        upstream.headers.setETag("\"v1\"");
+        upstream.headers.setCacheControl("max-age=60");
+        get(filter, MockServerHttpRequest.get("/api/tools/"));
+        clock.addAndGet(Duration.ofSeconds(61).toNanos());
+        upstream.status = HttpStatus.NOT_MODIFIED;
+
+        // Act
+        ServerWebExchange revalidated = get(filter, MockServerHttpRequest.get("/api/tools/"));
+        ServerWebExchange hit = get(filter, MockServerHttpRequest.get("/api/tools/"));
+
+        // Assert
+        assertThat(upstream.calls).isEqualTo(2);
+        assertThat(upstream.lastIfNoneMatch).isEqualTo("\"v1\"");
+        assertThat(revalidated.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(body(revalidated)).isEqualTo(BODY);
+        assertThat(revalidated.getResponse().getHeaders().getContentLength()).isEqualTo(BODY.length());
+        assertThat(revalidated.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_HEADER))
+                .isEqualTo("REVALIDATED");
+        // The 304 restarted the freshness lifetime
+        assertThat(hit.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_HEADER)).isEqualTo("HIT");
+        assertThat(meterRegistry.get("gateway.response.cache.bytes.saved").tag("route", ROUTE).counter().count())
+                .isEqualTo(2 * BODY.length());
+    }
+
+    @Test
+    @DisplayName("Should not store responses marked no-store or private, or larger than an entry may be")
+    void filter_shouldNotStore_whenResponseForbidsItOrIsTooLarge() {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config());
+
+        // Act
+        upstream.headers.setCacheControl("no-store");
+        get(filter, MockServerHttpRequest.get("/api/tools/a"));
+        get(filter, MockServerHttpRequest.get("/api/tools/a"));
+        upstream.headers.setCacheControl("private, max-age=60");
+        get(filter, MockServerHttpRequest.get("/api/tools/b"));
+        get(filter, MockServerHttpRequest.get("/api/tools/b"));
+        upstream.headers.remove(HttpHeaders.CACHE_CONTROL);
+        upstream.body = "x".repeat(5000);
+        get(filter, MockServerHttpRequest.get("/api/tools/c"));
+        ServerWebExchange large = get(filter, MockServerHttpRequest.get("/api/tools/c"));
+
+        // Assert
+        assertThat(upstream.calls).isEqualTo(6);
+        assertThat(body(large)).hasSize(5000);
+    }
+
+    @Test
+    @DisplayName("Should share one copy between callers on a shared route only when the response is public")
+    void filter_shouldShareOnlyPublicResponses_whenRouteShared() {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config().setShared(true));
+
+        // Act
+        get(filter, MockServerHttpRequest.get("/api/tools/a").header(HttpHeaders.AUTHORIZATION, "Bearer a"));
+        get(filter, MockServerHttpRequest.get("/api/tools/a").header(HttpHeaders.AUTHORIZATION, "Bearer a"));
+        upstream.headers.setCacheControl("public, max-age=60");
+        get(filter, MockServerHttpRequest.get("/api/tools/b").header(HttpHeaders.AUTHORIZATION, "Bearer a"));
+        ServerWebExchange otherUser = get(filter, MockServerHttpRequest.get("/api/tools/b")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer b"));
+
+        // Assert
+        assertThat(upstream.calls).isEqualTo(3);
+        assertThat(otherUser.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_HEADER)).isEqualTo("HIT");
+    }
+
+    @Test
+    @DisplayName("Should drop the cached GET for every caller once a PUT to the same path succeeds")
+    void filter_shouldInvalidatePath_whenUnsafeRequestSucceeds() {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config());
+        get(filter, MockServerHttpRequest.get("/api/tools/a").header(HttpHeaders.AUTHORIZATION, "Bearer a"));
+        get(filter, MockServerHttpRequest.get("/api/tools/a").header(HttpHeaders.AUTHORIZATION, "Bearer b"));
+        get(filter, MockServerHttpRequest.get("/api/tools/b").header(HttpHeaders.AUTHORIZATION, "Bearer a"));
+
+        // Act
+        ServerWebExchange put = get(filter, MockServerHttpRequest.put("/api/tools/a").header(HttpHeaders.AUTHORIZATION, "Bearer a"));
+        ServerWebExchange afterPut = get(filter, MockServerHttpRequest.get("/api/tools/a")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer b"));
+        ServerWebExchange otherPath = get(filter, MockServerHttpRequest.get("/api/tools/b")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer a"));
+
+        // Assert
+        assertThat(put.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(afterPut.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_HEADER)).isEqualTo("MISS");
+        assertThat(otherPath.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_HEADER)).isEqualTo("HIT");
+    }
+
+    @Test
+    @DisplayName("Should drop the Location of a successful POST, but keep entries when an unsafe request fails")
+    void filter_shouldInvalidateLocation_andKeepEntriesOnFailure() {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config());
+        get(filter, MockServerHttpRequest.get("/api/tools/a"));
+        get(filter, MockServerHttpRequest.get("/api/tools/c"));
+
+        // Act
+        upstream.status = HttpStatus.INTERNAL_SERVER_ERROR;
+        get(filter, MockServerHttpRequest.delete("/api/tools/a"));
+        upstream.status = HttpStatus.CREATED;
+        upstream.headers.setLocation(URI.create("/api/tools/c"));
+        get(filter, MockServerHttpRequest.post("/api/tools/new"));
+        upstream.status = HttpStatus.OK;
+        upstream.headers.remove(HttpHeaders.LOCATION);
+        ServerWebExchange afterFailure = get(filter, MockServerHttpRequest.get("/api/tools/a"));
+        ServerWebExchange location = get(filter, MockServerHttpRequest.get("/api/tools/c"));
+
+        // Assert
+        assertThat(afterFailure.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_HEADER)).isEqualTo("HIT");
+        assertThat(location.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_HEADER)).isEqualTo("MISS");
+    }
+
+    private ServerWebExchange get(GatewayFilter filter, MockServerHttpRequest.BaseBuilder<?> request) {
+        ServerWebExchange exchange = exchange(request);
+        filter.filter(exchange, upstream).block();
+        return exchange;
+    }
+
+    private static ServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        ServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR,
+                Route.async().id(ROUTE).uri("http://localhost").predicate(e -> true).build());
+        return exchange;
+    }
+
+    private static String body(ServerWebExchange exchange) {
+        return ((MockServerHttpResponse) exchange.getResponse()).getBodyAsString().defaultIfEmpty("").block();
+    }
+
+    private static final class Upstream implements GatewayFilterChain {
+
+        private final HttpHeaders headers = new HttpHeaders();
+        private HttpStatus status = HttpStatus.OK;
+        private String body = BODY;
+        private int calls;
+        private String lastIfNoneMatch;
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            calls++;
+            lastIfNoneMatch = exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(status);
+            response.getHeaders().addAll(headers);
+            if (status == HttpStatus.NOT_MODIFIED) {
+                return response.setComplete();
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            response.getHeaders().setContentLength(bytes.length);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+        }
+    }
+}
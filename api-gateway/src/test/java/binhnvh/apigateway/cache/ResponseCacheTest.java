@@ -0,0 +1,99 @@
+package binhnvh.apigateway.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheTest {
+
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private ResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ResponseCache(DataSize.ofKilobytes(16), DataSize.ofKilobytes(4), Duration.ofMinutes(10),
+                new SimpleMeterRegistry(), clock::get);
+    }
+
+    @Test
+    @DisplayName("Should keep the total size within the bound by evicting entries")
+    void put_shouldEvict_whenOverMaxSize() {
+        // Act
+        for (int i = 0; i < 10; i++) {
+            cache.put(key("tool-registry-service", "/api/tools/" + i), entry(null, 4000, 60));
+        }
+        cache.cleanUp();
+
+        // Assert
+        assertThat(cache.weightedSize()).isLessThanOrEqualTo(DataSize.ofKilobytes(16).toBytes());
+        assertThat(cache.size()).isBetween(1L, 4L);
+    }
+
+    @Test
+    @DisplayName("Should drop an entry once stale unless it has an ETag, which keeps it for revalidation")
+    void get_shouldExpire_afterFreshness_unlessRevalidatable() {
+        // Arrange
+        CacheKey plain = key("tool-registry-service", "/api/tools/plain");
+        CacheKey tagged = key("tool-registry-service", "/api/tools/tagged");
+        cache.put(plain, entry(null, 10, 60));
+        cache.put(tagged, entry("\"v1\"", 10, 60));
+
+        // Act
+        clock.addAndGet(61 * SECOND);
+
+        // Assert
+        assertThat(cache.get(plain)).isNull();
+        assertThat(cache.get(tagged)).isNotNull();
+        assertThat(cache.get(tagged).isFresh(clock.get())).isFalse();
+        clock.addAndGet(Duration.ofMinutes(10).toNanos());
+        assertThat(cache.get(tagged)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should purge one route's entries under a path through the endpoint, leaving the rest")
+    void purgeRoute_shouldDropMatchingEntries_only() {
+        // Arrange
+        ResponseCacheEndpoint endpoint = new ResponseCacheEndpoint(cache);
+        cache.put(key("tool-registry-service", "/api/tools/search"), entry(null, 10, 60));
+        cache.put(key("tool-registry-service", "/api/tools/search?page=2"), entry(null, 10, 60));
+        cache.put(key("tool-registry-service", "/api/tools/weather"), entry(null, 10, 60));
+        cache.put(key("flow-registry-service", "/api/flows/search"), entry(null, 10, 60));
+
+        // Act
+        Map<String, Object> result = endpoint.purgeRoute("tool-registry-service", "/api/tools/search");
+
+        // Assert
+        assertThat(result).containsEntry("purged", 2L);
+        assertThat(cache.get(key("tool-registry-service", "/api/tools/weather"))).isNotNull();
+        assertThat(cache.get(key("flow-registry-service", "/api/flows/search"))).isNotNull();
+        assertThat(endpoint.purgeAll()).containsEntry("purged", 2L);
+        assertThat(cache.size()).isZero();
+    }
+
+    private static CacheKey key(String routeId, String uri) {
+        return new CacheKey(routeId, uri, "-");
+    }
+
+    private CachedResponse entry(String etag, int size, long freshSeconds) {
+        HttpHeaders headers = new HttpHeaders();
+        if (etag != null) {
+            headers.setETag(etag);
+        }
+        long now = clock.get();
+        long freshUntil = now + freshSeconds * SECOND;
+        long retainUntil = etag != null ? freshUntil + Duration.ofMinutes(10).toNanos() : freshUntil;
+        return new CachedResponse(HttpStatus.OK, headers, new byte[size], Map.of(), now, freshUntil, retainUntil);
+    }
+}
@@ -0,0 +1,109 @@
+package binhnvh.apigateway.concurrency;
+
+import binhnvh.apigateway.concurrency.AdaptiveConcurrencyGatewayFilterFactory.Config;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class AdaptiveConcurrencyGatewayFilterFactoryTest {
+
+    private static final String ROUTE = "execution-engine-service";
+    private static final String INSTANCE = "10.0.0.1:8080";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private AdaptiveConcurrencyGatewayFilterFactory factory;
+
+    @BeforeEach
+    void setUp() {
+        factory = new AdaptiveConcurrencyGatewayFilterFactory(meterRegistry, clock::get);
+    }
+
+    @Test
+    @DisplayName("Should run right after the load balancer has picked an instance")
+    void apply_shouldOrderAfterLoadBalancer() {
+        // Act
+        GatewayFilter filter = factory.apply(new Config());
+
+        // Assert
+        assertThat(((Ordered) filter).getOrder()).isEqualTo(AdaptiveConcurrencyGatewayFilterFactory.ORDER);
+    }
+
+    @Test
+    @DisplayName("Should shed requests over the limit with 503 and Retry-After, without reaching the backend")
+    void filter_shouldShed_whenLimitInFlight() throws Exception {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config().setInitialLimit(2).setMinLimit(1).setRetryAfter(Duration.ofSeconds(2)));
+        Sinks.Empty<Void> release = Sinks.empty();
+        GatewayFilterChain held = exchange -> release.asMono();
+
+        // Act
+        CompletableFuture<Void> first = filter.filter(exchange("10.0.0.1", 8080), held).toFuture();
+        CompletableFuture<Void> second = filter.filter(exchange("10.0.0.2", 8080), held).toFuture();
+        ServerWebExchange shed = exchange("10.0.0.1", 8080);
+        filter.filter(shed, held).block(Duration.ofSeconds(5));
+        release.tryEmitEmpty();
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(shed.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(shed.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        assertThat(meterRegistry.get("gateway.concurrency.shed").tag("instance", "all").counter().count()).isEqualTo(1);
+        assertThat(factory.limit(ROUTE, "all").getInFlight()).isZero();
+        assertThat(meterRegistry.get("gateway.concurrency.in.flight").tag("instance", INSTANCE).gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should lower the limit of an instance whose calls fail")
+    void filter_shouldBackOff_whenCallsFail() {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config().setInitialLimit(20));
+        GatewayFilterChain failing = exchange -> {
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(30));
+            return Mono.error(new IOException("Connection reset"));
+        };
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            filter.filter(exchange("10.0.0.1", 8080), failing).onErrorResume(IOException.class, ex -> Mono.empty())
+                    .block(Duration.ofSeconds(5));
+        }
+
+        // Assert
+        assertThat(factory.limit(ROUTE, INSTANCE).getLimit()).isLessThan(20);
+        assertThat(meterRegistry.get("gateway.concurrency.limit").tag("instance", INSTANCE).gauge().value())
+                .isLessThan(20);
+    }
+
+    private static ServerWebExchange exchange(String host, int port) {
+        ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/executions/run"));
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR,
+                Route.async().id(ROUTE).uri("lb://execution-engine-service").predicate(e -> true).build());
+        exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR,
+                URI.create("http://" + host + ":" + port + "/execution-engine/run"));
+        return exchange;
+    }
+}
@@ -0,0 +1,100 @@
+package binhnvh.apigateway.concurrency;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GradientLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(80);
+
+    @Test
+    @DisplayName("Should raise the limit while a saturated backend keeps its latency")
+    void release_shouldGrowLimit_whenLatencySteady() {
+        // Arrange
+        GradientLimit limit = new GradientLimit(20, 4, 200, 0.2, 2.0, 600);
+
+        // Act
+        sample(limit, 50, FAST, false);
+
+        // Assert
+        assertThat(limit.getLimit()).isGreaterThan(40);
+    }
+
+    @Test
+    @DisplayName("Should lower the limit once latency rises well above its long-term average")
+    void release_shouldShrinkLimit_whenLatencyRises() {
+        // Arrange
+        GradientLimit limit = new GradientLimit(50, 4, 200, 0.2, 2.0, 600);
+        sample(limit, 20, FAST, false);
+        int before = limit.getLimit();
+
+        // Act
+        sample(limit, 10, SLOW, false);
+
+        // Assert
+        assertThat(limit.getLimit()).isLessThan(before / 2);
+    }
+
+    @Test
+    @DisplayName("Should not raise the limit while less than half of it is in use")
+    void release_shouldHoldLimit_whenAppLimited() {
+        // Arrange
+        GradientLimit limit = new GradientLimit(20, 4, 200, 0.2, 2.0, 600);
+
+        // Act
+        for (int i = 0; i < 50; i++) {
+            limit.tryAcquire();
+            limit.release(FAST, 1, false);
+        }
+
+        // Assert
+        assertThat(limit.getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    @DisplayName("Should halve the limit step by step on failed calls, never below the minimum")
+    void release_shouldBackOff_whenDropped() {
+        // Arrange
+        GradientLimit limit = new GradientLimit(100, 4, 200, 1.0, 2.0, 600);
+
+        // Act
+        limit.tryAcquire();
+        limit.release(FAST, 1, true);
+        int afterOne = limit.getLimit();
+        sample(limit, 20, FAST, true);
+
+        // Assert
+        assertThat(afterOne).isBetween(50, 60);
+        assertThat(limit.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should refuse a slot once the limit is in flight")
+    void tryAcquire_shouldRefuse_atLimit() {
+        // Arrange
+        GradientLimit limit = new GradientLimit(2, 1, 10, 0.2, 2.0, 600);
+
+        // Act & Assert
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isFalse();
+        limit.release();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThatThrownBy(() -> new GradientLimit(1, 2, 10, 0.2, 2.0, 600))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Completes calls one at a time as if the whole limit were in flight
+    private static void sample(GradientLimit limit, int count, long rtt, boolean dropped) {
+        for (int i = 0; i < count; i++) {
+            limit.tryAcquire();
+            limit.release(rtt, limit.getLimit(), dropped);
+        }
+    }
+}
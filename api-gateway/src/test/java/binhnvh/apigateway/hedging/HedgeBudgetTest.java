@@ -0,0 +1,64 @@
+package binhnvh.apigateway.hedging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HedgeBudgetTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    @DisplayName("Should allow one extra call per ten requests at a 10% budget")
+    void tryWithdraw_shouldAllowPercentOfRequests_whenBusy() {
+        // Arrange
+        HedgeBudget budget = new HedgeBudget(10, 0, 20, meterRegistry, now::get);
+
+        // Act
+        int allowed = 0;
+        for (int i = 0; i < 100; i++) {
+            budget.deposit();
+            if (budget.tryWithdraw()) {
+                allowed++;
+            }
+        }
+
+        // Assert
+        assertThat(allowed).isBetween(9, 10);
+    }
+
+    @Test
+    @DisplayName("Should earn calls over time without requests, saving no more than the max balance")
+    void tryWithdraw_shouldRefillPerSecond_upToMaxBalance() {
+        // Arrange
+        HedgeBudget budget = new HedgeBudget(10, 1, 3, meterRegistry, now::get);
+
+        // Act
+        boolean allowedAtStart = budget.tryWithdraw();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        int allowed = 0;
+        while (budget.tryWithdraw()) {
+            allowed++;
+        }
+
+        // Assert
+        assertThat(allowedAtStart).isFalse();
+        assertThat(allowed).isEqualTo(3);
+        assertThat(meterRegistry.get("gateway.hedge.budget").gauge().value()).isLessThan(1);
+    }
+
+    @Test
+    @DisplayName("Should reject a percent above 100")
+    void constructor_shouldThrow_whenPercentOutOfRange() {
+        // Act & Assert
+        assertThatThrownBy(() -> new HedgeBudget(150, 1, 20, meterRegistry))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,205 @@
+package binhnvh.apigateway.hedging;
+
+import binhnvh.apigateway.loadbalancer.PeakEwmaLoadBalancer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Client-visible latency of a read route with and without the Hedging filter, over real HTTP to four stub
+ * instances on localhost through the gateway's own routing and response writing filters. Three instances answer
+ * in about 2ms; the deliberately slow one stalls one request in ten for 250ms, as a GC pause or a noisy
+ * neighbour would. Instances are picked round robin, so 2.5% of requests stall, which is the p99 without
+ * hedging.
+ *
+ * Hedging runs with the route defaults and the default 10% budget. The hedge delay follows the p95 of the
+ * route's latency, a few milliseconds on a quiet machine and a few tens on a busy one, so a stalled request is
+ * answered by another instance well before the stall is over. The p99 is then set by the hedge delay rather than
+ * the stall, and the check allows for a busy machine.
+ *
+ * Run with {@code mvn test -Dtest=HedgingBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class HedgingBenchmarkTest {
+
+    private static final String ROUTE = "tool-registry-service";
+    private static final int INSTANCES = 4;
+    private static final Duration LATENCY = Duration.ofMillis(2);
+    private static final Duration STALL = Duration.ofMillis(250);
+    private static final int STALL_EVERY = 10;
+    private static final int REQUESTS = 4_000;
+    private static final int WARMUP_REQUESTS = 1_000;
+    private static final int IN_FLIGHT = 16;
+
+    private final List<DisposableServer> servers = new ArrayList<>();
+    private final List<ServiceInstance> instances = new ArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private GatewayFilter routing;
+    private GatewayFilter writeResponse;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < INSTANCES; i++) {
+            AtomicInteger served = new AtomicInteger();
+            boolean slow = i == INSTANCES - 1;
+            DisposableServer server = HttpServer.create()
+                    .host("127.0.0.1")
+                    .port(0)
+                    .handle((request, response) -> {
+                        upstreamCalls.incrementAndGet();
+                        boolean stall = slow && served.incrementAndGet() % STALL_EVERY == 0;
+                        return Mono.delay(stall ? STALL : LATENCY)
+                                .then(response.header("Content-Type", "application/json")
+                                        .sendString(Mono.just("{\"tools\":[]}"))
+                                        .then());
+                    })
+                    .bindNow();
+            servers.add(server);
+            instances.add(new DefaultServiceInstance("instance-" + i, ROUTE, "127.0.0.1", server.port(), false));
+        }
+        NettyRoutingFilter nettyRoutingFilter = new NettyRoutingFilter(HttpClient.create(),
+                new DefaultListableBeanFactory().getBeanProvider(
+                        ResolvableType.forClassWithGenerics(List.class, HttpHeadersFilter.class)),
+                new HttpClientProperties());
+        NettyWriteResponseFilter nettyWriteResponseFilter = new NettyWriteResponseFilter(List.of());
+        routing = nettyRoutingFilter::filter;
+        writeResponse = nettyWriteResponseFilter::filter;
+    }
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(DisposableServer::disposeNow);
+    }
+
+    @Test
+    @DisplayName("Benchmark: p99 latency with one intermittently slow instance, with and without hedging")
+    void benchmark() {
+        HedgingGatewayFilterFactory hedging = new HedgingGatewayFilterFactory(
+                new HedgeBudget(10, 1, 20, meterRegistry), meterRegistry);
+        List<GatewayFilter> plain = List.of(writeResponse, roundRobin(), routing);
+        List<GatewayFilter> hedged = List.of(writeResponse, hedging.apply(new HedgingGatewayFilterFactory.Config()),
+                roundRobin(), routing);
+
+        run(plain, WARMUP_REQUESTS);
+        Result without = run(plain, REQUESTS).named("none");
+        run(hedged, WARMUP_REQUESTS);
+        Result with = run(hedged, REQUESTS).named("hedged");
+
+        System.out.printf("%n%-8s %10s %10s %10s %10s %10s%n", "hedging", "calls/req", "p50 ms", "p90 ms", "p99 ms",
+                "p99.9 ms");
+        List.of(without, with).forEach(result -> System.out.printf("%-8s %10.3f %10.1f %10.1f %10.1f %10.1f%n",
+                result.hedging(), result.callsPerRequest(), result.percentile(0.50), result.percentile(0.90),
+                result.percentile(0.99), result.percentile(0.999)));
+
+        assertThat(with.ok()).isEqualTo(REQUESTS);
+        assertThat(without.percentile(0.99)).isGreaterThan(STALL.toMillis() * 0.9);
+        assertThat(with.percentile(0.99)).isLessThan(without.percentile(0.99) / 2);
+        assertThat(with.callsPerRequest()).isLessThan(1.11);
+    }
+
+    private Result run(List<GatewayFilter> filters, int requests) {
+        int callsBefore = upstreamCalls.get();
+        AtomicInteger ok = new AtomicInteger();
+        long[] latencies = Flux.range(0, requests)
+                .flatMap(i -> Mono.defer(() -> {
+                    ServerWebExchange exchange = exchange();
+                    long startedAt = System.nanoTime();
+                    return new Chain(filters, 0).filter(exchange).then(Mono.fromCallable(() -> {
+                        if (exchange.getResponse().getStatusCode() == HttpStatus.OK) {
+                            ok.incrementAndGet();
+                        }
+                        return System.nanoTime() - startedAt;
+                    }));
+                }), IN_FLIGHT)
+                .collectList()
+                .block(Duration.ofMinutes(2))
+                .stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+        Arrays.sort(latencies);
+        return new Result(null, latencies, (double) (upstreamCalls.get() - callsBefore) / requests, ok.get());
+    }
+
+    private static ServerWebExchange exchange() {
+        ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/tool-registry/tools"));
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR,
+                Route.async().id(ROUTE).uri("lb://tool-registry-service").predicate(e -> true).build());
+        return exchange;
+    }
+
+    // Stands in for the load balancer filter, skipping the instances a hedge or retry excludes
+    private GatewayFilter roundRobin() {
+        AtomicInteger next = new AtomicInteger();
+        return (exchange, chain) -> {
+            Collection<?> excluded = exchange.getAttributeOrDefault(PeakEwmaLoadBalancer.EXCLUDED_INSTANCES_ATTR, List.of());
+            ServiceInstance instance = instances.get(Math.floorMod(next.getAndIncrement(), INSTANCES));
+            while (excluded.contains(PeakEwmaLoadBalancer.address(instance)) && excluded.size() < INSTANCES) {
+                instance = instances.get(Math.floorMod(next.getAndIncrement(), INSTANCES));
+            }
+            exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR,
+                    URI.create("http://127.0.0.1:" + instance.getPort() + exchange.getRequest().getURI().getRawPath()));
+            exchange.getAttributes().put(GATEWAY_LOADBALANCER_RESPONSE_ATTR, new DefaultResponse(instance));
+            return chain.filter(exchange);
+        };
+    }
+
+    private record Chain(List<GatewayFilter> filters, int index) implements GatewayFilterChain {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            return index < filters.size()
+                    ? filters.get(index).filter(exchange, new Chain(filters, index + 1))
+                    : Mono.empty();
+        }
+    }
+
+    private record Result(String hedging, long[] sortedLatencies, double callsPerRequest, int ok) {
+
+        Result named(String hedging) {
+            return new Result(hedging, sortedLatencies, callsPerRequest, ok);
+        }
+
+        double percentile(double percentile) {
+            int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
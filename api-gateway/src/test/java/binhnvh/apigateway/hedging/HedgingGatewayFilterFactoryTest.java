@@ -0,0 +1,194 @@
+package binhnvh.apigateway.hedging;
+
+import binhnvh.apigateway.hedging.HedgingGatewayFilterFactory.Config;
+import binhnvh.apigateway.loadbalancer.PeakEwmaLoadBalancer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class HedgingGatewayFilterFactoryTest {
+
+    private static final String ROUTE = "tool-registry-service";
+    private static final String INSTANCE_HEADER = "X-Instance";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VirtualTimeScheduler timer = VirtualTimeScheduler.create();
+    private final StubInstances instances = new StubInstances();
+
+    @AfterEach
+    void tearDown() {
+        timer.dispose();
+    }
+
+    @Test
+    @DisplayName("Should send a slow request to a second instance after the hedge delay and answer with the first response")
+    void filter_shouldHedgeToAnotherInstance_whenFirstIsSlow() {
+        // Arrange
+        instances.add("10.0.0.1", Duration.ofSeconds(1), HttpStatus.OK);
+        instances.add("10.0.0.2", Duration.ofMillis(10), HttpStatus.OK);
+        GatewayFilter filter = factory(100).apply(new Config().setMaxDelay(Duration.ofMillis(50)));
+        ServerWebExchange exchange = exchange(MockServerHttpRequest.get("/tool-registry/tools"));
+
+        // Act
+        CompletableFuture<Void> result = filter.filter(exchange, instances).toFuture();
+        timer.advanceTimeBy(Duration.ofMillis(59));
+        boolean doneBeforeHedgeAnswered = result.isDone();
+        timer.advanceTimeBy(Duration.ofMillis(1));
+
+        // Assert
+        assertThat(doneBeforeHedgeAnswered).isFalse();
+        assertThat(result).isCompleted();
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getHeaders().getFirst(INSTANCE_HEADER)).isEqualTo("10.0.0.2");
+        assertThat(exchange.<Object>getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR)).isNotNull();
+        assertThat(instances.picked).containsExactly("10.0.0.1", "10.0.0.2");
+        assertThat(instances.cancelled).containsExactly("10.0.0.1");
+        assertThat(meterRegistry.get("gateway.hedge.attempts").tag("kind", "hedge").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.hedge.wins").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should wait for the first instance when the budget has no extra call left")
+    void filter_shouldNotHedge_whenBudgetIsSpent() {
+        // Arrange
+        instances.add("10.0.0.1", Duration.ofSeconds(1), HttpStatus.OK);
+        instances.add("10.0.0.2", Duration.ofMillis(10), HttpStatus.OK);
+        GatewayFilter filter = factory(0).apply(new Config().setMaxDelay(Duration.ofMillis(50)));
+        ServerWebExchange exchange = exchange(MockServerHttpRequest.get("/tool-registry/tools"));
+
+        // Act
+        CompletableFuture<Void> result = filter.filter(exchange, instances).toFuture();
+        timer.advanceTimeBy(Duration.ofSeconds(1));
+
+        // Assert
+        assertThat(result).isCompleted();
+        assertThat(exchange.getResponse().getHeaders().getFirst(INSTANCE_HEADER)).isEqualTo("10.0.0.1");
+        assertThat(instances.picked).containsExactly("10.0.0.1");
+        assertThat(meterRegistry.get("gateway.hedge.denied").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should retry a request answered with a retryable status on another instance")
+    void filter_shouldRetryElsewhere_whenInstanceIsUnavailable() {
+        // Arrange
+        instances.add("10.0.0.1", Duration.ofMillis(10), HttpStatus.SERVICE_UNAVAILABLE);
+        instances.add("10.0.0.2", Duration.ofMillis(10), HttpStatus.OK);
+        GatewayFilter filter = factory(100).apply(new Config().setMaxDelay(Duration.ofSeconds(1)));
+        ServerWebExchange exchange = exchange(MockServerHttpRequest.get("/tool-registry/tools"));
+
+        // Act
+        CompletableFuture<Void> result = filter.filter(exchange, instances).toFuture();
+        timer.advanceTimeBy(Duration.ofMillis(20));
+
+        // Assert
+        assertThat(result).isCompleted();
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getHeaders().getFirst(INSTANCE_HEADER)).isEqualTo("10.0.0.2");
+        assertThat(instances.picked).containsExactly("10.0.0.1", "10.0.0.2");
+        assertThat(meterRegistry.get("gateway.hedge.attempts").tag("kind", "retry").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should pass requests of methods not hedged straight through")
+    void filter_shouldPassThrough_whenMethodIsNotHedged() {
+        // Arrange
+        instances.add("10.0.0.1", Duration.ofMillis(10), HttpStatus.CREATED);
+        HedgingGatewayFilterFactory factory = factory(100);
+        GatewayFilter filter = factory.apply(new Config());
+        ServerWebExchange exchange = exchange(MockServerHttpRequest.post("/tool-registry/tools"));
+        List<ServerWebExchange> seen = new ArrayList<>();
+
+        // Act
+        CompletableFuture<Void> result = filter.filter(exchange, attempt -> {
+            seen.add(attempt);
+            return instances.filter(attempt);
+        }).toFuture();
+        timer.advanceTimeBy(Duration.ofMillis(10));
+
+        // Assert
+        assertThat(result).isCompleted();
+        assertThat(seen).containsExactly(exchange);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(factory.route(ROUTE)).isNull();
+    }
+
+    private HedgingGatewayFilterFactory factory(double budgetPercent) {
+        HedgeBudget budget = new HedgeBudget(budgetPercent, 0, 10, meterRegistry, this::now);
+        return new HedgingGatewayFilterFactory(budget, meterRegistry, this::now, timer);
+    }
+
+    private long now() {
+        return timer.now(TimeUnit.NANOSECONDS);
+    }
+
+    private static ServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        ServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR,
+                Route.async().id(ROUTE).uri("lb://tool-registry-service").predicate(e -> true).build());
+        return exchange;
+    }
+
+    /**
+     * Stands in for the load balancer and the proxied call: picks the first instance not excluded, then sets
+     * that instance's status and headers after its latency, as the routing filter does. Unavailable instances
+     * answer by completing the response themselves, as a filter shedding load would.
+     */
+    private final class StubInstances implements GatewayFilterChain {
+
+        private final Map<String, Stub> stubs = new LinkedHashMap<>();
+        private final List<String> picked = new ArrayList<>();
+        private final List<String> cancelled = new ArrayList<>();
+
+        void add(String host, Duration latency, HttpStatus status) {
+            stubs.put(host, new Stub(new DefaultServiceInstance(host, ROUTE, host, 8080, false), latency, status));
+        }
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            Collection<?> excluded = exchange.getAttributeOrDefault(PeakEwmaLoadBalancer.EXCLUDED_INSTANCES_ATTR, List.of());
+            Stub stub = stubs.values().stream()
+                    .filter(candidate -> !excluded.contains(PeakEwmaLoadBalancer.address(candidate.instance)))
+                    .findFirst()
+                    .orElseThrow();
+            String host = stub.instance.getHost();
+            picked.add(host);
+            exchange.getAttributes().put(GATEWAY_LOADBALANCER_RESPONSE_ATTR, new DefaultResponse(stub.instance));
+            return Mono.delay(stub.latency, timer)
+                    .then(Mono.defer(() -> {
+                        exchange.getResponse().setStatusCode(stub.status);
+                        exchange.getResponse().getHeaders().add(INSTANCE_HEADER, host);
+                        return stub.status.is5xxServerError() ? exchange.getResponse().setComplete() : Mono.<Void>empty();
+                    }))
+                    .doOnCancel(() -> cancelled.add(host));
+        }
+    }
+
+    private record Stub(ServiceInstance instance, Duration latency, HttpStatus status) {
+    }
+}
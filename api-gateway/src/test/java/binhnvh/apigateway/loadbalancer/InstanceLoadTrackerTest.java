@@ -0,0 +1,88 @@
+package binhnvh.apigateway.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class InstanceLoadTrackerTest {
+
+    private static final long MILLI = Duration.ofMillis(1).toNanos();
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InstanceLoadTracker tracker = new InstanceLoadTracker(Duration.ofSeconds(10), Duration.ZERO,
+            Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofSeconds(60), Duration.ofMinutes(3), meterRegistry,
+            clock::get, Clock.systemUTC());
+    private final DefaultServiceInstance instance =
+            new DefaultServiceInstance("a", "flow-registry-service", "10.0.0.1", 8080, false);
+
+    @Test
+    @DisplayName("Should take a latency peak at once and let it decay over the decay time")
+    void observe_shouldFollowPeaks_andDecay() {
+        // Arrange
+        InstanceLoad load = tracker.get(instance);
+        sample(load, 10);
+
+        // Act
+        sample(load, 500);
+        double peak = tracker.cost(load);
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        double decayed = tracker.cost(load);
+
+        // Assert
+        assertThat(peak).isEqualTo(500 * MILLI);
+        assertThat(decayed).isCloseTo(500 * MILLI / Math.E, within((double) MILLI));
+    }
+
+    @Test
+    @DisplayName("Should charge failed requests the error penalty, and score outstanding requests")
+    void score_shouldCountPenaltyAndOutstanding() {
+        // Arrange
+        InstanceLoad load = tracker.get(instance);
+        long startedAt = tracker.start(load);
+        clock.addAndGet(5 * MILLI);
+
+        // Act
+        tracker.observe(load, startedAt, true);
+        tracker.start(load);
+
+        // Assert
+        assertThat(tracker.cost(load)).isEqualTo(Duration.ofSeconds(1).toNanos());
+        assertThat(tracker.score(load, Double.NaN)).isEqualTo(3.0 * Duration.ofSeconds(1).toNanos());
+        assertThat(meterRegistry.get("gateway.lb.outstanding").tag("instance", "10.0.0.1:8080").gauge().value())
+                .isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should forget idle instances and their meters, but not those with requests outstanding")
+    void evictIdle_shouldDropIdleInstances() {
+        // Arrange
+        InstanceLoad idle = tracker.get(instance);
+        InstanceLoad busy = tracker.get(new DefaultServiceInstance("b", "flow-registry-service", "10.0.0.2", 8080, false));
+        tracker.start(busy);
+        clock.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        // Act
+        tracker.evictIdle();
+
+        // Assert
+        assertThat(tracker.size()).isEqualTo(1);
+        assertThat(tracker.get(instance)).isNotSameAs(idle);
+        assertThat(meterRegistry.find("gateway.lb.score").tag("instance", "10.0.0.2:8080").gauge()).isNotNull();
+    }
+
+    private void sample(InstanceLoad load, long millis) {
+        long startedAt = tracker.start(load);
+        clock.addAndGet(millis * MILLI);
+        tracker.observe(load, startedAt, false);
+        tracker.end(load);
+    }
+}
@@ -0,0 +1,220 @@
+package binhnvh.apigateway.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.LinkedMultiValueMap;
+import reactor.core.publisher.Flux;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Simulates traffic against stub instances on a virtual clock: a request arrives every millisecond and holds
+ * its instance for that instance's latency.
+ */
+class PeakEwmaLoadBalancerTest {
+
+    private static final String SERVICE = "tool-registry-service";
+    private static final long MILLI = Duration.ofMillis(1).toNanos();
+    private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InstanceLoadTracker tracker = new InstanceLoadTracker(Duration.ofSeconds(10), Duration.ofSeconds(30),
+            Duration.ofSeconds(1), Duration.ofMinutes(10), Duration.ofSeconds(60), Duration.ofMinutes(3), meterRegistry,
+            clock::get, Clock.fixed(NOW, ZoneOffset.UTC));
+    private final List<ServiceInstance> instances = new ArrayList<>();
+    private final Map<String, Long> latencies = new HashMap<>();
+    private final PriorityQueue<InFlight> inFlight = new PriorityQueue<>((a, b) -> Long.compare(a.doneAt, b.doneAt));
+    private final PeakEwmaLoadBalancer loadBalancer = loadBalancer();
+
+    @Test
+    @DisplayName("Should send a slow instance a small share of requests, not a third as round robin would")
+    void choose_shouldAvoidSlowInstance() {
+        // Arrange
+        addInstance("10.0.0.1", 10);
+        addInstance("10.0.0.2", 10);
+        addInstance("10.0.0.3", 200);
+        simulate(Duration.ofSeconds(35));
+
+        // Act
+        Map<String, Integer> picks = simulate(Duration.ofSeconds(10));
+
+        // Assert
+        assertThat(share(picks, "10.0.0.3")).isLessThan(0.05);
+        assertThat(share(picks, "10.0.0.1")).isBetween(0.4, 0.6);
+        assertThat(meterRegistry.get("gateway.lb.latency").tag("instance", "10.0.0.3:8080").gauge().value())
+                .isGreaterThan(0.1);
+        assertThat(meterRegistry.get("gateway.lb.score").tag("instance", "10.0.0.3:8080").gauge().value())
+                .isGreaterThan(meterRegistry.get("gateway.lb.score").tag("instance", "10.0.0.1:8080").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should move traffic off an instance as soon as it turns slow, and back once it recovers")
+    void choose_shouldFollowLatencySpike() {
+        // Arrange
+        addInstance("10.0.0.1", 10);
+        addInstance("10.0.0.2", 10);
+        simulate(Duration.ofSeconds(35));
+
+        // Act
+        latencies.put("10.0.0.2", 300 * MILLI);
+        Map<String, Integer> slow = simulate(Duration.ofSeconds(5));
+        latencies.put("10.0.0.2", 10 * MILLI);
+        simulate(Duration.ofSeconds(60));
+        Map<String, Integer> recovered = simulate(Duration.ofSeconds(5));
+
+        // Assert
+        assertThat(share(slow, "10.0.0.2")).isLessThan(0.1);
+        assertThat(share(recovered, "10.0.0.2")).isBetween(0.4, 0.6);
+    }
+
+    @Test
+    @DisplayName("Should ramp a newly registered instance up to its full share over the slow-start period")
+    void choose_shouldSlowStartNewInstance() {
+        // Arrange
+        addInstance("10.0.0.1", 10);
+        addInstance("10.0.0.2", 10);
+        simulate(Duration.ofSeconds(35));
+
+        // Act
+        addInstance("10.0.0.3", 10);
+        Map<String, Integer> starting = simulate(Duration.ofSeconds(3));
+        simulate(Duration.ofSeconds(30));
+        Map<String, Integer> warm = simulate(Duration.ofSeconds(5));
+
+        // Assert
+        assertThat(share(starting, "10.0.0.3")).isLessThan(0.2);
+        assertThat(share(warm, "10.0.0.3")).isBetween(0.28, 0.38);
+    }
+
+    @Test
+    @DisplayName("Should steer away from an instance reporting its pool exhausted, unless the report is stale")
+    void choose_shouldWeighByFreshLoadReports() {
+        // Arrange
+        addInstance("10.0.0.1", 10);
+        addInstance("10.0.0.2", 10);
+        simulate(Duration.ofSeconds(35));
+        Map<String, String> metadata = instances.get(1).getMetadata();
+        metadata.put(LoadReport.IN_FLIGHT, "40");
+        metadata.put(LoadReport.POOL, "1.20");
+        metadata.put(LoadReport.P99, "900");
+
+        // Act
+        metadata.put(LoadReport.TIMESTAMP, String.valueOf(NOW.minusSeconds(20).toEpochMilli()));
+        Map<String, Integer> fresh = simulate(Duration.ofSeconds(5));
+        metadata.put(LoadReport.TIMESTAMP, String.valueOf(NOW.minusSeconds(120).toEpochMilli()));
+        Map<String, Integer> aging = simulate(Duration.ofSeconds(5));
+        metadata.put(LoadReport.TIMESTAMP, String.valueOf(NOW.minusSeconds(600).toEpochMilli()));
+        Map<String, Integer> stale = simulate(Duration.ofSeconds(5));
+
+        // Assert
+        assertThat(share(fresh, "10.0.0.2")).isLessThan(0.1);
+        assertThat(share(aging, "10.0.0.2")).isBetween(share(fresh, "10.0.0.2"), 0.4);
+        assertThat(share(stale, "10.0.0.2")).isBetween(0.4, 0.6);
+    }
+
+    @Test
+    @DisplayName("Should leave out the instances a request excludes, unless no other is left")
+    void choose_shouldSkipExcludedInstances() {
+        // Arrange
+        addInstance("10.0.0.1", 10);
+        addInstance("10.0.0.2", 10);
+        addInstance("10.0.0.3", 10);
+        DefaultRequest<RequestDataContext> hedge = request(Set.of("10.0.0.1:8080", "10.0.0.2:8080"));
+        DefaultRequest<RequestDataContext> everyInstance = request(Set.of("10.0.0.1:8080", "10.0.0.2:8080",
+                "10.0.0.3:8080"));
+
+        // Act
+        Map<String, Integer> hedgePicks = new HashMap<>();
+        Map<String, Integer> fallbackPicks = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            hedgePicks.merge(loadBalancer.choose(hedge).block().getServer().getHost(), 1, Integer::sum);
+            fallbackPicks.merge(loadBalancer.choose(everyInstance).block().getServer().getHost(), 1, Integer::sum);
+        }
+
+        // Assert
+        assertThat(hedgePicks).containsOnlyKeys("10.0.0.3");
+        assertThat(fallbackPicks).hasSizeGreaterThan(1);
+    }
+
+    private Map<String, Integer> simulate(Duration duration) {
+        Map<String, Integer> picks = new HashMap<>();
+        long end = clock.get() + duration.toNanos();
+        while (clock.get() < end) {
+            long now = clock.addAndGet(MILLI);
+            while (!inFlight.isEmpty() && inFlight.peek().doneAt <= now) {
+                InFlight done = inFlight.poll();
+                tracker.observe(done.load, done.startedAt, false);
+                tracker.end(done.load);
+            }
+            ServiceInstance instance = loadBalancer.choose(new DefaultRequest<>()).block().getServer();
+            InstanceLoad load = tracker.get(instance);
+            inFlight.add(new InFlight(load, tracker.start(load), now + latencies.get(instance.getHost())));
+            picks.merge(instance.getHost(), 1, Integer::sum);
+        }
+        return picks;
+    }
+
+    private static DefaultRequest<RequestDataContext> request(Set<String> excluded) {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(PeakEwmaLoadBalancer.EXCLUDED_INSTANCES_ATTR, excluded);
+        return new DefaultRequest<>(new RequestDataContext(new RequestData(HttpMethod.GET,
+                URI.create("http://tool-registry-service/tools"), new HttpHeaders(), new LinkedMultiValueMap<>(),
+                attributes)));
+    }
+
+    private void addInstance(String host, long latencyMillis) {
+        instances.add(new DefaultServiceInstance(host, SERVICE, host, 8080, false, new HashMap<>()));
+        latencies.put(host, latencyMillis * MILLI);
+    }
+
+    private static double share(Map<String, Integer> picks, String host) {
+        int total = picks.values().stream().mapToInt(Integer::intValue).sum();
+        return (double) picks.getOrDefault(host, 0) / total;
+    }
+
+    private PeakEwmaLoadBalancer loadBalancer() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("supplier", new ServiceInstanceListSupplier() {
+            @Override
+            public String getServiceId() {
+                return SERVICE;
+            }
+
+            @Override
+            public Flux<List<ServiceInstance>> get() {
+                return Flux.just(List.copyOf(instances));
+            }
+        });
+        Random random = new Random(42);
+        return new PeakEwmaLoadBalancer(SERVICE, beanFactory.getBeanProvider(ServiceInstanceListSupplier.class),
+                tracker, () -> random);
+    }
+
+    private record InFlight(InstanceLoad load, long startedAt, long doneAt) {
+    }
+}
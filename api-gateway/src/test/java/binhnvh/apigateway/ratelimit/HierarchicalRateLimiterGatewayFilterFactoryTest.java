@@ -0,0 +1,171 @@
+package binhnvh.apigateway.ratelimit;
+
+import binhnvh.apigateway.ratelimit.HierarchicalRateLimiterGatewayFilterFactory.Config;
+import binhnvh.apigateway.ratelimit.HierarchicalRateLimiterGatewayFilterFactory.Level;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.format.support.DefaultFormattingConversionService;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class HierarchicalRateLimiterGatewayFilterFactoryTest {
+
+    private static final String ROUTE = "llm-processing-service";
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private final AtomicInteger forwarded = new AtomicInteger();
+    private LocalRateLimiter rateLimiter;
+    private HierarchicalRateLimiterGatewayFilterFactory factory;
+
+    @BeforeEach
+    void setUp() {
+        rateLimiter = new LocalRateLimiter(null, new RedisRateLimiter.Config(), 4, Duration.ofMinutes(1),
+                new SimpleMeterRegistry(), clock::get);
+        factory = new HierarchicalRateLimiterGatewayFilterFactory(rateLimiter,
+                new RequestIdentityResolver(List.of(), "X-Api-Key", "tenant"));
+    }
+
+    @Test
+    @DisplayName("Should deny at the tightest level and give back what the levels before it granted")
+    void filter_shouldRefundEarlierLevels_whenLaterLevelDenies() {
+        // Arrange: the global bucket runs out before either user's own
+        GatewayFilter filter = factory.apply(new Config().setLevels(List.of(
+                level("user", 5, KeyPart.CLIENT),
+                level("global", 3))));
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            filter(filter, "alice");
+        }
+        ServerWebExchange denied = filter(filter, "bob");
+
+        // Assert
+        assertThat(forwarded).hasValue(3);
+        assertThat(denied.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(denied.getResponse().getHeaders().getFirst(HierarchicalRateLimiterGatewayFilterFactory.LEVEL_HEADER))
+                .isEqualTo("global");
+        // bob's own bucket got its token back, so he still has all 5 once the global bucket refills
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        ServerWebExchange admitted = filter(filter, "bob");
+        assertThat(admitted.getResponse().getHeaders().getFirst(RedisRateLimiter.REMAINING_HEADER)).isEqualTo("2");
+        assertThat(admitted.getResponse().getHeaders().getFirst(HierarchicalRateLimiterGatewayFilterFactory.LEVEL_HEADER))
+                .isEqualTo("global");
+    }
+
+    @Test
+    @DisplayName("Should keep users apart within a level and report the level with the fewest tokens left")
+    void filter_shouldIsolateUsers_andReportTightestLevel() {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config().setLevels(List.of(
+                level("user", 2, KeyPart.CLIENT),
+                level("global", 100))));
+
+        // Act
+        filter(filter, "alice");
+        filter(filter, "alice");
+        ServerWebExchange aliceDenied = filter(filter, "alice");
+        ServerWebExchange bob = filter(filter, "bob");
+
+        // Assert
+        assertThat(aliceDenied.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(aliceDenied.getResponse().getHeaders().getFirst(HierarchicalRateLimiterGatewayFilterFactory.LEVEL_HEADER))
+                .isEqualTo("user");
+        assertThat(bob.getResponse().getStatusCode()).isNull();
+        assertThat(bob.getResponse().getHeaders().getFirst(RedisRateLimiter.REMAINING_HEADER)).isEqualTo("1");
+        assertThat(forwarded).hasValue(3);
+    }
+
+    @Test
+    @DisplayName("Should skip a level whose key the request lacks, such as a tenant for an anonymous caller")
+    void filter_shouldSkipLevel_whenKeyPartMissing() {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config().setLevels(List.of(
+                level("tenant", 1, KeyPart.TENANT),
+                level("global", 2))));
+
+        // Act
+        filter(filter, null);
+        filter(filter, null);
+        ServerWebExchange denied = filter(filter, null);
+
+        // Assert
+        assertThat(forwarded).hasValue(2);
+        assertThat(denied.getResponse().getHeaders().getFirst(HierarchicalRateLimiterGatewayFilterFactory.LEVEL_HEADER))
+                .isEqualTo("global");
+    }
+
+    @Test
+    @DisplayName("Should bind levels from route args as written in YAML")
+    void bind_shouldReadLevels_fromRouteArgs() {
+        // Arrange
+        ConfigurationService configurationService = new ConfigurationService(new DefaultListableBeanFactory(),
+                DefaultFormattingConversionService::new, () -> null);
+        Map<String, String> args = Map.of(
+                "levels[0].name", "user",
+                "levels[0].key", "tenant,client",
+                "levels[0].replenish-rate", "10",
+                "levels[0].burst-capacity", "20",
+                "levels[1].name", "global",
+                "levels[1].replenish-rate", "500",
+                "levels[1].burst-capacity", "1000");
+
+        // Act
+        Config config = configurationService.with(factory).name(factory.name()).properties(args).bind();
+
+        // Assert
+        assertThat(config.getLevels()).hasSize(2);
+        assertThat(config.getLevels().get(0).getKey()).containsExactly(KeyPart.TENANT, KeyPart.CLIENT);
+        assertThat(config.getLevels().get(0).getBurstCapacity()).isEqualTo(20);
+        assertThat(config.getLevels().get(1).getKey()).isEmpty();
+        assertThat(config.getLevels().get(1).getReplenishRate()).isEqualTo(500);
+    }
+
+    @Test
+    @DisplayName("Should reject levels with the same name")
+    void apply_shouldReject_whenLevelNamesRepeat() {
+        assertThatThrownBy(() -> factory.apply(new Config().setLevels(List.of(level("user", 1), level("user", 2)))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private ServerWebExchange filter(GatewayFilter filter, String user) {
+        ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/llm/complete")
+                .remoteAddress(new InetSocketAddress("203.0.113.7", 40000)));
+        if (user != null) {
+            exchange = exchange.mutate().principal(Mono.just(new TestingAuthenticationToken(user, "pw", "ROLE_USER"))).build();
+        }
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR,
+                Route.async().id(ROUTE).uri("http://localhost").predicate(e -> true).build());
+        filter.filter(exchange, e -> {
+            forwarded.incrementAndGet();
+            return Mono.empty();
+        }).block();
+        return exchange;
+    }
+
+    // Burst equals rate, so no tokens come back while the clock stands still
+    private static Level level(String name, int limit, KeyPart... key) {
+        return new Level().setName(name).setKey(List.of(key)).setReplenishRate(limit).setBurstCapacity(limit);
+    }
+}
@@ -0,0 +1,185 @@
+package binhnvh.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.core.publisher.Flux;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeasingRateLimiterTest {
+
+    private static final String ROUTE = "users";
+    private static final String CLIENT = "10.0.0.1";
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private ReactiveStringRedisTemplate redisTemplate;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        redisTemplate.execute(connection -> connection.serverCommands().flushAll()).blockLast();
+    }
+
+    @Test
+    @DisplayName("Should serve a whole lease from memory after a single Redis call")
+    void isAllowed_shouldServeLeaseLocally_afterOneRedisCall() {
+        // Arrange
+        LeasingRateLimiter rateLimiter = rateLimiter(redisTemplate, 0.5);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            assertThat(rateLimiter.isAllowed(ROUTE, CLIENT).block().isAllowed()).isTrue();
+        }
+        double callsPerRequestWithinLease = rateLimiter.redisCallsPerRequest();
+        rateLimiter.isAllowed(ROUTE, CLIENT).block();
+
+        // Assert
+        assertThat(callsPerRequestWithinLease).isEqualTo(0.1);
+        assertThat(meterRegistry.counter("gateway.ratelimit.redis.calls", "limiter", "leasing").count()).isEqualTo(2);
+        assertThat(meterRegistry.get("gateway.ratelimit.redis.calls.per.request").gauge().value()).isEqualTo(2.0 / 11);
+    }
+
+    @Test
+    @DisplayName("Should never admit more than the shared bucket holds across instances")
+    void isAllowed_shouldNotExceedSharedBucket_acrossInstances() {
+        // Arrange
+        List<LeasingRateLimiter> instances = List.of(rateLimiter(redisTemplate, 0.25), rateLimiter(redisTemplate, 0.25));
+
+        // Act
+        int admitted = 0;
+        for (int i = 0; i < 30; i++) {
+            for (LeasingRateLimiter instance : instances) {
+                if (instance.isAllowed(ROUTE, CLIENT).block().isAllowed()) {
+                    admitted++;
+                }
+            }
+        }
+
+        // Assert: 20 burst, plus at most one token refilled at 1/s while the test runs
+        assertThat(admitted).isBetween(20, 21);
+    }
+
+    @Test
+    @DisplayName("Should share one Redis call between concurrent requests that find the lease empty")
+    void isAllowed_shouldCoalesceRenewals_whenCalledConcurrently() {
+        // Arrange
+        LeasingRateLimiter rateLimiter = rateLimiter(redisTemplate, 1.0);
+
+        // Act
+        List<Response> responses = Flux.range(0, 50)
+                .flatMap(i -> rateLimiter.isAllowed(ROUTE, CLIENT), 50)
+                .collectList()
+                .block();
+
+        // Assert
+        assertThat(responses).filteredOn(Response::isAllowed).hasSizeBetween(20, 21);
+        assertThat(meterRegistry.counter("gateway.ratelimit.redis.calls", "limiter", "leasing").count()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should deny locally after an empty grant until the bucket can have refilled")
+    void isAllowed_shouldBackOff_whenBucketEmpty() {
+        // Arrange
+        LeasingRateLimiter rateLimiter = rateLimiter(redisTemplate, 1.0);
+        for (int i = 0; i < 21; i++) {
+            rateLimiter.isAllowed(ROUTE, CLIENT).block();
+        }
+
+        // Act
+        boolean allowedWhileBackingOff = rateLimiter.isAllowed(ROUTE, CLIENT).block().isAllowed();
+        double callsWhileBackingOff = meterRegistry.counter("gateway.ratelimit.redis.calls", "limiter", "leasing").count();
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        rateLimiter.isAllowed(ROUTE, CLIENT).block();
+
+        // Assert: one call for the lease of 20, one that came back empty, none while backing off
+        assertThat(allowedWhileBackingOff).isFalse();
+        assertThat(callsWhileBackingOff).isEqualTo(2);
+        assertThat(meterRegistry.counter("gateway.ratelimit.redis.calls", "limiter", "leasing").count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should give the unused part of an expired lease back to the shared bucket")
+    void returnExpiredLeases_shouldReturnUnusedTokens() {
+        // Arrange
+        LeasingRateLimiter rateLimiter = rateLimiter(redisTemplate, 0.5);
+        rateLimiter.isAllowed(ROUTE, CLIENT).block();
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+
+        // Act
+        rateLimiter.returnExpiredLeases();
+
+        // Assert: 20 - 10 leased + 9 returned
+        String tokens = redisTemplate.opsForValue().get("request_rate_limiter.{users.10.0.0.1}.tokens").block();
+        assertThat(Double.parseDouble(tokens)).isGreaterThanOrEqualTo(19);
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        rateLimiter.returnExpiredLeases();
+        assertThat(rateLimiter.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should allow requests when Redis cannot be reached, like the Redis limiter")
+    void isAllowed_shouldFailOpen_whenRedisUnreachable() {
+        // Arrange
+        LettuceConnectionFactory unreachable = new LettuceConnectionFactory("localhost", 1);
+        unreachable.afterPropertiesSet();
+        unreachable.start();
+        LeasingRateLimiter rateLimiter = rateLimiter(new ReactiveStringRedisTemplate(unreachable), 0.5);
+
+        // Act
+        Response response = rateLimiter.isAllowed(ROUTE, CLIENT).block();
+
+        // Assert
+        assertThat(response.isAllowed()).isTrue();
+        assertThat(response.getHeaders()).containsEntry(RedisRateLimiter.REMAINING_HEADER, "-1");
+        unreachable.destroy();
+    }
+
+    private LeasingRateLimiter rateLimiter(ReactiveStringRedisTemplate template, double leaseFraction) {
+        RedisRateLimiter.Config config = new RedisRateLimiter.Config().setReplenishRate(1).setBurstCapacity(20);
+        return new LeasingRateLimiter(null, template, config, leaseFraction, Duration.ofSeconds(1), meterRegistry, clock::get);
+    }
+}
@@ -0,0 +1,233 @@
+package binhnvh.apigateway.ratelimit;
+
+import binhnvh.apigateway.ratelimit.LlmTokenQuotaGatewayFilterFactory.Config;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class LlmTokenQuotaGatewayFilterFactoryTest {
+
+    private static final String ROUTE = "llm-processing-service";
+    private static final String USAGE_HEADER = "X-LLM-Usage-Tokens";
+
+    private final AtomicLong nanoClock = new AtomicLong(1_000_000_000L);
+    private final AtomicReference<Instant> wallClock = new AtomicReference<>(Instant.parse("2026-03-01T23:00:00Z"));
+    private LocalTokenBudgetStore store;
+    private LlmTokenQuotaGatewayFilterFactory factory;
+
+    @BeforeEach
+    void setUp() {
+        LocalRateLimiter rateLimiter = new LocalRateLimiter(null, new RedisRateLimiter.Config(), 4, Duration.ofMinutes(1),
+                new SimpleMeterRegistry(), nanoClock::get);
+        store = new LocalTokenBudgetStore(rateLimiter, new MutableClock());
+        factory = new LlmTokenQuotaGatewayFilterFactory(store, new RequestIdentityResolver(List.of(), "X-Api-Key", "tenant"));
+    }
+
+    @Test
+    @DisplayName("Should charge an estimate from the request size when the backend reports no usage")
+    void filter_shouldChargeEstimate_whenNoUsageReported() {
+        // Arrange
+        GatewayFilter filter = factory.apply(config(10, 1000, 0));
+
+        // Act: 400 bytes at 4 bytes per token plus 50 expected output tokens
+        ServerWebExchange exchange = filter(filter, "alice", 400, HttpStatus.OK, null);
+
+        // Assert
+        assertThat(exchange.getResponse().getHeaders().getFirst(LlmTokenQuotaGatewayFilterFactory.CHARGED_HEADER)).isEqualTo("150");
+        assertThat(exchange.getResponse().getHeaders().getFirst(LlmTokenQuotaGatewayFilterFactory.REMAINING_HEADER)).isEqualTo("850");
+        assertThat(exchange.getResponse().getHeaders().containsKey(LlmTokenQuotaGatewayFilterFactory.DAILY_REMAINING_HEADER)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should correct the charge to the reported usage, into debt that later requests wait out")
+    void filter_shouldReconcileFromUsageHeader_andDenyWhileInDebt() {
+        // Arrange
+        GatewayFilter filter = factory.apply(config(10, 1000, 0));
+
+        // Act
+        ServerWebExchange expensive = filter(filter, "alice", 400, HttpStatus.OK, "1200");
+        ServerWebExchange denied = filter(filter, "alice", 400, HttpStatus.OK, null);
+        ServerWebExchange otherUser = filter(filter, "bob", 400, HttpStatus.OK, null);
+
+        // Assert
+        assertThat(expensive.getResponse().getHeaders().getFirst(LlmTokenQuotaGatewayFilterFactory.CHARGED_HEADER)).isEqualTo("1200");
+        assertThat(expensive.getResponse().getHeaders().getFirst(LlmTokenQuotaGatewayFilterFactory.REMAINING_HEADER)).isEqualTo("0");
+        assertThat(denied.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(otherUser.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        // 200 tokens of debt plus the 150 estimate take 35s to refill at 10 tokens/s
+        nanoClock.addAndGet(Duration.ofSeconds(34).toNanos());
+        assertThat(filter(filter, "alice", 400, HttpStatus.OK, null).getResponse().getStatusCode())
+                .isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        nanoClock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThat(filter(filter, "alice", 400, HttpStatus.OK, null).getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    @DisplayName("Should refund the estimate when the backend fails without reporting usage")
+    void filter_shouldRefund_whenServerErrorWithoutUsage() {
+        // Arrange
+        GatewayFilter filter = factory.apply(config(10, 1000, 0));
+
+        // Act
+        ServerWebExchange exchange = filter(filter, "alice", 400, HttpStatus.BAD_GATEWAY, null);
+
+        // Assert
+        assertThat(exchange.getResponse().getHeaders().getFirst(LlmTokenQuotaGatewayFilterFactory.CHARGED_HEADER)).isEqualTo("0");
+        assertThat(exchange.getResponse().getHeaders().getFirst(LlmTokenQuotaGatewayFilterFactory.REMAINING_HEADER)).isEqualTo("1000");
+    }
+
+    @Test
+    @DisplayName("Should enforce the daily cap and start afresh on the next UTC day")
+    void filter_shouldDenyOverDailyLimit_untilNextDay() {
+        // Arrange
+        GatewayFilter filter = factory.apply(config(1000, 1000, 300));
+
+        // Act
+        filter(filter, "alice", 400, HttpStatus.OK, null);
+        ServerWebExchange last = filter(filter, "alice", 400, HttpStatus.OK, null);
+        ServerWebExchange denied = filter(filter, "alice", 400, HttpStatus.OK, null);
+        wallClock.set(wallClock.get().plus(Duration.ofHours(1)));
+        store.evictPastDays();
+        ServerWebExchange nextDay = filter(filter, "alice", 400, HttpStatus.OK, null);
+
+        // Assert
+        assertThat(last.getResponse().getHeaders().getFirst(LlmTokenQuotaGatewayFilterFactory.DAILY_REMAINING_HEADER)).isEqualTo("0");
+        assertThat(denied.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(nextDay.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(nextDay.getResponse().getHeaders().getFirst(LlmTokenQuotaGatewayFilterFactory.DAILY_REMAINING_HEADER)).isEqualTo("150");
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should reserve the burst capacity for a chunked request and charge it for the body it sent")
+    void filter_shouldChargeCountedBody_whenRequestIsChunked() {
+        // Arrange
+        GatewayFilter filter = factory.apply(config(10, 1000, 0));
+        AtomicReference<HttpStatusCode> concurrentStatus = new AtomicReference<>();
+
+        // Act: 400 bytes without Content-Length, with another request arriving while it is forwarded
+        ServerWebExchange exchange = exchange("alice", MockServerHttpRequest.post("/api/llm/complete")
+                .header(HttpHeaders.TRANSFER_ENCODING, "chunked")
+                .body(Flux.just(new DefaultDataBufferFactory().wrap("x".repeat(400).getBytes(StandardCharsets.UTF_8)))));
+        filter.filter(exchange, e -> {
+            concurrentStatus.set(filter(filter, "alice", 400, HttpStatus.OK, null).getResponse().getStatusCode());
+            return e.getRequest().getBody().then(Mono.defer(() -> {
+                e.getResponse().setStatusCode(HttpStatus.OK);
+                return e.getResponse().setComplete();
+            }));
+        }).block();
+
+        // Assert
+        assertThat(exchange.getRequest().getHeaders().getContentLength()).isEqualTo(-1);
+        assertThat(concurrentStatus.get()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(exchange.getResponse().getHeaders().getFirst(LlmTokenQuotaGatewayFilterFactory.CHARGED_HEADER)).isEqualTo("150");
+        assertThat(exchange.getResponse().getHeaders().getFirst(LlmTokenQuotaGatewayFilterFactory.REMAINING_HEADER)).isEqualTo("850");
+    }
+
+    @Test
+    @DisplayName("Should turn away a chunked request unless the budget could cover the largest charge")
+    void filter_shouldDenyChunkedRequest_whenBudgetBelowBurstCapacity() {
+        // Arrange
+        GatewayFilter filter = factory.apply(config(10, 1000, 0));
+        filter(filter, "alice", 400, HttpStatus.OK, null);
+
+        // Act
+        ServerWebExchange chunked = exchange("alice", MockServerHttpRequest.post("/api/llm/complete")
+                .header(HttpHeaders.TRANSFER_ENCODING, "chunked")
+                .body(Flux.just(new DefaultDataBufferFactory().wrap(new byte[]{'x'}))));
+        filter.filter(chunked, e -> e.getResponse().setComplete()).block();
+
+        // Assert
+        assertThat(chunked.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(filter(filter, "alice", 400, HttpStatus.OK, null).getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    @DisplayName("Should deny a request that cannot be attributed to anyone")
+    void filter_shouldDeny_whenNoKey() {
+        // Arrange
+        GatewayFilter filter = factory.apply(config(10, 1000, 0));
+
+        // Act
+        ServerWebExchange exchange = filter(filter, null, 400, HttpStatus.OK, null);
+
+        // Assert
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    private ServerWebExchange filter(GatewayFilter filter, String user, int bodySize, HttpStatusCode status, String usage) {
+        ServerWebExchange exchange = exchange(user, MockServerHttpRequest.post("/api/llm/complete")
+                .contentLength(bodySize).build());
+        filter.filter(exchange, e -> {
+            e.getResponse().setStatusCode(status);
+            if (usage != null) {
+                e.getResponse().getHeaders().set(USAGE_HEADER, usage);
+            }
+            return e.getResponse().setComplete();
+        }).block();
+        return exchange;
+    }
+
+    private static ServerWebExchange exchange(String user, MockServerHttpRequest request) {
+        ServerWebExchange exchange = MockServerWebExchange.from(request);
+        if (user != null) {
+            exchange = exchange.mutate().principal(Mono.just(new TestingAuthenticationToken(user, "pw", "ROLE_USER"))).build();
+        }
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR,
+                Route.async().id(ROUTE).uri("http://localhost").predicate(e -> true).build());
+        return exchange;
+    }
+
+    private static Config config(int replenishRate, int burstCapacity, long dailyLimit) {
+        return new Config()
+                .setReplenishRate(replenishRate)
+                .setBurstCapacity(burstCapacity)
+                .setDailyLimit(dailyLimit)
+                .setExpectedOutputTokens(50);
+    }
+
+    private final class MutableClock extends Clock {
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return wallClock.get();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package binhnvh.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.cloud.gateway.route.RouteDefinitionRouteLocator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalRateLimiterTest {
+
+    private static final String ROUTE = "users";
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private SimpleMeterRegistry meterRegistry;
+    private LocalRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimiter = new LocalRateLimiter(null, config(10, 20, 1), 4, Duration.ofMinutes(1), meterRegistry, clock::get);
+    }
+
+    @Nested
+    @DisplayName("isAllowed")
+    class IsAllowedTests {
+
+        @Test
+        @DisplayName("Should allow a full burst, then deny with the same headers as the Redis limiter")
+        void isAllowed_shouldAllowBurstThenDeny_whenNoTimePasses() {
+            // Act
+            List<Response> responses = new ArrayList<>();
+            for (int i = 0; i < 21; i++) {
+                responses.add(rateLimiter.isAllowed(ROUTE, "10.0.0.1").block());
+            }
+
+            // Assert
+            assertThat(responses.subList(0, 20)).allMatch(Response::isAllowed);
+            assertThat(responses.get(0).getHeaders())
+                    .containsEntry(RedisRateLimiter.REMAINING_HEADER, "19")
+                    .containsEntry(RedisRateLimiter.REPLENISH_RATE_HEADER, "10")
+                    .containsEntry(RedisRateLimiter.BURST_CAPACITY_HEADER, "20")
+                    .containsEntry(RedisRateLimiter.REQUESTED_TOKENS_HEADER, "1");
+            assertThat(responses.get(19).getHeaders()).containsEntry(RedisRateLimiter.REMAINING_HEADER, "0");
+            assertThat(responses.get(20).isAllowed()).isFalse();
+            assertThat(responses.get(20).getHeaders()).containsEntry(RedisRateLimiter.REMAINING_HEADER, "0");
+        }
+
+        @Test
+        @DisplayName("Should refill at the replenish rate")
+        void isAllowed_shouldRefillAtReplenishRate() {
+            // Arrange
+            drain(ROUTE, "10.0.0.1", 20);
+
+            // Act
+            clock.addAndGet(Duration.ofMillis(250).toNanos());
+            List<Boolean> allowed = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                allowed.add(rateLimiter.isAllowed(ROUTE, "10.0.0.1").block().isAllowed());
+            }
+
+            // Assert
+            assertThat(allowed).containsExactly(true, true, false);
+        }
+
+        @Test
+        @DisplayName("Should keep separate buckets per route and key")
+        void isAllowed_shouldIsolateBuckets_perRouteAndKey() {
+            // Arrange
+            drain(ROUTE, "10.0.0.1", 20);
+
+            // Act & Assert
+            assertThat(rateLimiter.isAllowed(ROUTE, "10.0.0.1").block().isAllowed()).isFalse();
+            assertThat(rateLimiter.isAllowed(ROUTE, "10.0.0.2").block().isAllowed()).isTrue();
+            assertThat(rateLimiter.isAllowed("tools", "10.0.0.1").block().isAllowed()).isTrue();
+            assertThat(rateLimiter.size()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("Should never allow a request that costs more than the burst capacity")
+        void isAllowed_shouldDeny_whenRequestedTokensExceedBurst() {
+            // Arrange
+            rateLimiter.getConfig().put(ROUTE, config(5, 5, 6));
+
+            // Act
+            Response response = rateLimiter.isAllowed(ROUTE, "10.0.0.1").block();
+
+            // Assert
+            assertThat(response.isAllowed()).isFalse();
+            assertThat(response.getHeaders()).containsEntry(RedisRateLimiter.REMAINING_HEADER, "5");
+        }
+
+        @Test
+        @DisplayName("Should use route args first, then default-filters args, then the configured defaults")
+        void isAllowed_shouldResolveConfig_routeThenDefaultFiltersThenDefaults() {
+            // Arrange
+            rateLimiter.getConfig().put(ROUTE, config(1, 1, 1));
+            rateLimiter.getConfig().put(RouteDefinitionRouteLocator.DEFAULT_FILTERS, config(50, 100, 1));
+
+            // Act & Assert
+            assertThat(rateLimiter.isAllowed(ROUTE, "a").block().getHeaders())
+                    .containsEntry(RedisRateLimiter.BURST_CAPACITY_HEADER, "1");
+            assertThat(rateLimiter.isAllowed("tools", "a").block().getHeaders())
+                    .containsEntry(RedisRateLimiter.BURST_CAPACITY_HEADER, "100");
+        }
+
+        @Test
+        @DisplayName("Should grant exactly the burst capacity to concurrent callers")
+        void isAllowed_shouldGrantExactlyBurst_whenCalledConcurrently() throws Exception {
+            // Arrange
+            int threads = 8;
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> futures = new ArrayList<>();
+
+            // Act
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int allowed = 0;
+                    for (int i = 0; i < 1000; i++) {
+                        if (rateLimiter.isAllowed(ROUTE, "10.0.0.1").block().isAllowed()) {
+                            allowed++;
+                        }
+                    }
+                    return allowed;
+                }));
+            }
+            start.countDown();
+            int allowed = 0;
+            for (Future<Integer> future : futures) {
+                allowed += future.get();
+            }
+            executor.shutdown();
+
+            // Assert
+            assertThat(allowed).isEqualTo(20);
+        }
+    }
+
+    @Nested
+    @DisplayName("evictIdleBuckets")
+    class EvictIdleBucketsTests {
+
+        @Test
+        @DisplayName("Should drop only buckets that have been full for the idle timeout")
+        void evictIdleBuckets_shouldDropOnlyIdleFullBuckets() {
+            // Arrange
+            rateLimiter.isAllowed(ROUTE, "idle").block();
+            clock.addAndGet(Duration.ofSeconds(61).toNanos());
+            drain(ROUTE, "busy", 20);
+
+            // Act
+            rateLimiter.evictIdleBuckets();
+
+            // Assert
+            assertThat(rateLimiter.size()).isEqualTo(1);
+            assertThat(rateLimiter.isAllowed(ROUTE, "busy").block().isAllowed()).isFalse();
+            assertThat(meterRegistry.counter("gateway.ratelimit.buckets.evicted").count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should serve an evicted key from a new full bucket")
+        void isAllowed_shouldStartFull_whenBucketWasEvicted() {
+            // Arrange
+            drain(ROUTE, "10.0.0.1", 20);
+            clock.addAndGet(Duration.ofMinutes(2).toNanos());
+            rateLimiter.evictIdleBuckets();
+
+            // Act
+            Response response = rateLimiter.isAllowed(ROUTE, "10.0.0.1").block();
+
+            // Assert
+            assertThat(response.isAllowed()).isTrue();
+            assertThat(response.getHeaders()).containsEntry(RedisRateLimiter.REMAINING_HEADER, "19");
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject a shard count that is not a power of two")
+    void constructor_shouldReject_whenShardsNotPowerOfTwo() {
+        assertThatThrownBy(() -> new LocalRateLimiter(null, config(10, 20, 1), 3, Duration.ofMinutes(1), meterRegistry))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void drain(String routeId, String id, int requests) {
+        for (int i = 0; i < requests; i++) {
+            rateLimiter.isAllowed(routeId, id).block();
+        }
+    }
+
+    private static RedisRateLimiter.Config config(int replenishRate, int burstCapacity, int requestedTokens) {
+        return new RedisRateLimiter.Config()
+                .setReplenishRate(replenishRate)
+                .setBurstCapacity(burstCapacity)
+                .setRequestedTokens(requestedTokens);
+    }
+}
@@ -0,0 +1,210 @@
+package binhnvh.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Latency the rate limiter adds to each request: the in-memory {@link LocalRateLimiter} and the
+ * {@link LeasingRateLimiter} against {@link RedisRateLimiter} on a local Redis, so the Redis numbers are a floor
+ * (no network hop). Each run spreads requests over 1000 client keys, once one call at a time and once with 64
+ * calls in flight, which is where the single Redis connection starts to queue.
+ *
+ * The accuracy run offers twice the limit to four instances and compares what the Redis limiter and the
+ * leasing limiter, for several lease sizes, admit against the ideal burst plus refill.
+ *
+ * Run with {@code mvn test -Dtest=RateLimiterBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RateLimiterBenchmarkTest {
+
+    private static final String ROUTE = "users";
+    private static final int KEYS = 1000;
+    private static final int REQUESTS = 50_000;
+    private static final int WARMUP_REQUESTS = 20_000;
+    private static final int IN_FLIGHT = 64;
+
+    private static final String ACCURACY_ROUTE = "accuracy";
+    private static final int ACCURACY_KEYS = 10;
+    private static final int INSTANCES = 4;
+    private static final Duration TICK = Duration.ofMillis(5);
+    private static final int TICKS = 600;
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @Test
+    @DisplayName("Benchmark: in-memory token buckets vs RedisRateLimiter, added latency per request")
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void benchmark() {
+        RedisRateLimiter.Config config = new RedisRateLimiter.Config().setReplenishRate(1_000_000).setBurstCapacity(1_000_000);
+        RedisScript<List<Long>> script = (RedisScript) RedisScript.of(
+                new ClassPathResource("META-INF/scripts/request_rate_limiter.lua"), List.class);
+        RedisRateLimiter redisRateLimiter = new RedisRateLimiter(new ReactiveStringRedisTemplate(connectionFactory), script, null);
+        redisRateLimiter.getConfig().put(ROUTE, config);
+        LocalRateLimiter localRateLimiter = new LocalRateLimiter(null, config, 16, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        // Leases of 100 tokens
+        LeasingRateLimiter leasingRateLimiter = new LeasingRateLimiter(null, new ReactiveStringRedisTemplate(connectionFactory),
+                config, 0.0001, Duration.ofSeconds(1), new SimpleMeterRegistry());
+
+        List<Result> results = List.of(
+                run("local", localRateLimiter, 1),
+                run("leasing", leasingRateLimiter, 1),
+                run("redis", redisRateLimiter, 1),
+                run("local", localRateLimiter, IN_FLIGHT),
+                run("leasing", leasingRateLimiter, IN_FLIGHT),
+                run("redis", redisRateLimiter, IN_FLIGHT));
+
+        System.out.printf("%n%-8s %10s %10s %10s %10s %10s %10s%n",
+                "limiter", "in flight", "calls/s", "mean us", "p50 us", "p99 us", "p99.9 us");
+        results.forEach(result -> System.out.printf("%-8s %10d %10.0f %10.1f %10.1f %10.1f %10.1f%n",
+                result.limiter(), result.inFlight(), result.throughput(), result.mean(),
+                result.percentile(0.50), result.percentile(0.99), result.percentile(0.999)));
+
+        assertThat(results).allSatisfy(result -> assertThat(result.allowed()).isEqualTo(REQUESTS));
+    }
+
+    @Test
+    @DisplayName("Benchmark: leasing accuracy and Redis calls per request against RedisRateLimiter")
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void accuracy() {
+        RedisRateLimiter.Config config = new RedisRateLimiter.Config().setReplenishRate(100).setBurstCapacity(100);
+        ReactiveStringRedisTemplate redisTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+        RedisScript<List<Long>> script = (RedisScript) RedisScript.of(
+                new ClassPathResource("META-INF/scripts/request_rate_limiter.lua"), List.class);
+        RedisRateLimiter redisRateLimiter = new RedisRateLimiter(redisTemplate, script, null);
+        redisRateLimiter.getConfig().put(ACCURACY_ROUTE, config);
+        // Connect before the clock starts
+        redisRateLimiter.isAllowed(ACCURACY_ROUTE, "warmup").block();
+        long ideal = ACCURACY_KEYS * (config.getBurstCapacity() + config.getReplenishRate() * TICK.multipliedBy(TICKS).toSeconds());
+
+        List<Accuracy> results = new ArrayList<>();
+        results.add(offer("redis", Collections.nCopies(INSTANCES, redisRateLimiter), null));
+        for (double leaseFraction : new double[] {0.01, 0.05, 0.1, 0.25, 0.5}) {
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            List<LeasingRateLimiter> instances = new ArrayList<>();
+            for (int i = 0; i < INSTANCES; i++) {
+                instances.add(new LeasingRateLimiter(null, redisTemplate, config, leaseFraction, Duration.ofSeconds(1), meterRegistry));
+            }
+            results.add(offer("leasing " + leaseFraction, instances, meterRegistry));
+        }
+
+        System.out.printf("%n%-14s %8s %9s %10s %10s%n", "limiter", "offered", "admitted", "of ideal %", "calls/req");
+        results.forEach(result -> System.out.printf("%-14s %8d %9d %10.1f %10.3f%n", result.limiter(), result.offered(),
+                result.admitted(), 100.0 * result.admitted() / ideal, result.callsPerRequest()));
+
+        // Leases move tokens between instances but never mint them
+        assertThat(results).allSatisfy(result -> assertThat(result.admitted()).isLessThanOrEqualTo((long) (ideal * 1.05)));
+    }
+
+    // Sends one request per key every tick, rotating the keys over the instances
+    private Accuracy offer(String name, List<? extends RateLimiter<?>> instances, SimpleMeterRegistry meterRegistry) {
+        AtomicLong admitted = new AtomicLong();
+        Flux.interval(TICK)
+                .take(TICKS)
+                .onBackpressureBuffer()
+                .flatMap(tick -> Flux.range(0, ACCURACY_KEYS)
+                        .flatMap(key -> instances.get((int) ((tick + key) % instances.size()))
+                                .isAllowed(ACCURACY_ROUTE, name + "-" + key)
+                                .doOnNext(response -> {
+                                    if (response.isAllowed()) {
+                                        admitted.incrementAndGet();
+                                    }
+                                })))
+                .blockLast();
+        long offered = (long) TICKS * ACCURACY_KEYS;
+        double callsPerRequest = meterRegistry == null ? 1.0
+                : meterRegistry.counter("gateway.ratelimit.redis.calls", "limiter", "leasing").count() / offered;
+        return new Accuracy(name, offered, admitted.get(), callsPerRequest);
+    }
+
+    private record Accuracy(String limiter, long offered, long admitted, double callsPerRequest) {
+    }
+
+    private Result run(String name, RateLimiter<?> rateLimiter, int inFlight) {
+        burst(rateLimiter, WARMUP_REQUESTS, inFlight);
+        return burst(rateLimiter, REQUESTS, inFlight).named(name, inFlight);
+    }
+
+    private Result burst(RateLimiter<?> rateLimiter, int requests, int inFlight) {
+        long[] latencies = new long[requests];
+        AtomicInteger allowed = new AtomicInteger();
+
+        long start = System.nanoTime();
+        Flux.range(0, requests)
+                .flatMap(i -> Mono.defer(() -> {
+                    long sent = System.nanoTime();
+                    return rateLimiter.isAllowed(ROUTE, "10.0." + (i % KEYS))
+                            .doOnNext(response -> {
+                                latencies[i] = System.nanoTime() - sent;
+                                if (response.isAllowed()) {
+                                    allowed.incrementAndGet();
+                                }
+                            });
+                }), inFlight)
+                .blockLast();
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new Result(null, 0, requests * 1_000_000_000.0 / elapsed, latencies, allowed.get());
+    }
+
+    private record Result(String limiter, int inFlight, double throughput, long[] sortedLatencies, int allowed) {
+
+        Result named(String limiter, int inFlight) {
+            return new Result(limiter, inFlight, throughput, sortedLatencies, allowed);
+        }
+
+        double mean() {
+            return Arrays.stream(sortedLatencies).average().orElse(0) / 1_000.0;
+        }
+
+        double percentile(double percentile) {
+            int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(index, 0)] / 1_000.0;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package binhnvh.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisBucketReconcilerTest {
+
+    private static final String ROUTE = "users";
+    private static final String CLIENT = "10.0.0.1";
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private ReactiveStringRedisTemplate redisTemplate;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        redisTemplate.execute(connection -> connection.serverCommands().flushAll()).blockLast();
+    }
+
+    @Test
+    @DisplayName("Should charge each instance with what the other instances spent on the same key")
+    void reconcile_shouldChargeTokensSpentElsewhere() {
+        // Arrange
+        LocalRateLimiter first = rateLimiter();
+        LocalRateLimiter second = rateLimiter();
+        RedisBucketReconciler firstReconciler = reconciler(first);
+        RedisBucketReconciler secondReconciler = reconciler(second);
+        second.isAllowed(ROUTE, CLIENT).block();
+        secondReconciler.reconcile();
+
+        // Act
+        for (int i = 0; i < 15; i++) {
+            first.isAllowed(ROUTE, CLIENT).block();
+        }
+        firstReconciler.reconcile();
+        secondReconciler.reconcile();
+
+        // Assert: 20 burst - 1 own - 15 spent on the first instance
+        int allowed = 0;
+        while (second.isAllowed(ROUTE, CLIENT).block().isAllowed()) {
+            allowed++;
+        }
+        assertThat(allowed).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should not charge an instance with its own consumption")
+    void reconcile_shouldNotChargeOwnConsumption() {
+        // Arrange
+        LocalRateLimiter rateLimiter = rateLimiter();
+        RedisBucketReconciler reconciler = reconciler(rateLimiter);
+        rateLimiter.isAllowed(ROUTE, CLIENT).block();
+        reconciler.reconcile();
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.isAllowed(ROUTE, CLIENT).block();
+        }
+        reconciler.reconcile();
+
+        // Assert
+        assertThat(rateLimiter.isAllowed(ROUTE, CLIENT).block().getHeaders())
+                .containsEntry(RedisRateLimiter.REMAINING_HEADER, "13");
+        assertThat(redisTemplate.opsForValue().get("request_rate_limiter.{users.10.0.0.1}.spent").block()).isEqualTo("6");
+    }
+
+    @Test
+    @DisplayName("Should keep spent tokens for the next run when Redis is unreachable")
+    void reconcile_shouldKeepSpentTokens_whenRedisFails() {
+        // Arrange
+        LettuceConnectionFactory unreachable = new LettuceConnectionFactory("localhost", 1);
+        unreachable.afterPropertiesSet();
+        unreachable.start();
+        LocalRateLimiter rateLimiter = rateLimiter();
+        RedisBucketReconciler reconciler = new RedisBucketReconciler(rateLimiter,
+                new ReactiveStringRedisTemplate(unreachable), Duration.ofMinutes(1), meterRegistry);
+        rateLimiter.isAllowed(ROUTE, CLIENT).block();
+
+        // Act
+        reconciler.reconcile();
+
+        // Assert
+        assertThat(meterRegistry.counter("gateway.ratelimit.reconcile.failed").count()).isEqualTo(1);
+        assertThat(rateLimiter.buckets()).singleElement().satisfies(bucket -> assertThat(bucket.drainSpent()).isEqualTo(1));
+        unreachable.destroy();
+    }
+
+    private LocalRateLimiter rateLimiter() {
+        RedisRateLimiter.Config config = new RedisRateLimiter.Config().setReplenishRate(10).setBurstCapacity(20);
+        return new LocalRateLimiter(null, config, 4, Duration.ofMinutes(1), meterRegistry, clock::get);
+    }
+
+    private RedisBucketReconciler reconciler(LocalRateLimiter rateLimiter) {
+        return new RedisBucketReconciler(rateLimiter, redisTemplate, Duration.ofMinutes(1), meterRegistry);
+    }
+}
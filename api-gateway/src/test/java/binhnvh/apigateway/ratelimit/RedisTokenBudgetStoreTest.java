@@ -0,0 +1,109 @@
+package binhnvh.apigateway.ratelimit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisTokenBudgetStoreTest {
+
+    private static final String ROUTE = "llm-processing-service";
+    private static final String USER = "principal:alice";
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private ReactiveStringRedisTemplate redisTemplate;
+    private RedisTokenBudgetStore store;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+        store = new RedisTokenBudgetStore(redisTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        redisTemplate.execute(connection -> connection.serverCommands().flushAll()).blockLast();
+    }
+
+    @Test
+    @DisplayName("Should reserve only what the shared bucket holds")
+    void reserve_shouldDeny_whenBucketTooLow() {
+        // Arrange: refills 1 token a second, so the test cannot outrun it
+        TokenQuota quota = new TokenQuota(1, 1000, 0);
+
+        // Act
+        TokenBudget first = store.reserve(ROUTE, USER, quota, 600).block();
+        TokenBudget second = store.reserve(ROUTE, USER, quota, 600).block();
+
+        // Assert
+        assertThat(first).isEqualTo(new TokenBudget(true, 400, -1));
+        assertThat(second.allowed()).isFalse();
+        assertThat(second.remaining()).isBetween(400L, 401L);
+    }
+
+    @Test
+    @DisplayName("Should apply an adjustment even into debt, and give back negative amounts")
+    void adjust_shouldOverdrawAndRefund() {
+        // Arrange
+        TokenQuota quota = new TokenQuota(1, 1000, 0);
+        store.reserve(ROUTE, USER, quota, 500).block();
+
+        // Act
+        TokenBudget overdrawn = store.adjust(ROUTE, USER, quota, 700).block();
+        TokenBudget denied = store.reserve(ROUTE, USER, quota, 1).block();
+        TokenBudget refunded = store.adjust(ROUTE, USER, quota, -500).block();
+
+        // Assert: 1000 - 500 - 700 leaves 200 of debt, reported as nothing left
+        assertThat(overdrawn.remaining()).isZero();
+        assertThat(denied.allowed()).isFalse();
+        assertThat(refunded.remaining()).isBetween(300L, 301L);
+    }
+
+    @Test
+    @DisplayName("Should count a daily total next to the rolling bucket")
+    void reserve_shouldDeny_whenDailyLimitReached() {
+        // Arrange
+        TokenQuota quota = new TokenQuota(1000, 1000, 500);
+
+        // Act
+        TokenBudget first = store.reserve(ROUTE, USER, quota, 300).block();
+        TokenBudget second = store.reserve(ROUTE, USER, quota, 300).block();
+
+        // Assert
+        assertThat(first.dailyRemaining()).isEqualTo(200);
+        assertThat(second.allowed()).isFalse();
+        assertThat(second.dailyRemaining()).isEqualTo(200);
+        assertThat(redisTemplate.keys("token_quota.{" + ROUTE + "." + USER + "}.daily.*").collectList().block()).hasSize(1);
+    }
+}
@@ -0,0 +1,111 @@
+package binhnvh.apigateway.ratelimit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestIdentityResolverTest {
+
+    private final RequestIdentityResolver resolver =
+            new RequestIdentityResolver(List.of("10.0.0.0/8", "fd00::/8"), "X-Api-Key", "tenant");
+
+    @Test
+    @DisplayName("Should use the remote address and ignore X-Forwarded-For when it comes from an untrusted peer")
+    void resolve_shouldIgnoreForwardedFor_whenPeerUntrusted() {
+        // Arrange
+        ServerWebExchange exchange = exchange(MockServerHttpRequest.get("/api/llm")
+                .remoteAddress(new InetSocketAddress("203.0.113.7", 40000))
+                .header("X-Forwarded-For", "198.51.100.1"));
+
+        // Act
+        RequestIdentity identity = resolver.resolve(exchange).block();
+
+        // Assert
+        assertThat(identity.getClientIp()).isEqualTo("203.0.113.7");
+        assertThat(identity.key(List.of(KeyPart.CLIENT))).isEqualTo("client-ip:203.0.113.7");
+    }
+
+    @Test
+    @DisplayName("Should take the first untrusted hop from the right of X-Forwarded-For behind trusted proxies")
+    void resolve_shouldSkipTrustedHops_whenBehindProxies() {
+        // Arrange: the client forged the leftmost entry
+        ServerWebExchange exchange = exchange(MockServerHttpRequest.get("/api/llm")
+                .remoteAddress(new InetSocketAddress("10.0.0.5", 40000))
+                .header("X-Forwarded-For", "1.1.1.1, 198.51.100.1", "10.1.2.3"));
+
+        // Act & Assert
+        assertThat(resolver.resolve(exchange).block().getClientIp()).isEqualTo("198.51.100.1");
+    }
+
+    @Test
+    @DisplayName("Should leave the client address unknown instead of failing when there is no remote address")
+    void resolve_shouldNotFail_whenRemoteAddressMissing() {
+        // Arrange
+        ServerWebExchange exchange = exchange(MockServerHttpRequest.get("/api/llm"));
+
+        // Act
+        RequestIdentity identity = resolver.resolve(exchange).block();
+
+        // Assert
+        assertThat(identity.getClientIp()).isNull();
+        assertThat(identity.key(List.of(KeyPart.CLIENT_IP))).isNull();
+        assertThat(new CompositeKeyResolver(resolver, KeyPart.CLIENT).resolve(exchange).block()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should key on the principal and the tenant claim of a bearer token")
+    void resolve_shouldUsePrincipalAndTenant_whenAuthenticatedWithJwt() {
+        // Arrange
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "HS256").subject("alice").claim("tenant", "acme").build();
+        ServerWebExchange exchange = exchange(MockServerHttpRequest.get("/api/llm")
+                .remoteAddress(new InetSocketAddress("203.0.113.7", 40000)))
+                .mutate().principal(Mono.just(new JwtAuthenticationToken(jwt, List.of()))).build();
+
+        // Act
+        RequestIdentity identity = resolver.resolve(exchange).block();
+
+        // Assert
+        assertThat(identity.key(List.of(KeyPart.TENANT, KeyPart.CLIENT))).isEqualTo("tenant:acme/principal:alice");
+    }
+
+    @Test
+    @DisplayName("Should treat an unauthenticated token as anonymous and never keep the raw API key")
+    void resolve_shouldHashApiKey_andIgnoreUnauthenticatedPrincipal() {
+        // Arrange
+        ServerWebExchange exchange = exchange(MockServerHttpRequest.get("/api/llm")
+                .remoteAddress(new InetSocketAddress("203.0.113.7", 40000))
+                .header("X-Api-Key", "secret-key"))
+                .mutate().principal(Mono.just(new UsernamePasswordAuthenticationToken("mallory", "pw"))).build();
+
+        // Act
+        RequestIdentity identity = resolver.resolve(exchange).block();
+
+        // Assert
+        assertThat(identity.getPrincipal()).isNull();
+        assertThat(identity.getApiKey()).hasSize(16).doesNotContain("secret");
+        assertThat(identity.key(List.of())).isEqualTo(RequestIdentity.ANY);
+    }
+
+    @Test
+    @DisplayName("Should reject a trusted proxy that is not an address or CIDR range")
+    void constructor_shouldReject_whenTrustedProxyIsHostName() {
+        assertThatThrownBy(() -> new RequestIdentityResolver(List.of("lb.internal"), "X-Api-Key", "tenant"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        return MockServerWebExchange.from(request);
+    }
+}
@@ -0,0 +1,174 @@
+package binhnvh.apigateway.routing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.handler.AsyncPredicate;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.handler.predicate.MethodRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndexedRoutePredicateHandlerMappingTest {
+
+    private static final PathRoutePredicateFactory PATH = new PathRoutePredicateFactory();
+    private static final MethodRoutePredicateFactory METHOD = new MethodRoutePredicateFactory();
+
+    @Test
+    @DisplayName("Should match every request to the route a linear lookup picks")
+    void lookupRoute_shouldPickSameRouteAsLinearLookup_forEveryRequest() {
+        // Arrange
+        List<Route> routes = List.of(
+                route("canary", AsyncPredicate.from(exchange -> exchange.getRequest().getHeaders()
+                        .containsKey("X-Canary"))),
+                route("user-by-id", METHOD.applyAsync(methods(HttpMethod.GET)).and(path("/api/users/{id}"))),
+                route("users", path("/api/users/**", "/api/auth/**")),
+                route("tools", path("/api/tools/**")),
+                route("eureka-web", path("/eureka/web")),
+                route("eureka", path("/eureka/**")),
+                route("code-built", path("/api/never/**").or(path("/internal/**"))),
+                route("catch-all", path("/**")));
+        AtomicReference<List<Route>> current = new AtomicReference<>(routes);
+        IndexedRoutePredicateHandlerMapping indexed = mapping(current, new SimpleMeterRegistry(), "code-built");
+        IndexedRoutePredicateHandlerMapping linear = mapping(current, new SimpleMeterRegistry(), "code-built");
+        indexed.rebuild();
+        List<MockServerHttpRequest> requests = List.of(
+                MockServerHttpRequest.get("/api/users/1").build(),
+                MockServerHttpRequest.post("/api/users/1").build(),
+                MockServerHttpRequest.get("/api/users/1/roles").build(),
+                MockServerHttpRequest.get("/api/%75sers/1").build(),
+                MockServerHttpRequest.post("/api/auth/login").build(),
+                MockServerHttpRequest.get("/api/tools").build(),
+                MockServerHttpRequest.get("/api/tools/").build(),
+                MockServerHttpRequest.get("/api/tools/a/b").build(),
+                MockServerHttpRequest.get("/api//tools/a").build(),
+                MockServerHttpRequest.get("/api/tools/a").header("X-Canary", "1").build(),
+                MockServerHttpRequest.get("/eureka/web").build(),
+                MockServerHttpRequest.get("/eureka/apps").build(),
+                MockServerHttpRequest.get("/internal/health").build(),
+                MockServerHttpRequest.get("/unknown").build(),
+                MockServerHttpRequest.get("/").build());
+        Map<String, String> expected = new LinkedHashMap<>();
+        requests.forEach(request -> expected.put(request.getMethod() + " " + request.getURI().getRawPath()
+                + request.getHeaders().keySet(), routeId(linear, request)));
+
+        // Act
+        Map<String, String> actual = new LinkedHashMap<>();
+        requests.forEach(request -> actual.put(request.getMethod() + " " + request.getURI().getRawPath()
+                + request.getHeaders().keySet(), routeId(indexed, request)));
+
+        // Assert
+        assertThat(linear.getTable()).isNull();
+        assertThat(indexed.getTable().size()).isEqualTo(8);
+        assertThat(indexed.getTable().unindexed()).isEqualTo(3);
+        assertThat(actual).isEqualTo(expected);
+        assertThat(actual).containsEntry("GET /api/users/1[]", "user-by-id")
+                .containsEntry("POST /api/users/1[]", "users")
+                .containsEntry("GET /api/tools/a[X-Canary]", "canary")
+                .containsEntry("GET /eureka/web[]", "eureka-web")
+                .containsEntry("GET /internal/health[]", "code-built")
+                .containsEntry("GET /unknown[]", "catch-all");
+    }
+
+    @Test
+    @DisplayName("Should swap in changed routes on rebuild, finishing lookups already started on the old ones")
+    void rebuild_shouldSwapTable_whileLookupsInFlight() {
+        // Arrange
+        AtomicReference<List<Route>> current = new AtomicReference<>(List.of(
+                route("tools", path("/api/tools/**")),
+                route("flows", path("/api/flows/**"))));
+        IndexedRoutePredicateHandlerMapping mapping = mapping(current, new SimpleMeterRegistry());
+        mapping.rebuild();
+        Mono<Route> inFlight = mapping.lookupRoute(exchange(MockServerHttpRequest.get("/api/flows/1").build()));
+
+        // Act
+        current.set(List.of(
+                route("tools-v2", path("/api/tools/**")),
+                route("executions", path("/api/executions/**"))));
+        mapping.rebuild();
+
+        // Assert
+        assertThat(inFlight.map(Route::getId).block(Duration.ofSeconds(1))).isEqualTo("flows");
+        assertThat(routeId(mapping, MockServerHttpRequest.get("/api/flows/1").build())).isNull();
+        assertThat(routeId(mapping, MockServerHttpRequest.get("/api/tools/1").build())).isEqualTo("tools-v2");
+        assertThat(routeId(mapping, MockServerHttpRequest.get("/api/executions/1").build())).isEqualTo("executions");
+    }
+
+    @Test
+    @DisplayName("Should time lookups by whether a route matched")
+    void lookupRoute_shouldRecordMatchTime_byOutcome() {
+        // Arrange
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        IndexedRoutePredicateHandlerMapping mapping = mapping(
+                new AtomicReference<>(List.of(route("tools", path("/api/tools/**")))), meterRegistry);
+        mapping.rebuild();
+
+        // Act
+        routeId(mapping, MockServerHttpRequest.get("/api/tools/1").build());
+        routeId(mapping, MockServerHttpRequest.get("/api/tools/2").build());
+        routeId(mapping, MockServerHttpRequest.get("/api/flows/1").build());
+
+        // Assert
+        assertThat(meterRegistry.get("gateway.route.match").tag("outcome", "matched").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("gateway.route.match").tag("outcome", "unmatched").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.route.table.routes").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.route.table.rebuilds").counter().count()).isEqualTo(1);
+    }
+
+    // Routes of the reference are served as if from definitions, except those named as built in code
+    private static IndexedRoutePredicateHandlerMapping mapping(AtomicReference<List<Route>> routes,
+                                                               MeterRegistry meterRegistry, String... builtInCode) {
+        List<String> codeRoutes = List.of(builtInCode);
+        return new IndexedRoutePredicateHandlerMapping(new FilteringWebHandler(List.of(), false),
+                () -> Flux.fromIterable(routes.get()),
+                () -> Flux.fromIterable(routes.get())
+                        .filter(route -> !codeRoutes.contains(route.getId()))
+                        .map(route -> {
+                            RouteDefinition definition = new RouteDefinition();
+                            definition.setId(route.getId());
+                            return definition;
+                        }),
+                new GlobalCorsProperties(), new MockEnvironment(), meterRegistry);
+    }
+
+    private static String routeId(IndexedRoutePredicateHandlerMapping mapping, MockServerHttpRequest request) {
+        return mapping.lookupRoute(exchange(request)).map(Route::getId).block(Duration.ofSeconds(1));
+    }
+
+    private static ServerWebExchange exchange(MockServerHttpRequest request) {
+        return MockServerWebExchange.from(request);
+    }
+
+    private static Route route(String id, AsyncPredicate<ServerWebExchange> predicate) {
+        return Route.async().id(id).uri("http://localhost:8081").asyncPredicate(predicate).build();
+    }
+
+    private static AsyncPredicate<ServerWebExchange> path(String... patterns) {
+        return PATH.applyAsync(new PathRoutePredicateFactory.Config().setPatterns(new ArrayList<>(List.of(patterns))));
+    }
+
+    private static MethodRoutePredicateFactory.Config methods(HttpMethod... methods) {
+        MethodRoutePredicateFactory.Config config = new MethodRoutePredicateFactory.Config();
+        config.setMethods(methods);
+        return config;
+    }
+}
@@ -0,0 +1,159 @@
+package binhnvh.apigateway.routing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.handler.AsyncPredicate;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.handler.predicate.MethodRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Route lookup time over {@value #SERVICES} services of {@value #ROUTES_PER_SERVICE} routes each, testing every
+ * route in turn as Spring Cloud Gateway does and through the {@link RouteTable}. Routes are
+ * {@code /api/<service>/<resource>/**} paths, every other one restricted to GET, with a catch-all last; requests
+ * go to random routes, a tenth of them to unknown paths that only the catch-all matches.
+ *
+ * Both lookups take turns for {@value #ROUNDS} rounds after a warm-up, and must find the same route for every
+ * request.
+ *
+ * Run with {@code mvn test -Dtest=RouteMatchBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RouteMatchBenchmarkTest {
+
+    private static final int SERVICES = 60;
+    private static final int ROUTES_PER_SERVICE = 10;
+    private static final int REQUESTS = 20_000;
+    private static final int WARMUP_REQUESTS = 20_000;
+    private static final int ROUNDS = 3;
+
+    @Test
+    @DisplayName("Benchmark: route lookup over 600 routes, linear against the route table")
+    void benchmark() {
+        List<Route> routes = routes();
+        IndexedRoutePredicateHandlerMapping linear = mapping(routes);
+        IndexedRoutePredicateHandlerMapping indexed = mapping(routes);
+        indexed.rebuild();
+        List<MockServerHttpRequest> requests = requests(new Random(42));
+
+        String[] linearMatches = run(linear, requests, WARMUP_REQUESTS, new long[WARMUP_REQUESTS]);
+        String[] indexedMatches = run(indexed, requests, WARMUP_REQUESTS, new long[WARMUP_REQUESTS]);
+        long[] linearNanos = new long[REQUESTS * ROUNDS];
+        long[] indexedNanos = new long[REQUESTS * ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            System.arraycopy(time(linear, requests), 0, linearNanos, round * REQUESTS, REQUESTS);
+            System.arraycopy(time(indexed, requests), 0, indexedNanos, round * REQUESTS, REQUESTS);
+        }
+
+        System.out.printf("%n%-8s %8s %10s %10s %10s %12s%n", "lookup", "routes", "mean us", "p50 us", "p99 us",
+                "lookups/s");
+        print("linear", routes.size(), linearNanos);
+        print("indexed", routes.size(), indexedNanos);
+
+        assertThat(routes).hasSizeGreaterThanOrEqualTo(500);
+        assertThat(indexed.getTable().unindexed()).isEqualTo(1);
+        assertThat(indexedMatches).containsExactly(linearMatches).doesNotContainNull();
+        assertThat(mean(indexedNanos)).isLessThan(mean(linearNanos) / 5);
+    }
+
+    private static String[] run(IndexedRoutePredicateHandlerMapping mapping, List<MockServerHttpRequest> requests,
+                                int count, long[] nanos) {
+        String[] matches = new String[count];
+        for (int i = 0; i < count; i++) {
+            ServerWebExchange exchange = MockServerWebExchange.from(requests.get(i % requests.size()));
+            long startedAt = System.nanoTime();
+            Route route = mapping.lookupRoute(exchange).block();
+            nanos[i] = System.nanoTime() - startedAt;
+            matches[i] = route == null ? null : route.getId();
+        }
+        return matches;
+    }
+
+    private static long[] time(IndexedRoutePredicateHandlerMapping mapping, List<MockServerHttpRequest> requests) {
+        long[] nanos = new long[REQUESTS];
+        run(mapping, requests, REQUESTS, nanos);
+        return nanos;
+    }
+
+    private static void print(String lookup, int routes, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double mean = mean(nanos);
+        System.out.printf("%-8s %8d %10.2f %10.2f %10.2f %12.0f%n", lookup, routes, mean / 1_000,
+                sorted[sorted.length / 2] / 1_000.0, sorted[(int) (sorted.length * 0.99)] / 1_000.0,
+                1_000_000_000 / mean);
+    }
+
+    private static double mean(long[] nanos) {
+        return Arrays.stream(nanos).average().orElse(0);
+    }
+
+    private static List<Route> routes() {
+        PathRoutePredicateFactory path = new PathRoutePredicateFactory();
+        MethodRoutePredicateFactory method = new MethodRoutePredicateFactory();
+        MethodRoutePredicateFactory.Config get = new MethodRoutePredicateFactory.Config();
+        get.setMethods(HttpMethod.GET);
+        List<Route> routes = new ArrayList<>();
+        for (int service = 0; service < SERVICES; service++) {
+            for (int resource = 0; resource < ROUTES_PER_SERVICE; resource++) {
+                AsyncPredicate<ServerWebExchange> predicate = path.applyAsync(new PathRoutePredicateFactory.Config()
+                        .setPatterns(List.of("/api/service-" + service + "/resource-" + resource + "/**")));
+                if (resource % 2 == 1) {
+                    predicate = method.applyAsync(get).and(predicate);
+                }
+                routes.add(Route.async()
+                        .id("service-" + service + "-resource-" + resource)
+                        .uri("lb://service-" + service)
+                        .asyncPredicate(predicate)
+                        .build());
+            }
+        }
+        routes.add(Route.async()
+                .id("catch-all")
+                .uri("forward:/fallback")
+                .asyncPredicate(path.applyAsync(new PathRoutePredicateFactory.Config().setPatterns(List.of("/**"))))
+                .build());
+        return routes;
+    }
+
+    private static List<MockServerHttpRequest> requests(Random random) {
+        List<MockServerHttpRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            String path = random.nextInt(10) == 0 ? "/unknown/" + i
+                    : "/api/service-" + random.nextInt(SERVICES) + "/resource-" + random.nextInt(ROUTES_PER_SERVICE)
+                    + "/" + i;
+            requests.add(random.nextBoolean() ? MockServerHttpRequest.get(path).build()
+                    : MockServerHttpRequest.post(path).build());
+        }
+        return requests;
+    }
+
+    private static IndexedRoutePredicateHandlerMapping mapping(List<Route> routes) {
+        return new IndexedRoutePredicateHandlerMapping(new FilteringWebHandler(List.of(), false),
+                () -> Flux.fromIterable(routes),
+                () -> Flux.fromIterable(routes).map(route -> {
+                    RouteDefinition definition = new RouteDefinition();
+                    definition.setId(route.getId());
+                    return definition;
+                }),
+                new GlobalCorsProperties(), new MockEnvironment(), new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,199 @@
+package binhnvh.apigateway.scheduling;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestSchedulerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private final VirtualTimeScheduler timer = VirtualTimeScheduler.create();
+    private final List<String> admitted = new ArrayList<>();
+    private final List<String> rejected = new ArrayList<>();
+    private final List<RequestScheduler.Permit> permits = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        timer.dispose();
+    }
+
+    @Test
+    @DisplayName("Should classify requests by the first class whose criteria they meet, else the last class")
+    void classify_shouldPickFirstMatch_elseLastClass() {
+        // Arrange
+        RequestScheduler scheduler = scheduler(1, 10, Map.of(),
+                new PriorityClass("interactive", Set.of("tools"), Set.of("get"), Set.of(), 10, Duration.ofSeconds(1)),
+                new PriorityClass("batch", Set.of(), Set.of(), Set.of("reporter"), 10, Duration.ofSeconds(1)),
+                new PriorityClass("background", Set.of(), Set.of(), Set.of(), 10, Duration.ofSeconds(1)));
+
+        // Act & Assert
+        assertThat(scheduler.classify("tools", "GET", "alice").getName()).isEqualTo("interactive");
+        assertThat(scheduler.classify("tools", "POST", "reporter").getName()).isEqualTo("batch");
+        assertThat(scheduler.classify("flows", "POST", null).getName()).isEqualTo("background");
+    }
+
+    @Test
+    @DisplayName("Should give a freed slot to the highest class waiting, and record queue time per class")
+    void release_shouldAdmitHighestClassFirst() {
+        // Arrange
+        RequestScheduler scheduler = scheduler(1, 10, Map.of(), high(10), low(10));
+        acquire(scheduler, "low", "acme", "running");
+        acquire(scheduler, "low", "acme", "low");
+        acquire(scheduler, "high", "acme", "high");
+
+        // Act
+        clock.addAndGet(Duration.ofMillis(300).toNanos());
+        permits.get(0).release();
+        permits.get(1).release();
+
+        // Assert
+        assertThat(admitted).containsExactly("running", "high", "low");
+        assertThat(meterRegistry.get("gateway.scheduler.queue.time").tag("class", "high").timer()
+                .totalTime(TimeUnit.MILLISECONDS)).isEqualTo(300);
+        assertThat(scheduler.inUse()).isEqualTo(1);
+        assertThat(scheduler.queued()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should let tenants take turns within a class, in proportion to their weights")
+    void release_shouldShareClassFairlyBetweenTenants() {
+        // Arrange
+        RequestScheduler scheduler = scheduler(1, 20, Map.of("gold", 2.0), high(20));
+        acquire(scheduler, "high", "acme", "running");
+        for (int i = 1; i <= 4; i++) {
+            acquire(scheduler, "high", "acme", "acme" + i);
+        }
+        for (int i = 1; i <= 4; i++) {
+            acquire(scheduler, "high", "gold", "gold" + i);
+        }
+
+        // Act
+        for (int i = 0; i < 8; i++) {
+            permits.get(i).release();
+        }
+
+        // Assert
+        assertThat(admitted).containsExactly("running", "gold1", "acme1", "gold2", "gold3", "acme2", "gold4",
+                "acme3", "acme4");
+    }
+
+    @Test
+    @DisplayName("Should shed the lowest class waiting to make room for a higher one once the queues are full")
+    void acquire_shouldEvictLowestClass_whenQueuesFull() {
+        // Arrange
+        RequestScheduler scheduler = scheduler(1, 2, Map.of(), high(10), low(10));
+        acquire(scheduler, "low", "acme", "running");
+        acquire(scheduler, "low", "acme", "low1");
+        acquire(scheduler, "low", "acme", "low2");
+
+        // Act
+        acquire(scheduler, "high", "acme", "high");
+        acquire(scheduler, "low", "acme", "low3");
+
+        // Assert
+        assertThat(rejected).containsExactly("low2", "low3");
+        assertThat(meterRegistry.get("gateway.scheduler.requests").tags("class", "low", "result", "evicted")
+                .counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.scheduler.requests").tags("class", "low", "result", "queue_full")
+                .counter().count()).isEqualTo(1);
+        permits.get(0).release();
+        assertThat(admitted).containsExactly("running", "high");
+    }
+
+    @Test
+    @DisplayName("Should make room in a full class queue by shedding the tenant furthest ahead of its share")
+    void acquire_shouldPushOutHeaviestTenant_whenClassQueueFull() {
+        // Arrange
+        RequestScheduler scheduler = scheduler(1, 10, Map.of(), high(2));
+        acquire(scheduler, "high", "acme", "running");
+        acquire(scheduler, "high", "acme", "acme1");
+        acquire(scheduler, "high", "acme", "acme2");
+
+        // Act
+        acquire(scheduler, "high", "globex", "globex1");
+
+        // Assert
+        assertThat(rejected).containsExactly("acme2");
+        permits.get(0).release();
+        permits.get(1).release();
+        assertThat(admitted).containsExactly("running", "acme1", "globex1");
+    }
+
+    @Test
+    @DisplayName("Should keep slots for higher classes while a lower class holds its max in flight")
+    void acquire_shouldNotLetLowerClassTakeAllSlots_whenAtMaxInFlight() {
+        // Arrange
+        RequestScheduler scheduler = scheduler(4, 10, Map.of(), high(10),
+                new PriorityClass("low", Set.of(), Set.of(), Set.of(), 10, Duration.ofSeconds(1), 2));
+        acquire(scheduler, "low", "acme", "stream1");
+        acquire(scheduler, "low", "acme", "stream2");
+        acquire(scheduler, "low", "acme", "stream3");
+
+        // Act
+        acquire(scheduler, "high", "acme", "interactive1");
+        acquire(scheduler, "high", "acme", "interactive2");
+        acquire(scheduler, "high", "acme", "interactive3");
+        permits.get(2).release();
+
+        // Assert
+        assertThat(admitted).containsExactly("stream1", "stream2", "interactive1", "interactive2", "interactive3");
+        assertThat(scheduler.inFlight("low")).isEqualTo(2);
+        assertThat(scheduler.queued()).isEqualTo(1);
+        permits.get(0).release();
+        assertThat(admitted).endsWith("stream3");
+        assertThat(scheduler.inFlight("low")).isEqualTo(2);
+        assertThat(rejected).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should shed requests that waited longer than their class allows")
+    void acquire_shouldTimeOut_afterMaxWait() {
+        // Arrange
+        RequestScheduler scheduler = scheduler(1, 10, Map.of(), high(10));
+        acquire(scheduler, "high", "acme", "running");
+        acquire(scheduler, "high", "acme", "waiting");
+
+        // Act
+        timer.advanceTimeBy(Duration.ofSeconds(2));
+
+        // Assert
+        assertThat(rejected).containsExactly("waiting");
+        assertThat(meterRegistry.get("gateway.scheduler.requests").tags("class", "high", "result", "timeout")
+                .counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.scheduler.queued").tag("class", "high").gauge().value()).isZero();
+        permits.get(0).release();
+        assertThat(scheduler.inUse()).isZero();
+    }
+
+    private RequestScheduler scheduler(int capacity, int maxQueued, Map<String, Double> weights, PriorityClass... classes) {
+        return new RequestScheduler(capacity, maxQueued, List.of(classes), weights, meterRegistry, clock::get, timer);
+    }
+
+    private void acquire(RequestScheduler scheduler, String className, String tenant, String label) {
+        scheduler.acquire(className, tenant).subscribe(permit -> {
+            admitted.add(label);
+            permits.add(permit);
+        }, error -> rejected.add(label));
+    }
+
+    private static PriorityClass high(int maxQueue) {
+        return new PriorityClass("high", Set.of(), Set.of("GET"), Set.of(), maxQueue, Duration.ofSeconds(1));
+    }
+
+    private static PriorityClass low(int maxQueue) {
+        return new PriorityClass("low", Set.of(), Set.of(), Set.of(), maxQueue, Duration.ofSeconds(1));
+    }
+}
@@ -0,0 +1,87 @@
+package binhnvh.apigateway.scheduling;
+
+import binhnvh.apigateway.ratelimit.RequestIdentityResolver;
+import binhnvh.apigateway.scheduling.RequestSchedulingGatewayFilterFactory.Config;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class RequestSchedulingGatewayFilterFactoryTest {
+
+    private static final String ROUTE = "tool-registry-service";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RequestScheduler scheduler;
+    private RequestSchedulingGatewayFilterFactory factory;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new RequestScheduler(1, 0, List.of(
+                new PriorityClass("interactive", Set.of(ROUTE), Set.of("GET"), Set.of(), 0, Duration.ofSeconds(1)),
+                new PriorityClass("background", Set.of(), Set.of(), Set.of(), 0, Duration.ofSeconds(1))),
+                Map.of(), meterRegistry);
+        factory = new RequestSchedulingGatewayFilterFactory(scheduler,
+                new RequestIdentityResolver(List.of(), "X-Api-Key", "tenant"));
+    }
+
+    @Test
+    @DisplayName("Should answer 503 with Retry-After when the scheduler sheds the request, and free the slot after")
+    void filter_shouldShed_whenSchedulerFull() throws Exception {
+        // Arrange
+        GatewayFilter filter = factory.apply(new Config().setRetryAfter(Duration.ofSeconds(2)));
+        Sinks.Empty<Void> release = Sinks.empty();
+        GatewayFilterChain held = exchange -> release.asMono();
+
+        // Act
+        CompletableFuture<Void> first = filter.filter(exchange(MockServerHttpRequest.get("/api/tools/1")), held).toFuture();
+        ServerWebExchange shed = exchange(MockServerHttpRequest.post("/api/tools"));
+        filter.filter(shed, held).block(Duration.ofSeconds(5));
+        release.tryEmitEmpty();
+        first.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(shed.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(shed.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        assertThat(meterRegistry.get("gateway.scheduler.requests").tags("class", "interactive", "result", "admitted")
+                .counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.scheduler.requests").tags("class", "background", "result", "queue_full")
+                .counter().count()).isEqualTo(1);
+        assertThat(scheduler.inUse()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should reject a priority class the scheduler does not know")
+    void apply_shouldReject_unknownPriorityClass() {
+        // Act & Assert
+        assertThatThrownBy(() -> factory.apply(new Config().setPriorityClass("urgent")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        ServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR,
+                Route.async().id(ROUTE).uri("http://localhost").predicate(e -> true).build());
+        return exchange;
+    }
+}
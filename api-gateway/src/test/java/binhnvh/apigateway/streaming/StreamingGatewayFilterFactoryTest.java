@@ -0,0 +1,222 @@
+package binhnvh.apigateway.streaming;
+
+import binhnvh.apigateway.streaming.StreamingGatewayFilterFactory.Config;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.DispatcherHandler;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class StreamingGatewayFilterFactoryTest {
+
+    private static final String ROUTE = "llm-processing-service";
+    private static final String BREAKER = "llmProcessingCircuitBreaker";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Fallback fallback = new Fallback();
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private StreamingGatewayFilterFactory factory;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slowCallDurationThreshold(Duration.ofMillis(100))
+                .build());
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("dispatcherHandler", fallback);
+        factory = new StreamingGatewayFilterFactory(circuitBreakerRegistry,
+                beans.getBeanProvider(DispatcherHandler.class), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should flush every chunk and let a stream run longer than the idle timeout while it keeps sending")
+    void filter_shouldFlushEachChunk_andOutliveIdleTimeout() {
+        // Arrange
+        GatewayFilter filter = factory.apply(config().setIdleTimeout(Duration.ofMillis(150)));
+        Flushes flushes = new Flushes();
+        ServerWebExchange exchange = exchange(flushes);
+        Upstream upstream = new Upstream(response -> response.writeWith(chunks(response, 5, Duration.ofMillis(60))));
+
+        // Act
+        filter.filter(exchange, upstream).block(Duration.ofSeconds(5));
+
+        // Assert
+        assertThat(flushes.count).hasValue(5);
+        assertThat(body(exchange)).isEqualTo("data:0\n\ndata:1\n\ndata:2\n\ndata:3\n\ndata:4\n\n");
+        assertThat(meterRegistry.get("gateway.stream.first.byte").tag("route", ROUTE).timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.stream.duration").tag("outcome", "completed").timer()
+                .totalTime(TimeUnit.MILLISECONDS)).isGreaterThan(150);
+        // Settled at the response headers, so a long stream is neither slow nor failed
+        CircuitBreaker.Metrics metrics = circuitBreakerRegistry.circuitBreaker(BREAKER).getMetrics();
+        assertThat(metrics.getNumberOfSuccessfulCalls()).isEqualTo(1);
+        assertThat(metrics.getNumberOfSlowCalls()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should cut a stream off once upstream stays silent for the idle timeout")
+    void filter_shouldFail_whenUpstreamIdle() {
+        // Arrange
+        GatewayFilter filter = factory.apply(config().setIdleTimeout(Duration.ofMillis(50)));
+        ServerWebExchange exchange = exchange(null);
+        Upstream upstream = new Upstream(response -> response.writeWith(
+                Flux.concat(chunks(response, 1, Duration.ZERO), Flux.never())));
+
+        // Act & Assert
+        assertThatThrownBy(() -> filter.filter(exchange, upstream).block(Duration.ofSeconds(5)))
+                .hasCauseInstanceOf(StreamingGatewayFilterFactory.IdleTimeoutException.class);
+        assertThat(meterRegistry.get("gateway.stream.duration").tag("outcome", "idle_timeout").timer().count())
+                .isEqualTo(1);
+        assertThat(circuitBreakerRegistry.circuitBreaker(BREAKER).getMetrics().getNumberOfFailedCalls()).isZero();
+        assertThat(fallback.calls).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("Should count a failure before the response headers and answer from the fallback")
+    void filter_shouldRecordFailure_andFallBack_whenUpstreamFailsBeforeHeaders() {
+        // Arrange
+        GatewayFilter filter = factory.apply(config());
+        ServerWebExchange exchange = exchange(null);
+        Upstream upstream = new Upstream(response -> Mono.error(new ConnectException("Connection refused")));
+
+        // Act
+        filter.filter(exchange, upstream).block(Duration.ofSeconds(5));
+
+        // Assert
+        assertThat(fallback.calls).hasValue(1);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(circuitBreakerRegistry.circuitBreaker(BREAKER).getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.stream.duration").tag("outcome", "error").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should not go upstream while the circuit is open")
+    void filter_shouldFallBack_withoutUpstream_whenCircuitOpen() {
+        // Arrange
+        GatewayFilter filter = factory.apply(config());
+        circuitBreakerRegistry.circuitBreaker(BREAKER).transitionToForcedOpenState();
+        ServerWebExchange exchange = exchange(null);
+        Upstream upstream = new Upstream(response -> response.writeWith(chunks(response, 1, Duration.ZERO)));
+
+        // Act
+        filter.filter(exchange, upstream).block(Duration.ofSeconds(5));
+
+        // Assert
+        assertThat(upstream.calls).hasValue(0);
+        assertThat(fallback.calls).hasValue(1);
+        assertThat(fallback.path).isEqualTo("/fallback/llm-processor");
+    }
+
+    private static Config config() {
+        return new Config().setName(BREAKER).setFallbackUri("forward:/fallback/llm-processor");
+    }
+
+    private static ServerWebExchange exchange(Flushes flushes) {
+        MockServerWebExchange mock = MockServerWebExchange.from(MockServerHttpRequest.post("/api/llm/completions"));
+        ServerWebExchange exchange = flushes == null ? mock : mock.mutate().response(flushes.wrap(mock.getResponse())).build();
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR,
+                Route.async().id(ROUTE).uri("http://localhost").predicate(e -> true).build());
+        return exchange;
+    }
+
+    private static Flux<DataBuffer> chunks(ServerHttpResponse response, int count, Duration interval) {
+        return Flux.range(0, count)
+                .delayElements(interval.isZero() ? Duration.ofMillis(1) : interval)
+                .map(i -> response.bufferFactory().wrap(("data:" + i + "\n\n").getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String body(ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        while (response instanceof ServerHttpResponseDecorator decorator) {
+            response = decorator.getDelegate();
+        }
+        return ((MockServerHttpResponse) response).getBodyAsString().block();
+    }
+
+    /**
+     * Answers with an event stream written by the given function.
+     */
+    private static final class Upstream implements GatewayFilterChain {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Function<ServerHttpResponse, Mono<Void>> writer;
+
+        Upstream(Function<ServerHttpResponse, Mono<Void>> writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            calls.incrementAndGet();
+            return Mono.defer(() -> {
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(HttpStatus.OK);
+                response.getHeaders().setContentType(MediaType.TEXT_EVENT_STREAM);
+                return writer.apply(response);
+            });
+        }
+    }
+
+    /**
+     * Counts the flushes the client connection is asked for.
+     */
+    private static final class Flushes {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        ServerHttpResponse wrap(ServerHttpResponse response) {
+            return new ServerHttpResponseDecorator(response) {
+                @Override
+                public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+                    return super.writeAndFlushWith(Flux.from(body).doOnNext(chunk -> count.incrementAndGet()));
+                }
+            };
+        }
+    }
+
+    /**
+     * Stands in for the fallback controller.
+     */
+    private static final class Fallback extends DispatcherHandler {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile String path;
+
+        @Override
+        public Mono<Void> handle(ServerWebExchange exchange) {
+            calls.incrementAndGet();
+            path = exchange.getRequest().getPath().value();
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return exchange.getResponse().setComplete();
+        }
+    }
+}
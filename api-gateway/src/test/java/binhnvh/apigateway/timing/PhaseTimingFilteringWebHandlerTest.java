@@ -0,0 +1,140 @@
+package binhnvh.apigateway.timing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class PhaseTimingFilteringWebHandlerTest {
+
+    private static final Duration BACKEND_DELAY = Duration.ofMillis(50);
+
+    private DisposableServer backend;
+    private PhaseTimingFilteringWebHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        backend = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .handle((request, response) -> Mono.delay(BACKEND_DELAY).then(response.sendString(Mono.just("ok")).then()))
+                .bindNow();
+        HttpClient client = new PhaseTimingHttpClientCustomizer().customize(HttpClient.create());
+        UpstreamFilter upstream = new UpstreamFilter(client, "http://127.0.0.1:" + backend.port() + "/");
+        handler = new PhaseTimingFilteringWebHandler(List.of(upstream), false,
+                Map.of(LimiterFactory.class, Phase.RATE_LIMIT, UpstreamFilter.class, Phase.CONNECT));
+    }
+
+    @AfterEach
+    void tearDown() {
+        backend.disposeNow();
+    }
+
+    @Test
+    @DisplayName("Should account each mapped filter's time and the upstream call to their phases")
+    void handle_shouldAccountTimeToPhases_ofMappedFilters() {
+        // Arrange
+        ServerWebExchange exchange = exchange(new LimiterFactory().apply(true));
+        PhaseTimings timings = PhaseTimings.of(exchange);
+
+        // Act
+        handler.handle(exchange).block(Duration.ofSeconds(5));
+        timings.finish();
+
+        // Assert
+        assertThat(timings.nanos(Phase.RATE_LIMIT)).isGreaterThanOrEqualTo(LimiterFactory.DELAY.toNanos());
+        assertThat(timings.nanos(Phase.UPSTREAM)).isGreaterThanOrEqualTo(BACKEND_DELAY.toNanos());
+        assertThat(timings.nanos(Phase.FILTERS)).isLessThan(LimiterFactory.DELAY.toNanos());
+        assertThat(List.of(Phase.ROUTE, Phase.FILTERS, Phase.RATE_LIMIT, Phase.CONNECT, Phase.UPSTREAM,
+                Phase.RESPONSE)).allMatch(timings::wasEntered);
+        assertThat(timings.wasEntered(Phase.CACHE)).isFalse();
+        assertThat(timings.serverTiming()).startsWith("route;dur=").endsWith(
+                String.format(java.util.Locale.ROOT, "total;dur=%.3f", timings.totalNanos() / 1_000_000.0));
+    }
+
+    @Test
+    @DisplayName("Should leave a request turned away by a filter in that filter's phase")
+    void handle_shouldStayInPhase_whenFilterAnswersItself() {
+        // Arrange
+        ServerWebExchange exchange = exchange(new LimiterFactory().apply(false));
+        PhaseTimings timings = PhaseTimings.of(exchange);
+
+        // Act
+        handler.handle(exchange).block(Duration.ofSeconds(5));
+        timings.finish();
+
+        // Assert
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(timings.nanos(Phase.RATE_LIMIT)).isGreaterThanOrEqualTo(LimiterFactory.DELAY.toNanos());
+        assertThat(timings.wasEntered(Phase.CONNECT)).isFalse();
+        assertThat(timings.wasEntered(Phase.UPSTREAM)).isFalse();
+    }
+
+    private static ServerWebExchange exchange(GatewayFilter routeFilter) {
+        Route route = Route.async()
+                .id("users")
+                .uri("http://localhost")
+                .predicate(exchange -> true)
+                .filter(new OrderedGatewayFilter(routeFilter, 1))
+                .build();
+        ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/1"));
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route);
+        exchange.getAttributes().put(PhaseTimings.ATTRIBUTE, new PhaseTimings(Phase.ROUTE, System::nanoTime));
+        return exchange;
+    }
+
+    // Stands in for the Netty routing filter
+    private record UpstreamFilter(HttpClient client, String url) implements GlobalFilter, Ordered {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            return client.get()
+                    .uri(url)
+                    .responseSingle((response, body) -> body.asString())
+                    .then(chain.filter(exchange));
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
+
+// Stands in for a rate limiter factory, taking a while to decide like one asking Redis. Top level, as filter
+// factories are, for its lambdas to be traced back to it
+final class LimiterFactory {
+
+    static final Duration DELAY = Duration.ofMillis(30);
+
+    GatewayFilter apply(boolean allowed) {
+        return (exchange, chain) -> Mono.delay(DELAY).then(Mono.defer(() -> {
+            if (allowed) {
+                return chain.filter(exchange);
+            }
+            exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            return exchange.getResponse().setComplete();
+        }));
+    }
+}
@@ -0,0 +1,119 @@
+package binhnvh.apigateway.timing;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class PhaseTimingWebFilterTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private SimpleMeterRegistry registry;
+    private AtomicLong clock;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        clock = new AtomicLong();
+    }
+
+    @Test
+    @DisplayName("Should record each phase under the route and report them in Server-Timing")
+    void filter_shouldRecordPhasesAndAddServerTiming_whenEnabled() {
+        // Arrange
+        PhaseTimingWebFilter filter = new PhaseTimingWebFilter(metrics(10), true, clock::get);
+        ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/1"));
+        WebFilterChain chain = ex -> {
+            PhaseTimings timings = PhaseTimings.of(ex);
+            clock.addAndGet(5 * MILLI);
+            timings.enter(Phase.ROUTE);
+            clock.addAndGet(MILLI);
+            ex.getAttributes().put(GATEWAY_ROUTE_ATTR, route("users"));
+            timings.enter(Phase.UPSTREAM);
+            clock.addAndGet(12 * MILLI);
+            timings.enter(Phase.RESPONSE);
+            return ex.getResponse().setComplete().doOnSuccess(done -> clock.addAndGet(2 * MILLI));
+        };
+
+        // Act
+        filter.filter(exchange, chain).block();
+
+        // Assert
+        assertThat(exchange.getResponse().getHeaders().getFirst(PhaseTimingWebFilter.SERVER_TIMING)).isEqualTo(
+                "security;dur=5.000, route;dur=1.000, upstream;dur=12.000, response;dur=0.000, total;dur=18.000");
+        assertThat(timer("users", "security").totalTime(TimeUnit.MILLISECONDS)).isEqualTo(5.0);
+        assertThat(timer("users", "upstream").totalTime(TimeUnit.MILLISECONDS)).isEqualTo(12.0);
+        assertThat(timer("users", "response").totalTime(TimeUnit.MILLISECONDS)).isEqualTo(2.0);
+        assertThat(registry.find("gateway.phase").tag("phase", "cache").timer()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should leave responses without Server-Timing when it is off")
+    void filter_shouldNotAddServerTiming_whenDisabled() {
+        // Arrange
+        PhaseTimingWebFilter filter = new PhaseTimingWebFilter(metrics(10), false, clock::get);
+        ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/1"));
+
+        // Act
+        filter.filter(exchange, ex -> ex.getResponse().setComplete()).block();
+
+        // Assert
+        assertThat(exchange.getResponse().getHeaders().containsKey(PhaseTimingWebFilter.SERVER_TIMING)).isFalse();
+        assertThat(timer(PhaseMetrics.NO_ROUTE, "security").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should tag routes beyond the limit as other, keeping requests without a route apart")
+    void record_shouldTagOtherRoutes_whenRouteLimitReached() {
+        // Arrange
+        PhaseMetrics metrics = metrics(2);
+
+        // Act
+        for (String routeId : new String[] {"a", "b", "c", "d", null, "a"}) {
+            PhaseTimings timings = new PhaseTimings(Phase.SECURITY, clock::get);
+            clock.addAndGet(MILLI);
+            timings.finish();
+            metrics.record(routeId, timings);
+        }
+
+        // Assert
+        assertThat(timer("a", "security").count()).isEqualTo(2);
+        assertThat(timer("b", "security").count()).isEqualTo(1);
+        assertThat(timer(PhaseMetrics.OTHER_ROUTES, "security").count()).isEqualTo(2);
+        assertThat(timer(PhaseMetrics.NO_ROUTE, "security").count()).isEqualTo(1);
+        assertThat(registry.find("gateway.phase").tag("route", "c").timer()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should reject a route limit below one")
+    void constructor_shouldThrow_whenMaxRoutesBelowOne() {
+        assertThatThrownBy(() -> metrics(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private PhaseMetrics metrics(int maxRoutes) {
+        return new PhaseMetrics(registry, maxRoutes, false, Duration.ofSeconds(60));
+    }
+
+    private Timer timer(String route, String phase) {
+        return registry.get("gateway.phase").tag("route", route).tag("phase", phase).timer();
+    }
+
+    private static Route route(String id) {
+        return Route.async().id(id).uri("http://localhost").predicate(exchange -> true).build();
+    }
+}
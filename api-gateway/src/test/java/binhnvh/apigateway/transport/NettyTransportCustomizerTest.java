@@ -0,0 +1,76 @@
+package binhnvh.apigateway.transport;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NettyTransportCustomizerTest {
+
+    private static final SocketOptions OPTIONS = new SocketOptions(128, true, true, null, null);
+
+    @Test
+    @DisplayName("Should serve and proxy requests on each transport asked for, or on the one it falls back to")
+    void apply_shouldRunServerAndClient_onResolvedTransport() {
+        // Arrange
+        Map<NettyTransport, String> threads = new EnumMap<>(NettyTransport.class);
+        Map<NettyTransport, NettyTransport> resolved = new EnumMap<>(NettyTransport.class);
+
+        // Act
+        for (NettyTransport requested : NettyTransport.values()) {
+            try (NettyTransportCustomizer customizer = new NettyTransportCustomizer(requested, 2, OPTIONS)) {
+                resolved.put(requested, customizer.getTransport());
+                threads.put(requested, roundTrip(customizer));
+            }
+        }
+
+        // Assert
+        resolved.forEach((requested, transport) -> {
+            assertThat(transport.isAvailable()).isTrue();
+            assertThat(threads.get(requested)).startsWith("gateway-"
+                    + transport.name().toLowerCase(Locale.ROOT).replace('_', '-'));
+        });
+        assertThat(resolved.get(NettyTransport.NIO)).isEqualTo(NettyTransport.NIO);
+    }
+
+    @Test
+    @DisplayName("Should prefer io_uring, then epoll, then NIO when set to auto")
+    void resolve_shouldPickFirstAvailable_whenAuto() {
+        // Arrange
+        NettyTransport expected = NettyTransport.IO_URING.isAvailable() ? NettyTransport.IO_URING
+                : NettyTransport.EPOLL.isAvailable() ? NettyTransport.EPOLL : NettyTransport.NIO;
+
+        // Act
+        NettyTransport resolved = NettyTransport.AUTO.resolve();
+
+        // Assert
+        assertThat(resolved).isEqualTo(expected);
+    }
+
+    // Name of the server thread that answered a request sent by the customized client
+    private static String roundTrip(NettyTransportCustomizer customizer) {
+        DisposableServer server = customizer.apply(HttpServer.create().host("127.0.0.1").port(0))
+                .handle((request, response) -> response.sendString(Mono.just(Thread.currentThread().getName())))
+                .bindNow();
+        try {
+            return customizer.customize(HttpClient.create())
+                    .get()
+                    .uri("http://127.0.0.1:" + server.port() + "/")
+                    .responseContent()
+                    .aggregate()
+                    .asString()
+                    .block(Duration.ofSeconds(5));
+        } finally {
+            server.disposeNow();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package binhnvh.apigateway.transport;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput and latency of a proxy hop on io_uring, epoll and NIO, at a high connection count. For each
+ * transport a proxy server, its upstream client and a backend run on one {@link NettyTransportCustomizer}, as in
+ * the gateway; the proxy sends each request on to the backend and streams the answer back. A load generator on
+ * its own NIO loops keeps {@value #CONNECTIONS} connections busy, so the transports are measured on the same
+ * client side. Transports the host does not support are reported and skipped.
+ *
+ * Each transport gets a warm-up, then transports take turns for {@value #ROUNDS} rounds to even out drift in the
+ * machine's load. Only correctness is checked; the numbers are for comparing on the target hosts.
+ *
+ * Run with {@code mvn test -Dtest=TransportBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TransportBenchmarkTest {
+
+    private static final List<NettyTransport> TRANSPORTS = List.of(NettyTransport.IO_URING, NettyTransport.EPOLL,
+            NettyTransport.NIO);
+    private static final int CONNECTIONS = 512;
+    private static final int REQUESTS = 10_000;
+    private static final int WARMUP_REQUESTS = 5_000;
+    private static final int ROUNDS = 3;
+    private static final int WORKER_THREADS = 4;
+    private static final SocketOptions OPTIONS = new SocketOptions(1024, true, true, null, null);
+
+    @Test
+    @DisplayName("Benchmark: proxied requests per second and latency on io_uring, epoll and NIO")
+    void benchmark() {
+        ConnectionProvider loadPool = ConnectionProvider.builder("load")
+                .maxConnections(CONNECTIONS)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        NettyTransportCustomizer loadLoops = new NettyTransportCustomizer(NettyTransport.NIO, WORKER_THREADS, OPTIONS);
+        HttpClient load = loadLoops.customize(HttpClient.create(loadPool));
+        List<Setup> setups = new ArrayList<>();
+        try {
+            for (NettyTransport transport : TRANSPORTS) {
+                if (!transport.isAvailable()) {
+                    System.out.printf("%s unavailable: %s%n", transport, transport.unavailabilityCause());
+                    continue;
+                }
+                Setup setup = new Setup(transport);
+                setups.add(setup);
+                setup.run(load, WARMUP_REQUESTS);
+            }
+            for (int round = 0; round < ROUNDS; round++) {
+                for (Setup setup : setups) {
+                    setup.record(setup.run(load, REQUESTS));
+                }
+            }
+
+            System.out.printf("%n%-9s %10s %10s %10s %10s %10s%n", "transport", "req/s", "p50 ms", "p90 ms", "p99 ms",
+                    "p99.9 ms");
+            setups.forEach(setup -> {
+                Result result = setup.result();
+                System.out.printf("%-9s %10.0f %10.2f %10.2f %10.2f %10.2f%n", setup.transport, result.perSecond(),
+                        result.percentile(0.50), result.percentile(0.90), result.percentile(0.99),
+                        result.percentile(0.999));
+            });
+
+            assertThat(setups).extracting(setup -> setup.transport).contains(NettyTransport.NIO);
+            setups.forEach(setup -> {
+                assertThat(setup.result().ok()).isEqualTo(REQUESTS * ROUNDS);
+                assertThat(setup.servedBy).startsWith("gateway-"
+                        + setup.transport.name().toLowerCase(Locale.ROOT).replace('_', '-'));
+            });
+        } finally {
+            setups.forEach(Setup::close);
+            loadPool.disposeLater().block(Duration.ofSeconds(5));
+            loadLoops.close();
+        }
+    }
+
+    private static final class Setup {
+
+        private final NettyTransport transport;
+        private final NettyTransportCustomizer customizer;
+        private final ConnectionProvider upstreamPool;
+        private final DisposableServer backend;
+        private final DisposableServer proxy;
+        private final List<long[]> rounds = new ArrayList<>();
+        private long nanos;
+        private int ok;
+        private volatile String servedBy;
+
+        Setup(NettyTransport transport) {
+            this.transport = transport;
+            this.customizer = new NettyTransportCustomizer(transport, WORKER_THREADS, OPTIONS);
+            this.upstreamPool = ConnectionProvider.builder("upstream-" + transport)
+                    .maxConnections(CONNECTIONS)
+                    .pendingAcquireMaxCount(-1)
+                    .build();
+            this.backend = customizer.apply(HttpServer.create().host("127.0.0.1").port(0))
+                    .handle((request, response) -> {
+                        servedBy = Thread.currentThread().getName();
+                        return response.header("Content-Type", "application/json")
+                                .sendString(Mono.just("{\"id\":1,\"username\":\"user\"}"));
+                    })
+                    .bindNow();
+            HttpClient upstream = customizer.customize(HttpClient.create(upstreamPool));
+            String backendUrl = "http://127.0.0.1:" + backend.port();
+            this.proxy = customizer.apply(HttpServer.create().host("127.0.0.1").port(0))
+                    .handle((request, response) -> upstream.get()
+                            .uri(backendUrl + request.uri())
+                            .response((upstreamResponse, body) -> response.status(upstreamResponse.status())
+                                    .headers(upstreamResponse.responseHeaders())
+                                    .send(body.retain())))
+                    .bindNow();
+        }
+
+        Round run(HttpClient load, int requests) {
+            AtomicInteger succeeded = new AtomicInteger();
+            String url = "http://127.0.0.1:" + proxy.port() + "/users/1";
+            long startedAt = System.nanoTime();
+            long[] latencies = Flux.range(0, requests)
+                    .flatMap(i -> Mono.defer(() -> {
+                        long sentAt = System.nanoTime();
+                        return load.get().uri(url).responseSingle((response, body) -> body.then(Mono.fromCallable(() -> {
+                            if (response.status().code() == 200) {
+                                succeeded.incrementAndGet();
+                            }
+                            return System.nanoTime() - sentAt;
+                        })));
+                    }), CONNECTIONS)
+                    .collectList()
+                    .block(Duration.ofMinutes(2))
+                    .stream()
+                    .mapToLong(Long::longValue)
+                    .toArray();
+            return new Round(latencies, System.nanoTime() - startedAt, succeeded.get());
+        }
+
+        void record(Round round) {
+            rounds.add(round.latencies());
+            nanos += round.nanos();
+            ok += round.ok();
+        }
+
+        Result result() {
+            long[] all = rounds.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            return new Result(all, all.length / (nanos / 1_000_000_000.0), ok);
+        }
+
+        void close() {
+            proxy.disposeNow();
+            backend.disposeNow();
+            upstreamPool.disposeLater().block(Duration.ofSeconds(5));
+            customizer.close();
+        }
+    }
+
+    private record Round(long[] latencies, long nanos, int ok) {
+    }
+
+    private record Result(long[] sortedLatencies, double perSecond, int ok) {
+
+        double percentile(double percentile) {
+            int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
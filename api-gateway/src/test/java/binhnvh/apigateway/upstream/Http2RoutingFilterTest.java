@@ -0,0 +1,134 @@
+package binhnvh.apigateway.upstream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.isAlreadyRouted;
+
+class Http2RoutingFilterTest {
+
+    private static final Http2PoolSettings SETTINGS = new Http2PoolSettings(2, 0, 100, Duration.ofSeconds(5), 100,
+            Duration.ofMinutes(1));
+
+    private DisposableServer server;
+    private Http2RoutingFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .handle((request, response) -> response.header("X-Protocol", request.protocol()).send())
+                .bindNow();
+        filter = new Http2RoutingFilter(HttpClient.create(),
+                new DefaultListableBeanFactory().getBeanProvider(
+                        ResolvableType.forClassWithGenerics(List.class, HttpHeadersFilter.class)),
+                new HttpClientProperties(), List.of(), SETTINGS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        filter.close();
+        server.disposeNow();
+    }
+
+    @Test
+    @DisplayName("Should proxy requests of h2c routes over HTTP/2")
+    void filter_shouldUseHttp2_whenRouteIsH2c() {
+        // Arrange
+        ServerWebExchange exchange = exchange(Map.of(UpstreamProtocol.METADATA_KEY, "h2c"));
+        AtomicBoolean chainCalled = new AtomicBoolean();
+
+        // Act
+        filter.filter(exchange, next -> {
+            chainCalled.set(true);
+            return Mono.empty();
+        }).block(Duration.ofSeconds(5));
+
+        // Assert
+        assertThat(isAlreadyRouted(exchange)).isTrue();
+        assertThat(chainCalled).isTrue();
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getHeaders().getFirst("X-Protocol")).isEqualTo("HTTP/2.0");
+    }
+
+    @Test
+    @DisplayName("Should leave routes without upstream protocol metadata to the HTTP/1.1 routing filter")
+    void filter_shouldPassThrough_whenRouteHasNoProtocol() {
+        // Arrange
+        ServerWebExchange exchange = exchange(Map.of());
+
+        // Act
+        filter.filter(exchange, next -> Mono.empty()).block(Duration.ofSeconds(5));
+
+        // Assert
+        assertThat(isAlreadyRouted(exchange)).isFalse();
+        assertThat(exchange.getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should apply a route's own stream limit over the defaults")
+    void forRoute_shouldOverrideLimits_whenRouteHasMetadata() {
+        // Arrange
+        Route route = route(Map.of(Http2PoolSettings.MAX_CONNECTIONS_KEY, 1, Http2PoolSettings.MAX_STREAMS_KEY, "8"));
+
+        // Act
+        Http2PoolSettings settings = SETTINGS.forRoute(route);
+
+        // Assert
+        assertThat(settings.maxConnections()).isEqualTo(1);
+        assertThat(settings.maxStreams()).isEqualTo(8);
+        assertThat(settings.pendingAcquireTimeout()).isEqualTo(SETTINGS.pendingAcquireTimeout());
+    }
+
+    @Test
+    @DisplayName("Should reject an unknown upstream protocol")
+    void of_shouldThrow_whenProtocolIsUnknown() {
+        // Act & Assert
+        assertThatThrownBy(() -> UpstreamProtocol.of(route(Map.of(UpstreamProtocol.METADATA_KEY, "h3"))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private ServerWebExchange exchange(Map<String, Object> metadata) {
+        ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/users/1"));
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route(metadata));
+        exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, URI.create("http://127.0.0.1:" + server.port() + "/users/1"));
+        return exchange;
+    }
+
+    private static Route route(Map<String, Object> metadata) {
+        return Route.async()
+                .id("user-management-service")
+                .uri("lb://user-management")
+                .predicate(exchange -> true)
+                .metadata(metadata)
+                .build();
+    }
+}
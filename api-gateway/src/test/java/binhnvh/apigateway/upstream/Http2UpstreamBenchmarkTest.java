@@ -0,0 +1,188 @@
+package binhnvh.apigateway.upstream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Connections opened and client-visible latency of bursts of requests proxied to one backend over HTTP/1.1, the
+ * gateway's default elastic pool, and over h2c with the default pool settings. The backend is a local Reactor
+ * Netty server accepting both, answering in about 2ms; requests come in bursts of {@value #BURST} at once, with
+ * the idle connections closed between bursts as a backend's keep-alive timeout would.
+ *
+ * Over HTTP/1.1 each burst opens a connection per concurrent request, each with its TCP handshake and, after
+ * closing, a socket in TIME_WAIT. Over h2c the burst is multiplexed over at most max-connections connections of
+ * max-streams streams. Connections are counted from the first burst, warm-up included.
+ *
+ * Gateway, client and backend share the machine, so on a small one latency is mostly CPU and swings between runs;
+ * the p99 check only asks h2c to be no worse than HTTP/1.1 by half.
+ *
+ * Run with {@code mvn test -Dtest=Http2UpstreamBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class Http2UpstreamBenchmarkTest {
+
+    private static final Duration LATENCY = Duration.ofMillis(2);
+    private static final int BURST = 200;
+    private static final int BURSTS = 30;
+    private static final int WARMUP_BURSTS = 5;
+    private static final Http2PoolSettings SETTINGS = new Http2PoolSettings(4, 1, 100, Duration.ofSeconds(5), 1000,
+            Duration.ofMinutes(5));
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private DisposableServer server;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .doOnChannelInit((observer, channel, address) -> connections.incrementAndGet())
+                .handle((request, response) -> Mono.delay(LATENCY)
+                        .then(response.header("Content-Type", "application/json")
+                                .sendString(Mono.just("{\"id\":1,\"username\":\"user\"}"))
+                                .then()))
+                .bindNow();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.disposeNow();
+    }
+
+    @Test
+    @DisplayName("Benchmark: connections opened and p99 latency of request bursts over HTTP/1.1 and h2c")
+    void benchmark() {
+        Result http11 = run("http1.1");
+        Result h2c = run("h2c");
+
+        System.out.printf("%n%-8s %12s %10s %10s %10s %10s%n", "protocol", "connections", "p50 ms", "p90 ms",
+                "p99 ms", "p99.9 ms");
+        List.of(http11, h2c).forEach(result -> System.out.printf("%-8s %12d %10.1f %10.1f %10.1f %10.1f%n",
+                result.protocol(), result.connections(), result.percentile(0.50), result.percentile(0.90),
+                result.percentile(0.99), result.percentile(0.999)));
+
+        assertThat(http11.ok()).isEqualTo(BURST * BURSTS);
+        assertThat(h2c.ok()).isEqualTo(BURST * BURSTS);
+        assertThat(h2c.connections()).isLessThanOrEqualTo(SETTINGS.maxConnections());
+        assertThat(http11.connections()).isGreaterThan(BURST);
+        assertThat(h2c.percentile(0.99)).isLessThan(http11.percentile(0.99) * 1.5);
+    }
+
+    private Result run(String protocol) {
+        ObjectProvider<List<HttpHeadersFilter>> headersFilters = new DefaultListableBeanFactory().getBeanProvider(
+                ResolvableType.forClassWithGenerics(List.class, HttpHeadersFilter.class));
+        // As the gateway's default elastic pool, with idle connections closed between bursts
+        ConnectionProvider http11Pool = ConnectionProvider.builder("http11")
+                .maxConnections(Integer.MAX_VALUE)
+                .pendingAcquireTimeout(Duration.ZERO)
+                .pendingAcquireMaxCount(-1)
+                .maxIdleTime(LATENCY.multipliedBy(20))
+                .build();
+        Http2RoutingFilter http2 = new Http2RoutingFilter(HttpClient.create(), headersFilters,
+                new HttpClientProperties(), List.of(), SETTINGS);
+        NettyRoutingFilter http11 = new NettyRoutingFilter(HttpClient.create(http11Pool), headersFilters,
+                new HttpClientProperties());
+        NettyWriteResponseFilter writeResponse = new NettyWriteResponseFilter(List.of());
+        List<GatewayFilter> filters = List.of(writeResponse::filter, http2::filter, http11::filter);
+        Route route = Route.async()
+                .id("user-management-service")
+                .uri("lb://user-management")
+                .predicate(exchange -> true)
+                .metadata(Map.of(UpstreamProtocol.METADATA_KEY, protocol))
+                .build();
+        try {
+            int connectionsBefore = connections.get();
+            bursts(filters, route, WARMUP_BURSTS, new AtomicInteger());
+            AtomicInteger ok = new AtomicInteger();
+            long[] latencies = bursts(filters, route, BURSTS, ok);
+            return new Result(protocol, latencies, connections.get() - connectionsBefore, ok.get());
+        } finally {
+            http2.close();
+            http11Pool.dispose();
+        }
+    }
+
+    private long[] bursts(List<GatewayFilter> filters, Route route, int bursts, AtomicInteger ok) {
+        long[] latencies = Flux.range(0, bursts)
+                .concatMap(burst -> Flux.range(0, BURST)
+                        .flatMap(i -> request(filters, route, ok), BURST)
+                        .concatWith(Mono.delay(LATENCY.multipliedBy(50)).then(Mono.empty())))
+                .collectList()
+                .block(Duration.ofMinutes(2))
+                .stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private Mono<Long> request(List<GatewayFilter> filters, Route route, AtomicInteger ok) {
+        return Mono.defer(() -> {
+            ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/users/1"));
+            exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route);
+            exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR,
+                    URI.create("http://127.0.0.1:" + server.port() + "/users/1"));
+            long startedAt = System.nanoTime();
+            return new Chain(filters, 0).filter(exchange).then(Mono.fromCallable(() -> {
+                if (exchange.getResponse().getStatusCode() == HttpStatus.OK) {
+                    ok.incrementAndGet();
+                }
+                return System.nanoTime() - startedAt;
+            }));
+        });
+    }
+
+    private record Chain(List<GatewayFilter> filters, int index) implements GatewayFilterChain {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            return index < filters.size()
+                    ? filters.get(index).filter(exchange, new Chain(filters, index + 1))
+                    : Mono.empty();
+        }
+    }
+
+    private record Result(String protocol, long[] sortedLatencies, int connections, int ok) {
+
+        double percentile(double percentile) {
+            int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package binhnvh.tracing;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Head sampling of new traces by trace id ratio, with the ratio read on every decision so a changed
+ * {@code management.tracing.sampling.probability} applies as soon as it is rebound on refresh. With
+ * {@code requestsOnly}, traces are only started by incoming requests: scheduled polls and registry heartbeats
+ * would otherwise crowd requests out of the {@link RecentSpansExporter}.
+ *
+ * Meant as the root sampler of a parent-based one, so the rest of a trace follows the decision made at its root.
+ */
+public class AdjustableRatioSampler implements Sampler {
+
+    private final DoubleSupplier ratio;
+    private final BooleanSupplier requestsOnly;
+    private volatile RatioSampler current = new RatioSampler(Double.NaN, Sampler.alwaysOff());
+
+    public AdjustableRatioSampler(DoubleSupplier ratio, BooleanSupplier requestsOnly) {
+        this.ratio = ratio;
+        this.requestsOnly = requestsOnly;
+    }
+
+    @Override
+    public SamplingResult shouldSample(Context parentContext, String traceId, String name, SpanKind spanKind,
+                                       Attributes attributes, List<LinkData> parentLinks) {
+        if (spanKind != SpanKind.SERVER && requestsOnly.getAsBoolean()) {
+            return SamplingResult.drop();
+        }
+        return sampler().shouldSample(parentContext, traceId, name, spanKind, attributes, parentLinks);
+    }
+
+    @Override
+    public String getDescription() {
+        return "AdjustableRatioSampler{" + sampler().getDescription() + "}";
+    }
+
+    private Sampler sampler() {
+        double wanted = ratio.getAsDouble();
+        RatioSampler sampler = current;
+        if (sampler.ratio() != wanted) {
+            // Racing rebuilds make equal samplers
+            sampler = new RatioSampler(wanted, Sampler.traceIdRatioBased(wanted));
+            current = sampler;
+        }
+        return sampler.sampler();
+    }
+
+    private record RatioSampler(double ratio, Sampler sampler) {
+    }
+}
@@ -0,0 +1,56 @@
+package binhnvh.tracing;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps the most recently finished spans in memory, overwriting the oldest, for {@link TracesEndpoint}. Traces
+ * can be followed without a collector to send them to; a span exporter for one can be added next to it.
+ */
+public class RecentSpansExporter implements SpanExporter {
+
+    private final SpanData[] ring;
+    private long written;
+
+    public RecentSpansExporter(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Span buffer capacity must be positive, got " + capacity);
+        }
+        this.ring = new SpanData[capacity];
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        for (SpanData span : spans) {
+            ring[(int) (written++ % ring.length)] = span;
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * The spans held, oldest first.
+     */
+    public synchronized List<SpanData> spans() {
+        int held = (int) Math.min(written, ring.length);
+        List<SpanData> spans = new ArrayList<>(held);
+        for (long i = written - held; i < written; i++) {
+            spans.add(ring[(int) (i % ring.length)]);
+        }
+        return spans;
+    }
+}
@@ -0,0 +1,66 @@
+package binhnvh.tracing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for trace sampling and the in-memory span buffer, next to Spring Boot's {@code management.tracing}
+ * ones (sampling probability, propagation type). Bound by {@link TracingSupportConfig}.
+ */
+@ConfigurationProperties(prefix = "application.tracing")
+public class TraceProperties {
+
+    // Off leaves sampling to Spring Boot and keeps no spans in memory
+    private boolean enabled = true;
+
+    // Only incoming requests start traces; scheduled polls and outgoing heartbeats are not sampled
+    private boolean requestsOnly = true;
+
+    private final Buffer buffer = new Buffer();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isRequestsOnly() {
+        return requestsOnly;
+    }
+
+    public void setRequestsOnly(boolean requestsOnly) {
+        this.requestsOnly = requestsOnly;
+    }
+
+    public Buffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Recently finished spans kept for {@code /actuator/traces}.
+     */
+    public static class Buffer {
+
+        private boolean enabled = true;
+
+        // Spans held, the oldest overwritten first
+        private int capacity = 2000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package binhnvh.tracing;
+
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Actuator endpoint over the spans held by {@link RecentSpansExporter}.
+ *
+ * {@code GET /actuator/traces?limit=20} lists the latest traces, newest first, with their root span and duration;
+ * {@code GET /actuator/traces/{traceId}} returns one trace's spans in start order. The trace id is the one in the
+ * {@code traceparent} header, so the same trace can be looked up in each service it went through.
+ */
+@Endpoint(id = "traces")
+public class TracesEndpoint {
+
+    private static final int DEFAULT_LIMIT = 50;
+
+    private final RecentSpansExporter exporter;
+
+    public TracesEndpoint(RecentSpansExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    @ReadOperation
+    public List<TraceSummary> traces(@Nullable Integer limit) {
+        Map<String, List<SpanData>> byTrace = exporter.spans().stream()
+                .collect(Collectors.groupingBy(SpanData::getTraceId, LinkedHashMap::new, Collectors.toList()));
+        return byTrace.entrySet().stream()
+                .map(entry -> summarize(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparing(TraceSummary::start).reversed())
+                .limit(limit == null ? DEFAULT_LIMIT : limit)
+                .toList();
+    }
+
+    @ReadOperation
+    public List<SpanView> trace(@Selector String traceId) {
+        return exporter.spans().stream()
+                .filter(span -> span.getTraceId().equals(traceId))
+                .sorted(Comparator.comparingLong(SpanData::getStartEpochNanos))
+                .map(TracesEndpoint::view)
+                .toList();
+    }
+
+    private static TraceSummary summarize(String traceId, List<SpanData> spans) {
+        long start = spans.stream().mapToLong(SpanData::getStartEpochNanos).min().orElse(0);
+        long end = spans.stream().mapToLong(SpanData::getEndEpochNanos).max().orElse(start);
+        // The root may not be exported yet, or already overwritten
+        String root = spans.stream()
+                .filter(span -> isLocalRoot(span.getParentSpanContext()))
+                .findFirst()
+                .or(() -> spans.stream().min(Comparator.comparingLong(SpanData::getStartEpochNanos)))
+                .map(SpanData::getName)
+                .orElse("");
+        boolean error = spans.stream().anyMatch(span -> span.getStatus().getStatusCode() == StatusCode.ERROR);
+        return new TraceSummary(traceId, root, instant(start), millis(end - start), spans.size(), error);
+    }
+
+    private static SpanView view(SpanData span) {
+        SpanContext parent = span.getParentSpanContext();
+        Map<String, String> attributes = new TreeMap<>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), String.valueOf(value)));
+        return new SpanView(span.getSpanId(), parent.isValid() ? parent.getSpanId() : null, span.getName(),
+                span.getKind().name(), instant(span.getStartEpochNanos()),
+                millis(span.getEndEpochNanos() - span.getStartEpochNanos()), span.getStatus().getStatusCode().name(),
+                attributes);
+    }
+
+    // Started here, rather than under another span of this service
+    private static boolean isLocalRoot(SpanContext parent) {
+        return !parent.isValid() || parent.isRemote();
+    }
+
+    private static Instant instant(long epochNanos) {
+        return Instant.ofEpochSecond(0, epochNanos);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    public record TraceSummary(String traceId, String root, Instant start, double durationMs, int spans,
+                               boolean error) {
+    }
+
+    public record SpanView(String spanId, @Nullable String parentSpanId, String name, String kind, Instant start,
+                           double durationMs, String status, Map<String, String> attributes) {
+    }
+}
@@ -0,0 +1,38 @@
+package binhnvh.tracing;
+
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.springframework.boot.actuate.autoconfigure.tracing.TracingProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Sampling and span buffer shared by the services, imported by each one's tracing configuration.
+ *
+ * New traces are sampled at {@code management.tracing.sampling.probability}, read on every decision so a refresh
+ * changes the ratio without a restart; the rest of a trace follows the decision made at its root. Finished spans
+ * are kept in memory for {@code /actuator/traces} unless {@code application.tracing.buffer.enabled} is false.
+ */
+@Configuration
+@EnableConfigurationProperties({TracingProperties.class, TraceProperties.class})
+public class TracingSupportConfig {
+
+    @Bean
+    public Sampler traceSampler(TracingProperties tracingProperties, TraceProperties traceProperties) {
+        return Sampler.parentBased(new AdjustableRatioSampler(() -> tracingProperties.getSampling().getProbability(),
+                traceProperties::isRequestsOnly));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.tracing.buffer", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public RecentSpansExporter recentSpansExporter(TraceProperties traceProperties) {
+        return new RecentSpansExporter(traceProperties.getBuffer().getCapacity());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.tracing.buffer", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public TracesEndpoint tracesEndpoint(RecentSpansExporter recentSpansExporter) {
+        return new TracesEndpoint(recentSpansExporter);
+    }
+}
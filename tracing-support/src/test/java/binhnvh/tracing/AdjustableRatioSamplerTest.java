@@ -0,0 +1,127 @@
+package binhnvh.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.transport.Kind;
+import io.micrometer.observation.transport.ReceiverContext;
+import io.micrometer.tracing.handler.DefaultTracingObservationHandler;
+import io.micrometer.tracing.handler.PropagatingReceiverTracingObservationHandler;
+import io.micrometer.tracing.otel.bridge.OtelCurrentTraceContext;
+import io.micrometer.tracing.otel.bridge.OtelPropagator;
+import io.micrometer.tracing.otel.bridge.OtelTracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdjustableRatioSamplerTest {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+    private final AtomicReference<Double> ratio = new AtomicReference<>(1.0);
+    private final AtomicBoolean requestsOnly = new AtomicBoolean(true);
+    private RecentSpansExporter exporter;
+    private SdkTracerProvider tracerProvider;
+    private ObservationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        exporter = new RecentSpansExporter(100);
+        tracerProvider = SdkTracerProvider.builder()
+                .setSampler(Sampler.parentBased(new AdjustableRatioSampler(ratio::get, requestsOnly::get)))
+                .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+                .build();
+        io.opentelemetry.api.trace.Tracer otelTracer = tracerProvider.get("test");
+        OtelTracer tracer = new OtelTracer(otelTracer, new OtelCurrentTraceContext(), event -> {
+        });
+        OtelPropagator propagator = new OtelPropagator(
+                ContextPropagators.create(W3CTraceContextPropagator.getInstance()), otelTracer);
+        registry = ObservationRegistry.create();
+        registry.observationConfig().observationHandler(new ObservationHandler.FirstMatchingCompositeObservationHandler(
+                new PropagatingReceiverTracingObservationHandler<>(tracer, propagator),
+                new DefaultTracingObservationHandler(tracer)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    @Test
+    @DisplayName("Should sample requests and the spans under them, but not background work")
+    void shouldSample_requestsOnly_whenRequestsOnly() {
+        // Act
+        request(Map.of());
+        Observation.createNotStarted("tasks.scheduled.execution", registry).observe(() -> {
+        });
+
+        // Assert
+        assertThat(exporter.spans()).extracting(SpanData::getName).containsExactlyInAnyOrder("request", "repository");
+    }
+
+    @Test
+    @DisplayName("Should sample background work too when not limited to requests")
+    void shouldSample_backgroundWork_whenNotRequestsOnly() {
+        // Arrange
+        requestsOnly.set(false);
+
+        // Act
+        Observation.createNotStarted("tasks.scheduled.execution", registry).observe(() -> {
+        });
+
+        // Assert
+        assertThat(exporter.spans()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Should apply a changed ratio to the next trace")
+    void shouldSample_atCurrentRatio_whenRatioChanges() {
+        // Arrange
+        ratio.set(0.0);
+        request(Map.of());
+
+        // Act
+        ratio.set(1.0);
+        request(Map.of());
+
+        // Assert
+        assertThat(exporter.spans()).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Should follow the sampling decision of a propagated traceparent over the ratio")
+    void shouldFollowParent_whenTraceparentPropagated() {
+        // Arrange
+        ratio.set(0.0);
+
+        // Act
+        request(Map.of("traceparent", "00-" + TRACE_ID + "-00f067aa0ba902b7-01"));
+        ratio.set(1.0);
+        request(Map.of("traceparent", "00-" + TRACE_ID + "-00f067aa0ba902b7-00"));
+
+        // Assert
+        assertThat(exporter.spans()).hasSize(2).allSatisfy(span -> assertThat(span.getTraceId()).isEqualTo(TRACE_ID));
+    }
+
+    private void request(Map<String, String> headers) {
+        ReceiverContext<Map<String, String>> context = new ReceiverContext<>((carrier, key) -> carrier.get(key),
+                Kind.SERVER);
+        context.setCarrier(headers);
+        Observation.createNotStarted("request", () -> context, registry).observe(() ->
+                Observation.createNotStarted("repository", registry).observe(() -> {
+                }));
+    }
+}
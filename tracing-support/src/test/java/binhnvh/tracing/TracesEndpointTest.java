@@ -0,0 +1,112 @@
+package binhnvh.tracing;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TracesEndpointTest {
+
+    private RecentSpansExporter exporter;
+    private SdkTracerProvider tracerProvider;
+    private Tracer tracer;
+
+    @BeforeEach
+    void setUp() {
+        exporter = new RecentSpansExporter(5);
+        tracerProvider = SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(exporter)).build();
+        tracer = tracerProvider.get("test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    @Test
+    @DisplayName("Should list traces newest first with their root span")
+    void traces_shouldSummarizeTraces_newestFirst() {
+        // Arrange
+        String first = trace("GET /api/users/{id}", false);
+        String second = trace("POST /api/auth/login", true);
+
+        // Act
+        List<TracesEndpoint.TraceSummary> traces = new TracesEndpoint(exporter).traces(null);
+
+        // Assert
+        assertThat(traces).extracting(TracesEndpoint.TraceSummary::traceId).containsExactly(second, first);
+        assertThat(traces.get(0).root()).isEqualTo("POST /api/auth/login");
+        assertThat(traces.get(0).spans()).isEqualTo(2);
+        assertThat(traces.get(0).error()).isTrue();
+        assertThat(traces.get(1).error()).isFalse();
+        assertThat(new TracesEndpoint(exporter).traces(1)).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Should return a trace's spans in start order with their parents and attributes")
+    void trace_shouldReturnSpans_inStartOrder() {
+        // Arrange
+        String traceId = trace("GET /api/users/{id}", false);
+
+        // Act
+        List<TracesEndpoint.SpanView> spans = new TracesEndpoint(exporter).trace(traceId);
+
+        // Assert
+        assertThat(spans).extracting(TracesEndpoint.SpanView::name).containsExactly("GET /api/users/{id}", "query");
+        assertThat(spans.get(0).parentSpanId()).isNull();
+        assertThat(spans.get(1).parentSpanId()).isEqualTo(spans.get(0).spanId());
+        assertThat(spans.get(1).attributes()).containsEntry("db.statement", "select * from users where id = ?");
+    }
+
+    @Test
+    @DisplayName("Should keep only the latest spans once full")
+    void export_shouldOverwriteOldestSpans_whenFull() {
+        // Arrange
+        String oldest = trace("GET /a", false);
+        trace("GET /b", false);
+        trace("GET /c", false);
+
+        // Act
+        List<TracesEndpoint.TraceSummary> traces = new TracesEndpoint(exporter).traces(null);
+
+        // Assert
+        assertThat(exporter.spans()).hasSize(5);
+        assertThat(traces).hasSize(3);
+        assertThat(traces.get(2).traceId()).isEqualTo(oldest);
+        assertThat(traces.get(2).spans()).isEqualTo(1);
+        assertThat(traces.get(2).root()).isEqualTo("GET /a");
+    }
+
+    @Test
+    @DisplayName("Should reject a buffer without room")
+    void constructor_shouldThrow_whenCapacityBelowOne() {
+        assertThatThrownBy(() -> new RecentSpansExporter(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private String trace(String name, boolean failed) {
+        Span root = tracer.spanBuilder(name).startSpan();
+        try (Scope ignored = root.makeCurrent()) {
+            Span query = tracer.spanBuilder("query")
+                    .setAttribute(AttributeKey.stringKey("db.statement"), "select * from users where id = ?")
+                    .startSpan();
+            query.end();
+        }
+        if (failed) {
+            root.setStatus(StatusCode.ERROR);
+        }
+        root.end();
+        return root.getSpanContext().getTraceId();
+    }
+}
@@ -0,0 +1,118 @@
+package binhnvh.usermanagement.changefeed;
+
+import binhnvh.usermanagement.config.ChangeFeedProperties;
+import binhnvh.usermanagement.outbox.OutboxMessage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fans published outbox messages out to the change feed streams open on this instance. Only one instance
+ * relays each event, so every instance tails the change log by sequence number for its own subscribers
+ * rather than listening for the relay in-process. Streams are completed when the application stops, ahead
+ * of graceful web server shutdown, so clients reconnect to another instance instead of holding shutdown open.
+ */
+@Slf4j
+public class ChangeFeedBroadcaster implements SmartLifecycle {
+
+    private static final int POLL_PAGE_SIZE = 500;
+
+    private final Set<ChangeFeedSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ChangeFeedLog changeLog;
+    private final TaskExecutor taskExecutor;
+    private final ChangeFeedProperties properties;
+    private final MeterRegistry meterRegistry;
+    private volatile boolean running;
+
+    // Last sequence number fanned out; only touched by the poll, which never overlaps itself
+    private Long position;
+
+    public ChangeFeedBroadcaster(ChangeFeedLog changeLog, TaskExecutor taskExecutor, ChangeFeedProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.changeLog = changeLog;
+        this.taskExecutor = taskExecutor;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("changefeed.subscribers", subscribers, Set::size)
+                .description("Open change feed streams")
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(Long lastEventId) {
+        return subscribe(new SseEmitter(properties.getTimeout().toMillis()), lastEventId);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Long lastEventId) {
+        ChangeFeedSubscriber subscriber = new ChangeFeedSubscriber(emitter, properties.getBufferSize(), taskExecutor,
+                reason -> meterRegistry.counter("changefeed.resyncs", "reason", reason).increment());
+
+        Runnable unsubscribe = () -> {
+            subscriber.close();
+            subscribers.remove(subscriber);
+        };
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(ex -> unsubscribe.run());
+
+        // Register before backfilling so events published meanwhile are queued rather than lost
+        subscribers.add(subscriber);
+        subscriber.start(lastEventId, changeLog, properties.getMaxBackfill(), properties.getReconnectTime());
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${application.change-feed.poll-interval:500ms}")
+    public void poll() {
+        if (!running) {
+            return;
+        }
+        try {
+            // Without subscribers just keep up with the log, so the first one doesn't get a replay
+            if (position == null || subscribers.isEmpty()) {
+                Long last = changeLog.lastSequence();
+                position = last != null ? last : 0L;
+                return;
+            }
+            List<OutboxMessage> page;
+            do {
+                page = changeLog.readAfter(position, POLL_PAGE_SIZE);
+                for (OutboxMessage message : page) {
+                    subscribers.forEach(subscriber -> subscriber.offer(message));
+                    position = message.sequence();
+                }
+            } while (page.size() == POLL_PAGE_SIZE);
+        } catch (RuntimeException ex) {
+            log.warn("Could not read the change log, retrying on next poll", ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.change-feed.heartbeat-interval:15s}")
+    public void sendHeartbeats() {
+        subscribers.removeIf(ChangeFeedSubscriber::isClosed);
+        subscribers.forEach(ChangeFeedSubscriber::heartbeat);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        subscribers.forEach(ChangeFeedSubscriber::complete);
+        subscribers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
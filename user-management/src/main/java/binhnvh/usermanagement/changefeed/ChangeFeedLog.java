@@ -0,0 +1,26 @@
+package binhnvh.usermanagement.changefeed;
+
+import binhnvh.usermanagement.outbox.OutboxMessage;
+
+import java.util.List;
+
+/**
+ * Retained change log of published events in sequence order. Every instance tails it for live events and
+ * backfills reconnecting subscribers from it.
+ */
+public interface ChangeFeedLog {
+
+    /**
+     * @return the lowest retained sequence number, or {@code null} when the log is empty
+     */
+    Long firstRetainedSequence();
+
+    /**
+     * @return the highest published sequence number, or {@code null} when the log is empty
+     */
+    Long lastSequence();
+
+    long countAfter(long sequence);
+
+    List<OutboxMessage> readAfter(long sequence, int limit);
+}
@@ -0,0 +1,191 @@
+package binhnvh.usermanagement.changefeed;
+
+import binhnvh.usermanagement.outbox.OutboxMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * One SSE connection. Live events land in a bounded queue that a single task at a time drains onto the
+ * emitter, so a slow client never blocks the publisher. When the queue overflows, or the client asks to
+ * resume from a position that is no longer retained, the client gets a {@code resync} event and the stream
+ * is closed; it should reload state and reconnect without {@code Last-Event-ID}.
+ */
+@Slf4j
+public class ChangeFeedSubscriber {
+
+    static final String RESYNC_EVENT = "resync";
+    static final String REASON_OVERFLOW = "overflow";
+    static final String REASON_EXPIRED = "expired";
+    static final String REASON_TOO_FAR_BEHIND = "too-far-behind";
+
+    private static final int BACKFILL_PAGE_SIZE = 500;
+    private static final OutboxMessage HEARTBEAT = new OutboxMessage(-1, -1, null, null, null, null, null);
+
+    private final SseEmitter emitter;
+    private final BlockingQueue<OutboxMessage> queue;
+    private final Executor executor;
+    private final Consumer<String> resyncListener;
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final AtomicReference<String> resyncReason = new AtomicReference<>();
+    private volatile boolean closed;
+
+    // Only touched by the task currently holding the draining flag
+    private long lastSentSequence;
+
+    public ChangeFeedSubscriber(SseEmitter emitter, int bufferSize, Executor executor, Consumer<String> resyncListener) {
+        this.emitter = emitter;
+        this.queue = new ArrayBlockingQueue<>(bufferSize);
+        this.executor = executor;
+        this.resyncListener = resyncListener;
+    }
+
+    /**
+     * Starts delivery, backfilling from {@code lastEventId} first when given. Must be called after the
+     * subscriber is registered for live events so nothing published in between is missed.
+     */
+    public void start(Long lastEventId, ChangeFeedLog changeLog, int maxBackfill, Duration reconnectTime) {
+        draining.set(true);
+        executor.execute(() -> {
+            try {
+                emitter.send(SseEmitter.event().reconnectTime(reconnectTime.toMillis()).comment("connected"));
+                if (lastEventId != null) {
+                    backfill(lastEventId, changeLog, maxBackfill);
+                }
+                drainQueue();
+            } catch (IOException | IllegalStateException ex) {
+                close();
+            } finally {
+                release();
+            }
+        });
+    }
+
+    public void offer(OutboxMessage message) {
+        if (closed || resyncReason.get() != null) {
+            return;
+        }
+        if (!queue.offer(message)) {
+            resync(REASON_OVERFLOW);
+            return;
+        }
+        schedule();
+    }
+
+    public void heartbeat() {
+        offer(HEARTBEAT);
+    }
+
+    public void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    public void complete() {
+        close();
+        emitter.complete();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void backfill(long lastEventId, ChangeFeedLog changeLog, int maxBackfill) throws IOException {
+        lastSentSequence = lastEventId;
+
+        Long firstRetained = changeLog.firstRetainedSequence();
+        if (firstRetained != null && lastEventId < firstRetained - 1) {
+            resync(REASON_EXPIRED);
+            return;
+        }
+        if (changeLog.countAfter(lastEventId) > maxBackfill) {
+            resync(REASON_TOO_FAR_BEHIND);
+            return;
+        }
+
+        List<OutboxMessage> page;
+        do {
+            page = changeLog.readAfter(lastSentSequence, BACKFILL_PAGE_SIZE);
+            for (OutboxMessage message : page) {
+                send(message);
+            }
+        } while (page.size() == BACKFILL_PAGE_SIZE && !closed && resyncReason.get() == null);
+    }
+
+    private void schedule() {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        drainQueue();
+                    } catch (IOException | IllegalStateException ex) {
+                        close();
+                    } finally {
+                        release();
+                    }
+                });
+            } catch (RuntimeException ex) {
+                draining.set(false);
+                throw ex;
+            }
+        }
+    }
+
+    private void drainQueue() throws IOException {
+        OutboxMessage message;
+        while (!closed && resyncReason.get() == null && (message = queue.poll()) != null) {
+            send(message);
+        }
+        if (resyncReason.get() != null && !closed) {
+            emitter.send(SseEmitter.event()
+                    .name(RESYNC_EVENT)
+                    .data("{\"reason\":\"" + resyncReason.get() + "\"}", MediaType.APPLICATION_JSON));
+            close();
+            emitter.complete();
+        }
+    }
+
+    private void release() {
+        draining.set(false);
+        // Catch anything offered between the last poll and releasing the flag
+        if (!closed && (!queue.isEmpty() || resyncReason.get() != null)) {
+            schedule();
+        }
+    }
+
+    private void send(OutboxMessage message) throws IOException {
+        if (message == HEARTBEAT) {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+            return;
+        }
+        // Live copies of events already sent during backfill
+        if (message.sequence() <= lastSentSequence) {
+            return;
+        }
+        emitter.send(SseEmitter.event()
+                .id(String.valueOf(message.sequence()))
+                .name(message.eventType())
+                .data(message.payload(), MediaType.APPLICATION_JSON));
+        lastSentSequence = message.sequence();
+    }
+
+    private void resync(String reason) {
+        if (resyncReason.compareAndSet(null, reason)) {
+            queue.clear();
+            resyncListener.accept(reason);
+            log.debug("Change feed subscriber dropped to resync: {}", reason);
+        }
+        schedule();
+    }
+}
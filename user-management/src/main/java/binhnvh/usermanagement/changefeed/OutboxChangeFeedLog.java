@@ -0,0 +1,42 @@
+package binhnvh.usermanagement.changefeed;
+
+import binhnvh.usermanagement.outbox.OutboxMessage;
+import binhnvh.usermanagement.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+/**
+ * Reads the outbox table. Only published rows are read: rows the relay has not reached yet have no sequence
+ * number. Relays commit their batches in sequence order, so a reader that has seen a sequence number has
+ * already been able to see every lower one and can tail the table without gaps.
+ */
+@RequiredArgsConstructor
+public class OutboxChangeFeedLog implements ChangeFeedLog {
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    @Override
+    public Long firstRetainedSequence() {
+        return outboxEventRepository.findMinPublishedSeq();
+    }
+
+    @Override
+    public Long lastSequence() {
+        return outboxEventRepository.findMaxPublishedSeq();
+    }
+
+    @Override
+    public long countAfter(long sequence) {
+        return outboxEventRepository.countByPublishedSeqGreaterThan(sequence);
+    }
+
+    @Override
+    public List<OutboxMessage> readAfter(long sequence, int limit) {
+        return outboxEventRepository.findByPublishedSeqGreaterThanOrderByPublishedSeqAsc(sequence, PageRequest.of(0, limit))
+                .stream()
+                .map(OutboxMessage::from)
+                .toList();
+    }
+}
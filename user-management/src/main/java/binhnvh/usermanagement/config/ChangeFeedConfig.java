@@ -0,0 +1,22 @@
+package binhnvh.usermanagement.config;
+
+import binhnvh.usermanagement.changefeed.ChangeFeedBroadcaster;
+import binhnvh.usermanagement.changefeed.OutboxChangeFeedLog;
+import binhnvh.usermanagement.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+
+@Configuration
+public class ChangeFeedConfig {
+
+    @Bean
+    public ChangeFeedBroadcaster changeFeedBroadcaster(OutboxEventRepository outboxEventRepository,
+                                                       @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                                                       ChangeFeedProperties properties,
+                                                       MeterRegistry meterRegistry) {
+        return new ChangeFeedBroadcaster(new OutboxChangeFeedLog(outboxEventRepository), taskExecutor, properties, meterRegistry);
+    }
+}
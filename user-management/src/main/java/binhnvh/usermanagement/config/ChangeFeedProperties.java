@@ -0,0 +1,31 @@
+package binhnvh.usermanagement.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "application.change-feed")
+public class ChangeFeedProperties {
+
+    // Events buffered per subscriber before it is dropped with a resync marker
+    private int bufferSize = 1000;
+
+    // Reconnects further behind than this many events are told to resync instead of backfilling
+    private int maxBackfill = 10000;
+
+    // How often each instance looks for newly published events for its own subscribers
+    private Duration pollInterval = Duration.ofMillis(500);
+
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+    // Streams are closed after this long; clients reconnect with Last-Event-ID
+    private Duration timeout = Duration.ofMinutes(30);
+
+    private Duration reconnectTime = Duration.ofSeconds(5);
+}
@@ -0,0 +1,23 @@
+package binhnvh.usermanagement.config;
+
+import binhnvh.usermanagement.datasource.DatabaseConcurrencyLimitPostProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Bounds in-flight database work to the pool size when {@code application.datasource.concurrency-limit.enabled}
+ * is set. Switched on by the {@code virtual-threads} profile, where request threads no longer bound it.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.datasource.concurrency-limit", name = "enabled", havingValue = "true")
+public class DatabaseConcurrencyLimitConfig {
+
+    @Bean
+    public static DatabaseConcurrencyLimitPostProcessor databaseConcurrencyLimitPostProcessor(
+            ObjectProvider<DatabaseConcurrencyLimitProperties> properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new DatabaseConcurrencyLimitPostProcessor(properties, meterRegistry);
+    }
+}
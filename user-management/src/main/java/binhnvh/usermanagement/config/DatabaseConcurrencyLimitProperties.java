@@ -0,0 +1,26 @@
+package binhnvh.usermanagement.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "application.datasource.concurrency-limit")
+public class DatabaseConcurrencyLimitProperties {
+
+    private boolean enabled;
+
+    // Defaults to the primary Hikari maximum pool size
+    private Integer maxConcurrent;
+
+    // Kept well below the Hikari connection timeout so callers fail fast with 503 instead
+    private Duration acquireTimeout = Duration.ofSeconds(2);
+
+    // Callers beyond this many waiters are rejected without queueing
+    private int maxQueued = 1000;
+}
@@ -0,0 +1,37 @@
+package binhnvh.usermanagement.config;
+
+import binhnvh.usermanagement.discovery.LoadReportFilter;
+import binhnvh.usermanagement.discovery.LoadReporter;
+import com.netflix.appinfo.ApplicationInfoManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Clock;
+
+/**
+ * Load reports in the Eureka instance metadata, for the gateway to weigh instances by. On unless
+ * {@code application.load-report.enabled} is false, and off along with the Eureka client.
+ */
+@Configuration
+@ConditionalOnProperty(name = {"application.load-report.enabled", "eureka.client.enabled"}, havingValue = "true",
+        matchIfMissing = true)
+public class LoadReportConfig {
+
+    @Bean
+    public LoadReporter loadReporter(ApplicationInfoManager applicationInfoManager, MeterRegistry meterRegistry,
+                                     LoadReportProperties properties) {
+        return new LoadReporter(applicationInfoManager, meterRegistry, properties.getWindow(), Clock.systemUTC());
+    }
+
+    @Bean
+    public FilterRegistrationBean<LoadReportFilter> loadReportFilter(LoadReporter loadReporter) {
+        FilterRegistrationBean<LoadReportFilter> registration = new FilterRegistrationBean<>(new LoadReportFilter(loadReporter));
+        // Outermost, so the latency covers security and SQL inspection as well
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
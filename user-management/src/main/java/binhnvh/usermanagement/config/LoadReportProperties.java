@@ -0,0 +1,23 @@
+package binhnvh.usermanagement.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "application.load-report")
+public class LoadReportProperties {
+
+    private boolean enabled = true;
+
+    // How often the report is taken; Eureka still sends it at most once per replication interval
+    private Duration interval = Duration.ofSeconds(10);
+
+    // Latency percentiles cover roughly this much recent time
+    private Duration window = Duration.ofSeconds(30);
+}
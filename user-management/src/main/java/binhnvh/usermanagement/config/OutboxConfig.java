@@ -0,0 +1,43 @@
+package binhnvh.usermanagement.config;
+
+import binhnvh.usermanagement.outbox.ApplicationEventOutboxTransport;
+import binhnvh.usermanagement.outbox.OutboxRelay;
+import binhnvh.usermanagement.outbox.OutboxTransport;
+import binhnvh.usermanagement.repository.OutboxEventRepository;
+import binhnvh.usermanagement.repository.OutboxSequenceRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Outbox relay wiring. Declare another {@link OutboxTransport} bean to publish to a broker instead of
+ * in-process application events.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class OutboxConfig {
+
+    private final OutboxProperties outboxProperties;
+
+    @Bean
+    @ConditionalOnMissingBean(OutboxTransport.class)
+    public OutboxTransport outboxTransport(ApplicationEventPublisher eventPublisher) {
+        return new ApplicationEventOutboxTransport(eventPublisher);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.outbox", name = "relay-enabled", havingValue = "true", matchIfMissing = true)
+    public OutboxRelay outboxRelay(OutboxEventRepository outboxEventRepository,
+                                   OutboxSequenceRepository outboxSequenceRepository, OutboxTransport outboxTransport,
+                                   PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        return new OutboxRelay(outboxEventRepository, outboxSequenceRepository, outboxTransport,
+                new TransactionTemplate(transactionManager), outboxProperties.getBatchSize(),
+                outboxProperties.getRetention(), meterRegistry);
+    }
+}
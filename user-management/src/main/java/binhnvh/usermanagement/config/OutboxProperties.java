@@ -0,0 +1,27 @@
+package binhnvh.usermanagement.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "application.outbox")
+public class OutboxProperties {
+
+    // Set to false on instances that should only append events
+    private boolean relayEnabled = true;
+
+    private int batchSize = 100;
+
+    private Duration pollInterval = Duration.ofSeconds(1);
+
+    // Published events are kept this long so consumers can catch up from a known sequence number
+    private Duration retention = Duration.ofDays(7);
+
+    private Duration pruneInterval = Duration.ofHours(1);
+}
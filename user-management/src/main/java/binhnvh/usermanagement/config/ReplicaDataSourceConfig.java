@@ -0,0 +1,91 @@
+package binhnvh.usermanagement.config;
+
+import binhnvh.usermanagement.datasource.ReplicaLagMonitor;
+import binhnvh.usermanagement.datasource.ReplicaRoutingDataSource;
+import binhnvh.usermanagement.datasource.ReplicaStickinessFilter;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the auto-configured pool with a primary pool plus one pool per read replica when
+ * {@code application.datasource.replicas.enabled} is set. Replica pools inherit the primary Hikari settings.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.datasource.replicas", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ReplicaDataSourceConfig {
+
+    private static final String POOL_NAME_PREFIX = "user-management-";
+
+    private final ReplicaDataSourceProperties replicaProperties;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties dataSourceProperties,
+                                                             Environment environment) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName(POOL_NAME_PREFIX + ReplicaRoutingDataSource.PRIMARY_KEY);
+        meterRegistry.ifAvailable(registry -> primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+
+        List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaProperties.getNodes().size(); i++) {
+            ReplicaDataSourceProperties.Node node = replicaProperties.getNodes().get(i);
+            String name = "replica-" + i;
+
+            // Copying state keeps the pool lazy, so an unreachable replica doesn't block startup
+            HikariDataSource replica = new HikariDataSource();
+            primary.copyStateTo(replica);
+            replica.setJdbcUrl(node.getUrl());
+            replica.setUsername(node.getUsername());
+            replica.setPassword(node.getPassword());
+            replica.setPoolName(POOL_NAME_PREFIX + name);
+            replica.setReadOnly(true);
+            if (node.getMaximumPoolSize() != null) {
+                replica.setMaximumPoolSize(node.getMaximumPoolSize());
+            }
+
+            replicas.add(new ReplicaRoutingDataSource.Replica(name, replica));
+        }
+
+        return new ReplicaRoutingDataSource(primary, replicas);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new ReplicaLagMonitor(replicaRoutingDataSource, replicaProperties.getLagQuery(), replicaProperties.getMaxLag());
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReplicaStickinessFilter> replicaStickinessFilter() {
+        FilterRegistrationBean<ReplicaStickinessFilter> registration = new FilterRegistrationBean<>(new ReplicaStickinessFilter());
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
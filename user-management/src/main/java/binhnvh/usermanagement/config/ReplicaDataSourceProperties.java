@@ -0,0 +1,44 @@
+package binhnvh.usermanagement.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "application.datasource.replicas")
+public class ReplicaDataSourceProperties {
+
+    private boolean enabled;
+
+    // Replicas lagging further behind than this are skipped and reads fall back to the primary
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    private Duration lagCheckInterval = Duration.ofSeconds(5);
+
+    // Must return the replication lag in seconds as a single numeric column
+    private String lagQuery = "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM (now() - pg_last_xact_replay_timestamp())), 0) END";
+
+    private List<Node> nodes = new ArrayList<>();
+
+    @Setter
+    @Getter
+    public static class Node {
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        // Defaults to the primary pool size when not set
+        private Integer maximumPoolSize;
+    }
+}
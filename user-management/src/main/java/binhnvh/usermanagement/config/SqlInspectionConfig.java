@@ -0,0 +1,35 @@
+package binhnvh.usermanagement.config;
+
+import binhnvh.usermanagement.observability.SqlInspectionFilter;
+import binhnvh.usermanagement.observability.SqlInspectionPostProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Per-request and per-repository SQL statement inspection, on unless
+ * {@code application.sql-inspection.enabled} is false.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.sql-inspection", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SqlInspectionConfig {
+
+    @Bean
+    public static SqlInspectionPostProcessor sqlInspectionPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new SqlInspectionPostProcessor(meterRegistry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlInspectionFilter> sqlInspectionFilter(MeterRegistry meterRegistry,
+                                                                         SqlInspectionProperties properties) {
+        FilterRegistrationBean<SqlInspectionFilter> registration =
+                new FilterRegistrationBean<>(new SqlInspectionFilter(meterRegistry, properties));
+        // Runs ahead of the security chain so JWT user lookups count towards the request
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
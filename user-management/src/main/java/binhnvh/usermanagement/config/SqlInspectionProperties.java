@@ -0,0 +1,21 @@
+package binhnvh.usermanagement.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "application.sql-inspection")
+public class SqlInspectionProperties {
+
+    private boolean enabled = true;
+
+    // Adds X-SQL-* response headers; meant for non-prod environments only
+    private boolean exposeHeaders;
+
+    // The same statement running this many times in one request is reported as a likely N+1
+    private int repeatedStatementThreshold = 5;
+}
@@ -0,0 +1,27 @@
+package binhnvh.usermanagement.config;
+
+import binhnvh.tracing.TracingSupportConfig;
+import binhnvh.usermanagement.observability.TracingPostProcessor;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Tracing from the gateway down to the database, on unless {@code application.tracing.enabled} is false.
+ * Spring Boot continues the gateway's W3C trace through the servlet filters and the security filter chain;
+ * {@link TracingPostProcessor} adds spans for repository calls, JDBC statements, JWT handling and password
+ * hashing. Spans are kept in memory for {@code /actuator/traces}.
+ */
+@Configuration
+@Import(TracingSupportConfig.class)
+@ConditionalOnProperty(prefix = "application.tracing", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class TracingConfig {
+
+    @Bean
+    public static TracingPostProcessor tracingPostProcessor(ObjectProvider<ObservationRegistry> observationRegistry) {
+        return new TracingPostProcessor(observationRegistry);
+    }
+}
@@ -0,0 +1,32 @@
+package binhnvh.usermanagement.controller;
+
+import binhnvh.usermanagement.changefeed.ChangeFeedBroadcaster;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/changes")
+@RequiredArgsConstructor
+@Slf4j
+public class ChangeFeedController {
+
+    private final ChangeFeedBroadcaster changeFeedBroadcaster;
+
+    /**
+     * Streams user change events. Resumes after {@code Last-Event-ID} (or the {@code lastEventId} query
+     * parameter for clients that cannot set headers); without either, only new events are sent.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public SseEmitter streamChanges(
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventIdHeader,
+            @RequestParam(value = "lastEventId", required = false) Long lastEventIdParam) {
+        Long lastEventId = lastEventIdHeader != null ? lastEventIdHeader : lastEventIdParam;
+        log.info("Opening change feed stream from event: {}", lastEventId);
+        return changeFeedBroadcaster.subscribe(lastEventId);
+    }
+}
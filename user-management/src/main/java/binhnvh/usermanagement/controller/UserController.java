@@ -1,6 +1,8 @@
 package binhnvh.usermanagement.controller;
 
 import binhnvh.usermanagement.dto.UserDto;
+import binhnvh.usermanagement.dto.UserStatusPatch;
+import binhnvh.usermanagement.exception.PreconditionFailedException;
 import binhnvh.usermanagement.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -8,7 +10,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -35,7 +39,9 @@ public class UserController {
     public ResponseEntity<UserDto> getUserById(@PathVariable Long id) {
         log.info("Getting user by ID: {}", id);
         UserDto user = userService.getUserById(id);
-        return ResponseEntity.ok(user);
+        return ResponseEntity.ok()
+                .eTag(eTag(user.getVersion()))
+                .body(user);
     }
 
     @GetMapping("/username/{username}")
@@ -80,29 +86,47 @@ public class UserController {
 
     @PostMapping("/{id}/change-password")
     @PreAuthorize("hasRole('ADMIN') or @userSecurity.isCurrentUser(#id)")
-    public ResponseEntity<UserDto> changePassword(
+    public ResponseEntity<Void> changePassword(
             @PathVariable Long id,
             @RequestParam String currentPassword,
-            @RequestParam String newPassword) {
+            @RequestParam String newPassword,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Changing password for user with ID: {}", id);
-        UserDto updatedUser = userService.changePassword(id, currentPassword, newPassword);
-        return ResponseEntity.ok(updatedUser);
+        long version = userService.changePassword(id, currentPassword, newPassword, parseIfMatch(ifMatch));
+        return noContent(version);
+    }
+
+    @PatchMapping(value = "/{id}", consumes = {"application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> patchUserStatus(
+            @PathVariable Long id,
+            @Valid @RequestBody UserStatusPatch patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("Patching status for user with ID: {} to {}", id, patch);
+        long version = userService.updateUserStatus(id, patch.getEnabled(), patch.getLocked(), parseIfMatch(ifMatch));
+        return noContent(version);
     }
 
     @PatchMapping("/{id}/enable")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<UserDto> setUserEnabled(@PathVariable Long id, @RequestParam boolean enabled) {
+    public ResponseEntity<Void> setUserEnabled(
+            @PathVariable Long id,
+            @RequestParam boolean enabled,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Setting enabled status to {} for user with ID: {}", enabled, id);
-        UserDto updatedUser = userService.setUserEnabled(id, enabled);
-        return ResponseEntity.ok(updatedUser);
+        long version = userService.updateUserStatus(id, enabled, null, parseIfMatch(ifMatch));
+        return noContent(version);
     }
 
     @PatchMapping("/{id}/lock")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<UserDto> setUserLocked(@PathVariable Long id, @RequestParam boolean locked) {
+    public ResponseEntity<Void> setUserLocked(
+            @PathVariable Long id,
+            @RequestParam boolean locked,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("Setting locked status to {} for user with ID: {}", locked, id);
-        UserDto updatedUser = userService.setUserLocked(id, locked);
-        return ResponseEntity.ok(updatedUser);
+        long version = userService.updateUserStatus(id, null, locked, parseIfMatch(ifMatch));
+        return noContent(version);
     }
 
     @PostMapping("/{userId}/roles/{roleName}")
@@ -120,4 +144,33 @@ public class UserController {
         UserDto updatedUser = userService.removeRoleFromUser(userId, roleName);
         return ResponseEntity.ok(updatedUser);
     }
-}
\ No newline at end of file
+
+    private static ResponseEntity<Void> noContent(long version) {
+        return ResponseEntity.noContent()
+                .eTag(eTag(version))
+                .build();
+    }
+
+    private static String eTag(Long version) {
+        return version != null ? "\"" + version + "\"" : null;
+    }
+
+    /**
+     * Reads the expected version from an If-Match header. A missing header or {@code *} means
+     * any version; weak or unparseable tags can never match a strong ETag.
+     */
+    private static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new PreconditionFailedException("If-Match must be a single strong entity tag");
+        }
+        try {
+            return Long.valueOf(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException ex) {
+            throw new PreconditionFailedException("If-Match does not match the current entity tag");
+        }
+    }
+}
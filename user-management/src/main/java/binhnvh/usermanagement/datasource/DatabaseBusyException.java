@@ -0,0 +1,15 @@
+package binhnvh.usermanagement.datasource;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Thrown by {@link DatabaseConcurrencyLimiter} when no connection permit could be obtained. It is an
+ * {@link SQLTransientConnectionException}, like a Hikari pool timeout, so it travels through Hibernate and the
+ * transaction manager the same way and ends up as a 503.
+ */
+public class DatabaseBusyException extends SQLTransientConnectionException {
+
+    public DatabaseBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,66 @@
+package binhnvh.usermanagement.datasource;
+
+import binhnvh.usermanagement.config.DatabaseConcurrencyLimitProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Wraps the application {@code dataSource} bean with a {@link DatabaseConcurrencyLimiter}. Ordered so it runs
+ * before the SQL inspection wrapper, which then sees the limited data source as its target.
+ */
+@Slf4j
+public class DatabaseConcurrencyLimitPostProcessor implements BeanPostProcessor, Ordered {
+
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+    // Hikari's own default, applied when the pool starts; until then an unset size reads as -1
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    private final ObjectProvider<DatabaseConcurrencyLimitProperties> properties;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public DatabaseConcurrencyLimitPostProcessor(ObjectProvider<DatabaseConcurrencyLimitProperties> properties,
+                                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (DATA_SOURCE_BEAN.equals(beanName) && bean instanceof DataSource dataSource
+                && !(bean instanceof DatabaseConcurrencyLimiter)) {
+            DatabaseConcurrencyLimitProperties limit = properties.getObject();
+            int maxConcurrent = limit.getMaxConcurrent() != null ? limit.getMaxConcurrent() : poolSize(dataSource);
+            log.info("Limiting concurrent database connections to {}", maxConcurrent);
+            return new DatabaseConcurrencyLimiter(dataSource, maxConcurrent, limit.getAcquireTimeout(),
+                    limit.getMaxQueued(), meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+        }
+        return bean;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        // Unwraps through the lazy proxy and replica routing to the primary pool
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                int maximumPoolSize = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+                return maximumPoolSize > 0 ? maximumPoolSize : DEFAULT_POOL_SIZE;
+            }
+        } catch (SQLException ex) {
+            log.debug("Could not unwrap the connection pool, using the default size", ex);
+        }
+        return DEFAULT_POOL_SIZE;
+    }
+}
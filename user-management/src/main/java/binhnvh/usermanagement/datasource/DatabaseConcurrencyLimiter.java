@@ -0,0 +1,184 @@
+package binhnvh.usermanagement.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps the number of connections handed out at once with a fair semaphore sized to the pool.
+ *
+ * With virtual threads there is no request thread pool left to bound concurrency, so thousands of requests can
+ * pile up on the Hikari pool and each one waits the full connection timeout before failing. Here callers queue in
+ * arrival order, give up after {@code acquireTimeout}, and are turned away at once when {@code maxQueued} callers
+ * are already waiting; both fail with {@link DatabaseBusyException}, which the web layer maps to 503.
+ */
+public class DatabaseConcurrencyLimiter extends DelegatingDataSource implements Closeable {
+
+    @Getter
+    private final int maxConcurrent;
+
+    private final Duration acquireTimeout;
+    private final int maxQueued;
+    private final Semaphore permits;
+
+    private final Timer acquireTimer;
+    private final Counter timedOut;
+    private final Counter queueFull;
+
+    public DatabaseConcurrencyLimiter(DataSource target, int maxConcurrent, Duration acquireTimeout, int maxQueued,
+                                      MeterRegistry meterRegistry) {
+        super(target);
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.acquireTimeout = acquireTimeout;
+        this.maxQueued = maxQueued;
+        this.permits = new Semaphore(maxConcurrent, true);
+
+        Gauge.builder("db.limiter.active", this, DatabaseConcurrencyLimiter::getActive)
+                .description("Connections currently handed out through the limiter")
+                .register(meterRegistry);
+        Gauge.builder("db.limiter.waiting", permits, Semaphore::getQueueLength)
+                .description("Callers waiting for a connection permit")
+                .register(meterRegistry);
+        this.acquireTimer = Timer.builder("db.limiter.acquire")
+                .description("Time spent waiting for a connection permit")
+                .register(meterRegistry);
+        this.timedOut = meterRegistry.counter("db.limiter.rejected", "reason", "timeout");
+        this.queueFull = meterRegistry.counter("db.limiter.rejected", "reason", "queue-full");
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        return guard(super::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        return guard(() -> super.getConnection(username, password));
+    }
+
+    public int getActive() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int getWaiting() {
+        return permits.getQueueLength();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (getTargetDataSource() instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    private void acquire() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            // A zero timeout still honours fairness, unlike the untimed tryAcquire()
+            if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+            if (permits.getQueueLength() >= maxQueued) {
+                queueFull.increment();
+                throw new DatabaseBusyException(String.format(
+                        "Database busy: %d connections in use and %d callers already waiting", maxConcurrent, maxQueued));
+            }
+            if (!permits.tryAcquire(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                timedOut.increment();
+                throw new DatabaseBusyException(String.format(
+                        "Database busy: no connection available within %dms", acquireTimeout.toMillis()));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseBusyException("Interrupted while waiting for a connection");
+        } finally {
+            acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Connection guard(ConnectionSupplier supplier) throws SQLException {
+        Connection connection;
+        try {
+            connection = supplier.get();
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new PermitReleasingHandler(connection));
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+
+    /**
+     * Gives the permit back on the first {@code close()}, even when closing the connection itself fails.
+     */
+    private class PermitReleasingHandler implements InvocationHandler {
+
+        private final Connection target;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        PermitReleasingHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Limited connection [" + target + "]";
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getTargetException();
+            } finally {
+                if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        }
+    }
+}
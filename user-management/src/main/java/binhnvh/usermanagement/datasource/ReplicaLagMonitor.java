@@ -0,0 +1,50 @@
+package binhnvh.usermanagement.datasource;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+
+/**
+ * Periodically measures replication lag and takes replicas out of rotation when they fall too far behind or stop
+ * answering. Reads then fall back to the primary until the replica catches up.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ReplicaLagMonitor {
+
+    private final ReplicaRoutingDataSource routingDataSource;
+    private final String lagQuery;
+    private final Duration maxLag;
+
+    @Scheduled(fixedDelayString = "${application.datasource.replicas.lag-check-interval:5s}")
+    public void checkReplicas() {
+        routingDataSource.getReplicas().forEach(this::check);
+    }
+
+    void check(ReplicaRoutingDataSource.Replica replica) {
+        try {
+            Number seconds = new JdbcTemplate(replica.getDataSource()).queryForObject(lagQuery, Number.class);
+            Duration lag = Duration.ofMillis(Math.round((seconds != null ? seconds.doubleValue() : 0) * 1000));
+
+            if (lag.compareTo(maxLag) <= 0) {
+                if (!replica.isAvailable()) {
+                    log.info("Replica {} back in rotation with lag {}", replica.getName(), lag);
+                }
+                replica.markAvailable(lag);
+            } else {
+                if (replica.isAvailable()) {
+                    log.warn("Replica {} lag {} exceeds {}, routing its reads to primary", replica.getName(), lag, maxLag);
+                }
+                replica.markUnavailable(lag);
+            }
+        } catch (Exception ex) {
+            if (replica.isAvailable()) {
+                log.warn("Lag check failed for replica {}, routing its reads to primary", replica.getName(), ex);
+            }
+            replica.markUnavailable(null);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package binhnvh.usermanagement.datasource;
+
+/**
+ * Thread-bound routing state for {@link ReplicaRoutingDataSource}.
+ *
+ * Once a read-write transaction has run on the current thread, later read-only transactions are pinned to the
+ * primary so the work reads its own writes. Inside a request opened by {@link ReplicaStickinessFilter} the pin
+ * lasts until the request ends; anywhere else, such as scheduled jobs and async executors, it is released when the
+ * writing transaction completes.
+ */
+public final class ReplicaRoutingContext {
+
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> IN_REQUEST = new ThreadLocal<>();
+
+    private ReplicaRoutingContext() {
+    }
+
+    public static void enterRequest() {
+        PINNED_TO_PRIMARY.remove();
+        IN_REQUEST.set(Boolean.TRUE);
+    }
+
+    public static boolean isInRequest() {
+        return Boolean.TRUE.equals(IN_REQUEST.get());
+    }
+
+    public static void pinToPrimary() {
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return Boolean.TRUE.equals(PINNED_TO_PRIMARY.get());
+    }
+
+    public static void unpin() {
+        PINNED_TO_PRIMARY.remove();
+    }
+
+    public static void clear() {
+        PINNED_TO_PRIMARY.remove();
+        IN_REQUEST.remove();
+    }
+}
@@ -0,0 +1,130 @@
+package binhnvh.usermanagement.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes read-only transactions to replica pools and everything else to the primary.
+ *
+ * The lookup key is resolved when the first statement of a transaction needs a physical connection, so this data
+ * source must sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}; otherwise the
+ * transaction manager fetches the connection before the read-only flag is visible.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    public static final String PRIMARY_KEY = "primary";
+
+    private final HikariDataSource primary;
+
+    @Getter
+    private final List<Replica> replicas;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<Replica> replicas) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY_KEY, primary);
+        this.replicas.forEach(replica -> targets.put(replica.getName(), replica.getDataSource()));
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                pinToPrimary();
+            }
+            return PRIMARY_KEY;
+        }
+
+        if (ReplicaRoutingContext.isPinnedToPrimary()) {
+            return PRIMARY_KEY;
+        }
+
+        Replica replica = nextAvailableReplica();
+        return replica != null ? replica.getName() : PRIMARY_KEY;
+    }
+
+    private static void pinToPrimary() {
+        ReplicaRoutingContext.pinToPrimary();
+        if (!ReplicaRoutingContext.isInRequest() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            // No filter clears the pin off a request thread, so scheduled and async work returns to replicas here
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    ReplicaRoutingContext.unpin();
+                }
+            });
+        }
+    }
+
+    private Replica nextAvailableReplica() {
+        int size = replicas.size();
+        if (size == 0) {
+            return null;
+        }
+
+        int start = Math.floorMod(nextReplica.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica candidate = replicas.get((start + i) % size);
+            if (candidate.isAvailable()) {
+                return candidate;
+            }
+        }
+
+        log.debug("No replica within the lag threshold, routing read-only transaction to primary");
+        return null;
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.getDataSource().close());
+        primary.close();
+    }
+
+    @Getter
+    public static class Replica {
+
+        private final String name;
+
+        private final HikariDataSource dataSource;
+
+        // Replicas start unavailable until the first lag check succeeds
+        private volatile boolean available;
+
+        private volatile Duration lag;
+
+        public Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        void markAvailable(Duration lag) {
+            this.lag = lag;
+            this.available = true;
+        }
+
+        void markUnavailable(Duration lag) {
+            this.lag = lag;
+            this.available = false;
+        }
+    }
+}
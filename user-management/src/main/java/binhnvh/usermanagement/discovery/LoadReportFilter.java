@@ -0,0 +1,31 @@
+package binhnvh.usermanagement.discovery;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Counts requests in flight and their latency for the {@link LoadReporter}.
+ */
+@RequiredArgsConstructor
+public class LoadReportFilter extends OncePerRequestFilter {
+
+    private final LoadReporter loadReporter;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long startedAt = System.nanoTime();
+        loadReporter.requestStarted();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            loadReporter.requestFinished(System.nanoTime() - startedAt);
+        }
+    }
+}
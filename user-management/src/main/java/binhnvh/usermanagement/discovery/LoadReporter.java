@@ -0,0 +1,114 @@
+package binhnvh.usermanagement.discovery;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes how loaded this instance is into its Eureka instance metadata, for the gateway's load balancer to
+ * weigh instances by.
+ *
+ * <ul>
+ *   <li>{@value #IN_FLIGHT}: HTTP requests being handled</li>
+ *   <li>{@value #POOL}: connections in use or waited for over the pool size, of the busiest Hikari pool; above 1
+ *       means callers are queueing</li>
+ *   <li>{@value #P99}: 99th percentile request latency in milliseconds over the recent window</li>
+ *   <li>{@value #TIMESTAMP}: when the report was taken, in epoch milliseconds, so readers can tell a stale one</li>
+ * </ul>
+ *
+ * Eureka sends changed metadata with the next re-registration, within
+ * {@code eureka.client.instance-info-replication-interval-seconds}, and other clients see it on their next
+ * registry fetch.
+ */
+@Slf4j
+public class LoadReporter {
+
+    public static final String IN_FLIGHT = "load.in-flight";
+    public static final String POOL = "load.pool";
+    public static final String P99 = "load.p99";
+    public static final String TIMESTAMP = "load.ts";
+
+    private final ApplicationInfoManager applicationInfoManager;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Timer latency;
+
+    public LoadReporter(ApplicationInfoManager applicationInfoManager, MeterRegistry meterRegistry, Duration window,
+                        Clock clock) {
+        this.applicationInfoManager = applicationInfoManager;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        this.latency = Timer.builder("load.report.latency")
+                .description("Request latency over the load report window")
+                .publishPercentiles(0.99)
+                .distributionStatisticExpiry(window)
+                .distributionStatisticBufferLength(2)
+                .register(meterRegistry);
+        Gauge.builder("load.report.in.flight", inFlight, AtomicInteger::get)
+                .description("HTTP requests being handled")
+                .register(meterRegistry);
+    }
+
+    public void requestStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    public void requestFinished(long elapsedNanos) {
+        inFlight.decrementAndGet();
+        latency.record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Scheduled(fixedDelayString = "${application.load-report.interval:10s}")
+    public void publish() {
+        Map<String, String> report = report();
+        applicationInfoManager.registerAppMetadata(report);
+        log.trace("Published load report {}", report);
+    }
+
+    Map<String, String> report() {
+        Map<String, String> report = new LinkedHashMap<>();
+        report.put(IN_FLIGHT, String.valueOf(inFlight.get()));
+        report.put(POOL, String.format(Locale.ROOT, "%.2f", poolUtilization()));
+        report.put(P99, String.valueOf(Math.round(p99Millis())));
+        report.put(TIMESTAMP, String.valueOf(clock.millis()));
+        return report;
+    }
+
+    private double poolUtilization() {
+        double busiest = 0;
+        for (Gauge max : meterRegistry.find("hikaricp.connections.max").gauges()) {
+            String pool = max.getId().getTag("pool");
+            double active = gauge("hikaricp.connections.active", pool);
+            double pending = gauge("hikaricp.connections.pending", pool);
+            if (max.value() > 0) {
+                busiest = Math.max(busiest, (active + pending) / max.value());
+            }
+        }
+        return busiest;
+    }
+
+    private double gauge(String name, String pool) {
+        Gauge gauge = meterRegistry.find(name).tag("pool", pool).gauge();
+        return gauge == null || Double.isNaN(gauge.value()) ? 0 : gauge.value();
+    }
+
+    private double p99Millis() {
+        for (ValueAtPercentile percentile : latency.takeSnapshot().percentileValues()) {
+            return percentile.value(TimeUnit.MILLISECONDS);
+        }
+        return 0;
+    }
+}
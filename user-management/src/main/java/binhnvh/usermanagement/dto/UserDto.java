@@ -49,4 +49,6 @@ public class UserDto {
     private LocalDateTime updatedAt;
 
     private LocalDateTime lastLoginAt;
+
+    private Long version;
 }
\ No newline at end of file
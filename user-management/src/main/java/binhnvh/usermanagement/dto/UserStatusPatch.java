@@ -0,0 +1,26 @@
+package binhnvh.usermanagement.dto;
+
+import jakarta.validation.constraints.AssertTrue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Merge-patch body for account status changes; absent fields are left untouched.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserStatusPatch {
+
+    private Boolean enabled;
+
+    private Boolean locked;
+
+    @AssertTrue(message = "At least one of enabled or locked is required")
+    private boolean isAnyFieldPresent() {
+        return enabled != null || locked != null;
+    }
+}
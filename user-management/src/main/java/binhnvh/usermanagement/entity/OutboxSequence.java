@@ -0,0 +1,27 @@
+package binhnvh.usermanagement.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Last sequence number the outbox relay handed out. There is a single row, locked for the length of each
+ * relay batch.
+ */
+@Entity
+@Table(name = "outbox_sequence")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxSequence {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "last_published_seq", nullable = false)
+    private Long lastPublishedSeq;
+}
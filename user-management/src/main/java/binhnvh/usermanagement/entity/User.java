@@ -67,6 +67,9 @@ public class User {
     @Column(name = "last_login_at")
     private LocalDateTime lastLoginAt;
 
+    @Version
+    private Long version;
+
     public void addRole(Role role) {
         this.roles.add(role);
         role.getUsers().add(this);
@@ -0,0 +1,16 @@
+package binhnvh.usermanagement.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String resourceName, Object id, Object expectedVersion) {
+        super(String.format("%s with id '%s' is no longer at version '%s'", resourceName, id, expectedVersion));
+    }
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
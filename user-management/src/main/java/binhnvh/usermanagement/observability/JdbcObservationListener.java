@@ -0,0 +1,73 @@
+package binhnvh.usermanagement.observability;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Observes each JDBC statement execution as {@code jdbc.query}, nested under the repository call or request
+ * running it. The span carries the statement as normalized by {@link SqlInspectionListener#normalize(String)};
+ * the metric is tagged by data source and statement kind only.
+ */
+public class JdbcObservationListener implements QueryExecutionListener {
+
+    private static final String OBSERVATION = JdbcObservationListener.class.getName() + ".observation";
+
+    private final String dataSource;
+    private final Supplier<ObservationRegistry> observationRegistry;
+
+    public JdbcObservationListener(String dataSource, Supplier<ObservationRegistry> observationRegistry) {
+        this.dataSource = dataSource;
+        this.observationRegistry = observationRegistry;
+    }
+
+    /**
+     * A plain JDK proxy rather than a {@code ProxyDataSource}, so SQL inspection still wraps it whichever
+     * post-processor runs first.
+     */
+    public static DataSource wrap(String name, DataSource dataSource, Supplier<ObservationRegistry> observationRegistry) {
+        return ProxyDataSourceBuilder.create(name, dataSource)
+                .listener(new JdbcObservationListener(name, observationRegistry))
+                .buildProxy();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        String sql = queryInfoList.isEmpty() ? "" : SqlInspectionListener.normalize(queryInfoList.get(0).getQuery());
+        String kind = kind(sql);
+        Observation observation = Observation.createNotStarted("jdbc.query", observationRegistry.get())
+                .contextualName(execInfo.isBatch() ? kind + " batch" : kind)
+                .lowCardinalityKeyValue("datasource", dataSource)
+                .lowCardinalityKeyValue("statement", kind)
+                .highCardinalityKeyValue("db.statement", sql)
+                .start();
+        execInfo.addCustomValue(OBSERVATION, observation);
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Observation observation = execInfo.getCustomValue(OBSERVATION, Observation.class);
+        if (observation == null) {
+            return;
+        }
+        if (execInfo.getThrowable() != null) {
+            observation.error(execInfo.getThrowable());
+        }
+        observation.stop();
+    }
+
+    // Leading keyword, lower case: select, insert, update, ...
+    private static String kind(String sql) {
+        int end = sql.indexOf(' ');
+        String keyword = end < 0 ? sql : sql.substring(0, end);
+        return keyword.isEmpty() ? "unknown" : keyword.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,59 @@
+package binhnvh.usermanagement.observability;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Observes each call through a proxy, as a span named after the component and method
+ * ({@code user-repository.find-by-username}) that work done in the call nests under. Added by
+ * {@link TracingPostProcessor}.
+ */
+public class ObservedMethodInterceptor implements MethodInterceptor {
+
+    private static final Pattern WORD_BOUNDARY = Pattern.compile("(?<=[a-z0-9])(?=[A-Z])|(?<=[A-Z])(?=[A-Z][a-z])");
+
+    private final String name;
+    private final String component;
+    private final String spanPrefix;
+    private final Supplier<ObservationRegistry> observationRegistry;
+
+    public ObservedMethodInterceptor(String name, Class<?> component, Supplier<ObservationRegistry> observationRegistry) {
+        this.name = name;
+        this.component = component.getSimpleName();
+        this.spanPrefix = kebabCase(this.component) + ".";
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (invocation.getMethod().getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        String method = invocation.getMethod().getName();
+
+        Observation observation = Observation.createNotStarted(name, observationRegistry.get())
+                .contextualName(spanPrefix + kebabCase(method))
+                .lowCardinalityKeyValue("component", component)
+                .lowCardinalityKeyValue("method", method)
+                .start();
+        try (Observation.Scope ignored = observation.openScope()) {
+            return invocation.proceed();
+        } catch (Throwable e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+    }
+
+    // UserRepository -> user-repository, findByUsername -> find-by-username, JwtProvider -> jwt-provider
+    static String kebabCase(String identifier) {
+        return WORD_BOUNDARY.matcher(identifier).replaceAll("-").toLowerCase(Locale.ROOT);
+    }
+}
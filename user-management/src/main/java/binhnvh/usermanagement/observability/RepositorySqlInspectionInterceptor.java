@@ -0,0 +1,47 @@
+package binhnvh.usermanagement.observability;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Records statements and rows per repository method call. Added to each repository proxy by
+ * {@link SqlInspectionPostProcessor}.
+ */
+public class RepositorySqlInspectionInterceptor implements MethodInterceptor {
+
+    private final String repository;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public RepositorySqlInspectionInterceptor(Class<?> repositoryInterface, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.repository = repositoryInterface.getSimpleName();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        SqlStatementStats stats = SqlInspectionContext.open();
+        try {
+            return invocation.proceed();
+        } finally {
+            SqlInspectionContext.close(stats);
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            if (registry != null) {
+                Tags tags = Tags.of("repository", repository, "method", invocation.getMethod().getName());
+                DistributionSummary.builder("sql.repository.statements")
+                        .description("JDBC statements executed per repository method call")
+                        .tags(tags)
+                        .register(registry)
+                        .record(stats.getStatements());
+                DistributionSummary.builder("sql.repository.rows")
+                        .description("Rows read or affected per repository method call")
+                        .tags(tags)
+                        .register(registry)
+                        .record(stats.getRows());
+            }
+        }
+    }
+}
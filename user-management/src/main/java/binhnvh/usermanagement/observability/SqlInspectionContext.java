@@ -0,0 +1,56 @@
+package binhnvh.usermanagement.observability;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Thread-bound stack of open inspection scopes. Scopes nest (request, repository method, test), and every
+ * statement is recorded against all scopes open on the executing thread.
+ */
+public final class SqlInspectionContext {
+
+    private static final ThreadLocal<Deque<SqlStatementStats>> SCOPES = new ThreadLocal<>();
+
+    private SqlInspectionContext() {
+    }
+
+    public static SqlStatementStats open() {
+        Deque<SqlStatementStats> scopes = SCOPES.get();
+        if (scopes == null) {
+            scopes = new ArrayDeque<>();
+            SCOPES.set(scopes);
+        }
+        SqlStatementStats stats = new SqlStatementStats();
+        scopes.push(stats);
+        return stats;
+    }
+
+    public static void close(SqlStatementStats stats) {
+        Deque<SqlStatementStats> scopes = SCOPES.get();
+        if (scopes == null) {
+            return;
+        }
+        scopes.remove(stats);
+        if (scopes.isEmpty()) {
+            SCOPES.remove();
+        }
+    }
+
+    static boolean isActive() {
+        return SCOPES.get() != null;
+    }
+
+    static void recordStatement(String sql, long nanos) {
+        Deque<SqlStatementStats> scopes = SCOPES.get();
+        if (scopes != null) {
+            scopes.forEach(stats -> stats.recordStatement(sql, nanos));
+        }
+    }
+
+    static void recordRows(long count) {
+        Deque<SqlStatementStats> scopes = SCOPES.get();
+        if (scopes != null) {
+            scopes.forEach(stats -> stats.recordRows(count));
+        }
+    }
+}
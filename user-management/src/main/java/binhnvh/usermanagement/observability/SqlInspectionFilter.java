@@ -0,0 +1,94 @@
+package binhnvh.usermanagement.observability;
+
+import binhnvh.usermanagement.config.SqlInspectionProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Records statements, rows and DB time per HTTP request, tagged by the matched route pattern, and warns
+ * when one statement repeats often enough to look like an N+1 load.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class SqlInspectionFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENTS_HEADER = "X-SQL-Statements";
+    public static final String ROWS_HEADER = "X-SQL-Rows";
+    public static final String TIME_HEADER = "X-SQL-Time";
+
+    private final MeterRegistry meterRegistry;
+    private final SqlInspectionProperties properties;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        // Headers must be set before the body is committed, so buffer it when they are wanted
+        ContentCachingResponseWrapper buffered = properties.isExposeHeaders() && !isEventStream(request)
+                ? new ContentCachingResponseWrapper(response)
+                : null;
+
+        SqlStatementStats stats = SqlInspectionContext.open();
+        try {
+            filterChain.doFilter(request, buffered != null ? buffered : response);
+        } finally {
+            SqlInspectionContext.close(stats);
+            record(request, stats);
+            if (buffered != null) {
+                buffered.setHeader(STATEMENTS_HEADER, String.valueOf(stats.getStatements()));
+                buffered.setHeader(ROWS_HEADER, String.valueOf(stats.getRows()));
+                buffered.setHeader(TIME_HEADER, String.format("%.3fms", stats.getElapsed().toNanos() / 1_000_000.0));
+                buffered.copyBodyToResponse();
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlStatementStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        Tags tags = Tags.of("uri", uri, "method", request.getMethod());
+
+        DistributionSummary.builder("sql.request.statements")
+                .description("JDBC statements executed per HTTP request")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(stats.getStatements());
+        DistributionSummary.builder("sql.request.rows")
+                .description("Rows read or affected per HTTP request")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(stats.getRows());
+        Timer.builder("sql.request.time")
+                .description("Time spent executing JDBC statements per HTTP request")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(stats.getElapsed());
+
+        Map<String, Integer> repeated = stats.getRepeatedStatements(properties.getRepeatedStatementThreshold());
+        if (!repeated.isEmpty()) {
+            meterRegistry.counter("sql.request.repeated", tags).increment();
+            repeated.forEach((sql, count) ->
+                    log.warn("Possible N+1 on {} {}: statement executed {} times: {}", request.getMethod(), uri, count, sql));
+        }
+    }
+
+    private static boolean isEventStream(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+}
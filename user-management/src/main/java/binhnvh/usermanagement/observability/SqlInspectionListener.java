@@ -0,0 +1,93 @@
+package binhnvh.usermanagement.observability;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Feeds JDBC activity into {@link SqlInspectionContext}: one statement per execution (a batch counts once,
+ * as a single round trip), rows read through {@link ResultSet#next()} plus update counts.
+ */
+public class SqlInspectionListener implements QueryExecutionListener, MethodExecutionListener {
+
+    private static final String START_NANOS = SqlInspectionListener.class.getName() + ".start";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+
+    public static ProxyDataSource wrap(String name, DataSource dataSource) {
+        SqlInspectionListener listener = new SqlInspectionListener();
+        return ProxyDataSourceBuilder.create(name, dataSource)
+                .listener(listener)
+                .methodListener(listener)
+                .proxyResultSet()
+                .build();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (SqlInspectionContext.isActive()) {
+            execInfo.addCustomValue(START_NANOS, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Long start = execInfo.getCustomValue(START_NANOS, Long.class);
+        if (start == null || !SqlInspectionContext.isActive()) {
+            return;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        String sql = queryInfoList.isEmpty() ? "" : normalize(queryInfoList.get(0).getQuery());
+        SqlInspectionContext.recordStatement(sql, elapsed);
+        SqlInspectionContext.recordRows(updateCount(execInfo.getResult()));
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionContext executionContext) {
+    }
+
+    @Override
+    public void afterMethod(MethodExecutionContext executionContext) {
+        if (executionContext.getTarget() instanceof ResultSet
+                && "next".equals(executionContext.getMethod().getName())
+                && Boolean.TRUE.equals(executionContext.getResult())
+                && SqlInspectionContext.isActive()) {
+            SqlInspectionContext.recordRows(1);
+        }
+    }
+
+    /**
+     * Collapses whitespace and IN-lists so the same query with different bind counts is grouped together.
+     */
+    static String normalize(String sql) {
+        String collapsed = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return IN_LIST.matcher(collapsed).replaceAll("in (?)");
+    }
+
+    private static long updateCount(Object result) {
+        if (result instanceof Integer count) {
+            return Math.max(count, 0);
+        }
+        if (result instanceof Long count) {
+            return Math.max(count, 0);
+        }
+        if (result instanceof int[] counts) {
+            long total = 0;
+            for (int count : counts) {
+                total += Math.max(count, 0);
+            }
+            return total;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,44 @@
+package binhnvh.usermanagement.observability;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application {@code dataSource} bean with the inspection proxy and adds
+ * {@link RepositorySqlInspectionInterceptor} to every Spring Data repository.
+ */
+public class SqlInspectionPostProcessor implements BeanPostProcessor {
+
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public SqlInspectionPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                    (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(
+                            new RepositorySqlInspectionInterceptor(repositoryInformation.getRepositoryInterface(), meterRegistry))));
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        // Only the outermost pool is wrapped; inner pools (e.g. replica routing targets) would double count
+        if (DATA_SOURCE_BEAN.equals(beanName) && bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+            return SqlInspectionListener.wrap(beanName, dataSource);
+        }
+        return bean;
+    }
+}
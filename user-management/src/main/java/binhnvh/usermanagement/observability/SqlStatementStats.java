@@ -0,0 +1,57 @@
+package binhnvh.usermanagement.observability;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Statement, row and DB time totals for one inspection scope. Only ever touched by the owning thread.
+ */
+public class SqlStatementStats {
+
+    private int statements;
+    private long rows;
+    private long elapsedNanos;
+    private final Map<String, Integer> statementCounts = new LinkedHashMap<>();
+
+    void recordStatement(String sql, long nanos) {
+        statements++;
+        elapsedNanos += nanos;
+        statementCounts.merge(sql, 1, Integer::sum);
+    }
+
+    void recordRows(long count) {
+        rows += count;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    public Map<String, Integer> getStatementCounts() {
+        return statementCounts;
+    }
+
+    /**
+     * Statements executed at least {@code threshold} times, the usual signature of an N+1 load.
+     */
+    public Map<String, Integer> getRepeatedStatements(int threshold) {
+        return statementCounts.entrySet().stream()
+                .filter(entry -> entry.getValue() >= threshold)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("statements=%d, rows=%d, time=%.3fms", statements, rows, elapsedNanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,62 @@
+package binhnvh.usermanagement.observability;
+
+import binhnvh.usermanagement.security.JwtProvider;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.function.SingletonSupplier;
+
+import javax.sql.DataSource;
+import java.util.function.Supplier;
+
+/**
+ * Adds spans below the request's: {@link ObservedMethodInterceptor} on every Spring Data repository, the
+ * {@link JwtProvider} and the {@link PasswordEncoder}, and {@link JdbcObservationListener} on the application
+ * {@code dataSource} bean.
+ */
+public class TracingPostProcessor implements BeanPostProcessor {
+
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+
+    private final Supplier<ObservationRegistry> observationRegistry;
+
+    public TracingPostProcessor(ObjectProvider<ObservationRegistry> observationRegistry) {
+        // Looked up on first use, as post-processors are created before the registry
+        this.observationRegistry = SingletonSupplier.of(() -> observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP));
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                    (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(new ObservedMethodInterceptor(
+                            "data.repository", repositoryInformation.getRepositoryInterface(), observationRegistry))));
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof JwtProvider) {
+            return observed(bean, "security.jwt", JwtProvider.class);
+        }
+        if (bean instanceof PasswordEncoder) {
+            return observed(bean, "security.password.encoder", PasswordEncoder.class);
+        }
+        if (DATA_SOURCE_BEAN.equals(beanName) && bean instanceof DataSource dataSource) {
+            return JdbcObservationListener.wrap(beanName, dataSource, observationRegistry);
+        }
+        return bean;
+    }
+
+    private Object observed(Object bean, String name, Class<?> component) {
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(!component.isInterface());
+        proxyFactory.addAdvice(new ObservedMethodInterceptor(name, component, observationRegistry));
+        return proxyFactory.getProxy(bean.getClass().getClassLoader());
+    }
+}
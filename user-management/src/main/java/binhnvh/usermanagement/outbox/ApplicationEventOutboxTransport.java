@@ -0,0 +1,19 @@
+package binhnvh.usermanagement.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Default transport: republishes messages as in-process application events for local listeners. Only the
+ * instance that relays an event sees it; the change feed reads the outbox table instead.
+ */
+@RequiredArgsConstructor
+public class ApplicationEventOutboxTransport implements OutboxTransport {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void send(OutboxMessage message) {
+        eventPublisher.publishEvent(message);
+    }
+}
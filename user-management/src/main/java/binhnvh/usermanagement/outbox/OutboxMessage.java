@@ -0,0 +1,23 @@
+package binhnvh.usermanagement.outbox;
+
+import binhnvh.usermanagement.entity.OutboxEvent;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable view of an outbox row handed to transports. The sequence is the delivery order consumers use to
+ * order, de-duplicate and resume events; it is assigned by the relay, so it follows commit order where the id
+ * only follows allocation order.
+ */
+public record OutboxMessage(long id, long sequence, String aggregateType, String aggregateId, String eventType,
+                            String payload, LocalDateTime createdAt) {
+
+    public static OutboxMessage from(OutboxEvent event) {
+        return published(event, event.getPublishedSeq());
+    }
+
+    public static OutboxMessage published(OutboxEvent event, long sequence) {
+        return new OutboxMessage(event.getId(), sequence, event.getAggregateType(), event.getAggregateId(),
+                event.getEventType(), event.getPayload(), event.getCreatedAt());
+    }
+}
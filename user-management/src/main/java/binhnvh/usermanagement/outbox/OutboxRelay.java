@@ -0,0 +1,95 @@
+package binhnvh.usermanagement.outbox;
+
+import binhnvh.usermanagement.entity.OutboxEvent;
+import binhnvh.usermanagement.entity.OutboxSequence;
+import binhnvh.usermanagement.repository.OutboxEventRepository;
+import binhnvh.usermanagement.repository.OutboxSequenceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Publishes unpublished outbox rows in id order and marks them published in the same transaction that
+ * locked them. A failed send stops the batch so later events never overtake an earlier one; the failed
+ * event and everything after it are retried on the next run.
+ *
+ * Each published event gets the next sequence number. The relay holds the {@link OutboxSequence} row lock
+ * until it commits, so batches from relays on different instances are numbered one after another and
+ * sequence numbers rise in commit order, even when an event with a lower id commits late.
+ */
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxSequenceRepository outboxSequenceRepository;
+    private final OutboxTransport transport;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration retention;
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, OutboxSequenceRepository outboxSequenceRepository,
+                       OutboxTransport transport, TransactionTemplate transactionTemplate, int batchSize,
+                       Duration retention, MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxSequenceRepository = outboxSequenceRepository;
+        this.transport = transport;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.retention = retention;
+        this.publishedCounter = meterRegistry.counter("outbox.events.published");
+        this.failedCounter = meterRegistry.counter("outbox.events.failed");
+    }
+
+    @Scheduled(fixedDelayString = "${application.outbox.poll-interval:1s}")
+    public void relay() {
+        Integer published;
+        do {
+            published = transactionTemplate.execute(status -> publishBatch());
+        } while (published != null && published == batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "${application.outbox.prune-interval:1h}")
+    public void prune() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minus(retention)));
+        if (deleted != null && deleted > 0) {
+            log.debug("Pruned {} published outbox events", deleted);
+        }
+    }
+
+    private int publishBatch() {
+        OutboxSequence sequence = outboxSequenceRepository.lockForRelay();
+        List<OutboxEvent> batch = outboxEventRepository.findUnpublishedForUpdate(PageRequest.of(0, batchSize));
+        LocalDateTime publishedAt = LocalDateTime.now();
+        long lastSeq = sequence.getLastPublishedSeq();
+        int sent = 0;
+
+        for (OutboxEvent event : batch) {
+            try {
+                transport.send(OutboxMessage.published(event, lastSeq + 1));
+            } catch (RuntimeException ex) {
+                failedCounter.increment();
+                log.warn("Failed to publish outbox event {} ({}), retrying on next run", event.getId(), event.getEventType(), ex);
+                break;
+            }
+            outboxEventRepository.markPublished(event.getId(), ++lastSeq, publishedAt);
+            sent++;
+        }
+
+        if (sent > 0) {
+            sequence.setLastPublishedSeq(lastSeq);
+            outboxSequenceRepository.save(sequence);
+            publishedCounter.increment(sent);
+        }
+        return sent;
+    }
+}
@@ -0,0 +1,10 @@
+package binhnvh.usermanagement.outbox;
+
+/**
+ * Delivers relayed outbox messages. Implementations must throw when delivery fails so the message stays
+ * unpublished and is retried; delivery is at-least-once, so consumers must tolerate duplicates.
+ */
+public interface OutboxTransport {
+
+    void send(OutboxMessage message);
+}
@@ -0,0 +1,11 @@
+package binhnvh.usermanagement.outbox;
+
+public enum UserEventType {
+    USER_CREATED,
+    USER_UPDATED,
+    USER_DELETED,
+    USER_STATUS_CHANGED,
+    USER_PASSWORD_CHANGED,
+    USER_ROLE_ADDED,
+    USER_ROLE_REMOVED
+}
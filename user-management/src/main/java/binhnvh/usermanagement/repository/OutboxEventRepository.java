@@ -0,0 +1,39 @@
+package binhnvh.usermanagement.repository;
+
+import binhnvh.usermanagement.entity.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM OutboxEvent e WHERE e.publishedAt IS NULL ORDER BY e.id")
+    List<OutboxEvent> findUnpublishedForUpdate(Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.publishedSeq = :publishedSeq, e.publishedAt = :publishedAt WHERE e.id = :id")
+    int markPublished(Long id, Long publishedSeq, LocalDateTime publishedAt);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.publishedAt < :cutoff")
+    int deletePublishedBefore(LocalDateTime cutoff);
+
+    @Query("SELECT MIN(e.publishedSeq) FROM OutboxEvent e")
+    Long findMinPublishedSeq();
+
+    @Query("SELECT MAX(e.publishedSeq) FROM OutboxEvent e")
+    Long findMaxPublishedSeq();
+
+    long countByPublishedSeqGreaterThan(Long publishedSeq);
+
+    List<OutboxEvent> findByPublishedSeqGreaterThanOrderByPublishedSeqAsc(Long publishedSeq, Pageable pageable);
+}
@@ -0,0 +1,17 @@
+package binhnvh.usermanagement.repository;
+
+import binhnvh.usermanagement.entity.OutboxSequence;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxSequenceRepository extends JpaRepository<OutboxSequence, Integer> {
+
+    // Held until the relay commits, so sequence numbers rise in commit order across instances
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM OutboxSequence s WHERE s.id = 1")
+    OutboxSequence lockForRelay();
+}
@@ -23,4 +23,23 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Modifying
     @Query("UPDATE User u SET u.lastLoginAt = :lastLoginAt WHERE u.id = :userId")
     int updateLastLoginTime(Long userId, LocalDateTime lastLoginAt);
+
+    @Query("SELECT u.password FROM User u WHERE u.id = :userId")
+    Optional<String> findPasswordById(Long userId);
+
+    @Query("SELECT u.version FROM User u WHERE u.id = :userId")
+    Optional<Long> findVersionById(Long userId);
+
+    // Guarded single-statement updates: a null expectedVersion skips the version check,
+    // and a null flag leaves that column unchanged.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.enabled = COALESCE(:enabled, u.enabled), u.locked = COALESCE(:locked, u.locked), " +
+            "u.version = u.version + 1, u.updatedAt = :updatedAt " +
+            "WHERE u.id = :userId AND (:expectedVersion IS NULL OR u.version = :expectedVersion)")
+    int updateStatus(Long userId, Boolean enabled, Boolean locked, Long expectedVersion, LocalDateTime updatedAt);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.password = :password, u.version = u.version + 1, u.updatedAt = :updatedAt " +
+            "WHERE u.id = :userId AND (:expectedVersion IS NULL OR u.version = :expectedVersion)")
+    int updatePassword(Long userId, String password, Long expectedVersion, LocalDateTime updatedAt);
 }
\ No newline at end of file
@@ -13,6 +13,7 @@ import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -38,8 +39,9 @@ public class JwtProvider {
 
     @PostConstruct
     public void init() {
-        // Generate a secure key with the proper size for HS512
-        this.key = Keys.secretKeyFor(SignatureAlgorithm.HS512);
+        // Derived from the configured secret so tokens survive restarts and other services (user-query-service)
+        // can verify them; HS512 needs at least 64 bytes
+        this.key = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
     }
 
     public String generateToken(Authentication authentication) {
@@ -0,0 +1,10 @@
+package binhnvh.usermanagement.service;
+
+public interface OutboxService {
+
+    /**
+     * Appends a change event to the outbox. Must be called inside the transaction making the change,
+     * so the event is stored if and only if the change commits.
+     */
+    void append(String aggregateType, Object aggregateId, String eventType, Object payload);
+}
@@ -20,13 +20,17 @@ public interface UserService {
 
     void deleteUser(Long id);
 
-    UserDto setUserEnabled(Long id, boolean enabled);
-
-    UserDto setUserLocked(Long id, boolean locked);
+    /**
+     * Applies a partial status update in a single statement.
+     *
+     * @param expectedVersion version the caller last saw, or {@code null} to update unconditionally
+     * @return the new version of the user
+     */
+    long updateUserStatus(Long id, Boolean enabled, Boolean locked, Long expectedVersion);
 
     UserDto addRoleToUser(Long userId, String roleName);
 
     UserDto removeRoleFromUser(Long userId, String roleName);
 
-    UserDto changePassword(Long id, String currentPassword, String newPassword);
+    long changePassword(Long id, String currentPassword, String newPassword, Long expectedVersion);
 }
\ No newline at end of file
@@ -7,10 +7,12 @@ import binhnvh.usermanagement.entity.Role;
 import binhnvh.usermanagement.entity.User;
 import binhnvh.usermanagement.exception.ResourceNotFoundException;
 import binhnvh.usermanagement.exception.UserAlreadyExistsException;
+import binhnvh.usermanagement.outbox.UserEventType;
 import binhnvh.usermanagement.repository.RoleRepository;
 import binhnvh.usermanagement.repository.UserRepository;
 import binhnvh.usermanagement.security.JwtProvider;
 import binhnvh.usermanagement.service.AuthService;
+import binhnvh.usermanagement.service.OutboxService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -38,6 +40,7 @@ public class AuthServiceImpl implements AuthService {
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtProvider jwtProvider;
+    private final OutboxService outboxService;
 
     @Override
     @Transactional
@@ -125,7 +128,7 @@ public class AuthServiceImpl implements AuthService {
         User savedUser = userRepository.save(user);
 
         // Convert to DTO for response
-        return UserDto.builder()
+        UserDto registeredUser = UserDto.builder()
                 .id(savedUser.getId())
                 .username(savedUser.getUsername())
                 .email(savedUser.getEmail())
@@ -140,6 +143,9 @@ public class AuthServiceImpl implements AuthService {
                 .updatedAt(savedUser.getUpdatedAt())
                 .lastLoginAt(savedUser.getLastLoginAt())
                 .build();
+
+        outboxService.append("User", registeredUser.getId(), UserEventType.USER_CREATED.name(), registeredUser);
+        return registeredUser;
     }
 
     /**
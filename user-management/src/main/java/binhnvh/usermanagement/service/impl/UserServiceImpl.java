@@ -3,10 +3,13 @@ package binhnvh.usermanagement.service.impl;
 import binhnvh.usermanagement.dto.UserDto;
 import binhnvh.usermanagement.entity.Role;
 import binhnvh.usermanagement.entity.User;
+import binhnvh.usermanagement.exception.PreconditionFailedException;
 import binhnvh.usermanagement.exception.ResourceNotFoundException;
 import binhnvh.usermanagement.exception.UserAlreadyExistsException;
+import binhnvh.usermanagement.outbox.UserEventType;
 import binhnvh.usermanagement.repository.RoleRepository;
 import binhnvh.usermanagement.repository.UserRepository;
+import binhnvh.usermanagement.service.OutboxService;
 import binhnvh.usermanagement.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -17,6 +20,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,6 +31,7 @@ public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
+    private final OutboxService outboxService;
 
     @Override
     @Transactional(readOnly = true)
@@ -97,7 +102,9 @@ public class UserServiceImpl implements UserService {
 
         // Save the user
         User savedUser = userRepository.save(user);
-        return mapUserToDto(savedUser);
+        UserDto createdUser = mapUserToDto(savedUser);
+        appendUserEvent(UserEventType.USER_CREATED, createdUser.getId(), createdUser);
+        return createdUser;
     }
 
     @Override
@@ -150,7 +157,9 @@ public class UserServiceImpl implements UserService {
 
         // Save and return the updated user
         User updatedUser = userRepository.save(user);
-        return mapUserToDto(updatedUser);
+        UserDto result = mapUserToDto(updatedUser);
+        appendUserEvent(UserEventType.USER_UPDATED, id, result);
+        return result;
     }
 
     @Override
@@ -159,26 +168,25 @@ public class UserServiceImpl implements UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
         userRepository.delete(user);
+        appendUserEvent(UserEventType.USER_DELETED, id, UserDto.builder()
+                .id(id)
+                .username(user.getUsername())
+                .build());
     }
 
     @Override
     @Transactional
-    public UserDto setUserEnabled(Long id, boolean enabled) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
-        user.setEnabled(enabled);
-        User updatedUser = userRepository.save(user);
-        return mapUserToDto(updatedUser);
-    }
-
-    @Override
-    @Transactional
-    public UserDto setUserLocked(Long id, boolean locked) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
-        user.setLocked(locked);
-        User updatedUser = userRepository.save(user);
-        return mapUserToDto(updatedUser);
+    public long updateUserStatus(Long id, Boolean enabled, Boolean locked, Long expectedVersion) {
+        int updated = userRepository.updateStatus(id, enabled, locked, expectedVersion, LocalDateTime.now());
+        long version = resolveNewVersion(id, updated, expectedVersion);
+        // Only the flags that changed are included
+        appendUserEvent(UserEventType.USER_STATUS_CHANGED, id, UserDto.builder()
+                .id(id)
+                .enabled(enabled)
+                .locked(locked)
+                .version(version)
+                .build());
+        return version;
     }
 
     @Override
@@ -192,7 +200,9 @@ public class UserServiceImpl implements UserService {
 
         user.addRole(role);
         User updatedUser = userRepository.save(user);
-        return mapUserToDto(updatedUser);
+        UserDto result = mapUserToDto(updatedUser);
+        appendUserEvent(UserEventType.USER_ROLE_ADDED, userId, result);
+        return result;
     }
 
     @Override
@@ -211,24 +221,51 @@ public class UserServiceImpl implements UserService {
 
         user.removeRole(role);
         User updatedUser = userRepository.save(user);
-        return mapUserToDto(updatedUser);
+        UserDto result = mapUserToDto(updatedUser);
+        appendUserEvent(UserEventType.USER_ROLE_REMOVED, userId, result);
+        return result;
     }
 
     @Override
     @Transactional
-    public UserDto changePassword(Long id, String currentPassword, String newPassword) {
-        User user = userRepository.findById(id)
+    public long changePassword(Long id, String currentPassword, String newPassword, Long expectedVersion) {
+        String passwordHash = userRepository.findPasswordById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
 
         // Verify the current password
-        if (!passwordEncoder.matches(currentPassword, user.getPassword())) {
+        if (!passwordEncoder.matches(currentPassword, passwordHash)) {
             throw new AccessDeniedException("Current password is incorrect");
         }
 
-        // Update the password
-        user.setPassword(passwordEncoder.encode(newPassword));
-        User updatedUser = userRepository.save(user);
-        return mapUserToDto(updatedUser);
+        int updated = userRepository.updatePassword(id, passwordEncoder.encode(newPassword), expectedVersion, LocalDateTime.now());
+        long version = resolveNewVersion(id, updated, expectedVersion);
+        appendUserEvent(UserEventType.USER_PASSWORD_CHANGED, id, UserDto.builder()
+                .id(id)
+                .version(version)
+                .build());
+        return version;
+    }
+
+    /**
+     * Works out the version after a guarded update. Zero rows means the user is gone or was
+     * changed concurrently; conditional updates know their new version without another query.
+     */
+    private long resolveNewVersion(Long id, int updated, Long expectedVersion) {
+        if (updated == 0) {
+            if (!userRepository.existsById(id)) {
+                throw new ResourceNotFoundException("User", "id", id);
+            }
+            throw new PreconditionFailedException("User", id, expectedVersion);
+        }
+        if (expectedVersion != null) {
+            return expectedVersion + 1;
+        }
+        return userRepository.findVersionById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
+    }
+
+    private void appendUserEvent(UserEventType type, Long userId, UserDto payload) {
+        outboxService.append("User", userId, type.name(), payload);
     }
 
     private UserDto mapUserToDto(User user) {
@@ -246,6 +283,7 @@ public class UserServiceImpl implements UserService {
                 .createdAt(user.getCreatedAt())
                 .updatedAt(user.getUpdatedAt())
                 .lastLoginAt(user.getLastLoginAt())
+                .version(user.getVersion())
                 .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,2 @@
+-- Optimistic locking column for targeted, conditional user updates
+ALTER TABLE users ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
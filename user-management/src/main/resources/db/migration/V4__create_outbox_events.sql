@@ -0,0 +1,13 @@
+-- Transactional outbox for user change events, relayed in id order
+CREATE TABLE outbox_events (
+                               id BIGSERIAL PRIMARY KEY,
+                               aggregate_type VARCHAR(50) NOT NULL,
+                               aggregate_id VARCHAR(100) NOT NULL,
+                               event_type VARCHAR(100) NOT NULL,
+                               payload VARCHAR(4000) NOT NULL,
+                               created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                               published_at TIMESTAMP
+);
+
+-- Relay scans unpublished rows and pruning scans old published rows
+CREATE INDEX idx_outbox_events_published_at ON outbox_events (published_at, id);
@@ -0,0 +1,13 @@
+-- Ids follow allocation order, not commit order: a lower id can commit after a higher one has gone out.
+-- The relay numbers events as it publishes them instead, and consumers order and resume by that number
+ALTER TABLE outbox_events ADD COLUMN published_seq BIGINT;
+UPDATE outbox_events SET published_seq = id WHERE published_at IS NOT NULL;
+CREATE UNIQUE INDEX idx_outbox_events_published_seq ON outbox_events (published_seq);
+
+-- Single row the relay locks while numbering a batch, so relays on every instance take turns
+CREATE TABLE outbox_sequence (
+                                 id INT PRIMARY KEY,
+                                 last_published_seq BIGINT NOT NULL
+);
+INSERT INTO outbox_sequence (id, last_published_seq)
+SELECT 1, COALESCE(MAX(published_seq), 0) FROM outbox_events;
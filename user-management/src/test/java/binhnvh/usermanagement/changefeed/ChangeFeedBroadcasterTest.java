@@ -0,0 +1,90 @@
+package binhnvh.usermanagement.changefeed;
+
+import binhnvh.usermanagement.config.ChangeFeedProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChangeFeedBroadcasterTest {
+
+    private InMemoryChangeFeedLog changeLog;
+    private ChangeFeedBroadcaster relayingInstance;
+    private ChangeFeedBroadcaster otherInstance;
+
+    @BeforeEach
+    void setUp() {
+        changeLog = new InMemoryChangeFeedLog();
+        changeLog.append(1, 2);
+        relayingInstance = broadcaster();
+        otherInstance = broadcaster();
+    }
+
+    @Test
+    @DisplayName("Should push events relayed by one instance to subscribers on every instance")
+    void poll_shouldDeliverToSubscribersOnEveryInstance() {
+        // Arrange
+        RecordingEmitter onRelayingInstance = new RecordingEmitter();
+        RecordingEmitter onOtherInstance = new RecordingEmitter();
+        relayingInstance.subscribe(onRelayingInstance, null);
+        otherInstance.subscribe(onOtherInstance, null);
+        relayingInstance.poll();
+        otherInstance.poll();
+
+        // Act
+        changeLog.append(3, 4);
+        relayingInstance.poll();
+        otherInstance.poll();
+
+        // Assert
+        assertThat(onRelayingInstance.eventIds()).containsExactly("3", "4");
+        assertThat(onOtherInstance.eventIds()).containsExactly("3", "4");
+    }
+
+    @Test
+    @DisplayName("Should not replay events published while nobody was subscribed")
+    void poll_shouldSkipEarlierEvents_whenFirstSubscriberJoins() {
+        // Arrange
+        otherInstance.poll();
+        changeLog.append(3);
+        otherInstance.poll();
+        RecordingEmitter emitter = new RecordingEmitter();
+        otherInstance.subscribe(emitter, null);
+
+        // Act
+        changeLog.append(4);
+        otherInstance.poll();
+
+        // Assert
+        assertThat(emitter.eventIds()).containsExactly("4");
+    }
+
+    @Test
+    @DisplayName("Should send each event once to a resuming subscriber that the poll also reaches")
+    void poll_shouldNotDuplicateBackfill_whenSubscriberResumes() {
+        // Arrange
+        otherInstance.poll();
+        RecordingEmitter emitter = new RecordingEmitter();
+        otherInstance.subscribe(emitter, null);
+        changeLog.append(3);
+
+        // Act
+        RecordingEmitter resumed = new RecordingEmitter();
+        otherInstance.subscribe(resumed, 1L);
+        otherInstance.poll();
+
+        // Assert
+        assertThat(emitter.eventIds()).containsExactly("3");
+        assertThat(resumed.eventIds()).containsExactly("2", "3");
+    }
+
+    private ChangeFeedBroadcaster broadcaster() {
+        ChangeFeedBroadcaster broadcaster = new ChangeFeedBroadcaster(changeLog, new SyncTaskExecutor(),
+                new ChangeFeedProperties(), new SimpleMeterRegistry());
+        broadcaster.start();
+        return broadcaster;
+    }
+}
@@ -0,0 +1,171 @@
+package binhnvh.usermanagement.changefeed;
+
+import binhnvh.usermanagement.outbox.OutboxMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChangeFeedSubscriberTest {
+
+    private RecordingEmitter emitter;
+    private ManualExecutor executor;
+    private InMemoryChangeFeedLog changeLog;
+    private List<String> resyncs;
+
+    @BeforeEach
+    void setUp() {
+        emitter = new RecordingEmitter();
+        executor = new ManualExecutor();
+        changeLog = new InMemoryChangeFeedLog();
+        resyncs = new ArrayList<>();
+    }
+
+    @Test
+    @DisplayName("Should deliver live events in order with their sequence number")
+    void offer_shouldDeliverLiveEventsInOrder() {
+        // Arrange
+        ChangeFeedSubscriber subscriber = subscriber(10);
+        subscriber.start(null, changeLog, 100, Duration.ofSeconds(5));
+
+        // Act
+        subscriber.offer(message(1));
+        subscriber.offer(message(2));
+        executor.runAll();
+
+        // Assert
+        assertThat(emitter.eventIds()).containsExactly("1", "2");
+        assertThat(resyncs).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should backfill after Last-Event-ID and skip live duplicates")
+    void start_shouldBackfillThenSkipDuplicates() {
+        // Arrange
+        changeLog.append(1, 2, 3, 4);
+        ChangeFeedSubscriber subscriber = subscriber(10);
+
+        // Act - events 4 and 5 are relayed while the backfill is still pending
+        subscriber.start(2L, changeLog, 100, Duration.ofSeconds(5));
+        subscriber.offer(message(4));
+        subscriber.offer(message(5));
+        executor.runAll();
+
+        // Assert
+        assertThat(emitter.eventIds()).containsExactly("3", "4", "5");
+    }
+
+    @Test
+    @DisplayName("Should deliver an event whose lower id committed after a higher id went out, live and on resume")
+    void shouldDeliverBothEvents_whenLowerIdCommitsLate() {
+        // Arrange - outbox id 7 was relayed first, id 6 committed afterwards
+        OutboxMessage higherId = message(7, 1);
+        OutboxMessage lowerId = message(6, 2);
+        changeLog.append(higherId, lowerId);
+        ChangeFeedSubscriber live = subscriber(10);
+        RecordingEmitter resumedEmitter = new RecordingEmitter();
+        ChangeFeedSubscriber resumed = new ChangeFeedSubscriber(resumedEmitter, 10, executor, resyncs::add);
+
+        // Act
+        live.start(null, changeLog, 100, Duration.ofSeconds(5));
+        live.offer(higherId);
+        live.offer(lowerId);
+        resumed.start(1L, changeLog, 100, Duration.ofSeconds(5));
+        executor.runAll();
+
+        // Assert
+        assertThat(emitter.eventIds()).containsExactly("1", "2");
+        assertThat(resumedEmitter.eventIds()).containsExactly("2");
+    }
+
+    @Test
+    @DisplayName("Should drop a slow subscriber to a resync marker when its buffer overflows")
+    void offer_shouldResyncAndComplete_whenBufferOverflows() {
+        // Arrange
+        ChangeFeedSubscriber subscriber = subscriber(2);
+        subscriber.start(null, changeLog, 100, Duration.ofSeconds(5));
+
+        // Act - the subscriber cannot drain while the executor is stalled
+        subscriber.offer(message(1));
+        subscriber.offer(message(2));
+        subscriber.offer(message(3));
+        subscriber.offer(message(4));
+        executor.runAll();
+
+        // Assert
+        assertThat(emitter.eventNames()).containsExactly(ChangeFeedSubscriber.RESYNC_EVENT);
+        assertThat(emitter.isCompleted()).isTrue();
+        assertThat(subscriber.isClosed()).isTrue();
+        assertThat(resyncs).containsExactly(ChangeFeedSubscriber.REASON_OVERFLOW);
+    }
+
+    @Test
+    @DisplayName("Should ask for a resync when the requested position has been pruned")
+    void start_shouldResync_whenLastEventIdIsNoLongerRetained() {
+        // Arrange
+        changeLog.append(50, 51);
+        ChangeFeedSubscriber subscriber = subscriber(10);
+
+        // Act
+        subscriber.start(10L, changeLog, 100, Duration.ofSeconds(5));
+        executor.runAll();
+
+        // Assert
+        assertThat(emitter.eventIds()).isEmpty();
+        assertThat(emitter.eventNames()).containsExactly(ChangeFeedSubscriber.RESYNC_EVENT);
+        assertThat(resyncs).containsExactly(ChangeFeedSubscriber.REASON_EXPIRED);
+    }
+
+    @Test
+    @DisplayName("Should ask for a resync when the backlog exceeds the backfill limit")
+    void start_shouldResync_whenTooFarBehind() {
+        // Arrange
+        changeLog.append(1, 2, 3, 4);
+        ChangeFeedSubscriber subscriber = subscriber(10);
+
+        // Act
+        subscriber.start(0L, changeLog, 3, Duration.ofSeconds(5));
+        executor.runAll();
+
+        // Assert
+        assertThat(emitter.eventIds()).isEmpty();
+        assertThat(resyncs).containsExactly(ChangeFeedSubscriber.REASON_TOO_FAR_BEHIND);
+    }
+
+    private ChangeFeedSubscriber subscriber(int bufferSize) {
+        return new ChangeFeedSubscriber(emitter, bufferSize, executor, resyncs::add);
+    }
+
+    private static OutboxMessage message(long sequence) {
+        return InMemoryChangeFeedLog.message(sequence, sequence);
+    }
+
+    private static OutboxMessage message(long id, long sequence) {
+        return InMemoryChangeFeedLog.message(id, sequence);
+    }
+
+    private static class ManualExecutor implements Executor {
+
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package binhnvh.usermanagement.changefeed;
+
+import binhnvh.usermanagement.outbox.OutboxMessage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Test change log holding published messages in sequence order, standing in for the shared outbox table.
+ */
+class InMemoryChangeFeedLog implements ChangeFeedLog {
+
+    private final List<OutboxMessage> messages = new CopyOnWriteArrayList<>();
+
+    static OutboxMessage message(long id, long sequence) {
+        return new OutboxMessage(id, sequence, "User", "1", "USER_UPDATED", "{\"id\":1}", LocalDateTime.now());
+    }
+
+    void append(long... sequences) {
+        for (long sequence : sequences) {
+            messages.add(message(sequence, sequence));
+        }
+    }
+
+    void append(OutboxMessage... published) {
+        messages.addAll(List.of(published));
+    }
+
+    @Override
+    public Long firstRetainedSequence() {
+        return messages.isEmpty() ? null : messages.get(0).sequence();
+    }
+
+    @Override
+    public Long lastSequence() {
+        return messages.isEmpty() ? null : messages.get(messages.size() - 1).sequence();
+    }
+
+    @Override
+    public long countAfter(long sequence) {
+        return messages.stream().filter(message -> message.sequence() > sequence).count();
+    }
+
+    @Override
+    public List<OutboxMessage> readAfter(long sequence, int limit) {
+        return messages.stream().filter(message -> message.sequence() > sequence).limit(limit).toList();
+    }
+}
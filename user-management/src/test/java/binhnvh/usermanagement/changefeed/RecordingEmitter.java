@@ -0,0 +1,48 @@
+package binhnvh.usermanagement.changefeed;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * Test emitter that keeps the frames sent to it instead of writing them to a response.
+ */
+class RecordingEmitter extends SseEmitter {
+
+    private final List<String> frames = new CopyOnWriteArrayList<>();
+    private volatile boolean completed;
+
+    @Override
+    public void send(SseEventBuilder builder) {
+        frames.add(builder.build().stream()
+                .map(part -> part.getData().toString())
+                .collect(Collectors.joining()));
+    }
+
+    @Override
+    public void complete() {
+        completed = true;
+    }
+
+    boolean isCompleted() {
+        return completed;
+    }
+
+    List<String> eventIds() {
+        return fields("id:");
+    }
+
+    List<String> eventNames() {
+        return fields("event:");
+    }
+
+    private List<String> fields(String prefix) {
+        return frames.stream()
+                .flatMap(frame -> frame.lines())
+                .filter(line -> line.startsWith(prefix))
+                .map(line -> line.substring(prefix.length()))
+                .toList();
+    }
+}
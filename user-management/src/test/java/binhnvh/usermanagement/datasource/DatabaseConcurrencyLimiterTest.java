@@ -0,0 +1,106 @@
+package binhnvh.usermanagement.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.Driver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DatabaseConcurrencyLimiterTest {
+
+    private HikariDataSource pool;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:limiter-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        pool.setUsername("sa");
+        pool.setMaximumPoolSize(2);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("Should hand the permit back once when a connection is closed, however often close is called")
+    void getConnection_shouldReleasePermitOnce_whenConnectionClosed() throws SQLException {
+        // Arrange
+        DatabaseConcurrencyLimiter limiter = limiter(2, Duration.ofMillis(50), 10);
+
+        // Act
+        Connection first = limiter.getConnection();
+        Connection second = limiter.getConnection();
+        int activeWhileHeld = limiter.getActive();
+        first.close();
+        first.close();
+
+        // Assert
+        assertThat(activeWhileHeld).isEqualTo(2);
+        assertThat(limiter.getActive()).isEqualTo(1);
+        assertThat(first.isClosed()).isTrue();
+        second.close();
+        assertThat(limiter.getActive()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should fail with DatabaseBusyException when no permit frees up within the acquire timeout")
+    void getConnection_shouldThrowDatabaseBusy_whenAcquireTimesOut() throws SQLException {
+        // Arrange
+        DatabaseConcurrencyLimiter limiter = limiter(1, Duration.ofMillis(50), 10);
+
+        // Act & Assert
+        try (Connection ignored = limiter.getConnection()) {
+            assertThatThrownBy(limiter::getConnection)
+                    .isInstanceOf(DatabaseBusyException.class)
+                    .hasMessageContaining("within 50ms");
+        }
+        assertThat(meterRegistry.counter("db.limiter.rejected", "reason", "timeout").count()).isEqualTo(1);
+        assertThat(limiter.getActive()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should reject without waiting when the wait queue is already full")
+    void getConnection_shouldRejectImmediately_whenQueueIsFull() throws SQLException {
+        // Arrange
+        DatabaseConcurrencyLimiter limiter = limiter(1, Duration.ofSeconds(10), 0);
+
+        // Act & Assert
+        try (Connection ignored = limiter.getConnection()) {
+            long start = System.nanoTime();
+            assertThatThrownBy(limiter::getConnection).isInstanceOf(DatabaseBusyException.class);
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        }
+        assertThat(meterRegistry.counter("db.limiter.rejected", "reason", "queue-full").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should return the permit when the target data source fails to provide a connection")
+    void getConnection_shouldReleasePermit_whenTargetFails() {
+        // Arrange
+        SimpleDriverDataSource broken = new SimpleDriverDataSource(new Driver(), "jdbc:h2:file:/nonexistent/dir/db;IFEXISTS=TRUE");
+        DatabaseConcurrencyLimiter limiter = new DatabaseConcurrencyLimiter(broken, 1, Duration.ofMillis(50), 10, meterRegistry);
+
+        // Act & Assert
+        assertThatThrownBy(limiter::getConnection).isInstanceOf(SQLException.class);
+        assertThatThrownBy(limiter::getConnection).isNotInstanceOf(DatabaseBusyException.class);
+        assertThat(limiter.getActive()).isZero();
+    }
+
+    private DatabaseConcurrencyLimiter limiter(int maxConcurrent, Duration acquireTimeout, int maxQueued) {
+        return new DatabaseConcurrencyLimiter(pool, maxConcurrent, acquireTimeout, maxQueued, meterRegistry);
+    }
+}
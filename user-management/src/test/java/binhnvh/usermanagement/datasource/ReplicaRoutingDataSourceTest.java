@@ -0,0 +1,143 @@
+package binhnvh.usermanagement.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingDataSourceTest {
+
+    private ReplicaRoutingDataSource routingDataSource;
+    private ReplicaRoutingDataSource.Replica replica;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWriteTx;
+    private TransactionTemplate readOnlyTx;
+
+    @BeforeEach
+    void setUp() {
+        HikariDataSource primary = h2("primary");
+        HikariDataSource replicaPool = h2("replica");
+        replica = new ReplicaRoutingDataSource.Replica("replica-0", replicaPool);
+        routingDataSource = new ReplicaRoutingDataSource(primary, List.of(replica));
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWriteTx = new TransactionTemplate(transactionManager);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+
+        ReplicaRoutingContext.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRoutingContext.clear();
+        routingDataSource.close();
+    }
+
+    @Test
+    @DisplayName("Should route read-only transactions to a replica within the lag threshold")
+    void readOnlyTransaction_shouldUseReplica_whenReplicaIsHealthy() {
+        // Arrange
+        lagMonitor("SELECT 0").checkReplicas();
+
+        // Act & Assert
+        assertThat(nodeIn(readOnlyTx)).isEqualTo("replica");
+        assertThat(nodeIn(readWriteTx)).isEqualTo("primary");
+    }
+
+    @Test
+    @DisplayName("Should fall back to primary when the replica lags or has not been checked yet")
+    void readOnlyTransaction_shouldUsePrimary_whenReplicaIsUnavailable() {
+        // Unchecked replicas stay out of rotation
+        assertThat(nodeIn(readOnlyTx)).isEqualTo("primary");
+
+        // Lagging replicas are taken out of rotation
+        lagMonitor("SELECT 30").checkReplicas();
+        assertThat(replica.isAvailable()).isFalse();
+        assertThat(replica.getLag()).isEqualTo(Duration.ofSeconds(30));
+        assertThat(nodeIn(readOnlyTx)).isEqualTo("primary");
+
+        // Failing lag checks take replicas out of rotation as well
+        lagMonitor("SELECT no_such_column").checkReplicas();
+        assertThat(replica.isAvailable()).isFalse();
+        assertThat(nodeIn(readOnlyTx)).isEqualTo("primary");
+    }
+
+    @Test
+    @DisplayName("Should pin reads to primary after a write in the same request")
+    void readOnlyTransaction_shouldUsePrimary_afterWriteInSameRequest() {
+        // Arrange
+        lagMonitor("SELECT 0").checkReplicas();
+        ReplicaRoutingContext.enterRequest();
+
+        // Act
+        readWriteTx.executeWithoutResult(status -> jdbcTemplate.update("UPDATE node SET name = name"));
+
+        // Assert
+        assertThat(nodeIn(readOnlyTx)).isEqualTo("primary");
+
+        ReplicaRoutingContext.clear();
+        assertThat(nodeIn(readOnlyTx)).isEqualTo("replica");
+    }
+
+    @Test
+    @DisplayName("Should return a non-request thread to the replica once its write completes")
+    void readOnlyTransaction_shouldUseReplica_afterWriteOutsideRequest() throws Exception {
+        // Arrange
+        lagMonitor("SELECT 0").checkReplicas();
+        ExecutorService scheduler = Executors.newSingleThreadExecutor();
+
+        try {
+            // Act
+            String readAfterWrite = scheduler.submit(() -> {
+                readWriteTx.executeWithoutResult(status -> jdbcTemplate.update("UPDATE node SET name = name"));
+                return nodeIn(readOnlyTx);
+            }).get(5, TimeUnit.SECONDS);
+            String nextRun = scheduler.submit(() -> nodeIn(readOnlyTx)).get(5, TimeUnit.SECONDS);
+            boolean pinned = scheduler.submit(ReplicaRoutingContext::isPinnedToPrimary).get(5, TimeUnit.SECONDS);
+
+            // Assert
+            assertThat(readAfterWrite).isEqualTo("replica");
+            assertThat(nextRun).isEqualTo("replica");
+            assertThat(pinned).isFalse();
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private String nodeIn(TransactionTemplate transaction) {
+        return transaction.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    private ReplicaLagMonitor lagMonitor(String lagQuery) {
+        return new ReplicaLagMonitor(routingDataSource, lagQuery, Duration.ofSeconds(5));
+    }
+
+    private static HikariDataSource h2(String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + name + "-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setPoolName(name);
+        dataSource.setMaximumPoolSize(2);
+
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        setup.execute("CREATE TABLE node (name VARCHAR(20))");
+        setup.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,185 @@
+package binhnvh.usermanagement.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the Tomcat-style platform thread pool with virtual-thread-per-request execution, with and without
+ * the {@link DatabaseConcurrencyLimiter}, on a burst of mixed requests against a 10-connection pool.
+ *
+ * Half of the requests hold a connection across a simulated query round trip; the other half do a BCrypt check
+ * and a blocking call that needs no connection, like token validation against another service. The round trip
+ * is a sleep outside the driver because embedded H2 synchronizes on its session and would pin carrier threads,
+ * which a networked database driver does not.
+ *
+ * The interesting columns are the per-kind tails: virtual threads stop connection-free requests from queueing
+ * behind the pool, but BCrypt is CPU work that virtual threads cannot preempt, so on few cores it can delay a
+ * connection holder waking from its round trip and stretch the database tail.
+ *
+ * Run with {@code mvn test -Pjava21 -Dtest=RequestExecutionBenchmarkTest -Dbenchmark=true} on a Java 21 JDK.
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RequestExecutionBenchmarkTest {
+
+    private static final int POOL_SIZE = 10;
+    private static final int PLATFORM_THREADS = 200;
+    private static final int REQUESTS = 4000;
+    private static final int WARMUP_REQUESTS = 500;
+    private static final Duration QUERY_TIME = Duration.ofMillis(10);
+    private static final Duration REMOTE_CALL_TIME = Duration.ofMillis(20);
+
+    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+    private final String passwordHash = passwordEncoder.encode("password");
+
+    private HikariDataSource pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:benchmark-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        pool.setUsername("sa");
+        pool.setMaximumPoolSize(POOL_SIZE);
+        pool.setMinimumIdle(POOL_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("Benchmark: platform threads vs virtual threads vs virtual threads with DB concurrency limit")
+    void benchmark() throws Exception {
+        DataSource limited = new DatabaseConcurrencyLimiter(pool, POOL_SIZE, Duration.ofSeconds(10), REQUESTS,
+                new SimpleMeterRegistry());
+
+        List<Result> results = List.of(
+                run("platform-" + PLATFORM_THREADS, () -> Executors.newFixedThreadPool(PLATFORM_THREADS), pool),
+                run("virtual", RequestExecutionBenchmarkTest::virtualThreadPerTask, pool),
+                run("virtual+limiter", RequestExecutionBenchmarkTest::virtualThreadPerTask, limited));
+
+        System.out.printf("%n%-18s %10s %10s %10s %12s %12s %8s%n",
+                "mode", "req/s", "p50 ms", "p99 ms", "db p99 ms", "other p99 ms", "failed");
+        results.forEach(result -> System.out.printf("%-18s %10.0f %10.1f %10.1f %12.1f %12.1f %8d%n", result.mode(),
+                result.throughput(), percentile(result.all(), 0.50), percentile(result.all(), 0.99),
+                percentile(result.database(), 0.99), percentile(result.other(), 0.99), result.failed()));
+
+        assertThat(results).allSatisfy(result -> assertThat(result.failed()).isZero());
+    }
+
+    private Result run(String mode, Supplier<ExecutorService> executorFactory, DataSource dataSource) throws Exception {
+        burst(executorFactory, dataSource, WARMUP_REQUESTS);
+        return burst(executorFactory, dataSource, REQUESTS).withMode(mode);
+    }
+
+    private Result burst(Supplier<ExecutorService> executorFactory, DataSource dataSource, int requests) throws Exception {
+        long[] latencies = new long[requests];
+        AtomicInteger failed = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(requests);
+
+        ExecutorService executor = executorFactory.get();
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < requests; i++) {
+                int index = i;
+                long submitted = System.nanoTime();
+                futures.add(executor.submit(() -> {
+                    try {
+                        if (index % 2 == 0) {
+                            databaseRequest(dataSource);
+                        } else {
+                            remoteCallRequest();
+                        }
+                    } catch (Exception ex) {
+                        failed.incrementAndGet();
+                    }
+                    latencies[index] = System.nanoTime() - submitted;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        return new Result(null, requests * 1_000_000_000.0 / elapsed, latencies, failed.get());
+    }
+
+    private void databaseRequest(DataSource dataSource) throws SQLException, InterruptedException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("SELECT 1");
+            Thread.sleep(QUERY_TIME.toMillis());
+        }
+    }
+
+    private void remoteCallRequest() throws InterruptedException {
+        passwordEncoder.matches("password", passwordHash);
+        Thread.sleep(REMOTE_CALL_TIME.toMillis());
+    }
+
+    // Looked up reflectively so the test sources still compile for Java 17
+    private static ExecutorService virtualThreadPerTask() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Virtual threads need Java 21", ex);
+        }
+    }
+
+    private static double percentile(long[] sortedLatencies, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    // Even indexes are database requests, odd ones the remote-call requests
+    private record Result(String mode, double throughput, long[] latencies, int failed) {
+
+        Result withMode(String mode) {
+            return new Result(mode, throughput, latencies, failed);
+        }
+
+        long[] all() {
+            return sorted(IntStream.range(0, latencies.length));
+        }
+
+        long[] database() {
+            return sorted(IntStream.range(0, latencies.length).filter(i -> i % 2 == 0));
+        }
+
+        long[] other() {
+            return sorted(IntStream.range(0, latencies.length).filter(i -> i % 2 == 1));
+        }
+
+        private long[] sorted(IntStream indexes) {
+            return indexes.mapToLong(i -> latencies[i]).sorted().toArray();
+        }
+    }
+}
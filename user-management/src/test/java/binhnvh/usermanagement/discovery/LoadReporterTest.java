@@ -0,0 +1,72 @@
+package binhnvh.usermanagement.discovery;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class LoadReporterTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+    @Mock
+    private ApplicationInfoManager applicationInfoManager;
+
+    @Captor
+    private ArgumentCaptor<Map<String, String>> metadata;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Should publish requests in flight, pool use, p99 latency and the report time as instance metadata")
+    void publish_shouldRegisterLoadMetadata() throws Exception {
+        // Arrange
+        LoadReporter reporter = new LoadReporter(applicationInfoManager, meterRegistry, Duration.ofSeconds(30),
+                Clock.fixed(NOW, ZoneOffset.UTC));
+        try (HikariDataSource pool = pool(); Connection held = pool.getConnection()) {
+            for (int i = 0; i < 100; i++) {
+                reporter.requestStarted();
+                reporter.requestFinished(Duration.ofMillis(i < 98 ? 10 : 400).toNanos());
+            }
+            reporter.requestStarted();
+            reporter.requestStarted();
+
+            // Act
+            reporter.publish();
+        }
+
+        // Assert
+        verify(applicationInfoManager).registerAppMetadata(metadata.capture());
+        assertThat(metadata.getValue())
+                .containsEntry(LoadReporter.IN_FLIGHT, "2")
+                .containsEntry(LoadReporter.POOL, "0.50")
+                .containsEntry(LoadReporter.TIMESTAMP, String.valueOf(NOW.toEpochMilli()));
+        assertThat(Long.parseLong(metadata.getValue().get(LoadReporter.P99))).isBetween(300L, 450L);
+    }
+
+    private HikariDataSource pool() {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:load-report-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        pool.setUsername("sa");
+        pool.setMaximumPoolSize(2);
+        pool.setMetricRegistry(meterRegistry);
+        return pool;
+    }
+}
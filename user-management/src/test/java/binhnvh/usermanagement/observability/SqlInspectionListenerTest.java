@@ -0,0 +1,108 @@
+package binhnvh.usermanagement.observability;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlInspectionListenerTest {
+
+    private HikariDataSource pool;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:inspection-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        pool.setUsername("sa");
+        pool.setMaximumPoolSize(2);
+        jdbcTemplate = new JdbcTemplate(SqlInspectionListener.wrap("test", pool));
+
+        jdbcTemplate.execute("CREATE TABLE item (id INT PRIMARY KEY, name VARCHAR(20))");
+        jdbcTemplate.update("INSERT INTO item (id, name) VALUES (1, 'a'), (2, 'b'), (3, 'c')");
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("Should count statements, rows read and rows affected in the open scope")
+    void inspection_shouldCountStatementsAndRows() {
+        // Arrange
+        SqlStatementStats stats = SqlInspectionContext.open();
+
+        // Act
+        try {
+            jdbcTemplate.queryForList("SELECT name FROM item", String.class);
+            jdbcTemplate.update("UPDATE item SET name = 'z' WHERE id < 3");
+        } finally {
+            SqlInspectionContext.close(stats);
+        }
+        jdbcTemplate.queryForList("SELECT name FROM item", String.class);
+
+        // Assert
+        assertThat(stats.getStatements()).isEqualTo(2);
+        assertThat(stats.getRows()).isEqualTo(5);
+        assertThat(stats.getElapsed()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Should report the same statement repeated per row as a likely N+1")
+    void inspection_shouldDetectRepeatedStatements() {
+        // Arrange
+        SqlStatementStats stats = SqlInspectionContext.open();
+
+        // Act
+        try {
+            for (Integer id : jdbcTemplate.queryForList("SELECT id FROM item", Integer.class)) {
+                jdbcTemplate.queryForObject("SELECT name FROM item WHERE id = ?", String.class, id);
+            }
+        } finally {
+            SqlInspectionContext.close(stats);
+        }
+
+        // Assert
+        assertThat(stats.getRepeatedStatements(3))
+                .containsOnlyKeys("SELECT name FROM item WHERE id = ?")
+                .containsValue(3);
+    }
+
+    @Test
+    @DisplayName("Should record statements against every nested scope")
+    void inspection_shouldRecordIntoNestedScopes() {
+        // Arrange
+        SqlStatementStats outer = SqlInspectionContext.open();
+        SqlStatementStats inner = SqlInspectionContext.open();
+
+        // Act
+        jdbcTemplate.queryForList("SELECT name FROM item", String.class);
+        SqlInspectionContext.close(inner);
+        jdbcTemplate.queryForList("SELECT name FROM item", String.class);
+        SqlInspectionContext.close(outer);
+
+        // Assert
+        assertThat(inner.getStatements()).isEqualTo(1);
+        assertThat(outer.getStatements()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should group IN-lists of any length under one statement")
+    void normalize_shouldCollapseWhitespaceAndInLists() {
+        assertThat(SqlInspectionListener.normalize("select *\n  from item where id in (?, ?,?)"))
+                .isEqualTo("select * from item where id in (?)");
+    }
+
+    @Test
+    @SqlStatementBudget(2)
+    @DisplayName("Should pass when the test body stays within its statement budget")
+    void budget_shouldAllowStatementsWithinBudget() {
+        jdbcTemplate.queryForList("SELECT name FROM item", String.class);
+        jdbcTemplate.queryForList("SELECT id FROM item", Integer.class);
+    }
+}
@@ -0,0 +1,23 @@
+package binhnvh.usermanagement.observability;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Fails the test when its body executes more JDBC statements than allowed. Setup in {@code @BeforeEach}
+ * is not counted. Only statements issued on the test thread through the inspected data source count.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(SqlStatementBudgetExtension.class)
+public @interface SqlStatementBudget {
+
+    /**
+     * Maximum number of statements the test body may execute.
+     */
+    int value();
+}
@@ -0,0 +1,44 @@
+package binhnvh.usermanagement.observability;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.opentest4j.AssertionFailedError;
+
+import java.util.stream.Collectors;
+
+public class SqlStatementBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(SqlStatementBudgetExtension.class);
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        context.getStore(NAMESPACE).put(context.getUniqueId(), SqlInspectionContext.open());
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        SqlStatementStats stats = context.getStore(NAMESPACE).remove(context.getUniqueId(), SqlStatementStats.class);
+        if (stats == null) {
+            return;
+        }
+        SqlInspectionContext.close(stats);
+
+        int budget = budgetFor(context);
+        if (stats.getStatements() > budget) {
+            String statements = stats.getStatementCounts().entrySet().stream()
+                    .map(entry -> "  " + entry.getValue() + "x " + entry.getKey())
+                    .collect(Collectors.joining(System.lineSeparator()));
+            throw new AssertionFailedError(String.format("SQL statement budget exceeded: %d > %d (%s)%n%s",
+                    stats.getStatements(), budget, stats, statements));
+        }
+    }
+
+    private static int budgetFor(ExtensionContext context) {
+        return AnnotationSupport.findAnnotation(context.getRequiredTestMethod(), SqlStatementBudget.class)
+                .or(() -> AnnotationSupport.findAnnotation(context.getRequiredTestClass(), SqlStatementBudget.class))
+                .map(SqlStatementBudget::value)
+                .orElse(Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,147 @@
+package binhnvh.usermanagement.observability;
+
+import binhnvh.usermanagement.security.JwtProvider;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TracingPostProcessorTest {
+
+    private final List<Observation.Context> stopped = new CopyOnWriteArrayList<>();
+    private ObservationRegistry registry;
+    private TracingPostProcessor processor;
+    private HikariDataSource pool;
+
+    @BeforeEach
+    void setUp() {
+        registry = ObservationRegistry.create();
+        registry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStop(Observation.Context context) {
+                stopped.add(context);
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("observationRegistry", registry);
+        processor = new TracingPostProcessor(beanFactory.getBeanProvider(ObservationRegistry.class));
+
+        pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:tracing-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        pool.setUsername("sa");
+        pool.setMaximumPoolSize(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("Should observe statements on the dataSource bean under the current observation")
+    void dataSource_shouldObserveStatements_underCurrentObservation() {
+        // Arrange
+        JdbcTemplate jdbcTemplate = new JdbcTemplate((DataSource) processor.postProcessAfterInitialization(pool, "dataSource"));
+        jdbcTemplate.execute("CREATE TABLE item (id INT PRIMARY KEY, name VARCHAR(20))");
+        stopped.clear();
+        Observation request = Observation.createNotStarted("request", registry);
+
+        // Act
+        request.observe(() -> jdbcTemplate.queryForList("SELECT  name FROM item WHERE id IN (?, ?)", String.class, 1, 2));
+
+        // Assert
+        Observation.Context query = stopped.get(0);
+        assertThat(query.getName()).isEqualTo("jdbc.query");
+        assertThat(query.getContextualName()).isEqualTo("select");
+        assertThat(query.getParentObservation()).isSameAs(request);
+        assertThat(query.getHighCardinalityKeyValue("db.statement"))
+                .isEqualTo(KeyValue.of("db.statement", "SELECT name FROM item WHERE id in (?)"));
+        assertThat(query.getLowCardinalityKeyValue("datasource")).isEqualTo(KeyValue.of("datasource", "dataSource"));
+    }
+
+    @Test
+    @DisplayName("Should record the error of a failed statement")
+    void dataSource_shouldRecordError_whenStatementFails() {
+        // Arrange
+        JdbcTemplate jdbcTemplate = new JdbcTemplate((DataSource) processor.postProcessAfterInitialization(pool, "dataSource"));
+
+        // Act
+        assertThatThrownBy(() -> jdbcTemplate.queryForList("SELECT name FROM missing", String.class))
+                .isInstanceOf(BadSqlGrammarException.class);
+
+        // Assert
+        assertThat(stopped).singleElement().satisfies(context -> assertThat(context.getError()).isNotNull());
+    }
+
+    @Test
+    @DisplayName("Should leave other data sources and beans alone")
+    void postProcess_shouldNotWrap_otherBeans() {
+        assertThat(processor.postProcessAfterInitialization(pool, "replicaDataSource")).isSameAs(pool);
+        assertThat(processor.postProcessAfterInitialization("value", "someBean")).isEqualTo("value");
+    }
+
+    @Test
+    @DisplayName("Should observe password encoder calls by method")
+    void passwordEncoder_shouldObserveCalls() {
+        // Arrange
+        PasswordEncoder encoder = (PasswordEncoder) processor.postProcessAfterInitialization(
+                new BCryptPasswordEncoder(4), "passwordEncoder");
+
+        // Act
+        boolean matches = encoder.matches("secret", encoder.encode("secret"));
+
+        // Assert
+        assertThat(matches).isTrue();
+        assertThat(stopped).extracting(Observation.Context::getContextualName)
+                .containsExactly("password-encoder.encode", "password-encoder.matches");
+        assertThat(stopped).allSatisfy(context -> assertThat(context.getName()).isEqualTo("security.password.encoder"));
+    }
+
+    @Test
+    @DisplayName("Should observe JwtProvider calls while keeping its type")
+    void jwtProvider_shouldObserveCalls() {
+        // Arrange
+        JwtProvider target = new JwtProvider();
+        ReflectionTestUtils.setField(target, "secretKey", "Q7eV8pZ2sT5bD3mF6gH1jK4lR9yA0wXcE7iB8oO3uP5vN2mQ7eZ1xC6bV3jM9nL0");
+        ReflectionTestUtils.setField(target, "jwtExpiration", 60_000L);
+        ReflectionTestUtils.setField(target, "issuer", "test-issuer");
+        target.init();
+        Object bean = processor.postProcessAfterInitialization(target, "jwtProvider");
+
+        // Act
+        JwtProvider provider = (JwtProvider) bean;
+        String token = provider.generateToken(new UsernamePasswordAuthenticationToken("jane", null,
+                List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+        boolean valid = provider.validateToken(token);
+
+        // Assert
+        assertThat(valid).isTrue();
+        assertThat(stopped).extracting(Observation.Context::getContextualName)
+                .containsExactly("jwt-provider.generate-token", "jwt-provider.validate-token");
+    }
+}
@@ -0,0 +1,34 @@
+package binhnvh.usermanagement.outbox;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Test transport that keeps delivered messages in memory and can simulate a broker outage from a given
+ * event id onwards.
+ */
+public class InMemoryOutboxTransport implements OutboxTransport {
+
+    private final List<OutboxMessage> messages = new CopyOnWriteArrayList<>();
+    private volatile long failFromId = Long.MAX_VALUE;
+
+    @Override
+    public void send(OutboxMessage message) {
+        if (message.id() >= failFromId) {
+            throw new IllegalStateException("Transport unavailable for event " + message.id());
+        }
+        messages.add(message);
+    }
+
+    public List<OutboxMessage> getMessages() {
+        return List.copyOf(messages);
+    }
+
+    public void failFrom(long id) {
+        this.failFromId = id;
+    }
+
+    public void recover() {
+        this.failFromId = Long.MAX_VALUE;
+    }
+}
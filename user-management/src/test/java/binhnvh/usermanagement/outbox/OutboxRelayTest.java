@@ -0,0 +1,162 @@
+package binhnvh.usermanagement.outbox;
+
+import binhnvh.usermanagement.entity.OutboxEvent;
+import binhnvh.usermanagement.entity.OutboxSequence;
+import binhnvh.usermanagement.repository.OutboxEventRepository;
+import binhnvh.usermanagement.repository.OutboxSequenceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private OutboxSequenceRepository outboxSequenceRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private InMemoryOutboxTransport transport;
+    private OutboxRelay relay;
+
+    // Simulated outbox table, in commit order
+    private final List<OutboxEvent> table = new ArrayList<>();
+    private final OutboxSequence sequence = new OutboxSequence(1, 0L);
+
+    @BeforeEach
+    void setUp() {
+        transport = new InMemoryOutboxTransport();
+        relay = new OutboxRelay(outboxEventRepository, outboxSequenceRepository, transport,
+                new TransactionTemplate(transactionManager), 2, Duration.ofDays(7), new SimpleMeterRegistry());
+
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        lenient().when(outboxSequenceRepository.lockForRelay()).thenReturn(sequence);
+        lenient().when(outboxEventRepository.findUnpublishedForUpdate(any(Pageable.class))).thenAnswer(invocation -> {
+            Pageable page = invocation.getArgument(0);
+            return table.stream()
+                    .filter(event -> event.getPublishedAt() == null)
+                    .sorted(Comparator.comparing(OutboxEvent::getId))
+                    .limit(page.getPageSize())
+                    .toList();
+        });
+        lenient().when(outboxEventRepository.markPublished(anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            Long id = invocation.getArgument(0);
+            Long publishedSeq = invocation.getArgument(1);
+            LocalDateTime publishedAt = invocation.getArgument(2);
+            table.stream().filter(event -> event.getId().equals(id)).forEach(event -> {
+                event.setPublishedSeq(publishedSeq);
+                event.setPublishedAt(publishedAt);
+            });
+            return 1;
+        });
+    }
+
+    @Test
+    @DisplayName("Should publish all pending events in id order across batches")
+    void relay_shouldPublishAllEventsInOrder() {
+        // Arrange
+        append(5);
+
+        // Act
+        relay.relay();
+
+        // Assert
+        assertThat(transport.getMessages()).extracting(OutboxMessage::id).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(transport.getMessages()).extracting(OutboxMessage::sequence).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(table).allMatch(event -> event.getPublishedAt() != null);
+        assertThat(sequence.getLastPublishedSeq()).isEqualTo(5L);
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    @DisplayName("Should number an event that commits after a higher id has gone out after it")
+    void relay_shouldSequenceInCommitOrder_whenLowerIdCommitsLate() {
+        // Arrange - event 2 commits and is relayed while the transaction holding id 1 is still open
+        appendEvent(2);
+        relay.relay();
+
+        // Act
+        appendEvent(1);
+        relay.relay();
+
+        // Assert
+        assertThat(transport.getMessages()).extracting(OutboxMessage::id).containsExactly(2L, 1L);
+        assertThat(transport.getMessages()).extracting(OutboxMessage::sequence).containsExactly(1L, 2L);
+        assertThat(table).extracting(OutboxEvent::getPublishedSeq).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("Should stop at a failed event and redeliver from it once the transport recovers")
+    void relay_shouldRetryFromFailedEvent_whenTransportFails() {
+        // Arrange
+        append(4);
+        transport.failFrom(2);
+
+        // Act
+        relay.relay();
+
+        // Assert
+        assertThat(transport.getMessages()).extracting(OutboxMessage::id).containsExactly(1L);
+        assertThat(table.get(0).getPublishedAt()).isNotNull();
+        assertThat(table.subList(1, 4)).allMatch(event -> event.getPublishedAt() == null);
+
+        // Act again after recovery
+        transport.recover();
+        relay.relay();
+
+        // Assert nothing was skipped or reordered
+        assertThat(transport.getMessages()).extracting(OutboxMessage::id).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(transport.getMessages()).extracting(OutboxMessage::sequence).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    @DisplayName("Should not mark anything published when there are no pending events")
+    void relay_shouldDoNothing_whenOutboxIsEmpty() {
+        // Act
+        relay.relay();
+
+        // Assert
+        assertThat(transport.getMessages()).isEmpty();
+        verify(outboxEventRepository, never()).markPublished(any(), any(), any());
+        verify(outboxSequenceRepository, never()).save(any());
+    }
+
+    private void append(int count) {
+        LongStream.rangeClosed(table.size() + 1, table.size() + count).forEach(this::appendEvent);
+    }
+
+    private void appendEvent(long id) {
+        table.add(OutboxEvent.builder()
+                .id(id)
+                .aggregateType("User")
+                .aggregateId("1")
+                .eventType(UserEventType.USER_UPDATED.name())
+                .payload("{\"id\":1}")
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+}
@@ -127,4 +127,25 @@ class UserRepositoryIntegrationTest {
         assertThat(updatedUser.getLastLoginAt().getHour()).isEqualTo(loginTime.getHour());
         assertThat(updatedUser.getLastLoginAt().getMinute()).isEqualTo(loginTime.getMinute());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should update status only when the expected version matches")
+    void updateStatus_shouldBumpVersion_whenExpectedVersionMatches() {
+        // Arrange
+        Long version = testUser.getVersion();
+
+        // Act
+        int staleRows = userRepository.updateStatus(testUser.getId(), false, null, version + 1, LocalDateTime.now());
+        int updatedRows = userRepository.updateStatus(testUser.getId(), false, null, version, LocalDateTime.now());
+
+        // Fetch fresh user from database
+        User updatedUser = entityManager.find(User.class, testUser.getId());
+
+        // Assert
+        assertThat(staleRows).isZero();
+        assertThat(updatedRows).isEqualTo(1);
+        assertThat(updatedUser.isEnabled()).isFalse();
+        assertThat(updatedUser.isLocked()).isFalse();
+        assertThat(updatedUser.getVersion()).isEqualTo(version + 1);
+    }
+}
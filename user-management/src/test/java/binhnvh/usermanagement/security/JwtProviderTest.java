@@ -0,0 +1,55 @@
+package binhnvh.usermanagement.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtProviderTest {
+
+    private static final String SECRET = "Q7eV8pZ2sT5bD3mF6gH1jK4lR9yA0wXcE7iB8oO3uP5vN2mQ7eZ1xC6bV3jM9nL0";
+
+    @Test
+    @DisplayName("Should accept tokens issued by another instance configured with the same secret")
+    void validateToken_shouldAcceptToken_whenIssuedWithSameSecret() {
+        // Arrange
+        String token = provider(SECRET).generateToken(authentication());
+
+        // Act & Assert
+        JwtProvider restarted = provider(SECRET);
+        assertThat(restarted.validateToken(token)).isTrue();
+        assertThat(restarted.getUsernameFromToken(token)).isEqualTo("jane");
+        assertThat(restarted.getAuthentication(token).getAuthorities())
+                .extracting(Object::toString)
+                .containsExactly("ROLE_USER");
+    }
+
+    @Test
+    @DisplayName("Should reject tokens signed with a different secret")
+    void validateToken_shouldRejectToken_whenSignedWithOtherSecret() {
+        // Arrange
+        String token = provider(new StringBuilder(SECRET).reverse().toString()).generateToken(authentication());
+
+        // Act & Assert
+        assertThat(provider(SECRET).validateToken(token)).isFalse();
+    }
+
+    private static JwtProvider provider(String secret) {
+        JwtProvider provider = new JwtProvider();
+        ReflectionTestUtils.setField(provider, "secretKey", secret);
+        ReflectionTestUtils.setField(provider, "jwtExpiration", 60_000L);
+        ReflectionTestUtils.setField(provider, "issuer", "test-issuer");
+        provider.init();
+        return provider;
+    }
+
+    private static Authentication authentication() {
+        return new UsernamePasswordAuthenticationToken("jane", null, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+    }
+}
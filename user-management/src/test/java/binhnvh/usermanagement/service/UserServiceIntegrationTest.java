@@ -5,6 +5,7 @@ import binhnvh.usermanagement.entity.Role;
 import binhnvh.usermanagement.entity.User;
 import binhnvh.usermanagement.exception.ResourceNotFoundException;
 import binhnvh.usermanagement.exception.UserAlreadyExistsException;
+import binhnvh.usermanagement.observability.SqlStatementBudget;
 import binhnvh.usermanagement.repository.RoleRepository;
 import binhnvh.usermanagement.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -72,6 +73,7 @@ class UserServiceIntegrationTest {
     }
 
     @Test
+    @SqlStatementBudget(1)
     @DisplayName("Should get user by ID")
     void getUserById_shouldReturnUser_whenUserExists() {
         // Act
@@ -86,6 +88,7 @@ class UserServiceIntegrationTest {
     }
 
     @Test
+    @SqlStatementBudget(1)
     @DisplayName("Should throw exception when user not found")
     void getUserById_shouldThrowException_whenUserDoesNotExist() {
         // Act & Assert
@@ -95,6 +98,7 @@ class UserServiceIntegrationTest {
     }
 
     @Test
+    @SqlStatementBudget(8)
     @DisplayName("Should create user with valid data")
     void createUser_shouldCreateAndReturnUser_whenInputIsValid() {
         // Arrange
@@ -121,6 +125,7 @@ class UserServiceIntegrationTest {
     }
 
     @Test
+    @SqlStatementBudget(4)
     @DisplayName("Should throw exception when username already exists")
     void createUser_shouldThrowException_whenUsernameExists() {
         // Arrange
@@ -3,9 +3,11 @@ package binhnvh.usermanagement.service.impl;
 import binhnvh.usermanagement.dto.UserDto;
 import binhnvh.usermanagement.entity.Role;
 import binhnvh.usermanagement.entity.User;
+import binhnvh.usermanagement.exception.PreconditionFailedException;
 import binhnvh.usermanagement.exception.ResourceNotFoundException;
 import binhnvh.usermanagement.repository.RoleRepository;
 import binhnvh.usermanagement.repository.UserRepository;
+import binhnvh.usermanagement.service.OutboxService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -39,6 +41,9 @@ class UserServiceImplTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private OutboxService outboxService;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -166,6 +171,7 @@ class UserServiceImplTest {
             verify(passwordEncoder).encode("password123");
             verify(roleRepository).findByName("USER");
             verify(userRepository).save(any(User.class));
+            verify(outboxService).append("User", 2L, "USER_CREATED", result);
         }
 
         @Test
@@ -297,28 +303,104 @@ class UserServiceImplTest {
         }
     }
 
-    @Test
-    @DisplayName("Should change password when current password is correct")
-    void changePassword_shouldUpdatePassword_whenCurrentPasswordIsCorrect() {
-        // Arrange
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(passwordEncoder.matches("currentPassword", "encodedPassword")).thenReturn(true);
-        when(passwordEncoder.encode("newPassword")).thenReturn("newEncodedPassword");
-
-        // Use the userCaptor to capture the user being saved
-        when(userRepository.save(userCaptor.capture())).thenAnswer(i -> i.getArgument(0));
-
-        // Act
-        UserDto result = userService.changePassword(1L, "currentPassword", "newPassword");
-
-        // Assert
-        assertThat(result).isNotNull();
-        User savedUser = userCaptor.getValue();
-        assertThat(savedUser.getPassword()).isEqualTo("newEncodedPassword");
-
-        verify(userRepository).findById(1L);
-        verify(passwordEncoder).matches("currentPassword", "encodedPassword");
-        verify(passwordEncoder).encode("newPassword");
-        verify(userRepository).save(any(User.class));
+    @Nested
+    @DisplayName("Status Update Tests")
+    class StatusUpdateTests {
+        @Test
+        @DisplayName("Should update status in a single statement when version matches")
+        void updateUserStatus_shouldReturnNextVersion_whenVersionMatches() {
+            // Arrange
+            when(userRepository.updateStatus(eq(1L), eq(false), isNull(), eq(3L), any(LocalDateTime.class))).thenReturn(1);
+
+            // Act
+            long version = userService.updateUserStatus(1L, false, null, 3L);
+
+            // Assert
+            assertThat(version).isEqualTo(4L);
+            verify(outboxService).append(eq("User"), eq(1L), eq("USER_STATUS_CHANGED"), any(UserDto.class));
+            verify(userRepository, never()).findById(anyLong());
+            verify(userRepository, never()).findVersionById(anyLong());
+            verify(userRepository, never()).save(any(User.class));
+        }
+
+        @Test
+        @DisplayName("Should read back the version after an unconditional update")
+        void updateUserStatus_shouldReadVersion_whenNoVersionExpected() {
+            // Arrange
+            when(userRepository.updateStatus(eq(1L), isNull(), eq(true), isNull(), any(LocalDateTime.class))).thenReturn(1);
+            when(userRepository.findVersionById(1L)).thenReturn(Optional.of(7L));
+
+            // Act
+            long version = userService.updateUserStatus(1L, null, true, null);
+
+            // Assert
+            assertThat(version).isEqualTo(7L);
+        }
+
+        @Test
+        @DisplayName("Should fail the precondition when the user was modified concurrently")
+        void updateUserStatus_shouldThrowPreconditionFailed_whenVersionIsStale() {
+            // Arrange
+            when(userRepository.updateStatus(eq(1L), eq(true), isNull(), eq(3L), any(LocalDateTime.class))).thenReturn(0);
+            when(userRepository.existsById(1L)).thenReturn(true);
+
+            // Act & Assert
+            assertThatThrownBy(() -> userService.updateUserStatus(1L, true, null, 3L))
+                    .isInstanceOf(PreconditionFailedException.class);
+            verifyNoInteractions(outboxService);
+        }
+
+        @Test
+        @DisplayName("Should throw not found when the user does not exist")
+        void updateUserStatus_shouldThrowNotFound_whenUserDoesNotExist() {
+            // Arrange
+            when(userRepository.updateStatus(eq(99L), eq(true), isNull(), isNull(), any(LocalDateTime.class))).thenReturn(0);
+            when(userRepository.existsById(99L)).thenReturn(false);
+
+            // Act & Assert
+            assertThatThrownBy(() -> userService.updateUserStatus(99L, true, null, null))
+                    .isInstanceOf(ResourceNotFoundException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Change Password Tests")
+    class ChangePasswordTests {
+        @Test
+        @DisplayName("Should change password when current password is correct")
+        void changePassword_shouldUpdatePassword_whenCurrentPasswordIsCorrect() {
+            // Arrange
+            when(userRepository.findPasswordById(1L)).thenReturn(Optional.of("encodedPassword"));
+            when(passwordEncoder.matches("currentPassword", "encodedPassword")).thenReturn(true);
+            when(passwordEncoder.encode("newPassword")).thenReturn("newEncodedPassword");
+            when(userRepository.updatePassword(eq(1L), eq("newEncodedPassword"), eq(2L), any(LocalDateTime.class))).thenReturn(1);
+
+            // Act
+            long version = userService.changePassword(1L, "currentPassword", "newPassword", 2L);
+
+            // Assert
+            assertThat(version).isEqualTo(3L);
+
+            verify(userRepository).findPasswordById(1L);
+            verify(passwordEncoder).matches("currentPassword", "encodedPassword");
+            verify(passwordEncoder).encode("newPassword");
+            verify(userRepository, never()).findById(anyLong());
+            verify(userRepository, never()).save(any(User.class));
+        }
+
+        @Test
+        @DisplayName("Should reject password change when current password is incorrect")
+        void changePassword_shouldThrowException_whenCurrentPasswordIsIncorrect() {
+            // Arrange
+            when(userRepository.findPasswordById(1L)).thenReturn(Optional.of("encodedPassword"));
+            when(passwordEncoder.matches("wrongPassword", "encodedPassword")).thenReturn(false);
+
+            // Act & Assert
+            assertThatThrownBy(() -> userService.changePassword(1L, "wrongPassword", "newPassword", null))
+                    .isInstanceOf(AccessDeniedException.class)
+                    .hasMessageContaining("Current password is incorrect");
+
+            verify(userRepository, never()).updatePassword(anyLong(), anyString(), any(), any());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,21 @@
+package binhnvh.userquery.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Must match the user-management settings, which issue the tokens this service validates.
+ */
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "application.security.jwt")
+public class JwtConfig {
+
+    private String secretKey;
+
+    private String issuer;
+
+}
@@ -0,0 +1,50 @@
+package binhnvh.userquery.controller;
+
+import binhnvh.userquery.dto.UserDto;
+import binhnvh.userquery.service.UserQueryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive twin of the user-management lookup endpoints. Same paths, payloads and ETags, so the gateway can
+ * route reads here without clients noticing.
+ */
+@RestController
+@RequestMapping("/api/users")
+@RequiredArgsConstructor
+@Slf4j
+public class UserQueryController {
+
+    private final UserQueryService userQueryService;
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<UserDto>> getUserById(@PathVariable Long id) {
+        log.debug("Getting user by ID: {}", id);
+        return userQueryService.getUserById(id)
+                .map(user -> ResponseEntity.ok()
+                        .eTag(eTag(user.getVersion()))
+                        .body(user));
+    }
+
+    @GetMapping("/username/{username}")
+    public Mono<ResponseEntity<UserDto>> getUserByUsername(@PathVariable String username) {
+        log.debug("Getting user by username: {}", username);
+        return userQueryService.getUserByUsername(username).map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/email/{email}")
+    public Mono<ResponseEntity<UserDto>> getUserByEmail(@PathVariable String email) {
+        log.debug("Getting user by email: {}", email);
+        return userQueryService.getUserByEmail(email).map(ResponseEntity::ok);
+    }
+
+    private static String eTag(Long version) {
+        return version != null ? "\"" + version + "\"" : null;
+    }
+}
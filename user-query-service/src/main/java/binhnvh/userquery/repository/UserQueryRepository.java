@@ -0,0 +1,83 @@
+package binhnvh.userquery.repository;
+
+import binhnvh.userquery.dto.UserDto;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Reads users with their role names in one round trip against the user-management schema.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserQueryRepository {
+
+    private static final String SELECT_USER_WITH_ROLES = """
+            SELECT u.id, u.username, u.email, u.first_name, u.last_name, u.enabled, u.locked,
+                   u.created_at, u.updated_at, u.last_login_at, u.version, r.name AS role_name
+            FROM users u
+            LEFT JOIN user_roles ur ON ur.user_id = u.id
+            LEFT JOIN roles r ON r.id = ur.role_id
+            """;
+
+    private final DatabaseClient databaseClient;
+
+    public Mono<UserDto> findById(Long id) {
+        return findOne("WHERE u.id = :value", id);
+    }
+
+    public Mono<UserDto> findByUsername(String username) {
+        return findOne("WHERE u.username = :value", username);
+    }
+
+    public Mono<UserDto> findByEmail(String email) {
+        return findOne("WHERE u.email = :value", email);
+    }
+
+    private Mono<UserDto> findOne(String where, Object value) {
+        return databaseClient.sql(SELECT_USER_WITH_ROLES + where)
+                .bind("value", value)
+                .map(UserRoleRow::from)
+                .all()
+                .collectList()
+                .mapNotNull(UserQueryRepository::toDto);
+    }
+
+    private static UserDto toDto(List<UserRoleRow> rows) {
+        if (rows.isEmpty()) {
+            return null;
+        }
+        UserDto user = rows.get(0).user();
+        rows.stream()
+                .map(UserRoleRow::roleName)
+                .filter(Objects::nonNull)
+                .forEach(user.getRoles()::add);
+        return user;
+    }
+
+    private record UserRoleRow(UserDto user, String roleName) {
+
+        static UserRoleRow from(Readable row) {
+            UserDto user = UserDto.builder()
+                    .id(row.get("id", Long.class))
+                    .username(row.get("username", String.class))
+                    .email(row.get("email", String.class))
+                    .firstName(row.get("first_name", String.class))
+                    .lastName(row.get("last_name", String.class))
+                    .enabled(row.get("enabled", Boolean.class))
+                    .locked(row.get("locked", Boolean.class))
+                    .createdAt(row.get("created_at", LocalDateTime.class))
+                    .updatedAt(row.get("updated_at", LocalDateTime.class))
+                    .lastLoginAt(row.get("last_login_at", LocalDateTime.class))
+                    .version(row.get("version", Long.class))
+                    .build();
+            return new UserRoleRow(user, row.get("role_name", String.class));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package binhnvh.userquery.security;
+
+import binhnvh.userquery.config.JwtConfig;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.JwtParserBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Validates tokens issued by user-management. Only verification lives here; this service never issues tokens.
+ */
+@Component
+@Slf4j
+public class JwtProvider {
+
+    private final JwtParser parser;
+
+    public JwtProvider(JwtConfig jwtConfig) {
+        JwtParserBuilder builder = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(jwtConfig.getSecretKey().getBytes(StandardCharsets.UTF_8)));
+        if (StringUtils.hasText(jwtConfig.getIssuer())) {
+            builder.requireIssuer(jwtConfig.getIssuer());
+        }
+        this.parser = builder.build();
+    }
+
+    public boolean validateToken(String token) {
+        try {
+            parser.parseClaimsJws(token);
+            return true;
+        } catch (JwtException | IllegalArgumentException e) {
+            log.info("Invalid JWT token: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Parses and verifies the token once and builds the authentication from its claims.
+     *
+     * @throws JwtException when the token is malformed, expired or not signed with the shared key
+     */
+    public Authentication getAuthentication(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+
+        Object auth = claims.get("auth");
+        Collection<? extends GrantedAuthority> authorities = auth == null ? List.of()
+                : Arrays.stream(auth.toString().split(","))
+                        .filter(authority -> !authority.trim().isEmpty())
+                        .map(SimpleGrantedAuthority::new)
+                        .collect(Collectors.toList());
+
+        UserDetails principal = new User(claims.getSubject(), "", authorities);
+
+        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+    }
+}
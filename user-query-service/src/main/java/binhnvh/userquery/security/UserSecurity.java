@@ -0,0 +1,29 @@
+package binhnvh.userquery.security;
+
+import binhnvh.userquery.dto.UserDto;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+/**
+ * The user-management read rules: admins read anyone, other users only themselves, matched by username or email.
+ * Checked against the loaded user, so each lookup costs a single query.
+ */
+@Component
+public class UserSecurity {
+
+    private static final String ADMIN_AUTHORITY = "ROLE_ADMIN";
+
+    public boolean isAdmin(Authentication authentication) {
+        return authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(ADMIN_AUTHORITY::equals);
+    }
+
+    public boolean canRead(Authentication authentication, UserDto user) {
+        String currentUsername = authentication.getName();
+        return isAdmin(authentication)
+                || currentUsername.equals(user.getUsername())
+                || currentUsername.equals(user.getEmail());
+    }
+}
@@ -0,0 +1,15 @@
+package binhnvh.userquery.service;
+
+import binhnvh.userquery.dto.UserDto;
+import reactor.core.publisher.Mono;
+
+public interface UserQueryService {
+
+    Mono<UserDto> getUserById(Long id);
+
+    Mono<UserDto> getUserByUsername(String username);
+
+    Mono<UserDto> getUserByEmail(String email);
+
+    boolean validateToken(String token);
+}
@@ -0,0 +1,68 @@
+package binhnvh.userquery.service.impl;
+
+import binhnvh.userquery.dto.UserDto;
+import binhnvh.userquery.exception.ResourceNotFoundException;
+import binhnvh.userquery.repository.UserQueryRepository;
+import binhnvh.userquery.security.JwtProvider;
+import binhnvh.userquery.security.UserSecurity;
+import binhnvh.userquery.service.UserQueryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserQueryServiceImpl implements UserQueryService {
+
+    private final UserQueryRepository userQueryRepository;
+    private final UserSecurity userSecurity;
+    private final JwtProvider jwtProvider;
+
+    @Override
+    public Mono<UserDto> getUserById(Long id) {
+        log.debug("Fetching user with ID: {}", id);
+        return authorizedRead(userQueryRepository.findById(id), "id", id);
+    }
+
+    @Override
+    public Mono<UserDto> getUserByUsername(String username) {
+        log.debug("Fetching user with username: {}", username);
+        return authorizedRead(userQueryRepository.findByUsername(username), "username", username);
+    }
+
+    @Override
+    public Mono<UserDto> getUserByEmail(String email) {
+        log.debug("Fetching user with email: {}", email);
+        return authorizedRead(userQueryRepository.findByEmail(email), "email", email);
+    }
+
+    @Override
+    public boolean validateToken(String token) {
+        return jwtProvider.validateToken(token);
+    }
+
+    /**
+     * Only admins learn whether a user exists; anyone else gets 403 for a missing user, as in user-management.
+     */
+    private Mono<UserDto> authorizedRead(Mono<UserDto> lookup, String fieldName, Object fieldValue) {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .switchIfEmpty(Mono.error(() -> new AccessDeniedException("Authentication required")))
+                .flatMap(authentication -> lookup
+                        .switchIfEmpty(Mono.error(() -> notFoundOrDenied(authentication, fieldName, fieldValue)))
+                        .filter(user -> userSecurity.canRead(authentication, user))
+                        .switchIfEmpty(Mono.error(() -> new AccessDeniedException("Access is denied"))));
+    }
+
+    private RuntimeException notFoundOrDenied(Authentication authentication, String fieldName, Object fieldValue) {
+        return userSecurity.isAdmin(authentication)
+                ? new ResourceNotFoundException("User", fieldName, fieldValue)
+                : new AccessDeniedException("Access is denied");
+    }
+}
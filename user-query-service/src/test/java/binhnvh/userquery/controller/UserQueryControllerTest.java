@@ -0,0 +1,174 @@
+package binhnvh.userquery.controller;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+@SpringBootTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.config.import=optional:configserver:"
+})
+@AutoConfigureWebTestClient
+@ActiveProfiles("test")
+class UserQueryControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Value("${application.security.jwt.secret-key}")
+    private String secretKey;
+
+    @Value("${application.security.jwt.issuer}")
+    private String issuer;
+
+    @BeforeEach
+    void setUp() {
+        databaseClient.sql("DELETE FROM user_roles").then()
+                .then(databaseClient.sql("DELETE FROM users").then())
+                .then(insertUser(1L, "admin", "admin@example.com", "ADMIN"))
+                .then(insertUser(2L, "jane", "jane@example.com", "USER"))
+                .then(databaseClient.sql("UPDATE users SET version = 3 WHERE id = 2").then())
+                .block();
+    }
+
+    @Nested
+    @DisplayName("GET /api/users/{id}")
+    class GetUserByIdTests {
+
+        @Test
+        @DisplayName("Should return the user with roles and a version ETag for an admin")
+        void getUserById_shouldReturnUserWithETag_whenAdmin() {
+            webTestClient.get().uri("/api/users/2")
+                    .header(HttpHeaders.AUTHORIZATION, bearer("admin", "ROLE_ADMIN"))
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                    .expectBody()
+                    .jsonPath("$.username").isEqualTo("jane")
+                    .jsonPath("$.roles[0]").isEqualTo("USER")
+                    .jsonPath("$.password").doesNotExist();
+        }
+
+        @Test
+        @DisplayName("Should return 404 for an admin when the user does not exist")
+        void getUserById_shouldReturnNotFound_whenAdminAndMissing() {
+            webTestClient.get().uri("/api/users/99")
+                    .header(HttpHeaders.AUTHORIZATION, bearer("admin", "ROLE_ADMIN"))
+                    .exchange()
+                    .expectStatus().isNotFound()
+                    .expectBody()
+                    .jsonPath("$.message").isEqualTo("User not found with id : '99'")
+                    .jsonPath("$.path").isEqualTo("uri=/api/users/99");
+        }
+
+        @Test
+        @DisplayName("Should return 403 rather than 404 to a non-admin, so user ids cannot be probed")
+        void getUserById_shouldReturnForbidden_whenNotAdminAndMissing() {
+            webTestClient.get().uri("/api/users/99")
+                    .header(HttpHeaders.AUTHORIZATION, bearer("jane", "ROLE_USER"))
+                    .exchange()
+                    .expectStatus().isForbidden();
+        }
+
+        @Test
+        @DisplayName("Should return 401 without a valid token")
+        void getUserById_shouldReturnUnauthorized_whenTokenMissingOrInvalid() {
+            webTestClient.get().uri("/api/users/2")
+                    .exchange()
+                    .expectStatus().isUnauthorized();
+            webTestClient.get().uri("/api/users/2")
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer not-a-token")
+                    .exchange()
+                    .expectStatus().isUnauthorized();
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/users/username/{username} and /email/{email}")
+    class LookupTests {
+
+        @Test
+        @DisplayName("Should let a user read themselves by username or email")
+        void lookup_shouldReturnUser_whenCurrentUser() {
+            webTestClient.get().uri("/api/users/username/jane")
+                    .header(HttpHeaders.AUTHORIZATION, bearer("jane", "ROLE_USER"))
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody().jsonPath("$.id").isEqualTo(2);
+            webTestClient.get().uri("/api/users/email/jane@example.com")
+                    .header(HttpHeaders.AUTHORIZATION, bearer("jane", "ROLE_USER"))
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody().jsonPath("$.email").isEqualTo("jane@example.com");
+        }
+
+        @Test
+        @DisplayName("Should forbid a user from reading someone else")
+        void lookup_shouldReturnForbidden_whenOtherUser() {
+            webTestClient.get().uri("/api/users/username/admin")
+                    .header(HttpHeaders.AUTHORIZATION, bearer("jane", "ROLE_USER"))
+                    .exchange()
+                    .expectStatus().isForbidden();
+        }
+    }
+
+    @Test
+    @DisplayName("Should validate tokens without authentication")
+    void validateToken_shouldReportValidity() {
+        webTestClient.get().uri(uri -> uri.path("/api/auth/validate").queryParam("token", token("jane", "ROLE_USER")).build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Boolean.class).isEqualTo(true);
+        webTestClient.get().uri("/api/auth/validate?token=garbage")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Boolean.class).isEqualTo(false);
+    }
+
+    private Mono<Void> insertUser(Long id, String username, String email, String role) {
+        return databaseClient.sql("INSERT INTO users (id, username, email, password) VALUES (:id, :username, :email, 'x')")
+                .bind("id", id)
+                .bind("username", username)
+                .bind("email", email)
+                .then()
+                .then(databaseClient.sql("INSERT INTO user_roles (user_id, role_id) SELECT :id, id FROM roles WHERE name = :role")
+                        .bind("id", id)
+                        .bind("role", role)
+                        .then());
+    }
+
+    private String bearer(String username, String authorities) {
+        return "Bearer " + token(username, authorities);
+    }
+
+    private String token(String username, String authorities) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .setSubject(username)
+                .claim("auth", authorities)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + 60_000))
+                .setIssuer(issuer)
+                .signWith(Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS512)
+                .compact();
+    }
+}
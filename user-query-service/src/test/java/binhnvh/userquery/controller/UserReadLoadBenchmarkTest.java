@@ -0,0 +1,217 @@
+package binhnvh.userquery.controller;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reactive side of the read-path load comparison; user-management has the servlet twin of this test.
+ * Fires {@code benchmark.concurrency} (default 5000) concurrent {@code GET /api/users/{id}} requests and reports
+ * event-loop threads, JVM threads and pool connections at peak.
+ *
+ * Run with {@code mvn test -Dtest=UserReadLoadBenchmarkTest -Dbenchmark=true}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.config.import=optional:configserver:"
+})
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class UserReadLoadBenchmarkTest {
+
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 5000);
+    private static final String SERVER_THREAD_PREFIX = "webflux-http-";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Value("${application.security.jwt.secret-key}")
+    private String secretKey;
+
+    @Value("${application.security.jwt.issuer}")
+    private String issuer;
+
+    @Test
+    @DisplayName("Benchmark: WebFlux + R2DBC read path under 5k concurrent requests")
+    void benchmark() throws Exception {
+        long userId = seedUser();
+        String token = token("loadtest-admin", "ROLE_ADMIN");
+        PoolMetrics pool = ((ConnectionPool) connectionFactory).getMetrics().orElseThrow();
+
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(4, runnable -> new Thread(runnable, "load-client"));
+        HttpClient client = HttpClient.newBuilder().executor(clientExecutor).connectTimeout(Duration.ofSeconds(30)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/users/" + userId))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofMinutes(2))
+                .build();
+        try {
+            fire(client, request, 500, () -> 0);
+            int baselineThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+            Result result = fire(client, request, CONCURRENCY, pool::acquiredSize);
+
+            System.out.printf("%n%-22s %8s %8s %10s %10s %10s %14s %12s %10s%n", "stack", "requests", "ok", "req/s",
+                    "p50 ms", "p99 ms", "server threads", "JVM threads", "db conns");
+            System.out.printf("%-22s %8d %8d %10.0f %10.1f %10.1f %14d %12s %10s%n", "webflux+r2dbc (netty)",
+                    CONCURRENCY, result.ok(), result.throughput(), result.percentile(0.50), result.percentile(0.99),
+                    result.peakServerThreads(), baselineThreads + "->" + result.peakJvmThreads(),
+                    result.peakConnections() + "/" + pool.getMaxAllocatedSize());
+
+            assertThat(result.ok()).isEqualTo(CONCURRENCY);
+        } finally {
+            clientExecutor.shutdownNow();
+        }
+    }
+
+    private long seedUser() {
+        return databaseClient.sql("DELETE FROM users WHERE username = 'loadtest-admin'").then()
+                .then(databaseClient.sql("INSERT INTO users (username, email, password) VALUES ('loadtest-admin', 'loadtest@example.com', 'x')").then())
+                .then(databaseClient.sql("SELECT id FROM users WHERE username = 'loadtest-admin'")
+                        .map(row -> row.get("id", Long.class))
+                        .one())
+                .flatMap(userId -> databaseClient.sql("INSERT INTO user_roles (user_id, role_id) SELECT :id, id FROM roles WHERE name = 'ADMIN'")
+                        .bind("id", userId)
+                        .then()
+                        .thenReturn(userId))
+                .block();
+    }
+
+    private String token(String username, String authorities) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .setSubject(username)
+                .claim("auth", authorities)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + 600_000))
+                .setIssuer(issuer)
+                .signWith(Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS512)
+                .compact();
+    }
+
+    private Result fire(HttpClient client, HttpRequest request, int requests, IntSupplier activeConnections)
+            throws Exception {
+        Sampler sampler = new Sampler(activeConnections);
+        sampler.start();
+
+        long[] latencies = new long[requests];
+        AtomicInteger ok = new AtomicInteger();
+        List<CompletableFuture<?>> futures = new ArrayList<>(requests);
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            int index = i;
+            long sent = System.nanoTime();
+            futures.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, ex) -> {
+                        latencies[index] = System.nanoTime() - sent;
+                        if (ex == null && response.statusCode() == 200) {
+                            ok.incrementAndGet();
+                        }
+                    }));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).exceptionally(ex -> null).get(5, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+        sampler.stop();
+
+        Arrays.sort(latencies);
+        return new Result(ok.get(), requests * 1_000_000_000.0 / elapsed, latencies,
+                sampler.peakServerThreads, sampler.peakJvmThreads, sampler.peakConnections);
+    }
+
+    private record Result(int ok, double throughput, long[] sortedLatencies,
+                          int peakServerThreads, int peakJvmThreads, int peakConnections) {
+
+        double percentile(double percentile) {
+            int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+
+    /**
+     * Polls thread and connection counts while the burst is in flight and keeps the maxima.
+     */
+    private static class Sampler implements Runnable {
+
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        private final IntSupplier activeConnections;
+        private final Thread thread = new Thread(this, "load-sampler");
+        private volatile boolean running = true;
+
+        private volatile int peakServerThreads;
+        private volatile int peakJvmThreads;
+        private volatile int peakConnections;
+
+        Sampler(IntSupplier activeConnections) {
+            this.activeConnections = activeConnections;
+            thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            thread.join();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                int serverThreads = 0;
+                for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+                    if (info != null && info.getThreadName().startsWith(SERVER_THREAD_PREFIX)) {
+                        serverThreads++;
+                    }
+                }
+                peakServerThreads = Math.max(peakServerThreads, serverThreads);
+                peakJvmThreads = Math.max(peakJvmThreads, threads.getThreadCount());
+                peakConnections = Math.max(peakConnections, activeConnections.getAsInt());
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}